@@ -28,6 +28,7 @@ SCHEDULER_PORT = 9090
 CURRENT_VERSION = 1
 OP_STATS_JSON      = 0x09
 OP_GET_LOGS        = 0x16
+OP_GET_LOGS_SINCE  = 0x21
 OP_GET_JOB_STATUS  = 0x55
 OP_CANCEL_JOB      = 0x56
 OP_KV_SET          = 0x60
@@ -653,17 +654,29 @@ DAG_DASHBOARD_HTML = SHARED_STYLE + """
         <div class="log-body" id="log-body">{{ selected_job.logs }}</div>
       </div>
       <script>
-        // Live-poll logs for this job every 2s
+        // Live-poll logs for this job every 2s, fetching only the lines written since the last poll
         const jobId = "{{ selected_job.id }}";
+        let nextLine = -1000;
+        let shown = 0;
         async function pollLogs() {
+          let more = false;
           try {
-            const r = await fetch(`/api/logs_raw/${jobId}`);
+            const r = await fetch(`/api/logs_since/${jobId}?offset=${nextLine}`);
             if (r.ok) {
-              const t = await r.text();
-              document.getElementById('log-body').textContent = t || 'No logs yet.';
+              const d = await r.json();
+              const body = document.getElementById('log-body');
+              if (d.lines.length) {
+                if (shown === 0) body.textContent = '';
+                body.append(d.lines.join('\n') + '\n');
+                shown += d.lines.length;
+              } else if (shown === 0) {
+                body.textContent = 'No logs yet.';
+              }
+              more = d.lines.length > 0;
+              nextLine = d.next;
             }
           } catch(e) {}
-          setTimeout(pollLogs, 2000);
+          setTimeout(pollLogs, more ? 0 : 2000);
         }
         pollLogs();
       </script>
@@ -1153,27 +1166,32 @@ LOG_VIEW_HTML = SHARED_STYLE + """
   const jobId = "{{ job_id }}";
   const container = document.getElementById('log-container');
   let autoScroll = true;
+  // Line offset of the next poll: start with the last 1000 lines, then only ask for what is new
+  let nextLine = -1000;
   function toggleScroll() {
     autoScroll = !autoScroll;
     document.getElementById('scrollBtn').innerText = "Auto-Scroll: " + (autoScroll ? "ON" : "OFF");
   }
   async function fetchLogs() {
+    let more = false;
     try {
-      const resp = await fetch(`/api/logs_raw/${jobId}`);
+      const resp = await fetch(`/api/logs_since/${jobId}?offset=${nextLine}`);
       if (resp.status !== 200) throw new Error();
-      const text = await resp.text();
+      const d = await resp.json();
       document.getElementById('status-badge').innerText = "LIVE";
       document.getElementById('status-badge').style.background = "#00c853";
-      if (container.innerText !== text) {
-        container.innerText = text;
+      if (d.lines.length) {
+        container.append(d.lines.join("\n") + "\n");
         if (autoScroll) container.scrollTop = container.scrollHeight;
       }
+      more = d.lines.length > 0;
+      nextLine = d.next;
     } catch(e) {
       document.getElementById('status-badge').innerText = "DISCONNECTED";
       document.getElementById('status-badge').style.background = "#d32f2f";
     }
+    setTimeout(fetchLogs, more ? 0 : 1000);
   }
-  setInterval(fetchLogs, 1000);
   fetchLogs();
 </script>
 </body>
@@ -1484,6 +1502,23 @@ def get_raw_logs(job_id):
     return logs if logs else "[Titan] No logs found for this ID yet."
 
 
+@app.route('/api/logs_since/<job_id>')
+def get_logs_since(job_id):
+    """Log lines from ?offset= on, and the offset to poll next; negative offsets count back from the end."""
+    try:
+        offset = int(request.args.get('offset', '0'))
+    except ValueError:
+        return jsonify({"error": "Invalid offset"}), 400
+    raw = titan_communicate(OP_GET_LOGS_SINCE, f"{job_id}|{offset}")
+    parts = (raw or "").split("|", 2)
+    try:
+        first, nxt = int(parts[0]), int(parts[1])
+    except (ValueError, IndexError):
+        return jsonify({"error": "Error fetching logs"}), 500
+    lines = parts[2].split("\n") if nxt > first and len(parts) > 2 else []
+    return jsonify({"lines": lines, "next": nxt})
+
+
 # ================================================================
 # NEW ROUTES — DAG visualizer
 # ================================================================
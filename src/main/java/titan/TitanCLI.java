@@ -15,13 +15,19 @@
 package titan;
 
 
+import titan.network.ChunkedSender;
 import titan.network.TitanProtocol;
 
 import java.io.*;
 import java.net.ConnectException;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 /**The `TitanCLI` class provides a command-line interface for interacting with the Titan Distributed Orchestrator. It allows users to send commands such as uploading files, deploying services, running scripts, viewing cluster statistics, and managing worker nodes to a remote Titan scheduler.
@@ -36,6 +42,10 @@ import java.util.Scanner;
     private final int port;
     /** A `Scanner` object used to read user input from the console.**/
     private final Scanner scanner;
+    /** Maximum number of jobs sent in one `OP_SUBMIT_BATCH` frame by `submit-file`. **/
+    private static final int SUBMIT_BATCH_SIZE = Math.max(1, TitanConfig.getInt("titan.submit.batch.size", 500));
+    /** Maximum payload bytes in one `OP_SUBMIT_BATCH` frame; a batch is sent early once it reaches this size. **/
+    private static final int SUBMIT_BATCH_BYTES = 4 * 1024 * 1024;
     /**
         Constructs a new `TitanCLI` instance, initializing it with the target host and port of the Titan scheduler.
     @param host The hostname or IP address of the Titan scheduler.
@@ -57,6 +67,7 @@ import java.util.Scanner;
         System.out.println("  stop <service_id>    - Stop a running service");
         System.out.println("  shutdown <port>      - Kill a specific worker node");
         System.out.println("  dag <dag_string>     - Submit raw DAG");
+        System.out.println("  submit-file <jobs.jsonl> - Submit one job per line in batches");
         System.out.println("  exit");
     }
 
@@ -67,7 +78,7 @@ import java.util.Scanner;
         System.out.println("    [INFO] TITAN DISTRIBUTED ORCHESTRATOR    ");
         System.out.println("==========================================");
         System.out.println("Connected to: " + host + ":" + port);
-        System.out.println("Commands: stats, deploy, run <filename>, upload <local_path>, dag <dag_string>, exit");
+        System.out.println("Commands: stats, deploy, run <filename>, upload <local_path>, dag <dag_string>, submit-file <jobs.jsonl>, exit");
 
         while (true) {
             System.out.print("\ntitan> ");
@@ -109,6 +120,15 @@ Supported commands include `stats`, `upload`, `submit`, `dag`, `run`, `deploy`,
             handleUpload(localPath);
             return;
         }
+        else if (input.startsWith("submit-file ")) {
+            String path = input.substring(12).trim();
+            if (path.isEmpty()) {
+                System.out.println("[FAIL] Usage: submit-file <jobs.jsonl>");
+                return;
+            }
+            handleSubmitFile(path);
+            return;
+        }
         else if (input.startsWith("submit ")) {
             // Input: "submit PDF_CONVERT file.docx"
             // Desired Payload: "PDF_CONVERT|file.docx|1|0"
@@ -214,6 +234,17 @@ Supported commands include `stats`, `upload`, `submit`, `dag`, `run`, `deploy`,
         try {
             File file = new File(localPath);
 
+            // Large files are streamed in resumable chunks instead of one Base64 frame
+            if (file.isFile() && file.length() > ChunkedSender.INLINE_MAX_BYTES) {
+                String response = ChunkedSender.sendFile(host, port, file, "uploads", file.getName());
+                if (response.startsWith("TRANSFER_COMPLETE")) {
+                    System.out.println("[SUCCESS] Uploaded: " + file.getName() + " (" + file.length() + " bytes, streamed)");
+                } else {
+                    System.out.println("[FAIL] Server Error: " + response);
+                }
+                return;
+            }
+
             // 1. Create the specific payload using the helper
             String payload = createUploadPayload(file);
 
@@ -231,6 +262,231 @@ Supported commands include `stats`, `upload`, `submit`, `dag`, `run`, `deploy`,
         }
     }
 
+    /**
+    Handles the 'submit-file' command. The file is read line by line and sent in `OP_SUBMIT_BATCH` frames of at most `titan.submit.batch.size` jobs over a single connection, so the whole file is never held in memory and each batch costs one round trip. Blank lines and lines starting with `#` are skipped; see `toJobPayload` for the line format.
+
+@param path The path to the local JSONL file.
+**/
+    private void handleSubmitFile(String path) {
+        File file = new File(path);
+        if (!file.isFile()) {
+            System.out.println("[FAIL] File not found: " + path);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        int accepted = 0;
+        int rejected = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+             Socket socket = new Socket(host, port);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+
+            socket.setTcpNoDelay(true);
+            List<byte[]> batch = new ArrayList<>();
+            int batchBytes = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                try {
+                    byte[] job = toJobPayload(line).getBytes(StandardCharsets.UTF_8);
+                    batch.add(job);
+                    batchBytes += job.length;
+                } catch (IllegalArgumentException e) {
+                    System.out.println("[WARN] Skipping line " + lineNumber + ": " + e.getMessage());
+                    rejected++;
+                    continue;
+                }
+                if (batch.size() >= SUBMIT_BATCH_SIZE || batchBytes >= SUBMIT_BATCH_BYTES) {
+                    int[] counts = sendBatch(out, in, batch);
+                    accepted += counts[0];
+                    rejected += counts[1];
+                    batch.clear();
+                    batchBytes = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                int[] counts = sendBatch(out, in, batch);
+                accepted += counts[0];
+                rejected += counts[1];
+            }
+        } catch (IOException e) {
+            System.out.println("[FAIL] Submission stopped after " + accepted + " jobs (line " + lineNumber + "): " + e.getMessage());
+            return;
+        }
+
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        System.out.println("[SUCCESS] Submitted " + accepted + " jobs (" + rejected + " rejected) in " + elapsed + " ms ("
+                + (accepted * 1000L / elapsed) + " jobs/s)");
+    }
+
+    /**
+    Sends one `OP_SUBMIT_BATCH` frame and waits for its acknowledgement.
+
+@param out The stream of the open connection.
+@param in The stream of the open connection.
+@param batch The job payloads, one per frame field.
+@return The accepted and rejected counts reported by the scheduler.
+@throws IOException If the connection fails or the scheduler does not accept the batch.
+**/
+    private int[] sendBatch(DataOutputStream out, DataInputStream in, List<byte[]> batch) throws IOException {
+        TitanProtocol.sendFields(out, TitanProtocol.OP_SUBMIT_BATCH, 0, batch.toArray(new byte[0][]));
+        String response;
+        try {
+            response = TitanProtocol.read(in).payload;
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        if (!response.startsWith("BATCH_ACCEPTED")) {
+            throw new IOException("Server Error: " + response);
+        }
+        String[] parts = response.split("\\|");
+        return new int[]{Integer.parseInt(parts[1]), Integer.parseInt(parts[2])};
+    }
+
+    /**
+    Converts one line of a `submit-file` input into an `OP_SUBMIT_JOB` payload (`[id|]payload|priority|delay`).
+A line is either a JSON object or, if it does not start with `{`, a raw `OP_SUBMIT_JOB` payload that is passed through as is.
+The JSON object takes `payload` (e.g. `RUN_PAYLOAD|script.py|...`) or `skill` and `data` (as in `submit <skill> <data>`),
+and optionally `id`, `priority` (default 1) and `delay` in milliseconds (default 0).
+Example: `{"id": "SWEEP-17", "skill": "GPU", "data": "lr=0.01", "priority": 5}`
+
+@param line A non-blank line of the input file.
+@return The job payload.
+@throws IllegalArgumentException If the line is not valid JSON or names neither `payload` nor `skill`.
+**/
+    static String toJobPayload(String line) {
+        if (!line.startsWith("{")) return line;
+
+        Map<String, Object> job = parseJsonObject(line);
+        String payload;
+        if (job.get("payload") != null) {
+            payload = String.valueOf(job.get("payload"));
+        } else if (job.get("skill") != null) {
+            payload = job.get("skill") + "|" + (job.get("data") == null ? "" : job.get("data"));
+        } else {
+            throw new IllegalArgumentException("job needs \"payload\" or \"skill\"");
+        }
+
+        StringBuilder sb = new StringBuilder();
+        if (job.get("id") != null) sb.append(job.get("id")).append('|');
+        sb.append(payload).append('|').append(asLong(job.get("priority"), 1)).append('|').append(asLong(job.get("delay"), 0));
+        return sb.toString();
+    }
+
+    private static long asLong(Object value, long defaultValue) {
+        if (value == null) return defaultValue;
+        if (value instanceof Number) return ((Number) value).longValue();
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a number: " + value);
+        }
+    }
+
+    /**
+    Parses a flat JSON object (string, number, boolean and null values) as used by `submit-file`.
+
+@param json The JSON text.
+@return The members in file order. Numbers are returned as `Long` or `Double`.
+@throws IllegalArgumentException If the text is not a flat JSON object.
+**/
+    static Map<String, Object> parseJsonObject(String json) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        int[] pos = {0};
+        expect(json, pos, '{');
+        if (peek(json, pos) == '}') {
+            pos[0]++;
+        } else {
+            while (true) {
+                skipWhitespace(json, pos);
+                String key = parseJsonString(json, pos);
+                expect(json, pos, ':');
+                result.put(key, parseJsonValue(json, pos));
+                char c = peek(json, pos);
+                pos[0]++;
+                if (c == '}') break;
+                if (c != ',') throw new IllegalArgumentException("expected ',' or '}' at " + (pos[0] - 1));
+            }
+        }
+        skipWhitespace(json, pos);
+        if (pos[0] != json.length()) throw new IllegalArgumentException("unexpected text after object at " + pos[0]);
+        return result;
+    }
+
+    private static Object parseJsonValue(String json, int[] pos) {
+        char c = peek(json, pos);
+        if (c == '"') return parseJsonString(json, pos);
+        if (c == '{' || c == '[') throw new IllegalArgumentException("nested values are not supported");
+        int start = pos[0];
+        while (pos[0] < json.length() && ",} \t".indexOf(json.charAt(pos[0])) < 0) pos[0]++;
+        String token = json.substring(start, pos[0]);
+        switch (token) {
+            case "true": return Boolean.TRUE;
+            case "false": return Boolean.FALSE;
+            case "null": return null;
+            default:
+                try {
+                    return Long.parseLong(token);
+                } catch (NumberFormatException notLong) {
+                    try {
+                        return Double.parseDouble(token);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("invalid value '" + token + "' at " + start);
+                    }
+                }
+        }
+    }
+
+    private static String parseJsonString(String json, int[] pos) {
+        expect(json, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        while (pos[0] < json.length()) {
+            char c = json.charAt(pos[0]++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos[0] >= json.length()) break;
+            char e = json.charAt(pos[0]++);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (pos[0] + 4 > json.length()) throw new IllegalArgumentException("truncated \\u escape");
+                    sb.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                    pos[0] += 4;
+                    break;
+                default: sb.append(e); // \" \\ \/
+            }
+        }
+        throw new IllegalArgumentException("unterminated string");
+    }
+
+    private static void expect(String json, int[] pos, char expected) {
+        if (peek(json, pos) != expected) throw new IllegalArgumentException("expected '" + expected + "' at " + pos[0]);
+        pos[0]++;
+    }
+
+    private static char peek(String json, int[] pos) {
+        skipWhitespace(json, pos);
+        if (pos[0] >= json.length()) throw new IllegalArgumentException("unexpected end of line");
+        return json.charAt(pos[0]);
+    }
+
+    private static void skipWhitespace(String json, int[] pos) {
+        while (pos[0] < json.length() && Character.isWhitespace(json.charAt(pos[0]))) pos[0]++;
+    }
+
     /**
     Creates the payload string for a file upload operation. The payload consists of the file's name followed by its Base64-encoded content, separated by a pipe (`|`).
 
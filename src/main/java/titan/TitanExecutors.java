@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Central place for creating the threads that serve connections and block on socket I/O.
+ * <p>
+ * With {@code titan.threads.virtual=true} and a JDK 21+ runtime, these threads are virtual threads, so a
+ * handler blocked in {@code TitanProtocol.read} or a callback retry no longer pins a platform thread. The
+ * code is built for JDK 17, so the virtual-thread API is looked up reflectively. On older runtimes (or when
+ * the flag is off) the regular platform-thread executors are used.
+ * </p>
+ */
+public class TitanExecutors {
+
+    private static final ThreadFactory VIRTUAL_FACTORY = lookupVirtualFactory();
+    private static final boolean VIRTUAL_ENABLED =
+            Boolean.parseBoolean(TitanConfig.get("titan.threads.virtual", "false")) && VIRTUAL_FACTORY != null;
+
+    static {
+        if (Boolean.parseBoolean(TitanConfig.get("titan.threads.virtual", "false")) && VIRTUAL_FACTORY == null) {
+            System.out.println("[WARN] titan.threads.virtual is set but this JVM has no virtual threads. Using platform threads.");
+        }
+    }
+
+    /**
+     * @return {@code true} if connection handlers run on virtual threads.
+     */
+    public static boolean isVirtual() {
+        return VIRTUAL_ENABLED;
+    }
+
+    /**
+     * @return {@code true} if the running JVM supports virtual threads, whatever the configuration says.
+     */
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_FACTORY != null;
+    }
+
+    /**
+     * Executor for connection handlers: one virtual thread per task in virtual mode, otherwise a cached pool.
+     *
+     * @param name Prefix for thread names.
+     * @return A new executor.
+     */
+    public static ExecutorService newConnectionExecutor(String name) {
+        return newConnectionExecutor(name, VIRTUAL_ENABLED);
+    }
+
+    /**
+     * Same as {@link #newConnectionExecutor(String)} with an explicit mode, for benchmarks that compare both.
+     *
+     * @param name Prefix for thread names.
+     * @param virtual Whether to use virtual threads. Ignored if the JVM does not support them.
+     * @return A new executor.
+     */
+    public static ExecutorService newConnectionExecutor(String name, boolean virtual) {
+        if (virtual && VIRTUAL_FACTORY != null) {
+            try {
+                Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return (ExecutorService) perTask.invoke(null, VIRTUAL_FACTORY);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("[WARN] Virtual thread executor unavailable: " + e.getMessage());
+            }
+        }
+        return Executors.newCachedThreadPool(platformFactory(name));
+    }
+
+    /**
+     * Single-thread executor whose worker is a virtual thread in virtual mode. Used for long-running loops
+     * that spend most of their time blocked, such as the scheduler dispatch loop.
+     *
+     * @param name Thread name.
+     * @return A new executor.
+     */
+    public static ExecutorService newSingleThreadExecutor(String name) {
+        return Executors.newSingleThreadExecutor(VIRTUAL_ENABLED ? VIRTUAL_FACTORY : platformFactory(name));
+    }
+
+    /**
+     * Starts a background thread, virtual in virtual mode and a daemon platform thread otherwise.
+     *
+     * @param name Thread name.
+     * @param task The code to run.
+     * @return The started thread.
+     */
+    public static Thread startDaemon(String name, Runnable task) {
+        Thread t = VIRTUAL_ENABLED ? VIRTUAL_FACTORY.newThread(task) : new Thread(task);
+        t.setName(name);
+        if (!VIRTUAL_ENABLED) t.setDaemon(true); // virtual threads are always daemons
+        t.start();
+        return t;
+    }
+
+    private static ThreadFactory platformFactory(String name) {
+        AtomicInteger index = new AtomicInteger();
+        return r -> new Thread(r, name + "-" + index.incrementAndGet());
+    }
+
+    // Thread.ofVirtual().name("titan-vt-", 0).factory(), resolved at runtime so the code still builds on JDK 17.
+    private static ThreadFactory lookupVirtualFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "titan-vt-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
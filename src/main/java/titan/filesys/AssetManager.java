@@ -27,11 +27,21 @@ public class AssetManager {
         public final String zipName;
         public final String entryPoint;
         public final String base64Content;
+        // Raw zip bytes; only set by resolvePointerBytes (base64Content is null then).
+        public final byte[] content;
+        // The zip in uploads/. Set by locate, which loads neither content form.
+        public final File file;
 
         public ArchiveInfo(String zipName, String entryPoint, String base64Content) {
+            this(zipName, entryPoint, base64Content, null, null);
+        }
+
+        public ArchiveInfo(String zipName, String entryPoint, String base64Content, byte[] content, File file) {
             this.zipName = zipName;
             this.entryPoint = entryPoint;
             this.base64Content = base64Content;
+            this.content = content;
+            this.file = file;
         }
     }
 
@@ -40,6 +50,26 @@ public class AssetManager {
      * into the raw Base64 data needed for the worker.
      */
     public static ArchiveInfo resolvePointer(String pointer) throws IOException {
+        ArchiveInfo raw = resolvePointerBytes(pointer);
+        String base64 = Base64.getEncoder().encodeToString(raw.content);
+        return new ArchiveInfo(raw.zipName, raw.entryPoint, base64);
+    }
+
+    /**
+     * Same as resolvePointer, but returns the raw zip bytes (in ArchiveInfo.content) for
+     * workers that accept binary v2 frames, skipping the Base64 step.
+     */
+    public static ArchiveInfo resolvePointerBytes(String pointer) throws IOException {
+        ArchiveInfo located = locate(pointer);
+        byte[] fileBytes = Files.readAllBytes(located.file.toPath());
+        return new ArchiveInfo(located.zipName, located.entryPoint, null, fileBytes, located.file);
+    }
+
+    /**
+     * Resolves a pointer to the zip file on disk without reading it, so that large
+     * archives can be streamed to workers instead of loaded into memory.
+     */
+    public static ArchiveInfo locate(String pointer) throws IOException {
         // 1. Parse the string
         int zipIndex = pointer.indexOf(".zip");
         if (zipIndex == -1) {
@@ -60,8 +90,6 @@ public class AssetManager {
         }
 
 
-        byte[] fileBytes = Files.readAllBytes(zipFile.toPath());
-        String base64 = Base64.getEncoder().encodeToString(fileBytes);
-        return new ArchiveInfo(zipName, entryPoint, base64);
+        return new ArchiveInfo(zipName, entryPoint, null, null, zipFile);
     }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.filesys;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Receiving side of the chunked transfer opcodes ({@code OP_TRANSFER_BEGIN / CHUNK / COMMIT}).
+ * <p>
+ * Chunks are written straight to a {@code .<transferId>.part} file next to the destination, so a transfer
+ * never needs more heap than one chunk. The part file survives a dropped connection: a new BEGIN for the same
+ * transfer ID reports how many bytes are already on disk, and the sender resumes from there. COMMIT checks the
+ * size and CRC32 and then renames the part file over the destination.
+ * </p>
+ * Files can only be written into the named target directories given to the constructor.
+ */
+public class ChunkedReceiver {
+    private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9._-]{1,200}");
+
+    private final Map<String, File> targets;
+    private final Map<String, Transfer> transfers = new ConcurrentHashMap<>();
+
+    private static class Transfer {
+        final File part;
+        final File destination;
+        final long totalSize;
+
+        Transfer(File part, File destination, long totalSize) {
+            this.part = part;
+            this.destination = destination;
+            this.totalSize = totalSize;
+        }
+    }
+
+    /**
+     * @param targets Allowed target names (as sent in BEGIN) mapped to their directories.
+     */
+    public ChunkedReceiver(Map<String, File> targets) {
+        this.targets = targets;
+    }
+
+    /**
+     * Starts or resumes a transfer.
+     *
+     * @param payload {@code transferId|target|fileName|totalSize}
+     * @return {@code OFFSET|<n>} with the number of bytes already received, or an error message.
+     */
+    public String begin(String payload) {
+        String[] parts = payload.split("\\|");
+        if (parts.length < 4) return "ERROR: Invalid Transfer Payload";
+        String transferId = parts[0];
+        String fileName = parts[2];
+        if (!SAFE_NAME.matcher(transferId).matches() || !SAFE_NAME.matcher(fileName).matches() || fileName.startsWith(".")) {
+            return "ERROR: Invalid transfer or file name";
+        }
+        File dir = targets.get(parts[1]);
+        if (dir == null) return "ERROR: Unknown transfer target " + parts[1];
+
+        long totalSize;
+        try {
+            totalSize = Long.parseLong(parts[3]);
+        } catch (NumberFormatException e) {
+            return "ERROR: Invalid transfer size";
+        }
+
+        dir.mkdirs();
+        File part = new File(dir, "." + transferId + ".part");
+        if (part.length() > totalSize) {
+            part.delete(); // stale part file from a different file with the same ID
+        }
+        transfers.put(transferId, new Transfer(part, new File(dir, fileName), totalSize));
+        System.out.println("[TRANSFER] " + (part.length() > 0 ? "Resuming " : "Receiving ") + fileName
+                + " (" + part.length() + "/" + totalSize + " bytes)");
+        return "OFFSET|" + part.length();
+    }
+
+    /**
+     * Appends one chunk to the part file. Chunks must arrive in order. If {@code offset} does not match the bytes
+     * already on disk, the chunk is ignored and the current offset is returned so the sender can realign.
+     *
+     * @param transferId The ID given in BEGIN.
+     * @param offset Position of the chunk in the file.
+     * @param data The chunk bytes.
+     * @return {@code OFFSET|<n>} with the new number of bytes on disk, or an error message.
+     */
+    public String chunk(String transferId, long offset, ByteBuffer data) {
+        Transfer t = transfers.get(transferId);
+        if (t == null) return "ERROR: Unknown transfer " + transferId;
+
+        try (FileChannel channel = FileChannel.open(t.part.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (offset != size) return "OFFSET|" + size;
+            if (size + data.remaining() > t.totalSize) return "ERROR: Chunk exceeds announced size";
+
+            ByteBuffer src = data.duplicate();
+            long pos = offset;
+            while (src.hasRemaining()) {
+                pos += channel.write(src, pos);
+            }
+            return "OFFSET|" + pos;
+        } catch (IOException e) {
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Text variant of {@link #chunk(String, long, ByteBuffer)} for v1 clients that cannot send binary frames.
+     *
+     * @param payload {@code transferId|offset|base64Data}
+     * @return {@code OFFSET|<n>} with the new number of bytes on disk, or an error message.
+     */
+    public String chunk(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length < 3) return "ERROR: Invalid Chunk Payload";
+        try {
+            return chunk(parts[0], Long.parseLong(parts[1]), ByteBuffer.wrap(Base64.getDecoder().decode(parts[2])));
+        } catch (IllegalArgumentException e) {
+            return "ERROR: Invalid Chunk Payload";
+        }
+    }
+
+    /**
+     * Verifies and finalizes a transfer.
+     *
+     * @param payload {@code transferId|totalSize|crc32} with the CRC32 in hex.
+     * @return {@code TRANSFER_COMPLETE|<path>} on success, or an error message. On a checksum mismatch the part file
+     *         is deleted so that a retry starts from scratch.
+     */
+    public String commit(String payload) {
+        String[] parts = payload.split("\\|");
+        if (parts.length < 3) return "ERROR: Invalid Commit Payload";
+        Transfer t = transfers.get(parts[0]);
+        if (t == null) return "ERROR: Unknown transfer " + parts[0];
+
+        try {
+            long size = t.part.length();
+            if (size != t.totalSize || size != Long.parseLong(parts[1])) {
+                return "ERROR: Incomplete transfer (" + size + "/" + t.totalSize + " bytes)";
+            }
+            if (crc32(t.part) != Long.parseLong(parts[2], 16)) {
+                t.part.delete();
+                transfers.remove(parts[0]);
+                return "ERROR: Checksum mismatch";
+            }
+            Files.move(t.part.toPath(), t.destination.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            transfers.remove(parts[0]);
+            System.out.println("[TRANSFER] Saved " + t.destination.getPath() + " (" + size + " bytes)");
+            return "TRANSFER_COMPLETE|" + t.destination.getAbsolutePath();
+        } catch (NumberFormatException e) {
+            return "ERROR: Invalid Commit Payload";
+        } catch (IOException e) {
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Computes the CRC32 of a file by streaming it through a small buffer.
+     *
+     * @param file The file to checksum.
+     * @return The CRC32 value.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long crc32(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buf) > 0) {
+                buf.flip();
+                crc.update(buf);
+                buf.clear();
+            }
+        }
+        return crc.getValue();
+    }
+}
@@ -16,13 +16,14 @@ package titan.filesys;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Comparator;
 import java.util.stream.Stream;
 
 public class WorkspaceManager {
-    private static final String ROOT_DIR = "titan_workspace";
+    public static final String ROOT_DIR = "titan_workspace";
 
     public static File setupWorkspace(String id) throws IOException {
         File workspace = new File(ROOT_DIR, id);
@@ -45,6 +46,20 @@ public class WorkspaceManager {
         return workspace;
     }
 
+    public static File stageArchive(String id, ByteBuffer zipData) throws IOException{
+        File workspace = setupWorkspace(id);
+        ZipUtils.unzip(zipData, workspace);
+        System.out.println("[INFO] [WORKSPACE_MANAGER] Staged archive for " + id + " at " + workspace.getAbsolutePath());
+        return workspace;
+    }
+
+    public static File stageArchive(String id, File zipFile) throws IOException{
+        File workspace = setupWorkspace(id);
+        ZipUtils.unzip(zipFile, workspace);
+        System.out.println("[INFO] [WORKSPACE_MANAGER] Staged archive for " + id + " at " + workspace.getAbsolutePath());
+        return workspace;
+    }
+
     public static String resolvePath(String id, String filename){
         File workspace = new File(ROOT_DIR, id);
         File target = new File(workspace, filename);
@@ -15,9 +15,13 @@
 package titan.filesys;
 
 import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Base64;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -25,7 +29,34 @@ import java.util.zip.ZipInputStream;
 public class ZipUtils {
     public static void unzipBase64(String base64Data, File targetDir) throws IOException{
         byte[] zipBytes = Base64.getDecoder().decode(base64Data);
-        try(ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zipBytes))){
+        unzip(new ByteArrayInputStream(zipBytes), targetDir);
+    }
+
+    public static void unzip(ByteBuffer zipData, File targetDir) throws IOException{
+        ByteBuffer data = zipData.duplicate();
+        InputStream in = new InputStream() {
+            @Override
+            public int read() {
+                return data.hasRemaining() ? (data.get() & 0xFF) : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!data.hasRemaining()) return -1;
+                int n = Math.min(len, data.remaining());
+                data.get(b, off, n);
+                return n;
+            }
+        };
+        unzip(in, targetDir);
+    }
+
+    public static void unzip(File zipFile, File targetDir) throws IOException{
+        unzip(new BufferedInputStream(new FileInputStream(zipFile)), targetDir);
+    }
+
+    private static void unzip(InputStream zipStream, File targetDir) throws IOException{
+        try(ZipInputStream zis = new ZipInputStream(zipStream)){
             ZipEntry entry;
             while((entry = zis.getNextEntry()) !=null){
                 File newFile = new File(targetDir, entry.getName());
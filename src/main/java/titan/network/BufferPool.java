@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.network;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small shared pool of scratch byte arrays for the protocol read path.
+ * <p>
+ * Most frames (heartbeats, ACKs, job submissions) are a few hundred bytes and are decoded into a
+ * {@code String} straight away, so their raw bytes only live for the duration of one read. Borrowing a
+ * pooled array avoids allocating a fresh one per packet. Requests larger than {@link #BUFFER_SIZE} get a
+ * plain allocation and are not pooled, so big uploads never pin memory in the pool.
+ * </p>
+ * The pool is shared rather than thread-local so that it also works with virtual threads.
+ */
+class BufferPool {
+    static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_POOLED = 64;
+
+    private static final ConcurrentLinkedQueue<byte[]> free = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * Borrows an array of at least {@code minSize} bytes. Return it with {@link #release(byte[])}.
+     */
+    static byte[] acquire(int minSize) {
+        if (minSize > BUFFER_SIZE) return new byte[minSize];
+        byte[] buf = free.poll();
+        if (buf == null) return new byte[BUFFER_SIZE];
+        pooled.decrementAndGet();
+        return buf;
+    }
+
+    /**
+     * Returns a borrowed array to the pool. Oversized arrays and arrays beyond the pool limit are dropped.
+     */
+    static void release(byte[] buf) {
+        if (buf.length != BUFFER_SIZE) return;
+        if (pooled.incrementAndGet() > MAX_POOLED) {
+            pooled.decrementAndGet();
+            return;
+        }
+        free.offer(buf);
+    }
+}
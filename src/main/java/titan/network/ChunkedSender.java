@@ -0,0 +1,175 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.network;
+
+import titan.TitanConfig;
+import titan.filesys.ChunkedReceiver;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sending side of the chunked transfer opcodes ({@code OP_TRANSFER_BEGIN / CHUNK / COMMIT}).
+ * <p>
+ * The file is streamed over a dedicated {@link SocketChannel} with {@link FileChannel#transferTo}, so its content
+ * is copied from the page cache to the socket without ever being loaded onto the heap. Each chunk is a v2 frame:
+ * only the frame header and field prefixes are built in memory, and the chunk bytes follow them straight from
+ * the file.
+ * </p>
+ * <p>
+ * If the connection drops, the sender reconnects and sends BEGIN again. The receiver answers with the number of
+ * bytes it already has, and the transfer resumes from that offset. The transfer ID is derived from the file
+ * name, size and modification time, so a restarted transfer of the same file finds its partial data.
+ * </p>
+ */
+public class ChunkedSender {
+    private static final int CHUNK_SIZE = Math.max(4096, TitanConfig.getInt("titan.transfer.chunk.size", 1024 * 1024));
+    private static final int MAX_ATTEMPTS = Math.max(1, TitanConfig.getInt("titan.transfer.retries", 3));
+
+    /**
+     * Files up to this size are still sent inline in a single frame; larger ones are streamed in chunks.
+     */
+    public static final long INLINE_MAX_BYTES = TitanConfig.getInt("titan.transfer.inline.max", 1024 * 1024);
+
+    /**
+     * Streams a file to a Titan endpoint.
+     *
+     * @param host The receiver host.
+     * @param port The receiver port.
+     * @param file The local file to send.
+     * @param target The receiver-side target directory name (e.g. "uploads", "perm_files", "workspace").
+     * @param remoteName The file name on the receiver.
+     * @return The receiver's COMMIT response ({@code TRANSFER_COMPLETE|<path>}) or an error message starting with "ERROR".
+     */
+    public static String sendFile(String host, int port, File file, String target, String remoteName) {
+        long size = file.length();
+        String transferId = (remoteName + "-" + Long.toHexString(size) + "-" + Long.toHexString(file.lastModified()))
+                .replaceAll("[^A-Za-z0-9._-]", "_");
+        long crc;
+        try {
+            crc = ChunkedReceiver.crc32(file);
+        } catch (IOException e) {
+            return "ERROR: Cannot read " + file + ": " + e.getMessage();
+        }
+
+        IOException lastError = null;
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try (SocketChannel socket = SocketChannel.open(new InetSocketAddress(host, port));
+                 FileChannel source = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                socket.socket().setTcpNoDelay(true);
+
+                String begin = request(socket, TitanProtocol.OP_TRANSFER_BEGIN,
+                        transferId + "|" + target + "|" + remoteName + "|" + size);
+                long offset = parseOffset(begin);
+                if (offset > 0) {
+                    System.out.println("[TRANSFER] Resuming " + remoteName + " at " + offset + "/" + size + " bytes");
+                }
+
+                while (offset < size) {
+                    int len = (int) Math.min(CHUNK_SIZE, size - offset);
+                    writeChunk(socket, source, transferId, offset, len);
+                    String ack = readResponse(socket);
+                    if (ack.startsWith("ERROR")) throw new IOException(ack); // e.g. receiver restarted: BEGIN again
+                    offset = parseOffset(ack);
+                }
+
+                return request(socket, TitanProtocol.OP_TRANSFER_COMMIT,
+                        transferId + "|" + size + "|" + Long.toHexString(crc));
+            } catch (TransferRejectedException e) {
+                return e.getMessage();
+            } catch (IOException e) {
+                lastError = e;
+                System.err.println("[TRANSFER] Attempt " + attempt + "/" + MAX_ATTEMPTS + " for " + remoteName
+                        + " to " + host + ":" + port + " failed: " + e.getMessage());
+            }
+        }
+        return "ERROR: Transfer failed: " + (lastError == null ? "unknown" : lastError.getMessage());
+    }
+
+    // The receiver refused the transfer; retrying would not help.
+    private static class TransferRejectedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        TransferRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    private static long parseOffset(String response) throws IOException {
+        if (!response.startsWith("OFFSET|")) throw new TransferRejectedException(response);
+        try {
+            return Long.parseLong(response.substring("OFFSET|".length()).trim());
+        } catch (NumberFormatException e) {
+            throw new TransferRejectedException("ERROR: Bad transfer response " + response);
+        }
+    }
+
+    private static void writeChunk(SocketChannel socket, FileChannel source, String transferId, long offset, int len) throws IOException {
+        byte[] id = transferId.getBytes(StandardCharsets.UTF_8);
+        byte[] off = Long.toString(offset).getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 4 + id.length + 4 + off.length + 4 + len;
+
+        ByteBuffer header = ByteBuffer.allocate(TitanProtocol.HEADER_SIZE + bodyLength - len);
+        header.put(TitanProtocol.PROTOCOL_V2).put(TitanProtocol.OP_TRANSFER_CHUNK).put((byte) 0).put((byte) 0);
+        header.putInt(bodyLength);
+        header.putInt(id.length).put(id);
+        header.putInt(off.length).put(off);
+        header.putInt(len);
+        header.flip();
+        while (header.hasRemaining()) socket.write(header);
+
+        long sent = 0;
+        while (sent < len) {
+            long n = source.transferTo(offset + sent, len - sent, socket);
+            if (n <= 0 && offset + sent >= source.size()) throw new EOFException("File shrank during transfer");
+            sent += n;
+        }
+    }
+
+    private static String request(SocketChannel socket, byte opCode, String payload) throws IOException {
+        ByteBuffer frame = TitanProtocol.encode(opCode, payload, 0);
+        while (frame.hasRemaining()) socket.write(frame);
+        String response = readResponse(socket);
+        if (response.startsWith("ERROR")) throw new TransferRejectedException(response);
+        return response;
+    }
+
+    private static String readResponse(SocketChannel socket) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(TitanProtocol.HEADER_SIZE);
+        readFully(socket, header);
+        header.flip();
+        int frameLength = TitanProtocol.peekFrameLength(header);
+
+        ByteBuffer frame = ByteBuffer.allocate(frameLength);
+        frame.put(header);
+        readFully(socket, frame);
+        frame.flip();
+        TitanProtocol.TitanPacket packet = TitanProtocol.decode(frame);
+        return packet.opCode == TitanProtocol.OP_ERROR ? "ERROR: " + packet.asText() : packet.asText();
+    }
+
+    private static void readFully(SocketChannel socket, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (socket.read(buf) < 0) throw new EOFException("Connection closed by receiver");
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.network;
+
+import titan.TitanConfig;
+import titan.TitanExecutors;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One persistent, ordered and acknowledged connection from a worker to the scheduler. It carries callbacks
+ * ({@code OP_JOB_COMPLETE}), logs ({@code OP_LOG_BATCH}, {@code OP_LOG_STREAM}), service readiness and stop notices
+ * ({@code OP_SERVICE_READY}, {@code OP_UNREGISTER_SERVICE}) and load reports ({@code OP_LOAD_REPORT}).
+ * <p>
+ * {@link #send(byte, String)} only queues the message. A sender thread drains the queue into
+ * {@code OP_CONTROL_BATCH} frames: it waits up to {@code titan.channel.linger.ms} so that messages arriving
+ * close together share one frame. It then sends the batch and waits for the scheduler's {@code ACK|<seq>} before
+ * sending the next one, so messages are applied in the order they were queued.
+ * </p>
+ * <p>
+ * If the connection fails, the sender reconnects with backoff and resends the unacknowledged batch with the same
+ * sequence number. The scheduler skips batches it has already applied, so a batch is never applied twice.
+ * Messages queued in the meantime are buffered. Once {@code titan.channel.buffer} messages are waiting, new logs and
+ * load reports are dropped, but callbacks and service notices are always kept.
+ * </p>
+ * <p>
+ * Schedulers that predate the channel only speak v1 and cannot read an {@code OP_CONTROL_BATCH} frame. For them the
+ * channel sends each message on its own connection, as workers did before. It learns the scheduler's version at
+ * registration ({@link #schedulerVersion}), and also falls back if the scheduler answers a batch with
+ * {@code UNKNOWN_OPCODE}. Any other failure, such as a scheduler that is restarting, is retried with backoff: the
+ * worker re-registers every 30 seconds, and that tells it the version of whatever scheduler it reaches.
+ * </p>
+ */
+public class ControlChannel {
+    private static final int BUFFER_LIMIT = Math.max(100, TitanConfig.getInt("titan.channel.buffer", 10000));
+    private static final int BATCH_MAX_MESSAGES = Math.max(1, TitanConfig.getInt("titan.channel.batch.max", 256));
+    private static final int BATCH_MAX_BYTES = 1024 * 1024;
+    private static final long LINGER_MS = Math.max(0, TitanConfig.getInt("titan.channel.linger.ms", 5));
+    private static final long MAX_BACKOFF_MS = 5000;
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int ACK_TIMEOUT_MS = 30000;
+
+    private static final Map<String, ControlChannel> channels = new ConcurrentHashMap<>();
+
+    private final String host;
+    private final int port;
+    // Identifies this sender's sequence space on the scheduler; new on every process start.
+    private final String channelId = UUID.randomUUID().toString();
+    private final LinkedBlockingDeque<Message> queue = new LinkedBlockingDeque<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Object flushLock = new Object();
+
+    private Socket socket;
+    private DataOutputStream out;
+    private DataInputStream in;
+    private long nextSeq = 1;
+    private volatile boolean legacyScheduler = false;
+    private volatile boolean connected = false;
+    private volatile int unacked = 0;
+
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private static class Message {
+        final byte opCode;
+        final String payload;
+
+        Message(byte opCode, String payload) {
+            this.opCode = opCode;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Returns the channel to a scheduler, creating it on first use. All callers in this process that talk to the same
+     * scheduler share one channel and one connection.
+     *
+     * @param host The scheduler host.
+     * @param port The scheduler port.
+     * @return The shared channel.
+     */
+    public static ControlChannel to(String host, int port) {
+        return channels.computeIfAbsent(host + ":" + port, k -> new ControlChannel(host, port));
+    }
+
+    private ControlChannel(String host, int port) {
+        this.host = host;
+        this.port = port;
+        TitanExecutors.startDaemon("titan-control-" + host + ":" + port, this::sendLoop);
+    }
+
+    /**
+     * Queues a message for the scheduler. Never blocks on the network.
+     *
+     * @param opCode The operation code, as if the message were sent on its own.
+     * @param payload The v1 payload of the message.
+     */
+    public void send(byte opCode, String payload) {
+        boolean droppable = opCode == TitanProtocol.OP_LOG_BATCH || opCode == TitanProtocol.OP_LOG_STREAM
+                || opCode == TitanProtocol.OP_LOAD_REPORT;
+        if (droppable && queued.get() >= BUFFER_LIMIT) {
+            if (dropped.incrementAndGet() % 1000 == 1) {
+                System.err.println("[CHANNEL] Backlog to scheduler " + host + ":" + port + " is full (" + (connected ? "connected" : "disconnected")
+                        + "): dropping logs (" + dropped.get() + " so far)");
+            }
+            return;
+        }
+        queued.incrementAndGet();
+        queue.add(new Message(opCode, payload));
+    }
+
+    /**
+     * Records the protocol version the scheduler agreed to at registration. Below {@link TitanProtocol#PROTOCOL_V2},
+     * the scheduler cannot read {@code OP_CONTROL_BATCH} frames and messages are sent one by one.
+     *
+     * @param version The negotiated version; 1 for schedulers that predate negotiation.
+     */
+    public void schedulerVersion(int version) {
+        boolean legacy = version < TitanProtocol.PROTOCOL_V2;
+        if (legacy && !legacyScheduler) {
+            System.out.println("[CHANNEL] Scheduler " + host + ":" + port + " speaks protocol v" + version + "; sending messages individually");
+        }
+        legacyScheduler = legacy;
+    }
+
+    /**
+     * Waits until every message queued so far has been acknowledged by the scheduler.
+     *
+     * @param timeoutMs The maximum time to wait.
+     * @return {@code true} if the queue was drained in time.
+     */
+    public boolean flush(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (flushLock) {
+            while (queued.get() > 0) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) return false;
+                try {
+                    flushLock.wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of messages queued or sent and not yet acknowledged.
+     */
+    public int backlog() {
+        return queued.get();
+    }
+
+    /**
+     * @return A one-line summary of the channel state for diagnostics.
+     */
+    public String getStats() {
+        return String.format("%s | %d queued, %d unacked | %d batches / %d messages sent | %d reconnects | %d dropped%s",
+                connected ? "connected" : "disconnected", queued.get(), unacked, batchesSent.get(), messagesSent.get(),
+                Math.max(0, connects.get() - 1), dropped.get(), legacyScheduler ? " | legacy scheduler" : "");
+    }
+
+    private void sendLoop() {
+        List<Message> batch = new ArrayList<>();
+        long backoff = 100;
+        while (true) {
+            try {
+                if (batch.isEmpty()) collect(batch);
+                unacked = batch.size();
+                if (legacyScheduler) {
+                    sendOneByOne(batch);
+                } else {
+                    sendBatch(batch);
+                }
+                batchesSent.incrementAndGet();
+                messagesSent.addAndGet(batch.size());
+                acknowledged(batch.size());
+                batch.clear();
+                unacked = 0;
+                backoff = 100;
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                // Keep the batch (and its sequence number) and try again on a new connection.
+                disconnect();
+                System.err.println("[CHANNEL] Lost scheduler " + host + ":" + port + " (" + e.getMessage()
+                        + "), buffering " + queued.get() + " messages, retry in " + backoff + "ms");
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    // Blocks for the first message, then lingers briefly to pick up more.
+    private void collect(List<Message> batch) throws InterruptedException {
+        batch.add(queue.take());
+        long bytes = batch.get(0).payload.length();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER_MS);
+        while (batch.size() < BATCH_MAX_MESSAGES && bytes < BATCH_MAX_BYTES) {
+            Message next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+            bytes += next.payload.length();
+        }
+    }
+
+    private void sendBatch(List<Message> batch) throws IOException {
+        long seq = nextSeq;
+        // Fields: channelId, seq, then (opCode, payload) for each message.
+        byte[][] fields = new byte[2 + batch.size() * 2][];
+        fields[0] = channelId.getBytes(StandardCharsets.UTF_8);
+        fields[1] = Long.toString(seq).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < batch.size(); i++) {
+            fields[2 + i * 2] = new byte[]{batch.get(i).opCode};
+            fields[3 + i * 2] = batch.get(i).payload.getBytes(StandardCharsets.UTF_8);
+        }
+
+        ensureConnected();
+        TitanProtocol.sendFields(out, TitanProtocol.OP_CONTROL_BATCH, 0,
+                TitanProtocol.peerAcceptsCompression(host, port), fields);
+        TitanProtocol.TitanPacket ack = readResponse();
+        TitanProtocol.notePeer(host, port, ack);
+
+        if (ack.payload.startsWith("UNKNOWN_OPCODE")) {
+            System.out.println("[CHANNEL] Scheduler " + host + ":" + port + " has no control channel; sending messages individually");
+            legacyScheduler = true;
+            disconnect();
+            sendOneByOne(batch);
+            return;
+        }
+        if (!ack.payload.equals("ACK|" + seq)) {
+            throw new IOException("Unexpected control channel response: " + ack.payload);
+        }
+        nextSeq++;
+    }
+
+    // Fallback for old schedulers: one connection per message, as before the channel existed.
+    private void sendOneByOne(List<Message> batch) throws IOException {
+        while (!batch.isEmpty()) {
+            Message m = batch.get(0);
+            try (Socket s = new Socket()) {
+                s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+                s.setSoTimeout(ACK_TIMEOUT_MS);
+                DataOutputStream o = new DataOutputStream(s.getOutputStream());
+                TitanProtocol.send(o, m.opCode, m.payload);
+                TitanProtocol.read(new DataInputStream(s.getInputStream()));
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            batch.remove(0);
+            messagesSent.incrementAndGet();
+            acknowledged(1);
+        }
+    }
+
+    private TitanProtocol.TitanPacket readResponse() throws IOException {
+        try {
+            return TitanProtocol.read(in);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private void ensureConnected() throws IOException {
+        if (socket != null) return;
+        Socket s = new Socket();
+        s.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        s.setTcpNoDelay(true);
+        s.setKeepAlive(true);
+        s.setSoTimeout(ACK_TIMEOUT_MS);
+        socket = s;
+        out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+        in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+        connects.incrementAndGet();
+        connected = true;
+    }
+
+    private void disconnect() {
+        connected = false;
+        if (socket != null) {
+            try { socket.close(); } catch (IOException ignored) {}
+        }
+        socket = null;
+    }
+
+    private void acknowledged(int count) {
+        queued.addAndGet(-count);
+        synchronized (flushLock) {
+            flushLock.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.network;
+
+import titan.TitanConfig;
+import titan.TitanExecutors;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ships the log lines of every job and service on a worker to the scheduler. There is one shipper per worker, with one
+ * thread, whatever the number of jobs running.
+ * <p>
+ * {@link #ship} only buffers the line under its job ID. The shipper thread sends what is buffered once
+ * {@code titan.worker.logs.flush.bytes} are pending or the oldest pending line has waited
+ * {@code titan.worker.logs.flush.ms}: one {@code OP_LOG_BATCH} per job, queued together on the worker's
+ * {@link ControlChannel}, which packs them into a single frame. A busy worker thus sends large multi-job frames, and a
+ * quiet one still gets each line out within the flush interval.
+ * </p>
+ * <p>
+ * While the channel has {@code titan.worker.logs.channel.max} messages waiting, the scheduler is behind and the shipper
+ * holds the lines back. They stay in the shipper's buffer, limited to {@code titan.worker.logs.buffer.bytes}. Over
+ * that limit, only one line in {@code titan.worker.logs.sample.every} per job is kept, and at twice the limit all new
+ * lines are dropped. A job's next batch starts with a line saying how many of its lines were dropped.
+ * </p>
+ * {@link #finish} sends a job's remaining lines at once, so that they are queued ahead of its completion callback.
+ */
+public class LogShipper {
+    private static final int FLUSH_BYTES = Math.max(1024, TitanConfig.getInt("titan.worker.logs.flush.bytes", 256 * 1024));
+    private static final long FLUSH_MS = Math.max(1, TitanConfig.getInt("titan.worker.logs.flush.ms", 200));
+    private static final long BUFFER_BYTES = Math.max(64 * 1024, TitanConfig.getInt("titan.worker.logs.buffer.bytes", 8 * 1024 * 1024));
+    private static final int SAMPLE_EVERY = Math.max(1, TitanConfig.getInt("titan.worker.logs.sample.every", 10));
+    private static final int CHANNEL_MAX = Math.max(1, TitanConfig.getInt("titan.worker.logs.channel.max", 1000));
+    // Upper bound for one OP_LOG_BATCH payload; a job with more pending is sent in several
+    private static final int MESSAGE_MAX_BYTES = 256 * 1024;
+
+    private static final class Stream {
+        final List<String> lines = new ArrayList<>();
+        int bytes;
+        // Lines seen while over the buffer limit, to keep one in SAMPLE_EVERY
+        long sampleCount;
+        // Lines dropped since the job's last batch
+        long dropped;
+    }
+
+    private final ControlChannel channel;
+    // Guarded by this
+    private final Map<String, Stream> streams = new LinkedHashMap<>();
+    private long pendingBytes;
+    private long oldestPendingAt;
+
+    private final AtomicLong linesShipped = new AtomicLong();
+    private final AtomicLong linesSampled = new AtomicLong();
+    private final AtomicLong linesDropped = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong flushesHeld = new AtomicLong();
+
+    /**
+     * Creates the shipper and starts its thread.
+     *
+     * @param channel The worker's channel to the scheduler.
+     */
+    public LogShipper(ControlChannel channel) {
+        this.channel = channel;
+        TitanExecutors.startDaemon("titan-log-shipper", this::run);
+    }
+
+    /**
+     * Buffers a log line of a job. Never blocks on the network.
+     *
+     * @param jobId The job or service that wrote the line.
+     * @param line The line, without its line terminator.
+     */
+    public synchronized void ship(String jobId, String line) {
+        Stream stream = streams.computeIfAbsent(jobId, k -> new Stream());
+        if (pendingBytes >= BUFFER_BYTES) {
+            if (pendingBytes >= 2 * BUFFER_BYTES || stream.sampleCount++ % SAMPLE_EVERY != 0) {
+                stream.dropped++;
+                if (linesDropped.incrementAndGet() % 10000 == 1) {
+                    System.err.println("[WARN] Log buffer full (" + pendingBytes / 1024 + " KB, channel "
+                            + channel.backlog() + " queued): dropping log lines (" + linesDropped.get() + " so far)");
+                }
+                return;
+            }
+            linesSampled.incrementAndGet();
+        }
+        long before = pendingBytes;
+        if (before == 0) oldestPendingAt = System.currentTimeMillis();
+        int bytes = line.length() + 1;
+        stream.lines.add(line);
+        stream.bytes += bytes;
+        pendingBytes += bytes;
+        // Wake the shipper for the first line, which starts the flush timer, and when a full batch is pending
+        if (before == 0 || (before < FLUSH_BYTES && pendingBytes >= FLUSH_BYTES)) notifyAll();
+    }
+
+    /**
+     * Sends the lines a job still has buffered, whatever the channel backlog, and forgets the job. Called when the job
+     * or service ends.
+     *
+     * @param jobId The job.
+     */
+    public synchronized void finish(String jobId) {
+        Stream stream = streams.remove(jobId);
+        if (stream != null) send(jobId, stream);
+    }
+
+    /**
+     * Sends everything buffered, whatever the channel backlog. Used when the worker stops.
+     */
+    public synchronized void flush() {
+        for (Map.Entry<String, Stream> e : streams.entrySet()) send(e.getKey(), e.getValue());
+        streams.clear();
+    }
+
+    /**
+     * @return A one-line summary of the shipper state for diagnostics.
+     */
+    public synchronized String getStats() {
+        return String.format("%d jobs, %d KB buffered | %d lines in %d batches shipped | %d sampled, %d dropped | held %d times",
+                streams.size(), pendingBytes / 1024, linesShipped.get(), batchesSent.get(), linesSampled.get(),
+                linesDropped.get(), flushesHeld.get());
+    }
+
+    private synchronized void run() {
+        while (true) {
+            try {
+                long now = System.currentTimeMillis();
+                if (pendingBytes == 0) {
+                    wait();
+                    continue;
+                }
+                long due = oldestPendingAt + FLUSH_MS - now;
+                if (pendingBytes < FLUSH_BYTES && due > 0) {
+                    wait(due);
+                    continue;
+                }
+                if (channel.backlog() >= CHANNEL_MAX) {
+                    // The scheduler is behind: keep the lines here, where the buffer limit applies
+                    flushesHeld.incrementAndGet();
+                    wait(FLUSH_MS);
+                    continue;
+                }
+                flush();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Caller holds the lock and removes the stream from the map
+    private void send(String jobId, Stream stream) {
+        StringBuilder block = new StringBuilder(Math.min(stream.bytes + 64, MESSAGE_MAX_BYTES) + jobId.length() + 1);
+        block.append(jobId).append('|');
+        int empty = block.length();
+        if (stream.dropped > 0) {
+            block.append("[TITAN] ").append(stream.dropped)
+                    .append(" log lines dropped on the worker while the scheduler was behind");
+        }
+        for (String line : stream.lines) {
+            if (block.length() > empty && block.length() + line.length() >= MESSAGE_MAX_BYTES) {
+                sendBlock(block);
+                block.setLength(empty);
+            }
+            if (block.length() > empty) block.append('\n');
+            block.append(line);
+        }
+        if (block.length() > empty) sendBlock(block);
+        linesShipped.addAndGet(stream.lines.size());
+        pendingBytes -= stream.bytes;
+    }
+
+    private void sendBlock(StringBuilder block) {
+        // Format: jobId|line1\nline2\nline3...
+        channel.send(TitanProtocol.OP_LOG_BATCH, block.toString());
+        batchesSent.incrementAndGet();
+    }
+}
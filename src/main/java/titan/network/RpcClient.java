@@ -14,13 +14,21 @@
 
 package titan.network;
 
+import titan.TitanConfig;
 import titan.network.TitanProtocol;
 import titan.scheduler.WorkerRegistry;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 /**
  * {@code RpcClient} provides functionality for making Remote Procedure Calls (RPC) to a server.
@@ -30,9 +38,24 @@ import java.net.Socket;
  * This client is designed to interact with servers that implement the {@link titan.network.TitanProtocol}
  * for data exchange, supporting various operation codes and payloads.
  * </p>
+ * <p>
+ * Connections are pooled per target ({@code host:port}) and kept open between calls. Each pooled
+ * {@link RpcConnection} multiplexes many in-flight requests using correlation IDs, so the dispatch loop,
+ * heartbeats and control commands no longer pay a TCP handshake per message.
+ * </p>
  */
     public class RpcClient {
     WorkerRegistry workerRegistry;
+
+    // If i dont get response within 30 seconds I timeout (detecting failed jobs)
+    private static final int REQUEST_TIMEOUT_MS = 30000;
+
+    // Upper bound of sockets kept open to a single target. A new socket is only opened when all
+    // existing ones are busy, so an idle worker costs exactly one connection.
+    private final int maxConnectionsPerTarget = Math.max(1, TitanConfig.getInt("titan.rpc.pool.size", 4));
+
+    private final Map<String, List<RpcConnection>> pools = new ConcurrentHashMap<>();
+
 //    public RpcClient(){}
     /**
  * Constructs a new {@code RpcClient} instance.
@@ -70,13 +93,13 @@ import java.net.Socket;
     /**
  * Sends a request to a specified host and port with a given operation code and payload.
  * <p>
- * This is the primary method for sending RPC requests. It establishes a socket connection,
- * sets a read timeout, sends the request using {@link TitanProtocol#send(DataOutputStream, byte, String)},
- * and then waits for and reads the server's response using {@link TitanProtocol#read(DataInputStream)}.
+ * This is the primary method for sending RPC requests. It borrows a pooled connection to the target,
+ * sends the request tagged with a correlation ID and blocks until the matching response arrives or
+ * the 30 second request timeout expires.
  * </p>
  * <p>
  * If the server returns an error ({@link TitanProtocol#OP_ERROR}), an error message is logged
- * and returned. In case of an {@link IOException}, it indicates a network problem or a dead
+ * and returned. In case of an {@link IOException} or timeout, it indicates a network problem or a dead
  * server/worker, and {@code null} is returned. Other exceptions result in a client-side error message.
  * </p>
  * @param host The hostname or IP address of the server to connect to.
@@ -88,27 +111,168 @@ import java.net.Socket;
  *         IO error occurs indicating a potential network issue or dead worker.
  */
     public String sendRequest(String host, int port, byte opCode, String payload){
-        try(Socket socket = new Socket(host, port)){
-            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
-            int timeout = 30000;
-            socket.setSoTimeout(timeout); // If i dont get response within 30 seconds I timeout (detecting failed jobs)
-            TitanProtocol.send(out, opCode, payload);
-
-            DataInputStream in = new DataInputStream(socket.getInputStream());
-            TitanProtocol.TitanPacket response = TitanProtocol.read(in);
-
-            if (response.opCode == TitanProtocol.OP_ERROR) {
-                System.err.println("[RpcClient] Server returned error: " + response.payload);
-                return "ERROR: " + response.payload;
-            }
-            return response.payload;
-        }catch (IOException e) {
-            System.err.println("[RpcClient] IO Error to " + host + ":" + port + " -> " + e.getMessage());
-            return null; // Signals a dead worker/main.java.titan.network issue
+        try {
+            return sendRequestAsync(host, port, opCode, payload).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERROR_CLIENT: Interrupted";
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            return "ERROR_CLIENT: " + e.getCause().getMessage();
         }
-        catch (Exception e){
+    }
+
+    /**
+     * Asynchronous variant of {@link #sendRequest(String, int, byte, String)}.
+     * <p>
+     * The request is written on a pooled connection immediately and the returned future completes when
+     * the response arrives. The completion value follows the same contract as the blocking call: the
+     * response payload, an {@code "ERROR: "}-prefixed message for {@link TitanProtocol#OP_ERROR} responses,
+     * or {@code null} if the target is unreachable or does not answer within the request timeout.
+     * </p>
+     *
+     * @param host The hostname or IP address of the server to connect to.
+     * @param port The port number on the server to connect to.
+     * @param opCode The operation code indicating the type of request.
+     * @param payload The string payload to send as part of the request.
+     * @return A future holding the response payload.
+     */
+    public CompletableFuture<String> sendRequestAsync(String host, int port, byte opCode, String payload) {
+        return sendOnPool(host, port, opCode, c -> c.send(opCode, payload), true);
+    }
+
+    /**
+     * Sends a {@link TitanProtocol#PROTOCOL_V2} request made of raw binary fields and blocks for the response.
+     * Only use this for workers that negotiated v2 at registration. It follows the same return contract as
+     * {@link #sendRequest(String, int, byte, String)}.
+     *
+     * @param host The hostname or IP address of the server to connect to.
+     * @param port The port number on the server to connect to.
+     * @param opCode The operation code indicating the type of request.
+     * @param fields The fields of the request, e.g. a file name followed by the file bytes.
+     * @return The response payload, an {@code "ERROR: "}-prefixed message, or {@code null} if the target is unreachable.
+     */
+    public String sendFields(String host, int port, byte opCode, byte[]... fields) {
+        try {
+            return sendOnPool(host, port, opCode, c -> c.sendFields(opCode, fields), true).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERROR_CLIENT: Interrupted";
+        } catch (ExecutionException e) {
             e.printStackTrace();
-            return "ERROR_CLIENT: " + e.getMessage();
+            return "ERROR_CLIENT: " + e.getCause().getMessage();
+        }
+    }
+
+    private CompletableFuture<String> sendOnPool(String host, int port, byte opCode,
+                                                 Function<RpcConnection, CompletableFuture<TitanProtocol.TitanPacket>> request,
+                                                 boolean mayRetry) {
+        RpcConnection connection;
+        try {
+            connection = borrow(host, port);
+        } catch (IOException e) {
+            System.err.println("[RpcClient] IO Error to " + host + ":" + port + " -> " + e.getMessage());
+            return CompletableFuture.completedFuture(null); // Signals a dead worker/main.java.titan.network issue
+        }
+
+        // A socket that has answered before may have been closed by a worker restart since then.
+        boolean reused = connection.hasAnswered();
+        CompletableFuture<TitanProtocol.TitanPacket> response = request.apply(connection);
+        return response
+                .orTimeout(REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .handle((packet, error) -> {
+                    if (error == null) {
+                        if (packet.opCode == TitanProtocol.OP_ERROR) {
+                            System.err.println("[RpcClient] Server returned error: " + packet.payload);
+                            return CompletableFuture.completedFuture("ERROR: " + packet.payload);
+                        }
+                        return CompletableFuture.completedFuture(packet.payload);
+                    }
+
+                    Throwable cause = (error instanceof CompletionException && error.getCause() != null)
+                            ? error.getCause() : error;
+                    if (cause instanceof TimeoutException) {
+                        // Only this request gave up: the others on the socket may still be answered.
+                        if (connection.timedOut(response)) connection.close(new IOException("Request timed out"));
+                        System.err.println("[RpcClient] Timeout waiting for " + host + ":" + port);
+                    } else if (mayRetry && (cause instanceof RpcConnection.NotSentException || (reused && isIdempotent(opCode)))) {
+                        // Stale pooled socket: try once more on a fresh connection before declaring the target dead.
+                        // A request the peer may have received is only resent if running it twice is harmless.
+                        return sendOnPool(host, port, opCode, request, false);
+                    } else {
+                        System.err.println("[RpcClient] IO Error to " + host + ":" + port + " -> " + cause.getMessage());
+                    }
+                    return CompletableFuture.<String>completedFuture(null); // Signals a dead worker/main.java.titan.network issue
+                })
+                .thenCompose(f -> f);
+    }
+
+    // Requests that only read state, so a resend after a lost response cannot run anything twice
+    private static boolean isIdempotent(byte opCode) {
+        switch (opCode) {
+            case TitanProtocol.OP_HEARTBEAT:
+            case TitanProtocol.OP_STATS:
+            case TitanProtocol.OP_STATS_JSON:
+            case TitanProtocol.OP_GET_LOGS:
+            case TitanProtocol.OP_GET_LOGS_SINCE:
+            case TitanProtocol.OP_SEARCH_LOGS:
+            case TitanProtocol.OP_FETCH_ASSET:
+            case TitanProtocol.OP_GET_JOB_STATUS:
+            case TitanProtocol.OP_KV_GET:
+            case TitanProtocol.OP_KV_SMEMBERS:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Closes every pooled connection to the given target. Called when a worker is removed from the
+     * cluster so that its sockets and reader threads are released.
+     *
+     * @param host The hostname or IP address of the target.
+     * @param port The port number of the target.
+     */
+    public void closeConnections(String host, int port) {
+        List<RpcConnection> pool = pools.remove(host + ":" + port);
+        if (pool != null) {
+            for (RpcConnection c : pool) c.close(new IOException("Connection pool closed"));
+        }
+    }
+
+    /**
+     * Closes all pooled connections.
+     */
+    public void shutdown() {
+        for (String key : pools.keySet()) {
+            List<RpcConnection> pool = pools.remove(key);
+            if (pool != null) {
+                for (RpcConnection c : pool) c.close(new IOException("RpcClient shut down"));
+            }
+        }
+    }
+
+    /**
+     * Picks the least busy open connection to the target, opening a new one if there is none or if
+     * every existing connection already has requests in flight and the pool has room to grow.
+     */
+    private RpcConnection borrow(String host, int port) throws IOException {
+        List<RpcConnection> pool = pools.computeIfAbsent(host + ":" + port, k -> new CopyOnWriteArrayList<>());
+
+        synchronized (pool) {
+            pool.removeIf(c -> !c.isOpen());
+
+            RpcConnection best = null;
+            for (RpcConnection c : pool) {
+                if (best == null || c.inFlight() < best.inFlight()) best = c;
+            }
+
+            if (best == null || (best.inFlight() > 0 && pool.size() < maxConnectionsPerTarget)) {
+                RpcConnection fresh = new RpcConnection(host, port);
+                pool.add(fresh);
+                return fresh;
+            }
+            return best;
         }
     }
 
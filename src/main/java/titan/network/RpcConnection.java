@@ -0,0 +1,276 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.network;
+
+import titan.TitanExecutors;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A single long-lived, multiplexed connection to a Titan endpoint (usually a worker).
+ * <p>
+ * Every request written on the socket is tagged with a correlation ID carried in the Flags/Spare
+ * header bytes of {@link TitanProtocol}. A dedicated reader thread matches responses back to the
+ * {@link CompletableFuture} of the caller that is waiting for them, so many requests can be in flight
+ * on one socket at the same time.
+ * </p>
+ * <p>
+ * Peers that predate correlation IDs answer with ID {@code 0}. Since such peers process a socket
+ * strictly in order, an uncorrelated response is matched to the oldest outstanding request.
+ * </p>
+ * <p>
+ * A request that times out is abandoned on its own: its ID stays reserved until its late response arrives, so that
+ * the response is discarded instead of being matched to another request. The socket is only closed when nothing else
+ * is in flight on it, after {@value #MAX_CONSECUTIVE_TIMEOUTS} timeouts in a row without any response, or once
+ * {@value #MAX_ABANDONED} abandoned requests are still unanswered.
+ * </p>
+ */
+class RpcConnection {
+    static final int MAX_CONSECUTIVE_TIMEOUTS = 3;
+    static final int MAX_ABANDONED = 64;
+
+    /**
+     * The request never reached the peer, because the connection was closed or the write failed. Resending it
+     * cannot run it twice.
+     */
+    static final class NotSentException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        NotSentException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final String host;
+    private final int port;
+    private final String target;
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+
+    private final Map<Integer, CompletableFuture<TitanProtocol.TitanPacket>> pending = new ConcurrentHashMap<>();
+    // Send order of outstanding IDs, used to match responses from peers that do not echo IDs.
+    private final Deque<Integer> sendOrder = new ArrayDeque<>();
+    // IDs of timed out requests whose response has not arrived yet; guarded by sendOrder.
+    private final Set<Integer> abandoned = new HashSet<>();
+    private int consecutiveTimeouts = 0;
+    private int nextId = 0;
+    private volatile boolean open = true;
+    private volatile boolean answered = false;
+
+    /**
+     * Opens the socket and starts the response reader thread.
+     *
+     * @param host The hostname or IP address of the peer.
+     * @param port The port of the peer.
+     * @throws IOException If the connection cannot be established.
+     */
+    RpcConnection(String host, int port) throws IOException {
+        this.host = host;
+        this.port = port;
+        this.target = host + ":" + port;
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.socket.setKeepAlive(true);
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+        TitanExecutors.startDaemon("titan-rpc-reader-" + target, this::readLoop);
+    }
+
+    /**
+     * Writes a request on this connection without waiting for the response.
+     *
+     * @param opCode The operation code of the request.
+     * @param payload The string payload of the request.
+     * @return A future completed with the response packet, or completed exceptionally with an
+     *         {@link IOException} if the connection fails before the response arrives; a
+     *         {@link NotSentException} if the request was not written.
+     */
+    CompletableFuture<TitanProtocol.TitanPacket> send(byte opCode, String payload) {
+        return send((stream, id) -> TitanProtocol.send(stream, opCode, payload, id,
+                TitanProtocol.peerAcceptsCompression(host, port)));
+    }
+
+    /**
+     * Writes a v2 request made of binary fields. The peer must have negotiated {@link TitanProtocol#PROTOCOL_V2}.
+     *
+     * @param opCode The operation code of the request.
+     * @param fields The fields of the request.
+     * @return A future completed with the response packet.
+     */
+    CompletableFuture<TitanProtocol.TitanPacket> sendFields(byte opCode, byte[]... fields) {
+        return send((stream, id) -> TitanProtocol.sendFields(stream, opCode, id,
+                TitanProtocol.peerAcceptsCompression(host, port), fields));
+    }
+
+    private interface FrameWriter {
+        void write(DataOutputStream out, int correlationId) throws IOException;
+    }
+
+    private CompletableFuture<TitanProtocol.TitanPacket> send(FrameWriter writer) {
+        CompletableFuture<TitanProtocol.TitanPacket> future = new CompletableFuture<>();
+        int id;
+        synchronized (sendOrder) {
+            if (!open || pending.size() + abandoned.size() >= TitanProtocol.MAX_CORRELATION_ID) {
+                future.completeExceptionally(new NotSentException(open
+                        ? "Too many requests in flight to " + target
+                        : "Connection to " + target + " is closed", null));
+                return future;
+            }
+            id = allocateId();
+            pending.put(id, future);
+            sendOrder.addLast(id);
+        }
+
+        try {
+            synchronized (out) {
+                writer.write(out, id);
+            }
+        } catch (IOException e) {
+            synchronized (sendOrder) {
+                pending.remove(id);
+                sendOrder.remove(id);
+            }
+            future.completeExceptionally(new NotSentException("Could not send to " + target + ": " + e.getMessage(), e));
+            close(e);
+        }
+        return future;
+    }
+
+    /**
+     * Abandons an outstanding request after the caller timed out waiting for it. Other requests on the
+     * connection are left alone.
+     *
+     * @param future The future returned by {@link #send(byte, String)}.
+     * @return {@code true} if the connection should be closed: nothing else is in flight on it,
+     *         {@value #MAX_CONSECUTIVE_TIMEOUTS} requests in a row timed out, or too many responses are overdue.
+     */
+    boolean timedOut(CompletableFuture<TitanProtocol.TitanPacket> future) {
+        synchronized (sendOrder) {
+            for (Map.Entry<Integer, CompletableFuture<TitanProtocol.TitanPacket>> e : pending.entrySet()) {
+                if (e.getValue() == future) {
+                    pending.remove(e.getKey());
+                    abandoned.add(e.getKey());
+                    break;
+                }
+            }
+            consecutiveTimeouts++;
+            return pending.isEmpty() || consecutiveTimeouts >= MAX_CONSECUTIVE_TIMEOUTS
+                    || abandoned.size() >= MAX_ABANDONED;
+        }
+    }
+
+    /**
+     * @return The number of requests that were sent on this connection and are still waiting for a response.
+     */
+    int inFlight() {
+        return pending.size();
+    }
+
+    /**
+     * @return {@code true} once at least one response has been received on this connection.
+     */
+    boolean hasAnswered() {
+        return answered;
+    }
+
+    /**
+     * @return {@code true} while the socket is usable.
+     */
+    boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Closes the socket and fails every outstanding request with the given cause.
+     *
+     * @param cause The reason for closing, passed to waiting callers.
+     */
+    void close(IOException cause) {
+        open = false;
+        try {
+            socket.close();
+        } catch (IOException ignored) {}
+
+        synchronized (sendOrder) {
+            for (CompletableFuture<TitanProtocol.TitanPacket> f : pending.values()) {
+                f.completeExceptionally(cause);
+            }
+            pending.clear();
+            sendOrder.clear();
+            abandoned.clear();
+        }
+    }
+
+    // Must be called while holding the sendOrder lock.
+    private int allocateId() {
+        do {
+            nextId = (nextId % TitanProtocol.MAX_CORRELATION_ID) + 1;
+        } while (pending.containsKey(nextId) || abandoned.contains(nextId));
+        return nextId;
+    }
+
+    private void readLoop() {
+        try {
+            while (open) {
+                TitanProtocol.TitanPacket packet = TitanProtocol.read(in);
+                if (!answered) TitanProtocol.notePeer(host, port, packet);
+                answered = true;
+                CompletableFuture<TitanProtocol.TitanPacket> waiter;
+                boolean late;
+                synchronized (sendOrder) {
+                    consecutiveTimeouts = 0;
+                    int id = packet.correlationId;
+                    if (id == 0) {
+                        // Legacy peer: responses come back in request order.
+                        Integer oldest = sendOrder.pollFirst();
+                        while (oldest != null && !pending.containsKey(oldest) && !abandoned.contains(oldest)) {
+                            oldest = sendOrder.pollFirst();
+                        }
+                        id = (oldest == null) ? 0 : oldest;
+                    } else {
+                        sendOrder.remove(id);
+                    }
+                    late = abandoned.remove(id);
+                    waiter = pending.remove(id);
+                }
+                if (late) {
+                    System.err.println("[RpcClient] Discarding late response from " + target + " (id " + packet.correlationId + ")");
+                } else if (waiter != null) {
+                    waiter.complete(packet);
+                } else {
+                    System.err.println("[RpcClient] Dropping unmatched response from " + target + " (id " + packet.correlationId + ")");
+                }
+            }
+        } catch (IOException e) {
+            close(e);
+        } catch (Exception e) {
+            close(new IOException(e.getMessage(), e));
+        }
+    }
+}
@@ -14,6 +14,9 @@
 
 package titan.network;
 
+import titan.TitanConfig;
+import titan.TitanExecutors;
+import titan.filesys.ChunkedReceiver;
 import titan.filesys.WorkspaceManager;
 import titan.tasks.TaskHandler;
 import titan.tasks.FileHandler;
@@ -50,6 +53,9 @@ public class RpcWorkerServer {
     // A thread pool used to handle incoming client connections. Each new client connection is submitted to this pool for processing.
     private final ExecutorService threadPool;
 
+    // Runs the requests that arrive with a correlation ID, so a slow one does not hold up the others on its connection.
+    private final ExecutorService requestPool;
+
     /**
      * A volatile flag indicating whether the worker server is currently running. Set to {@code false} to initiate a graceful shutdown.
      */
@@ -79,6 +85,9 @@ public class RpcWorkerServer {
      * A map storing various {@link titan.tasks.TaskHandler} implementations, keyed by their task type. This allows the worker to dynamically dispatch tasks based on the received command.
      */
     private Map<String, TaskHandler> taskHanlderMap;
+    // Receives large staged files and archives streamed by the scheduler (OP_TRANSFER_*).
+    private final ChunkedReceiver transferReceiver =
+            new ChunkedReceiver(Map.of("workspace", new java.io.File(WorkspaceManager.ROOT_DIR)));
 
     /**
      * The maximum number of concurrent tasks that this worker can execute simultaneously in its worker pool.
@@ -95,6 +104,24 @@ public class RpcWorkerServer {
      */
     private final AtomicInteger activeJobs;
 
+    // Adaptive load reporting: a change is reported at once; an unchanged load is re-reported at an interval that
+    // doubles from the minimum up to the maximum, so idle workers cost the scheduler almost nothing.
+    private static final long LOAD_REPORT_MIN_MS = Math.max(100, TitanConfig.getInt("titan.worker.report.min.ms", 1000));
+    private static final long LOAD_REPORT_MAX_MS = Math.max(LOAD_REPORT_MIN_MS, TitanConfig.getInt("titan.worker.report.max.ms", 10000));
+    // A started service is probed on localhost at this interval until it accepts connections, then reported ready.
+    private static final long SERVICE_PROBE_MS = Math.max(10, TitanConfig.getInt("titan.worker.service.probe.ms", 100));
+    private static final long SERVICE_READY_TIMEOUT_MS = Math.max(1000, TitanConfig.getInt("titan.deploy.ready.timeout.ms", 20000));
+    private final ScheduledExecutorService serviceProbe = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "titan-service-probe");
+        t.setDaemon(true);
+        return t;
+    });
+    // Ships the logs of every job and service on this worker over the control channel
+    private final LogShipper logShipper;
+    private int lastReportedLoad = -1;
+    private long lastReportAt = 0;
+    private long reportInterval = LOAD_REPORT_MIN_MS;
+
     /**
      * Constructs a new {@code RpcWorkerServer} instance.
      *
@@ -106,7 +133,8 @@ public class RpcWorkerServer {
      */
     public RpcWorkerServer( int myPort, String schedulerHost, int schedulerPort, String capability, boolean isPermanent){
         this.port = myPort;
-        this.threadPool = Executors.newCachedThreadPool();
+        this.threadPool = TitanExecutors.newConnectionExecutor("titan-worker-conn");
+        this.requestPool = TitanExecutors.newConnectionExecutor("titan-worker-request");
         this.capability = capability;
         this.schedulerHost = schedulerHost;
         this.schedulerPort = schedulerPort;
@@ -115,6 +143,7 @@ public class RpcWorkerServer {
 
         workerPool = Executors.newFixedThreadPool(MAX_THREADS);
         activeJobs =  new AtomicInteger(0);
+        logShipper = new LogShipper(controlChannel());
 
         addTaskHandler();
     }
@@ -179,6 +208,7 @@ public class RpcWorkerServer {
                 try { registerWithScheduler(); }
                 catch (Exception e) { System.err.println("[WARN] Re-registration failed: " + e.getMessage()); }
             }, 30, 30, TimeUnit.SECONDS);
+            reRegister.scheduleWithFixedDelay(this::reportLoadIfDue, LOAD_REPORT_MIN_MS, LOAD_REPORT_MIN_MS, TimeUnit.MILLISECONDS);
 
             while(this.isRunning){
                 Socket clientSocket = serverSocket.accept();
@@ -191,7 +221,10 @@ public class RpcWorkerServer {
     }
 
     /**
-     * Registers this worker server with the central scheduler. It sends its port, capabilities, and permanence status to the scheduler and waits for a registration confirmation.
+     * Registers this worker server with the central scheduler. It sends its port, capabilities, permanence status and the highest {@link TitanProtocol} version it understands, then waits for a registration confirmation.
+     * <p>
+     * A scheduler that supports version negotiation answers {@code REGISTERED||<version>}; older schedulers answer plain {@code REGISTERED} and keep talking v1.
+     * </p>
      *
      * @throws Exception If an I/O error occurs during communication with the scheduler or if registration fails.
      */
@@ -199,11 +232,21 @@ public class RpcWorkerServer {
         try(Socket socket = new Socket(schedulerHost, schedulerPort);
             DataInputStream in = new DataInputStream(socket.getInputStream());
             DataOutputStream out = new DataOutputStream(socket.getOutputStream())){
-            String requestPayload = port + "||" + capability + "||" + this.isPermanent;
+            String requestPayload = port + "||" + capability + "||" + this.isPermanent + "||" + TitanProtocol.MAX_SUPPORTED_VERSION;
             TitanProtocol.send(out, TitanProtocol.OP_REGISTER, requestPayload);
             TitanProtocol.TitanPacket responsePacket = TitanProtocol.read(in);
-            if ("REGISTERED".equals(responsePacket.payload)) {
-                System.out.println("[OK] Successfully registered with Scheduler!");
+            TitanProtocol.notePeer(schedulerHost, schedulerPort, responsePacket);
+            if (responsePacket.payload.startsWith("REGISTERED")) {
+                String[] parts = responsePacket.payload.split("\\|\\|");
+                String version = (parts.length > 1) ? parts[1] : "1";
+                System.out.println("[OK] Successfully registered with Scheduler! (protocol v" + version + ")");
+                try {
+                    controlChannel().schedulerVersion(Integer.parseInt(version.trim()));
+                } catch (NumberFormatException e) {
+                    controlChannel().schedulerVersion(1);
+                }
+                // Registration resets the scheduler's view of this worker; tell it the current load straight away.
+                reportLoad();
             } else {
                 System.err.println("[FAIL] Registration failed: " + responsePacket.payload);
             }
@@ -213,53 +256,127 @@ public class RpcWorkerServer {
     }
 
     /**
-     * Handles communication with a single client socket (typically the scheduler). This method continuously reads {@link titan.network.TitanProtocol.TitanPacket}s from the client, processes them based on their operation code, and sends appropriate responses.
+     * Handles communication with a single client socket (typically the scheduler). This method continuously reads {@link titan.network.TitanProtocol.TitanPacket}s from the client and hands each one to {@link #handlePacket(DataOutputStream, TitanProtocol.TitanPacket)}.
      * <p>
-     * Supported operations include heartbeats, running archive jobs, starting archived services, staging files, starting/stopping services, running scripts, and worker shutdown commands.
+     * A request that carries a correlation ID runs on the request pool, so the scheduler can have several requests in flight on one pooled connection and a slow stage or service start does not hold up the rest. Requests without one come from clients that match responses by order (v1 schedulers, chunked transfers), so they are handled one at a time on this thread.
+     * Each response is written and flushed whole under the connection's lock. A request that fails is answered with {@code OP_ERROR}; only an I/O error closes the connection.
      * </p>
      *
      * @param socket The client socket connected to the worker.
      */
     private void clientHandler(Socket socket){
         try(socket; DataInputStream in = new DataInputStream(socket.getInputStream());
-            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
         ){
             while (!socket.isClosed()) {
+                TitanProtocol.TitanPacket packet;
                 try {
-                    TitanProtocol.TitanPacket packet = TitanProtocol.read(in);
+                    packet = TitanProtocol.read(in);
+                } catch (EOFException e) {
+//                    System.out.println("Scheduler disconnected.");
+                    break;
+                }
+                if (packet.version == TitanProtocol.PROTOCOL_V2 && !isBinaryOp(packet.opCode)) {
+                    // Textual command sent in a v2 frame: fall back to the v1 "|" payload.
+                    packet.payload = packet.asText();
+                }
 
-                    if (packet.opCode == TitanProtocol.OP_HEARTBEAT) {
+                if (packet.opCode == TitanProtocol.OP_KILL_WORKER) {
+                    System.out.println("[INFO] Worker received Kill Signal (OP_KILL_WORKER). Shutting down...");
+                    synchronized (out) {
+                        TitanProtocol.reply(out, packet, TitanProtocol.OP_KILL_WORKER, "SUCCESS: Worker shutting down.");
+                    }
+                    // add busy waiting for the OS to handle the exit
+                    try { Thread.sleep(100); } catch (InterruptedException ignored) {}
+                    // Kill the JVM
+                    this.stop();
+//                        System.exit(0);
+                    break;
+                }
 
-                        int activeThreads = 0;
-                        int maxThreads = 4;
+                if (packet.correlationId == 0) {
+                    respond(socket, out, packet);
+                } else {
+                    TitanProtocol.TitanPacket request = packet;
+                    requestPool.submit(() -> respond(socket, out, request));
+                }
+            }
+        } catch (IOException e){
+            if (!socket.isClosed()) System.err.println("Connection error in clientHandler: " + e.getMessage());
+        } catch (Exception e) {
+            // A frame that cannot be read leaves the stream out of step, so the connection is closed
+            System.err.println("Error processing packet: " + e.getMessage());
+        }
+    }
 
-                        if(this.workerPool !=null){
-                            if (this.workerPool instanceof java.util.concurrent.ThreadPoolExecutor) {
-                                activeThreads = ((java.util.concurrent.ThreadPoolExecutor) this.workerPool).getActiveCount();
-                            } else{
-                                activeThreads = activeJobs.get();
-                            }
-                        }
+    // Runs one request, then writes its response to the connection in one piece.
+    private void respond(Socket socket, DataOutputStream out, TitanProtocol.TitanPacket packet) {
+        ByteArrayOutputStream response = new ByteArrayOutputStream(256);
+        try {
+            handlePacket(new DataOutputStream(response), packet);
+        } catch (Exception e) {
+            System.err.println("Error processing packet: " + e.getMessage());
+            response.reset();
+            try {
+                TitanProtocol.reply(new DataOutputStream(response), packet, TitanProtocol.OP_ERROR, "ERROR: " + e.getMessage());
+            } catch (IOException ignored) {} // not thrown by an in-memory stream
+        }
+        try {
+            synchronized (out) {
+                response.writeTo(out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Connection error in clientHandler: " + e.getMessage());
+            try { socket.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * Processes one request and writes its response to {@code out}.
+     * <p>
+     * Supported operations include heartbeats, running archive jobs, starting archived services, staging files, starting/stopping services, running scripts, chunked transfers and job cancellation.
+     * </p>
+     *
+     * @param out The stream the response is written to.
+     * @param packet The request.
+     * @throws Exception If the request cannot be processed; the caller answers it with {@code OP_ERROR}.
+     */
+    private void handlePacket(DataOutputStream out, TitanProtocol.TitanPacket packet) throws Exception {
+        if (packet.opCode == TitanProtocol.OP_HEARTBEAT) {
 
-                        String stats = "PONG|" + activeThreads + "|" + maxThreads;
-                        TitanProtocol.send(out, TitanProtocol.OP_ACK, stats);
+            int activeThreads = 0;
+            int maxThreads = 4;
+
+            if(this.workerPool !=null){
+                if (this.workerPool instanceof java.util.concurrent.ThreadPoolExecutor) {
+                    activeThreads = ((java.util.concurrent.ThreadPoolExecutor) this.workerPool).getActiveCount();
+                } else{
+                    activeThreads = activeJobs.get();
+                }
+            }
 
-                    } else if(packet.opCode == TitanProtocol.OP_RUN_ARCHIVE){
-                        handleArchiveJob(out, packet.payload);
+            String stats = "PONG|" + activeThreads + "|" + maxThreads;
+            TitanProtocol.reply(out, packet, TitanProtocol.OP_ACK, stats);
 
-                    } else if(packet.opCode == TitanProtocol.OP_START_SERVICE_ARCHIVE){
-                        handleArchiveService(out, packet.payload);
+        } else if(packet.opCode == TitanProtocol.OP_RUN_ARCHIVE){
+            handleArchiveJob(out, packet);
 
-                    } else if (packet.opCode == TitanProtocol.OP_STAGE) {
-                        // handleExecution(out, packet.payload, "STAGE_FILE");
-                        handleSyncExecution(out, packet.payload, "STAGE_FILE");
-                    } else if (packet.opCode == TitanProtocol.OP_START_SERVICE) {
+        } else if(packet.opCode == TitanProtocol.OP_START_SERVICE_ARCHIVE){
+            handleArchiveService(out, packet);
+
+        } else if (packet.opCode == TitanProtocol.OP_STAGE && packet.version == TitanProtocol.PROTOCOL_V2) {
+            handleStageBytes(out, packet);
+        } else if (packet.opCode == TitanProtocol.OP_STAGE) {
+            // handleExecution(out, packet.payload, "STAGE_FILE");
+            handleSyncExecution(out, packet, packet.payload, "STAGE_FILE");
+        } else if (packet.opCode == TitanProtocol.OP_START_SERVICE) {
 //                        handleExecution(out, packet.payload, "START_SERVICE");
-                        handleSyncExecution(out, packet.payload, "START_SERVICE");
-                    } else if (packet.opCode == TitanProtocol.OP_STOP) {
+            handleSyncExecution(out, packet, packet.payload, "START_SERVICE");
+        } else if (packet.opCode == TitanProtocol.OP_STOP) {
 //                        handleExecution(out, packet.payload, "STOP_SERVICE");
-                        handleSyncExecution(out, packet.payload, "STOP_SERVICE");
-                    } else if (packet.opCode == TitanProtocol.OP_RUN) {
+            handleSyncExecution(out, packet, packet.payload, "STOP_SERVICE");
+        } else if (packet.opCode == TitanProtocol.OP_RUN) {
 //                        if (packet.payload.startsWith("SHUTDOWN_WORKER")) {
 //                            System.out.println("Worker received kill signal. Shutting down...");
 //                            // Send confirmation back before dying
@@ -267,40 +384,27 @@ public class RpcWorkerServer {
 //                            Thread.sleep(100); // add busy waiting for the OS to handle the exit
 //                            System.exit(0);
 //                        }
-                        handleAsyncExecution(out, packet.payload);
-                    } else if (packet.opCode == TitanProtocol.OP_CANCEL_JOB) {
-                        String targetJobId = packet.payload.trim();
-                        boolean killed = titan.tasks.ScriptExecutorHandler.killJob(targetJobId);
-                        TitanProtocol.send(out, TitanProtocol.OP_ACK, killed ? "KILLED" : "NOT_FOUND");
-                    } else if (packet.opCode == TitanProtocol.OP_KILL_WORKER) {
-                        System.out.println("[INFO] Worker received Kill Signal (OP_KILL_WORKER). Shutting down...");
-                        TitanProtocol.send(out, TitanProtocol.OP_KILL_WORKER, "SUCCESS: Worker shutting down.");
-                        // add busy waiting for the OS to handle the exit
-                        try { Thread.sleep(100); } catch (InterruptedException ignored) {}
-                        // Kill the JVM
-                        this.stop();
-//                        System.exit(0);
-                        break;
-                    }
-                } catch (EOFException e) {
-//                    System.out.println("Scheduler disconnected.");
-                    break;
-                } catch (Exception e) {
-                    System.err.println("Error processing packet: " + e.getMessage());
-                    break;
-                }
-            }
-        } catch (IOException e){
-            System.err.println("Connection error in clientHandler: " + e.getMessage());
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            handleAsyncExecution(out, packet, packet.payload);
+        } else if (packet.opCode == TitanProtocol.OP_TRANSFER_BEGIN) {
+            TitanProtocol.reply(out, packet, TitanProtocol.OP_ACK, transferReceiver.begin(packet.payload));
+        } else if (packet.opCode == TitanProtocol.OP_TRANSFER_CHUNK) {
+            String ack = (packet.version == TitanProtocol.PROTOCOL_V2)
+                    ? transferReceiver.chunk(packet.fieldString(0), Long.parseLong(packet.fieldString(1)), packet.field(2))
+                    : transferReceiver.chunk(packet.payload);
+            TitanProtocol.reply(out, packet, TitanProtocol.OP_ACK, ack);
+        } else if (packet.opCode == TitanProtocol.OP_TRANSFER_COMMIT) {
+            TitanProtocol.reply(out, packet, TitanProtocol.OP_ACK, transferReceiver.commit(packet.payload));
+        } else if (packet.opCode == TitanProtocol.OP_CANCEL_JOB) {
+            String targetJobId = packet.payload.trim();
+            boolean killed = titan.tasks.ScriptExecutorHandler.killJob(targetJobId);
+            TitanProtocol.reply(out, packet, TitanProtocol.OP_ACK, killed ? "KILLED" : "NOT_FOUND");
         }
     }
 
     /**
      * Handles the execution of a task, either synchronously or asynchronously depending on the worker's saturation. If the worker pool is saturated, an error is returned. Otherwise, the task is submitted to the worker pool.
      * <p>
-     * This method is deprecated in favor of {@link #handleAsyncExecution(DataOutputStream, String)} and {@link #handleSyncExecution(DataOutputStream, String, String)} for clearer separation of concerns.
+     * This method is deprecated in favor of {@link #handleAsyncExecution(DataOutputStream, TitanProtocol.TitanPacket, String)} and {@link #handleSyncExecution(DataOutputStream, TitanProtocol.TitanPacket, String, String)} for clearer separation of concerns.
      * </p>
      *
      * @param out The output stream to send responses back to the client.
@@ -348,56 +452,117 @@ public class RpcWorkerServer {
     /**
      * Handles the execution of a job that involves staging and running an archived payload. The payload is expected to contain a job ID, an entry file path, and a Base64 encoded ZIP archive.
      * <p>
-     * This method first stages the archive using {@link titan.filesys.WorkspaceManager}, resolves the entry file path, and then delegates to {@link #handleAsyncExecution(DataOutputStream, String)} to run the job asynchronously.
+     * This method first stages the archive using {@link titan.filesys.WorkspaceManager}, resolves the entry file path, and then delegates to {@link #handleAsyncExecution(DataOutputStream, TitanProtocol.TitanPacket, String)} to run the job asynchronously.
      * </p>
      *
      * @param out The output stream to send responses back to the client.
-     * @param payload The payload containing job ID, entry file, and Base64 ZIP data (format: "JOB_ID|ENTRY_FILE|BASE64_ZIP").
+     * @param request The request packet. Its payload contains job ID, entry file, and Base64 ZIP data (format: "JOB_ID|ENTRY_FILE|BASE64_ZIP").
+     *                A v2 packet carries the same three items as fields, with the raw ZIP bytes as the last field.
      */
-    private void handleArchiveJob(DataOutputStream out, String payload){
+    private void handleArchiveJob(DataOutputStream out, TitanProtocol.TitanPacket request){
         // Payload: JOB_ID | ENTRY_FILE | BASE64_ZIP
         try{
-            String[] parts = payload.split("\\|");
-            String jobId = parts[0];
-            String entryFile = parts[1];
-            String base64Zip = parts[2];
-
-            WorkspaceManager.stageArchive(jobId, base64Zip);
+            String jobId;
+            String entryFile;
+            if (request.version == TitanProtocol.PROTOCOL_V2) {
+                jobId = request.fieldString(0);
+                entryFile = request.fieldString(1);
+                WorkspaceManager.stageArchive(jobId, request.field(2));
+            } else {
+                String[] parts = request.payload.split("\\|");
+                jobId = parts[0];
+                entryFile = parts[1];
+                stageArchive(jobId, parts[2]);
+            }
             String absPath = WorkspaceManager.resolvePath(jobId, entryFile);
 
-            handleAsyncExecution(out, jobId + "|" + absPath);
+            handleAsyncExecution(out, request, jobId + "|" + absPath);
         } catch(Exception e){
             e.printStackTrace();
-            try { TitanProtocol.send(out, TitanProtocol.OP_ERROR, "ARCHIVE_FAILED: " + e.getMessage()); } catch (IOException ignored) {}
+            try { TitanProtocol.reply(out, request, TitanProtocol.OP_ERROR, "ARCHIVE_FAILED: " + e.getMessage()); } catch (IOException ignored) {}
         }
     }
 
+    /**
+     * Stages a file sent as raw bytes in a v2 {@code OP_STAGE} frame (fields: file name, file content). Responds like the v1 "STAGE_FILE" handler.
+     *
+     * @param out The output stream to send responses back to the client.
+     * @param request The v2 request packet.
+     */
+    private void handleStageBytes(DataOutputStream out, TitanProtocol.TitanPacket request){
+        try {
+            String response;
+            byte status = TitanProtocol.OP_ACK;
+            try {
+                response = FileHandler.saveBytes(request.fieldString(0), request.field(1));
+            } catch (Exception e) {
+                response = "ERROR: " + e.getMessage();
+                status = TitanProtocol.OP_ERROR;
+            }
+            TitanProtocol.reply(out, request, status, response);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // The zip field is either Base64 content or "STAGED:<name>" for an archive streamed ahead with OP_TRANSFER_*.
+    private static void stageArchive(String id, String zipField) throws IOException {
+        if (zipField.startsWith(STAGED_PREFIX)) {
+            WorkspaceManager.stageArchive(id, new java.io.File(WorkspaceManager.ROOT_DIR, zipField.substring(STAGED_PREFIX.length())));
+        } else {
+            WorkspaceManager.stageArchive(id, zipField);
+        }
+    }
+
+    /**
+     * Prefix of the archive field in {@code OP_RUN_ARCHIVE} / {@code OP_START_SERVICE_ARCHIVE} when the ZIP was already streamed
+     * into the worker workspace with the chunked transfer opcodes, e.g. {@code JOB-1|main.py|STAGED:project.zip}.
+     */
+    public static final String STAGED_PREFIX = "STAGED:";
+
+    // Opcodes whose v2 frames carry binary fields and have dedicated handlers.
+    private static boolean isBinaryOp(byte opCode){
+        return opCode == TitanProtocol.OP_STAGE
+                || opCode == TitanProtocol.OP_TRANSFER_CHUNK
+                || opCode == TitanProtocol.OP_RUN_ARCHIVE
+                || opCode == TitanProtocol.OP_START_SERVICE_ARCHIVE;
+    }
+
     /**
      * Handles the deployment and startup of a service from an archived payload. The payload is expected to contain a service ID, an entry file path, a port, and a Base64 encoded ZIP archive.
      * <p>
-     * This method stages the archive, resolves the entry file, and then delegates to {@link #handleSyncExecution(DataOutputStream, String, String)} to start the service synchronously using the "START_SERVICE" handler.
+     * This method stages the archive, resolves the entry file, and then delegates to {@link #handleSyncExecution(DataOutputStream, TitanProtocol.TitanPacket, String, String)} to start the service synchronously using the "START_SERVICE" handler.
      * </p>
      *
      * @param out The output stream to send responses back to the client.
-     * @param payload The payload containing service ID, entry file, port, and Base64 ZIP data (format: "SERVICE_ID|ENTRY_FILE|PORT|BASE64_ZIP").
+     * @param request The request packet. Its payload contains service ID, entry file, port, and Base64 ZIP data (format: "SERVICE_ID|ENTRY_FILE|PORT|BASE64_ZIP").
+     *                A v2 packet carries the same four items as fields, with the raw ZIP bytes as the last field.
      */
-    private void handleArchiveService(DataOutputStream out, String payload){
+    private void handleArchiveService(DataOutputStream out, TitanProtocol.TitanPacket request){
         try{
             // Payload: SERVICE_ID | ENTRY_FILE | PORT | BASE64_ZIP
-            String[] parts = payload.split("\\|");
-            String serviceId = parts[0];
-            String entryFile = parts[1];
-            String port = parts[2];
-            String base64Zip = parts[3];
-
-            WorkspaceManager.stageArchive(serviceId, base64Zip);
+            String serviceId;
+            String entryFile;
+            String port;
+            if (request.version == TitanProtocol.PROTOCOL_V2) {
+                serviceId = request.fieldString(0);
+                entryFile = request.fieldString(1);
+                port = request.fieldString(2);
+                WorkspaceManager.stageArchive(serviceId, request.field(3));
+            } else {
+                String[] parts = request.payload.split("\\|");
+                serviceId = parts[0];
+                entryFile = parts[1];
+                port = parts[2];
+                stageArchive(serviceId, parts[3]);
+            }
             String absPath = WorkspaceManager.resolvePath(serviceId, entryFile);
 //            Payload expected by ServiceHandler: "FILENAME | SERVICE_ID | PORT"
             String handlerPayload = absPath + "|" + serviceId + "|" + port;
-            handleSyncExecution(out, handlerPayload, "START_SERVICE");
+            handleSyncExecution(out, request, handlerPayload, "START_SERVICE");
         } catch (Exception e){
             e.printStackTrace();
-            try { TitanProtocol.send(out, TitanProtocol.OP_ERROR, "ARCHIVE_SERVICE_FAILED: " + e.getMessage()); } catch (IOException ignored) {}
+            try { TitanProtocol.reply(out, request, TitanProtocol.OP_ERROR, "ARCHIVE_SERVICE_FAILED: " + e.getMessage()); } catch (IOException ignored) {}
         }
     }
 
@@ -426,16 +591,36 @@ public class RpcWorkerServer {
      * @param serviceId The unique identifier of the service that has stopped.
      */
     public void notifyMasterOfServiceStop(String serviceId) {
-        // masterHost and masterPort should be variables in your RpcWorkerServer class
-        try (Socket socket = new Socket(this.schedulerHost, this.schedulerPort);
-             DataOutputStream out = new DataOutputStream(socket.getOutputStream());
-             DataInputStream in = new DataInputStream(socket.getInputStream())) {
-            TitanProtocol.send(out, TitanProtocol.OP_UNREGISTER_SERVICE, serviceId);
-            System.out.println("[TitanProtocol] Sent UNREGISTER_SERVICE for " + serviceId);
+        controlChannel().send(TitanProtocol.OP_UNREGISTER_SERVICE, serviceId);
+        System.out.println("[TitanProtocol] Queued UNREGISTER_SERVICE for " + serviceId);
+    }
 
-        } catch (IOException e) {
-            System.err.println("[FAIL] Failed to notify Master: " + e.getMessage());
-        }
+    /**
+     * Watches a service that was just started and tells the scheduler as soon as it accepts connections on its port
+     * ({@link TitanProtocol#OP_SERVICE_READY}), so that its deployment completes without the scheduler polling for it.
+     * Watching stops when the service exits or after {@code titan.deploy.ready.timeout.ms}.
+     *
+     * @param serviceId The unique identifier of the service.
+     * @param servicePort The port the service is expected to listen on.
+     * @param process The service process.
+     */
+    public void awaitServiceReady(String serviceId, int servicePort, ProcessHandle process) {
+        long deadline = System.currentTimeMillis() + SERVICE_READY_TIMEOUT_MS;
+        Runnable probe = new Runnable() {
+            @Override
+            public void run() {
+                if (!process.isAlive() || System.currentTimeMillis() > deadline) return;
+                try (Socket s = new Socket()) {
+                    s.connect(new java.net.InetSocketAddress("localhost", servicePort), 200);
+                } catch (IOException e) {
+                    serviceProbe.schedule(this, SERVICE_PROBE_MS, TimeUnit.MILLISECONDS);
+                    return;
+                }
+                controlChannel().send(TitanProtocol.OP_SERVICE_READY, serviceId + "|" + servicePort);
+                System.out.println("[TitanProtocol] Queued SERVICE_READY for " + serviceId + " on port " + servicePort);
+            }
+        };
+        serviceProbe.schedule(probe, SERVICE_PROBE_MS, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -489,19 +674,21 @@ public class RpcWorkerServer {
      * </p>
      *
      * @param out The output stream to send the immediate acknowledgment back to the client.
+     * @param request The request packet being answered; its correlation ID is echoed in the acknowledgment.
      * @param payload The task-specific data, potentially including a job ID (format: "JOB_ID|TASK_DATA" or just "TASK_DATA").
      */
-    private void handleAsyncExecution(DataOutputStream out, String payload){
-        if(activeJobs.get() >= MAX_THREADS){
+    private void handleAsyncExecution(DataOutputStream out, TitanProtocol.TitanPacket request, String payload){
+        // Claim a slot atomically: requests on several connections and pool threads may get here at the same time
+        if(activeJobs.getAndUpdate(n -> n < MAX_THREADS ? n + 1 : n) >= MAX_THREADS){
             try{
-                TitanProtocol.send(out, TitanProtocol.OP_ERROR, "ERROR_WORKER_SATURATED");
+                TitanProtocol.reply(out, request, TitanProtocol.OP_ERROR, "ERROR_WORKER_SATURATED");
             } catch (IOException e){
                 e.printStackTrace();
             }
             return;
         }
 
-        activeJobs.incrementAndGet();
+        reportLoad();
         workerPool.submit(() ->{
             // Parse Job ID for Callback
             // Payload Format expected: "JOB-123|calc.py" (Standard) or "calc.py" (Legacy/Direct)
@@ -545,10 +732,11 @@ public class RpcWorkerServer {
                 sendCallback(jobId, "FAILED", e.getMessage());
             } finally {
                 activeJobs.decrementAndGet();
+                reportLoad();
             }
         });
         try {
-            TitanProtocol.send(out, TitanProtocol.OP_ACK, "JOB_ACCEPTED");
+            TitanProtocol.reply(out, request, TitanProtocol.OP_ACK, "JOB_ACCEPTED");
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -556,7 +744,7 @@ public class RpcWorkerServer {
     }
 
     /**
-     * Sends a job completion or failure callback to the scheduler. This method establishes a new socket connection to the scheduler to report the job's final status and result.
+     * Sends a job completion or failure callback to the scheduler over the worker's {@link ControlChannel}, which delivers it in order and retries until the scheduler acknowledges it.
      * <p>
      * Callbacks are not sent for "UNKNOWN" or "TEST-JOB" job IDs.
      * </p>
@@ -568,64 +756,80 @@ public class RpcWorkerServer {
     private void sendCallback(String jobId, String status, String result) {
         if(jobId.equals("UNKNOWN") || jobId.equals("TEST-JOB")) return;
 
-        int maxAttempts = 5;
-        int delayMs = 1000;
-        String msg = jobId + "|" + status + "|" + result;
-
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            try (Socket socket = new Socket(schedulerHost, schedulerPort);
-                 DataOutputStream out = new DataOutputStream(socket.getOutputStream());
-                 DataInputStream in = new DataInputStream(socket.getInputStream())) {
+        // Queued behind the job's own log batches, so the scheduler sees the logs before the completion.
+        controlChannel().send(TitanProtocol.OP_JOB_COMPLETE, jobId + "|" + status + "|" + result);
+    }
 
-                TitanProtocol.send(out, TitanProtocol.OP_JOB_COMPLETE, msg);
-                TitanProtocol.read(in);
-                return; // success
+    /**
+     * Pushes this worker's current load to the scheduler over the control channel.
+     */
+    private synchronized void reportLoad() {
+        int load = activeJobs.get();
+        if (load != lastReportedLoad) reportInterval = LOAD_REPORT_MIN_MS;
+        controlChannel().send(TitanProtocol.OP_LOAD_REPORT, port + "|" + load + "|" + MAX_THREADS);
+        lastReportedLoad = load;
+        lastReportAt = System.currentTimeMillis();
+    }
 
-            } catch (Exception e) {
-                System.err.println("[FAIL] Callback attempt " + attempt + "/" + maxAttempts
-                        + " failed for " + jobId + ": " + e.getMessage());
-                if (attempt < maxAttempts) {
-                    try { Thread.sleep(delayMs); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); break; }
-                    delayMs *= 2; // exponential backoff: 1s, 2s, 4s, 8s
-                }
+    // Periodic tick: report if the load changed, or re-report an unchanged load once the backed-off interval has passed.
+    private synchronized void reportLoadIfDue() {
+        try {
+            if (activeJobs.get() != lastReportedLoad) {
+                reportLoad();
+            } else if (System.currentTimeMillis() - lastReportAt >= reportInterval) {
+                reportLoad();
+                reportInterval = Math.min(reportInterval * 2, LOAD_REPORT_MAX_MS);
             }
+        } catch (Exception e) {
+            System.err.println("[WARN] Load report failed: " + e.getMessage());
         }
-        System.err.println("[FAIL] Callback permanently failed for " + jobId + " after " + maxAttempts + " attempts.");
+    }
+
+    /**
+     * @return The persistent channel this worker uses for callbacks, logs and load reports to the scheduler.
+     */
+    public ControlChannel controlChannel() {
+        return ControlChannel.to(schedulerHost, schedulerPort);
+    }
+
+    /**
+     * @return The shipper that sends the logs of this worker's jobs and services to the scheduler.
+     */
+    public LogShipper logShipper() {
+        return logShipper;
     }
 
     /**
      * Handles the synchronous execution of a task. The task is processed immediately using {@link #processCommandExplicit(String, String)}, and the result (ACK or ERROR) is sent back to the client before the method returns.
      *
      * @param out The output stream to send the response back to the client.
+     * @param request The request packet being answered; its correlation ID is echoed in the response.
      * @param payload The task-specific data for execution.
      * @param forceTaskType The explicit type of the task to execute.
      */
-    private void handleSyncExecution(DataOutputStream out, String payload, String forceTaskType){
+    private void handleSyncExecution(DataOutputStream out, TitanProtocol.TitanPacket request, String payload, String forceTaskType){
         try{
             String response = processCommandExplicit(forceTaskType, payload);
             byte status = response.startsWith("ERROR") || response.contains("FAILED")
                     ? TitanProtocol.OP_ERROR
                     : TitanProtocol.OP_ACK;
-            TitanProtocol.send(out, status, response);
+            TitanProtocol.reply(out, request, status, response);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Streams a single log line for a given job to the scheduler (master). This method establishes a new socket connection to send the log data.
+     * Streams a single log line for a given job to the scheduler (master) through the worker's {@link LogShipper}.
      * <p>
-     * Errors during log streaming are silently ignored to prevent disrupting the main worker flow.
+     * The line is only buffered, so a slow or unreachable scheduler never blocks the main worker flow.
      * </p>
      *
      * @param jobId The unique identifier of the job to which the log line belongs.
      * @param line The log message to stream.
      */
     public void streamLogToMaster(String jobId, String line){
-        try (Socket socket = new Socket(this.schedulerHost, this.schedulerPort);
-             DataOutputStream out = new DataOutputStream(socket.getOutputStream())) {
-            TitanProtocol.send(out, TitanProtocol.OP_LOG_STREAM, jobId + "|" + line);
-        } catch (Exception e) { /* ignore */ }
+        logShipper.ship(jobId, line);
     }
 
     /**
@@ -634,6 +838,13 @@ public class RpcWorkerServer {
     public void stop(){
         isRunning = false;
         threadPool.shutdown();
+        requestPool.shutdown();
+        // Give buffered logs and queued callbacks a chance to reach the scheduler
+        logShipper.flush();
+        if (!controlChannel().flush(5000)) {
+            System.err.println("[WARN] Stopping with undelivered control messages: " + controlChannel().getStats()
+                    + " | logs: " + logShipper.getStats());
+        }
     }
 
     /**
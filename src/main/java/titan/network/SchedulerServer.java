@@ -15,19 +15,29 @@
 
 package titan.network;
 
+import titan.TitanConfig;
+import titan.TitanExecutors;
+import titan.filesys.ChunkedReceiver;
+import titan.scheduler.CriticalPath;
 import titan.scheduler.Job;
 import titan.scheduler.Scheduler;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
 import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
 import titan.network.TitanProtocol.TitanPacket;
 
 /**
@@ -37,6 +47,9 @@ import titan.network.TitanProtocol.TitanPacket;
  * <p>
  * This server operates in a multithreaded manner, using an {@link java.util.concurrent.ExecutorService} to handle each client connection concurrently,
  * ensuring responsiveness and scalability.
+ * <p>
+ * Setting {@code titan.server.mode=nio} switches the transport to a {@link SelectorServer}, which multiplexes all
+ * connections on one selector thread and runs requests on a bounded handler pool instead of a thread per connection.
  */
     public class SchedulerServer {
     private final int port;
@@ -44,14 +57,60 @@ import titan.network.TitanProtocol.TitanPacket;
     private final ExecutorService threadPool;
     Scheduler scheduler;
     private final ServerSocket serverSocket;
+    private final SelectorServer selectorServer;
+
+    /**
+     * How long a client session may sit idle between requests before the server closes it.
+     */
+    static final int SESSION_IDLE_TIMEOUT_MS = Math.max(1000, TitanConfig.getInt("titan.server.session.idle.ms", 60000));
+    /**
+     * Number of requests after which the server closes a session, so one client cannot pin a connection forever.
+     * Streams (see {@link TitanProtocol#expectsMoreFrames(byte)}) are never cut off. {@code 0} means no limit.
+     */
+    static final int SESSION_MAX_REQUESTS = Math.max(0, TitanConfig.getInt("titan.server.session.max.requests", 1000));
+
+    /**
+     * Longest time an {@code OP_GET_LOGS_SINCE} request may wait for new lines.
+     */
+    static final int LOG_FOLLOW_MAX_WAIT_MS = Math.max(0, TitanConfig.getInt("titan.logs.follow.max.wait.ms", 30000));
+
+    /**
+     * How long a worker control channel may send nothing before the server forgets its sequence number. A live
+     * worker reports its load at least every {@code titan.worker.report.max.ms}; a channel that stays silent this
+     * long belongs to a worker process that is gone, as every process start opens a new channel.
+     */
+    static final long CHANNEL_EXPIRY_MS = Math.max(60000, TitanConfig.getInt("titan.channel.expiry.ms", 600000));
 
     private static final String PERM_FILES_DIR = "perm_files";
     private static final String UPLOADS_DIR    = "uploads";
 
+    // Last batch sequence number applied per worker control channel; idle channels are dropped after CHANNEL_EXPIRY_MS.
+    private final Map<String, ChannelSequence> channelSequences = new ConcurrentHashMap<>();
+    private volatile long nextChannelSweep = System.currentTimeMillis() + CHANNEL_EXPIRY_MS;
+
+    // Guarded by itself; removed from channelSequences only while held
+    private static final class ChannelSequence {
+        long applied;
+        long lastUsed = System.currentTimeMillis();
+    }
+    // Requests that may wait for new log lines at once; the others are answered right away. In NIO mode a waiting
+    // request holds a handler thread, so at most half of them may wait.
+    private final Semaphore followSlots;
+
+    /**
+     * Placed in the Base64 slot of a DEPLOY/RUN payload instead of the file content when the file is larger than
+     * {@link ChunkedSender#INLINE_MAX_BYTES}. The scheduler then streams the file from disk at dispatch time.
+     */
+    public static final String PERM_FILE_PREFIX = "PERM_FILE:";
+
+    private final ChunkedReceiver transferReceiver = new ChunkedReceiver(Map.of(
+            UPLOADS_DIR, new File(UPLOADS_DIR),
+            PERM_FILES_DIR, new File(PERM_FILES_DIR)));
+
     /**
  * Constructs a new {@code SchedulerServer} instance.
  * Initializes the server to listen on the specified port and associates it with the provided {@link titan.scheduler.Scheduler}.
- * A cached thread pool is created to manage client connections.
+ * A cached thread pool (or one virtual thread per connection with {@code titan.threads.virtual=true}) is created to manage client connections.
  *
  * @param port The port number on which the server will listen for incoming client connections.
  * @param scheduler The {@link titan.scheduler.Scheduler} instance responsible for managing workers, jobs, and system state.
@@ -59,9 +118,18 @@ import titan.network.TitanProtocol.TitanPacket;
  */
     public SchedulerServer(int port, Scheduler scheduler) throws IOException {
         this.port = port;
-        threadPool = Executors.newCachedThreadPool();
+        threadPool = TitanExecutors.newConnectionExecutor("titan-client");
         this.scheduler = scheduler;
-        this.serverSocket = new ServerSocket(this.port);
+        int followers = Math.max(0, TitanConfig.getInt("titan.logs.follow.max.requests", 256));
+        if ("nio".equalsIgnoreCase(TitanConfig.get("titan.server.mode", "blocking"))) {
+            this.selectorServer = new SelectorServer(this.port, this::respond);
+            this.serverSocket = null;
+            followers = Math.min(followers, TitanConfig.getInt("titan.server.handler.threads", 16) / 2);
+        } else {
+            this.selectorServer = null;
+            this.serverSocket = new ServerSocket(this.port);
+        }
+        this.followSlots = new Semaphore(followers);
     }
 
     /**
@@ -72,6 +140,11 @@ import titan.network.TitanProtocol.TitanPacket;
  * System messages are printed to indicate the server's listening status.
  */
     public void start(){
+        if (selectorServer != null) {
+            System.out.println("[OK] SchedulerServer Listening on port " + port + " (NIO)");
+            selectorServer.run();
+            return;
+        }
         try(serverSocket){
             System.out.println("[OK] SchedulerServer Listening on port " + port);
             while(isRunning){
@@ -93,68 +166,79 @@ import titan.network.TitanProtocol.TitanPacket;
  * This method parses the registration payload, extracts the worker's port, capabilities, and permanence status,
  * and then registers the worker with the central {@link titan.scheduler.Scheduler}.
  *
- * @param socket The {@link Socket} object representing the client connection, used to determine the worker's host address.
- * @param request The payload string containing registration details, typically in the format "workerPort||capability||isPerm".
+ * @param host The address of the registering worker, taken from the client connection.
+ * @param request The payload string containing registration details, typically in the format "workerPort||capability||isPerm",
+ *                optionally followed by "||protocolVersion" from workers that support {@link TitanProtocol#PROTOCOL_V2}.
  * @return A string indicating the outcome of the registration, e.g., "REGISTERED" on success or "ERROR_INVALID_REGISTRATION" on failure.
+ *         Workers that announced a protocol version get the negotiated version back as "REGISTERED||version".
  */
-    private String handleRegistration(Socket socket, String request){
+    private String handleRegistration(String host, String request){
             String[] parts = request.split("\\|\\|");
             if (parts.length < 1) return "ERROR_INVALID_REGISTRATION";
             int workerPort = Integer.parseInt(parts[0]);
 
             String capability = (parts.length > 1) ? parts[1] : "GENERAL";
-            String host = socket.getInetAddress().getHostAddress();
 
             boolean isPerm = false;
             if (parts.length > 2) {
                 isPerm = Boolean.parseBoolean(parts[2]);
             }
 
-            System.out.println("Registering Worker: " + host + " with " + capability);
-            scheduler.registerWorker(host, workerPort, capability, isPerm);
+            // Legacy workers send no version and expect exactly "REGISTERED".
+            if (parts.length <= 3) {
+                System.out.println("Registering Worker: " + host + " with " + capability);
+                scheduler.registerWorker(host, workerPort, capability, isPerm);
+                return ("REGISTERED");
+            }
+
+            int protocolVersion = Math.min(Integer.parseInt(parts[3].trim()), TitanProtocol.MAX_SUPPORTED_VERSION);
+            System.out.println("Registering Worker: " + host + " with " + capability + " (protocol v" + protocolVersion + ")");
+            scheduler.registerWorker(host, workerPort, capability, isPerm, protocolVersion);
 //            main.java.titan.scheduler.getWorkerRegistry().addWorker(host, workerPort, capability);
-            return ("REGISTERED");
+            return ("REGISTERED||" + protocolVersion);
     }
 
     /**
- * Handles a single client connection from end-to-end.
- * This method reads an incoming {@link titan.network.TitanProtocol.TitanPacket}, dispatches it to the appropriate command processing method
- * based on its operation code, and then sends a response {@link titan.network.TitanProtocol.TitanPacket} back to the client.
+ * Handles a client session from end-to-end.
+ * This method reads incoming {@link titan.network.TitanProtocol.TitanPacket}s one after another, dispatches each to the appropriate command processing method
+ * based on its operation code, and sends a response {@link titan.network.TitanProtocol.TitanPacket} back to the client.
  * It uses {@link java.io.DataInputStream} and {@link java.io.DataOutputStream} for binary protocol communication.
  * Errors during processing are caught, logged, and an error response is sent to the client.
+ * <p>
+ * The session stays open until the client disconnects, sits idle for {@link #SESSION_IDLE_TIMEOUT_MS}, or has made
+ * {@link #SESSION_MAX_REQUESTS} requests. Clients that send one request per connection are unaffected.
+ * </p>
  *
  * @param socket The {@link Socket} object representing the client connection to be handled.
  */
     public void clientHandler(Socket socket){
+        String remoteHost = socket.getInetAddress().getHostAddress();
         try(socket;
-            DataInputStream in = new DataInputStream(socket.getInputStream());
-            DataOutputStream out = new DataOutputStream(socket.getOutputStream())
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))
         ){
-
-            TitanPacket packet = TitanProtocol.read(in);
-            String responsePayload;
-            byte responseOpCode = TitanProtocol.OP_ACK;
-            try {
-                switch (packet.opCode) {
-                    case TitanProtocol.OP_REGISTER:
-                        responsePayload = handleRegistration(socket, packet.payload);
-                        break;
-                    default:
-                        responsePayload = processCommand(packet);
-                        break;
+            socket.setSoTimeout(SESSION_IDLE_TIMEOUT_MS);
+            // Each reply is buffered and flushed once; without this, Nagle would hold it back on a reused session
+            // until the client's delayed ACK for the previous one.
+            socket.setTcpNoDelay(true);
+            int requests = 0;
+            while (true) {
+                TitanPacket packet;
+                try {
+                    packet = TitanProtocol.read(in);
+                } catch (EOFException | SocketTimeoutException e) {
+                    return; // client closed the session, or left it idle
                 }
+                TitanPacket response = respond(packet, remoteHost);
+                TitanProtocol.reply(out, packet, response.opCode, response.payload);
 
-//                if (responsePayload.startsWith("ERROR") || responsePayload.startsWith("UNKNOWN")) {
-//                    responseOpCode = TitanProtocol.OP_ERROR;
-//                }
-            } catch (Throwable t) {
-                t.printStackTrace();
-                responsePayload = "SERVER_ERROR: " + t.getMessage();
-                responseOpCode = TitanProtocol.OP_ERROR;
+                requests++;
+                if (SESSION_MAX_REQUESTS > 0 && requests >= SESSION_MAX_REQUESTS
+                        && !TitanProtocol.expectsMoreFrames(packet.opCode)) {
+                    return;
+                }
             }
 
-            TitanProtocol.send(out, responseOpCode, responsePayload);
-
         } catch (IOException e) {
             System.err.println("Client Disconnected abruptly : " + e.getMessage());
         } catch (Exception e) {
@@ -162,6 +246,142 @@ import titan.network.TitanProtocol.TitanPacket;
         }
     }
 
+    /**
+     * Runs a single request and builds the response packet. Shared by the blocking and NIO transports.
+     *
+     * @param packet The request packet.
+     * @param remoteHost The address of the client that sent the request.
+     * @return The response packet, carrying the correlation ID of the request.
+     */
+    TitanPacket respond(TitanPacket packet, String remoteHost){
+        String responsePayload;
+        byte responseOpCode = TitanProtocol.OP_ACK;
+        if (packet.version == TitanProtocol.PROTOCOL_V2 && packet.opCode != TitanProtocol.OP_TRANSFER_CHUNK
+                && packet.opCode != TitanProtocol.OP_CONTROL_BATCH && packet.opCode != TitanProtocol.OP_SUBMIT_BATCH) {
+            // The scheduler's commands are textual; accept them in v2 frames too.
+            packet.payload = packet.asText();
+        }
+        try {
+            responsePayload = (packet.opCode == TitanProtocol.OP_CONTROL_BATCH)
+                    ? handleControlBatch(packet, remoteHost)
+                    : dispatch(packet, remoteHost);
+
+//            if (responsePayload.startsWith("ERROR") || responsePayload.startsWith("UNKNOWN")) {
+//                responseOpCode = TitanProtocol.OP_ERROR;
+//            }
+        } catch (Throwable t) {
+            t.printStackTrace();
+            responsePayload = "SERVER_ERROR: " + t.getMessage();
+            responseOpCode = TitanProtocol.OP_ERROR;
+        }
+        return new TitanPacket(responseOpCode, responsePayload, packet.correlationId);
+    }
+
+    private String dispatch(TitanPacket packet, String remoteHost) {
+        switch (packet.opCode) {
+            case TitanProtocol.OP_REGISTER:
+                return handleRegistration(remoteHost, packet.payload);
+            case TitanProtocol.OP_LOAD_REPORT:
+                return scheduler.handleLoadReport(remoteHost, packet.payload);
+            case TitanProtocol.OP_SERVICE_READY:
+                return scheduler.handleServiceReady(packet.payload);
+            default:
+                return processCommand(packet);
+        }
+    }
+
+    /**
+     * Submits the jobs of an {@code OP_SUBMIT_BATCH} frame in one go (see {@link titan.scheduler.Scheduler#submitJobs(List)}).
+     *
+     * @param packet A v2 frame with one job payload per field, or a v1 frame with one job payload per line.
+     * @return {@code BATCH_ACCEPTED|<accepted>|<rejected>}, where blank entries count as rejected.
+     */
+    private String handleSubmitBatch(TitanPacket packet) {
+        List<String> jobPayloads = new ArrayList<>();
+        if (packet.version == TitanProtocol.PROTOCOL_V2) {
+            for (int i = 0; i < packet.fieldCount(); i++) jobPayloads.add(packet.fieldString(i));
+        } else {
+            jobPayloads.addAll(Arrays.asList(packet.payload.split("\n")));
+        }
+        int accepted = scheduler.submitJobs(jobPayloads);
+        return "BATCH_ACCEPTED|" + accepted + "|" + (jobPayloads.size() - accepted);
+    }
+
+    /**
+     * Applies one batch from a worker's {@link ControlChannel}. Messages are applied in order. A batch whose sequence
+     * number was already applied on this channel is a resend after a lost ACK: it is acknowledged again without
+     * being applied a second time.
+     *
+     * @param packet The v2 batch: {@code channelId}, {@code seq}, then {@code opCode}/{@code payload} pairs.
+     * @param remoteHost The address of the worker.
+     * @return {@code ACK|<seq>}, or an error message if the batch is malformed.
+     */
+    private String handleControlBatch(TitanPacket packet, String remoteHost) {
+        if (packet.fieldCount() < 2 || packet.fieldCount() % 2 != 0) return "ERROR: Invalid Control Batch";
+        String channelId = packet.fieldString(0);
+        long seq;
+        try {
+            seq = Long.parseLong(packet.fieldString(1));
+        } catch (NumberFormatException e) {
+            return "ERROR: Invalid Control Batch";
+        }
+
+        expireIdleChannels();
+        ChannelSequence applied = channelSequences.computeIfAbsent(channelId, k -> new ChannelSequence());
+        synchronized (applied) {
+            if (channelSequences.get(channelId) != applied) {
+                // Expired between the lookup and the lock; a channel that is sending again is not idle
+                return handleControlBatch(packet, remoteHost);
+            }
+            applied.lastUsed = System.currentTimeMillis();
+            if (seq <= applied.applied) {
+                return "ACK|" + seq;
+            }
+            for (int i = 2; i < packet.fieldCount(); i += 2) {
+                TitanPacket message = new TitanPacket(packet.field(i).get(0), packet.fieldString(i + 1));
+                try {
+                    String result = dispatch(message, remoteHost);
+                    if (result.startsWith("ERROR") || result.startsWith("UNKNOWN")) {
+                        System.err.println("[CHANNEL] Op " + message.opCode + " from " + remoteHost + " failed: " + result);
+                    }
+                } catch (Exception e) {
+                    // Redelivering the batch would fail the same way, so log and move on.
+                    System.err.println("[CHANNEL] Op " + message.opCode + " from " + remoteHost + " failed: " + e);
+                }
+            }
+            applied.applied = seq;
+        }
+        return "ACK|" + seq;
+    }
+
+    // Forgets the sequence numbers of channels whose worker process is gone; runs at most once per expiry period
+    private void expireIdleChannels() {
+        long now = System.currentTimeMillis();
+        if (now < nextChannelSweep) return;
+        nextChannelSweep = now + CHANNEL_EXPIRY_MS;
+        channelSequences.forEach((id, sequence) -> {
+            synchronized (sequence) {
+                if (now - sequence.lastUsed >= CHANNEL_EXPIRY_MS) channelSequences.remove(id, sequence);
+            }
+        });
+    }
+
+    /**
+     * Describes the state of the network layer for the system monitor: the transport in use and, for the NIO
+     * transport, open connections and the depths of the accept and handler queues.
+     *
+     * @return A one-line summary of the server transport.
+     */
+    public String getServerStats(){
+        if (selectorServer != null) {
+            return "NIO | " + selectorServer.getStats();
+        }
+        if (!(threadPool instanceof ThreadPoolExecutor)) {
+            return "Blocking | Handler Threads: virtual";
+        }
+        return "Blocking | Handler Threads: " + ((ThreadPoolExecutor) threadPool).getActiveCount() + " active";
+    }
+
     /**
  * Processes a request to deploy a file (e.g., a JAR or script) to a worker.
  * It reads the specified file from the server's {@code perm_files} directory, encodes its content in Base64,
@@ -180,8 +400,7 @@ import titan.network.TitanProtocol.TitanPacket;
                 return "ERROR: File not found in " + PERM_FILES_DIR;
             }
 
-            byte[] fileBytes = Files.readAllBytes(file.toPath());
-            String base64Content = Base64.getEncoder().encodeToString(fileBytes);
+            String base64Content = inlineOrReference(file);
 
             Job job = new Job("TEMP_PAYLOAD", 1, 0);
             String internalId = job.getId();
@@ -243,13 +462,12 @@ import titan.network.TitanProtocol.TitanPacket;
             String fullJobId = "TSK-" + job.getId();
             job.setId(fullJobId);
 
-            byte[] fileBytes = Files.readAllBytes(file.toPath());
-            String base64Content = Base64.getEncoder().encodeToString(fileBytes);
+            String base64Content = inlineOrReference(file);
 
             if (base64Content == null) return "ERROR: File not found";
 
-            String payload = "RUN_PAYLOAD|" + file.getName() + "|" + base64Content + "|" + safeReq;
-            // Payload: RUN_PAYLOAD|filename|base64
+            String payload = "RUN_PAYLOAD|" + file.getName() + "||" + base64Content + "|" + safeReq;
+            // Payload: RUN_PAYLOAD|filename|args|base64|requirement (see JobSpec)
 //            Job job = new Job(payload, 1, 0);
             job.setPayload(payload);
             scheduler.submitJob(job);
@@ -309,7 +527,8 @@ import titan.network.TitanProtocol.TitanPacket;
     /**
  * Parses a string containing multiple job definitions for a Directed Acyclic Graph (DAG) and submits each job to the {@link titan.scheduler.Scheduler}.
  * Each job definition within the request string is expected to be separated by a semicolon ({@code ;}).
- * Jobs are parsed using {@link titan.scheduler.Job#fromDagString(String)}.
+ * Jobs are parsed using {@link titan.scheduler.Job#fromDagString(String)} and ranked by their critical path
+ * ({@link titan.scheduler.CriticalPath}) before they are submitted.
  *
  * @param request A string containing one or more job definitions, typically in a format like "job1_def;job2_def;..."
  *                where each definition can be parsed into a {@link titan.scheduler.Job} object.
@@ -332,8 +551,11 @@ import titan.network.TitanProtocol.TitanPacket;
             return;
         }
 
+        // Within a priority, jobs with the most work behind them run first
+        CriticalPath.rank(parsedDagJobs, scheduler::estimateDurationMs);
+
         for(Job job: parsedDagJobs){
-            System.out.println("[INFO] [PARSER] Created Job: " + job.getId());
+            System.out.println("[INFO] [PARSER] Created Job: " + job.getId() + " (rank " + job.getRank() + ")");
             scheduler.submitJob(job);
         }
 
@@ -381,7 +603,7 @@ import titan.network.TitanProtocol.TitanPacket;
 
             case TitanProtocol.OP_UNREGISTER_SERVICE:
                 String serviceId = payload;
-                scheduler.getLiveServiceMap().remove(serviceId);
+                scheduler.handleServiceStopped(serviceId);
                 System.out.println("[INFO] Cleaned up service: " + serviceId);
                 return "ACK_UNREGISTERED";
 
@@ -400,6 +622,9 @@ import titan.network.TitanProtocol.TitanPacket;
                 scheduler.submitJob(payload);
                 return "JOB_ACCEPTED";
 
+            case TitanProtocol.OP_SUBMIT_BATCH:
+                return handleSubmitBatch(packet);
+
             case TitanProtocol.OP_KILL_WORKER:
                 try {
                     // OLD: int targetPort = Integer.parseInt(payload);
@@ -433,9 +658,7 @@ import titan.network.TitanProtocol.TitanPacket;
                     // Split the block back into individual lines
                     // The Worker joined them with "\n", so we split by "\n"
                     String[] batchLines = fullLogBlock.split("\n");
-                    for (String line : batchLines) {
-                        scheduler.logStream(batchJobId, line);
-                    }
+                    scheduler.logBatch(batchJobId, Arrays.asList(batchLines));
                 }
                 return "ACK_BATCH";
 
@@ -451,20 +674,42 @@ import titan.network.TitanProtocol.TitanPacket;
             case TitanProtocol.OP_GET_LOGS:
                 // Payload is the jobId in this case
                 String jobId = payload;
+                // The live ring, or the last lines of the job's log segments once it has left memory
                 List<String> logs = scheduler.getLogs(jobId);
-                if (logs.isEmpty()) {
-//                    File logFile = new File("titan_workspace/shared/" + jobId + ".log");
-                    File logFile = new File("titan_server_logs" + File.separator + jobId + ".log");
-                    if (logFile.exists()) {
-                        try {
-                            return new String(Files.readAllBytes(logFile.toPath()));
-                        } catch (IOException e) {
-                            return "ERROR: Log file exists but unreadable";
-                        }
-                    }
-                }
                 return String.join("\n", logs);
 
+            case TitanProtocol.OP_GET_LOGS_SINCE:
+                // Payload: jobId|fromLine[|waitMs]
+                String[] sinceParts = payload.split("\\|");
+                if (sinceParts.length < 2) return "ERROR: Invalid Log Offset Payload";
+                long fromLine, waitMs;
+                try {
+                    fromLine = Long.parseLong(sinceParts[1].trim());
+                    waitMs = sinceParts.length > 2 ? Math.min(LOG_FOLLOW_MAX_WAIT_MS, Long.parseLong(sinceParts[2].trim())) : 0;
+                } catch (NumberFormatException e) {
+                    return "ERROR: Invalid Log Offset Payload";
+                }
+                if (waitMs <= 0 || !followSlots.tryAcquire()) {
+                    return scheduler.getLogsSince(sinceParts[0], fromLine, 0);
+                }
+                try {
+                    return scheduler.getLogsSince(sinceParts[0], fromLine, waitMs);
+                } finally {
+                    followSlots.release();
+                }
+
+            case TitanProtocol.OP_SEARCH_LOGS:
+                // Payload: terms|jobPrefix|fromMs|toMs|limit; all but terms may be empty
+                String[] searchParts = payload.split("\\|", -1);
+                try {
+                    long searchFrom = searchParts.length > 2 && !searchParts[2].isBlank() ? Long.parseLong(searchParts[2].trim()) : 0;
+                    long searchTo = searchParts.length > 3 && !searchParts[3].isBlank() ? Long.parseLong(searchParts[3].trim()) : 0;
+                    int searchLimit = searchParts.length > 4 && !searchParts[4].isBlank() ? Integer.parseInt(searchParts[4].trim()) : 0;
+                    return scheduler.searchLogs(searchParts[0], searchParts.length > 1 ? searchParts[1].trim() : "",
+                            searchFrom, searchTo, searchLimit);
+                } catch (NumberFormatException e) {
+                    return "ERROR: Invalid Log Search Payload";
+                }
 
             case TitanProtocol.OP_UPLOAD_ASSET:
                 // Payload format: "FILENAME | BASE64_CONTENT"
@@ -511,6 +756,19 @@ import titan.network.TitanProtocol.TitanPacket;
                     return "DEPLOY_FAILED: " + e.getMessage();
                 }
 
+            case TitanProtocol.OP_TRANSFER_BEGIN:
+                // Payload: transferId|target|fileName|totalSize  (target: uploads or perm_files)
+                return transferReceiver.begin(payload);
+
+            case TitanProtocol.OP_TRANSFER_CHUNK:
+                if (packet.version == TitanProtocol.PROTOCOL_V2) {
+                    return transferReceiver.chunk(packet.fieldString(0), Long.parseLong(packet.fieldString(1)), packet.field(2));
+                }
+                return transferReceiver.chunk(payload);
+
+            case TitanProtocol.OP_TRANSFER_COMMIT:
+                return transferReceiver.commit(payload);
+
             case TitanProtocol.OP_FETCH_ASSET:
                 // Payload: "filename" (e.g., "my_project.zip")
                 String requestedFile = payload.trim();
@@ -570,6 +828,14 @@ import titan.network.TitanProtocol.TitanPacket;
         }
     }
 
+    // Small files are inlined as Base64; large ones are referenced by path and streamed when the job is dispatched.
+    private static String inlineOrReference(File file) throws IOException {
+        if (file.length() > ChunkedSender.INLINE_MAX_BYTES) {
+            return PERM_FILE_PREFIX + file.getPath();
+        }
+        return Base64.getEncoder().encodeToString(Files.readAllBytes(file.toPath()));
+    }
+
     /**
  * Searches for a specified file within the {@code PERM_FILES_DIR} and its subdirectories.
  * This method first checks for a direct match in the root of {@code PERM_FILES_DIR} and then performs a recursive walk.
@@ -608,6 +874,7 @@ import titan.network.TitanProtocol.TitanPacket;
     public void stop(){
         isRunning = false;
         threadPool.shutdown();
+        if (selectorServer != null) selectorServer.stop();
 
         try{
             if(serverSocket != null && !serverSocket.isClosed())
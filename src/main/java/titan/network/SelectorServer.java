@@ -0,0 +1,319 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.network;
+
+import titan.TitanConfig;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Non-blocking transport for {@link SchedulerServer}, selected with {@code titan.server.mode=nio}.
+ * <p>
+ * One acceptor thread accepts sockets and hands them to a single selector thread, which decodes
+ * {@link TitanProtocol} frames off {@link ByteBuffer}s. Decoded requests run on a bounded
+ * {@link ThreadPoolExecutor}, so a burst of connections costs buffers rather than threads. When the
+ * handler queue is full the request is answered immediately with {@code OP_ERROR SERVER_BUSY}.
+ * </p>
+ * <p>
+ * Requests on one connection are handled one at a time: the selector stops reading a socket while its
+ * request is being processed, which keeps responses in request order for clients that do not use
+ * correlation IDs. As in the blocking server, a connection stays open for further requests until the client
+ * closes it, it has been idle for {@link SchedulerServer#SESSION_IDLE_TIMEOUT_MS}, or it has made
+ * {@link SchedulerServer#SESSION_MAX_REQUESTS} requests. Idle sessions are swept by the selector thread.
+ * </p>
+ */
+class SelectorServer {
+    private final int port;
+    private final BiFunction<TitanProtocol.TitanPacket, String, TitanProtocol.TitanPacket> handler;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final ThreadPoolExecutor handlerPool;
+    private final int handlerQueueCapacity;
+
+    // Sockets accepted by the acceptor thread but not yet registered with the selector.
+    private final Queue<SocketChannel> acceptQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger acceptQueueDepth = new AtomicInteger();
+    // Interest-set changes requested by handler threads; applied on the selector thread.
+    private final Queue<Runnable> selectorTasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private volatile boolean running = true;
+    private long lastIdleSweep = System.currentTimeMillis();
+
+    /**
+     * Binds the server channel and creates the handler pool.
+     *
+     * @param port The port to listen on.
+     * @param handler Turns a request packet and the remote host address into a response packet.
+     * @throws IOException If the port cannot be bound.
+     */
+    SelectorServer(int port, BiFunction<TitanProtocol.TitanPacket, String, TitanProtocol.TitanPacket> handler) throws IOException {
+        this.port = port;
+        this.handler = handler;
+
+        int threads = Math.max(1, TitanConfig.getInt("titan.server.handler.threads", 16));
+        this.handlerQueueCapacity = Math.max(1, TitanConfig.getInt("titan.server.handler.queue", 1000));
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.handlerPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(handlerQueueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "titan-handler-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.handlerPool.allowCoreThreadTimeOut(true);
+
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind(new InetSocketAddress(port), TitanConfig.getInt("titan.server.backlog", 1024));
+    }
+
+    /**
+     * Runs the acceptor and selector loops. Blocks until {@link #stop()} is called.
+     */
+    void run() {
+        Thread acceptor = new Thread(this::acceptLoop, "titan-acceptor-" + port);
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        try {
+            while (running) {
+                selector.select(1000);
+                registerAccepted();
+                closeIdleSessions();
+                Runnable task;
+                while ((task = selectorTasks.poll()) != null) task.run();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Session session = (Session) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) onReadable(key, session);
+                        if (key.isValid() && key.isWritable()) onWritable(key, session);
+                    } catch (IOException e) {
+                        System.err.println("Client Disconnected abruptly : " + e.getMessage());
+                        close(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (running) e.printStackTrace();
+        } finally {
+            for (SelectionKey key : selector.keys()) close(key);
+            try { selector.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    /**
+     * Stops accepting, closes all connections and shuts the handler pool down.
+     */
+    void stop() {
+        running = false;
+        try { serverChannel.close(); } catch (IOException ignored) {}
+        selector.wakeup();
+        handlerPool.shutdown();
+    }
+
+    /**
+     * @return A one-line summary of connection counts and the accept and handler queue depths.
+     */
+    String getStats() {
+        return String.format("Connections: %d open, %d accepted | Accept Queue: %d | Handler Queue: %d/%d | Handlers: %d/%d busy | Rejected: %d",
+                openConnections.get(), acceptedCount.get(), acceptQueueDepth.get(),
+                handlerPool.getQueue().size(), handlerQueueCapacity,
+                handlerPool.getActiveCount(), handlerPool.getMaximumPoolSize(),
+                rejectedCount.get());
+    }
+
+    int getAcceptQueueDepth() {
+        return acceptQueueDepth.get();
+    }
+
+    int getHandlerQueueDepth() {
+        return handlerPool.getQueue().size();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                acceptQueue.add(channel);
+                acceptQueueDepth.incrementAndGet();
+                acceptedCount.incrementAndGet();
+                selector.wakeup();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) e.printStackTrace();
+            }
+        }
+    }
+
+    private void registerAccepted() {
+        SocketChannel channel;
+        while ((channel = acceptQueue.poll()) != null) {
+            acceptQueueDepth.decrementAndGet();
+            try {
+                InetSocketAddress remote = (InetSocketAddress) channel.getRemoteAddress();
+                channel.register(selector, SelectionKey.OP_READ, new Session(remote.getAddress().getHostAddress()));
+                openConnections.incrementAndGet();
+            } catch (IOException e) {
+                try { channel.close(); } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    private void onReadable(SelectionKey key, Session session) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        if (channel.read(session.in) < 0) {
+            close(key);
+            return;
+        }
+        session.lastActive = System.currentTimeMillis();
+        dispatchBuffered(key, session);
+    }
+
+    // Decodes the next complete frame from the session's input buffer, if any, and hands it to the handler pool.
+    private void dispatchBuffered(SelectionKey key, Session session) throws IOException {
+        session.in.flip();
+        int frameLength = TitanProtocol.peekFrameLength(session.in);
+        if (frameLength > session.in.capacity()) {
+            // Large payload (e.g. an asset upload): grow the buffer to fit the whole frame.
+            ByteBuffer bigger = ByteBuffer.allocate(frameLength);
+            bigger.put(session.in);
+            session.in = bigger;
+            return;
+        }
+
+        TitanProtocol.TitanPacket packet = TitanProtocol.decode(session.in);
+        session.in.compact();
+        if (packet == null) return;
+        if (session.in.capacity() > Session.BUFFER_SIZE && session.in.position() <= Session.BUFFER_SIZE
+                && !TitanProtocol.expectsMoreFrames(packet.opCode)) {
+            // The session outlives the large frame; give the grown buffer back unless a stream of them is under way.
+            ByteBuffer smaller = ByteBuffer.allocate(Session.BUFFER_SIZE);
+            session.in.flip();
+            smaller.put(session.in);
+            session.in = smaller;
+        }
+
+        // One request at a time per connection: stop reading until the response has been written.
+        key.interestOps(0);
+        session.requests++;
+        session.keepOpen = SchedulerServer.SESSION_MAX_REQUESTS == 0
+                || session.requests < SchedulerServer.SESSION_MAX_REQUESTS
+                || TitanProtocol.expectsMoreFrames(packet.opCode);
+        try {
+            handlerPool.execute(() -> {
+                TitanProtocol.TitanPacket response;
+                try {
+                    response = handler.apply(packet, session.host);
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                    response = new TitanProtocol.TitanPacket(TitanProtocol.OP_ERROR, "SERVER_ERROR: " + t.getMessage(), packet.correlationId);
+                }
+                respond(key, session, response, packet.acceptsCompression);
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            respond(key, session, new TitanProtocol.TitanPacket(TitanProtocol.OP_ERROR, "SERVER_BUSY", packet.correlationId), false);
+        }
+    }
+
+    private void respond(SelectionKey key, Session session, TitanProtocol.TitanPacket response, boolean compress) {
+        session.out = TitanProtocol.encode(response.opCode, response.payload, response.correlationId, compress);
+        selectorTasks.add(() -> {
+            if (key.isValid()) key.interestOps(SelectionKey.OP_WRITE);
+        });
+        selector.wakeup();
+    }
+
+    private void onWritable(SelectionKey key, Session session) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        channel.write(session.out);
+        if (!session.out.hasRemaining()) {
+            if (!session.keepOpen) {
+                close(key);
+                return;
+            }
+            session.out = null;
+            session.lastActive = System.currentTimeMillis();
+            key.interestOps(SelectionKey.OP_READ);
+            dispatchBuffered(key, session);
+        }
+    }
+
+    // Closes sessions waiting for a request for longer than the idle timeout. Runs at most once a second.
+    private void closeIdleSessions() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleSweep < 1000) return;
+        lastIdleSweep = now;
+        for (SelectionKey key : selector.keys()) {
+            if (!key.isValid() || !(key.attachment() instanceof Session)) continue;
+            Session session = (Session) key.attachment();
+            // Sessions with a request in the handler pool or a response being written are not idle.
+            if (key.interestOps() == SelectionKey.OP_READ && session.out == null
+                    && now - session.lastActive > SchedulerServer.SESSION_IDLE_TIMEOUT_MS) {
+                close(key);
+            }
+        }
+    }
+
+    private void close(SelectionKey key) {
+        if (key.attachment() instanceof Session && key.isValid()) {
+            openConnections.decrementAndGet();
+        }
+        key.cancel();
+        try { key.channel().close(); } catch (IOException ignored) {}
+    }
+
+    private static class Session {
+        final String host;
+        static final int BUFFER_SIZE = 8 * 1024;
+        ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        volatile ByteBuffer out;
+        volatile boolean keepOpen;
+        // Only touched on the selector thread.
+        long lastActive = System.currentTimeMillis();
+        int requests;
+
+        Session(String host) {
+            this.host = host;
+        }
+    }
+}
@@ -15,7 +15,10 @@
 package titan.network;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * {@code TitanProtocol} defines the communication protocol for the Titan network.
@@ -32,6 +35,23 @@ import java.nio.charset.StandardCharsets;
  */
     private static final byte CURRENT_VERSION = 1;
 
+    /**
+     * Protocol version 2. A v2 frame has the same 8-byte header, but its body is a sequence of
+     * length-prefixed binary fields ({@code [Length(4)][Bytes]...}) instead of one {@code |}-delimited
+     * UTF-8 string. It is only sent to peers that announced v2 support during {@link #OP_REGISTER}.
+     */
+    public static final byte PROTOCOL_V2 = 2;
+    /**
+     * Highest protocol version this build can read.
+     */
+    public static final int MAX_SUPPORTED_VERSION = PROTOCOL_V2;
+
+    /**
+     * Size of the fixed frame header in bytes.
+     */
+    public static final int HEADER_SIZE = 8;
+    private static final int MAX_PACKET_SIZE = 1024 * 1024 * 10;
+
     // OpCodes
     /**
  * OpCode for a heartbeat message. Used to keep connections alive and signal liveness.
@@ -126,6 +146,55 @@ import java.nio.charset.StandardCharsets;
  * OpCode for starting a service from an archived state or with archived configurations.
  */
     public static final byte OP_START_SERVICE_ARCHIVE = 0x19;
+    /**
+     * OpCode for starting (or resuming) a chunked file transfer.
+     * Payload: {@code transferId|target|fileName|totalSize}. Response: {@code OFFSET|<bytes already received>}.
+     */
+    public static final byte OP_TRANSFER_BEGIN    = 0x1A;
+    /**
+     * OpCode for one chunk of a chunked file transfer. Sent as a v2 frame with the fields
+     * {@code transferId}, {@code offset} and the raw chunk bytes. Response: {@code OFFSET|<new offset>}.
+     */
+    public static final byte OP_TRANSFER_CHUNK    = 0x1B;
+    /**
+     * OpCode for completing a chunked file transfer. Payload: {@code transferId|totalSize|crc32}.
+     * The receiver verifies the data and moves it into place. Response: {@code TRANSFER_COMPLETE|<path>}.
+     */
+    public static final byte OP_TRANSFER_COMMIT   = 0x1C;
+    /**
+     * OpCode for a batch of worker-to-scheduler messages on a {@link ControlChannel}. Sent as a v2 frame with the fields
+     * {@code channelId}, {@code seq}, then one {@code opCode} (1 byte) and {@code payload} pair per message.
+     * Response: {@code ACK|<seq>}. The connection stays open for the next batch.
+     */
+    public static final byte OP_CONTROL_BATCH     = 0x1D;
+    /**
+     * OpCode for a worker pushing its load to the scheduler. Payload: {@code port|activeJobs|maxCapacity}.
+     */
+    public static final byte OP_LOAD_REPORT       = 0x1E;
+    /**
+     * OpCode for submitting many jobs at once. Sent as a v2 frame with one field per job, each in the
+     * {@link #OP_SUBMIT_JOB} payload format; v1 clients may instead send the jobs separated by newlines.
+     * Response: {@code BATCH_ACCEPTED|<accepted>|<rejected>}. The connection stays open for the next batch.
+     */
+    public static final byte OP_SUBMIT_BATCH      = 0x1F;
+    /**
+     * OpCode for a worker reporting that a service it started accepts connections on its port. Sent over the
+     * {@link ControlChannel}. Payload: {@code serviceId|port}. Response: {@code ACK_READY}.
+     */
+    public static final byte OP_SERVICE_READY     = 0x20;
+    /**
+     * OpCode for reading a job's log from a line offset on. Payload: {@code jobId|fromLine} or
+     * {@code jobId|fromLine|waitMs}; a negative {@code fromLine} counts back from the end. With {@code waitMs}, a request
+     * that finds no new lines waits up to that long for some.
+     * Response: {@code <firstLine>|<nextLine>|<lines>}, with {@code nextLine - firstLine} lines separated by newlines.
+     */
+    public static final byte OP_GET_LOGS_SINCE    = 0x21;
+    /**
+     * OpCode for finding the log lines that contain some words. Payload: {@code terms|jobPrefix|fromMs|toMs|limit};
+     * all but {@code terms} may be empty. Response: one {@code jobId|line|timeMs} per matching line, newest first,
+     * separated by newlines; {@code line} is the offset for {@link #OP_GET_LOGS_SINCE}.
+     */
+    public static final byte OP_SEARCH_LOGS       = 0x22;
     // Job Type Headers (Strings used inside payload)
     /**
  * String identifier for the 'run archive' job type, typically used within payload data.
@@ -175,6 +244,50 @@ import java.nio.charset.StandardCharsets;
      * removes the job from all queues, and cascades cancellation to waiting children.
      */
     public static final byte OP_CANCEL_JOB        = 0x56;
+
+    // Correlation IDs
+    /**
+     * Mask over the Flags byte that is reserved for frame-level flags. The low nibble of the
+     * Flags byte is not a flag: together with the Spare byte it carries the 12-bit correlation ID.
+     */
+    public static final int FLAGS_MASK = 0xF0;
+    /**
+     * Frame flag: the body is Deflate-compressed (see {@link FrameCompression}). Applies to v1 and v2 bodies alike.
+     */
+    public static final int FLAG_DEFLATE = 0x10;
+    /**
+     * Frame flag reserved for LZ4 compression. This build has no LZ4 codec, so it never sends such frames and
+     * rejects them on read.
+     */
+    public static final int FLAG_LZ4 = 0x20;
+    /**
+     * Frame flag: the sender can read compressed frames. Servers only compress a response if the request carried
+     * this flag, so clients that always send {@code Flags = 0} (the Python SDK) never receive compressed data.
+     */
+    public static final int FLAG_ACCEPTS_COMPRESSION = 0x80;
+
+    // host:port of peers that have sent FLAG_ACCEPTS_COMPRESSION, i.e. may be sent compressed requests.
+    private static final Set<String> compressingPeers = ConcurrentHashMap.newKeySet();
+    /**
+     * Largest correlation ID that fits in the header (low nibble of Flags + Spare byte).
+     * ID {@code 0} means "uncorrelated" and is what v1 clients such as the Python SDK send.
+     */
+    public static final int MAX_CORRELATION_ID = 0x0FFF;
+
+    /**
+     * Chunked transfers, control channels and bulk submissions are streams of frames on one connection. Servers keep
+     * every client session open between requests, but they may end a session that reached its request limit; they do
+     * not do so after BEGIN, CHUNK, a control batch or a job batch, so a stream is never cut off. A transfer sender
+     * closes the connection after COMMIT.
+     *
+     * @param opCode The operation code of a request.
+     * @return {@code true} if the client is part-way through a stream and expects to send further frames.
+     */
+    public static boolean expectsMoreFrames(byte opCode) {
+        return opCode == OP_TRANSFER_BEGIN || opCode == OP_TRANSFER_CHUNK || opCode == OP_CONTROL_BATCH
+                || opCode == OP_SUBMIT_BATCH;
+    }
+
     /**
      * SEND: Wraps the payload in our 8-byte header.
      * [ Version(1) | OpCode(1) | Flags(1) | Spare(1) | Length(4) ] + [ Payload ]
@@ -191,19 +304,101 @@ import java.nio.charset.StandardCharsets;
  * @throws IOException If an I/O error occurs during writing to the stream.
  */
     public static void send(DataOutputStream out, byte opCode, String payload) throws IOException {
+        send(out, opCode, payload, 0);
+    }
+
+    /**
+     * Sends a response to {@code request}, echoing its correlation ID so that a client multiplexing
+     * several requests over one socket can match the response to the caller waiting for it.
+     *
+     * @param out The {@link DataOutputStream} to write the message to.
+     * @param request The packet being answered.
+     * @param opCode The operation code of the response.
+     * @param payload The string payload of the response.
+     * @throws IOException If an I/O error occurs during writing to the stream.
+     */
+    public static void reply(DataOutputStream out, TitanPacket request, byte opCode, String payload) throws IOException {
+        send(out, opCode, payload, request == null ? 0 : request.correlationId,
+                request != null && request.acceptsCompression);
+    }
+
+    /**
+     * Sends a message tagged with a correlation ID. The ID is split across the header:
+     * its high 4 bits go into the low nibble of the Flags byte and its low 8 bits into the Spare byte.
+     *
+     * @param out The {@link DataOutputStream} to write the message to.
+     * @param opCode The operation code for the message.
+     * @param payload The string payload of the message.
+     * @param correlationId The correlation ID, between {@code 0} and {@link #MAX_CORRELATION_ID}.
+     * @throws IOException If an I/O error occurs during writing to the stream.
+     */
+    public static void send(DataOutputStream out, byte opCode, String payload, int correlationId) throws IOException {
+        send(out, opCode, payload, correlationId, false);
+    }
+
+    /**
+     * Sends a message, Deflate-compressing the payload if {@code compress} is set and the payload is large enough
+     * to benefit. Only pass {@code compress = true} for peers known to read compressed frames
+     * (see {@link #peerAcceptsCompression(String, int)}).
+     *
+     * @param out The {@link DataOutputStream} to write the message to.
+     * @param opCode The operation code for the message.
+     * @param payload The string payload of the message.
+     * @param correlationId The correlation ID, between {@code 0} and {@link #MAX_CORRELATION_ID}.
+     * @param compress Whether the payload may be compressed.
+     * @throws IOException If an I/O error occurs during writing to the stream.
+     */
+    public static void send(DataOutputStream out, byte opCode, String payload, int correlationId, boolean compress) throws IOException {
         byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
         int len = payloadBytes.length;
+        int wireLen = writeFrame(out, CURRENT_VERSION, opCode, correlationId, payloadBytes, compress);
+        out.flush();
 
-        out.writeByte(CURRENT_VERSION);
+        System.out.println("[TitanProto] Sent Op:" + opCode + " Len:" + len + (wireLen != len ? " (deflated " + wireLen + ")" : ""));
+    }
+
+    // Writes header and body, compressing the body if allowed and worthwhile. Returns the body length on the wire.
+    private static int writeFrame(DataOutputStream out, byte version, byte opCode, int correlationId, byte[] body, boolean compress) throws IOException {
+        byte[] wire = compress ? FrameCompression.compress(opCode, body) : null;
+        int flags = FrameCompression.ENABLED ? FLAG_ACCEPTS_COMPRESSION : 0;
+        if (wire != null) {
+            flags |= FLAG_DEFLATE;
+        } else {
+            wire = body;
+        }
+
+        out.writeByte(version);
         out.writeByte(opCode);
-        out.writeByte(0x00);
-        out.writeByte(0x00);
-        out.writeInt(len);
+        out.writeByte(flags | ((correlationId >> 8) & 0x0F));
+        out.writeByte(correlationId & 0xFF);
+        out.writeInt(wire.length);
+        out.write(wire);
+        return wire.length;
+    }
 
-        out.write(payloadBytes);
-        out.flush();
+    /**
+     * Records whether a peer can read compressed frames, based on the flags of a packet it sent.
+     *
+     * @param host The peer host.
+     * @param port The peer port (the port it listens on, not the ephemeral port of the packet's socket).
+     * @param packet A packet received from the peer.
+     */
+    static void notePeer(String host, int port, TitanPacket packet) {
+        if (packet.acceptsCompression) {
+            compressingPeers.add(host + ":" + port);
+        } else {
+            compressingPeers.remove(host + ":" + port);
+        }
+    }
 
-        System.out.println("[TitanProto] Sent Op:" + opCode + " Len:" + len);
+    /**
+     * @param host The peer host.
+     * @param port The peer port.
+     * @return {@code true} if compressed frames may be sent to the peer: compression is enabled here and the peer
+     *         has advertised {@link #FLAG_ACCEPTS_COMPRESSION} in a response.
+     */
+    public static boolean peerAcceptsCompression(String host, int port) {
+        return FrameCompression.ENABLED && compressingPeers.contains(host + ":" + port);
     }
 
     /**
@@ -221,18 +416,211 @@ import java.nio.charset.StandardCharsets;
         byte spare = in.readByte();
         int len = in.readInt();
 
-        if (version != CURRENT_VERSION) {
+        if (version != CURRENT_VERSION && version != PROTOCOL_V2) {
             throw new Exception("Version Mismatch! Server expects v" + CURRENT_VERSION);
         }
 
-        if(len > 1024 * 1024 * 10){
+        if(len > MAX_PACKET_SIZE){
             throw new Exception("Packet too large: " + len);
         }
 
-        byte[] buffer = new byte[len];
-        in.readFully(buffer);
-        String payload = new String(buffer, StandardCharsets.UTF_8);
-        return new TitanPacket(opCode, payload);
+        int correlationId = ((flags & 0x0F) << 8) | (spare & 0xFF);
+        if (isDeflated(flags)) {
+            byte[] compressed = BufferPool.acquire(len);
+            byte[] body;
+            try {
+                in.readFully(compressed, 0, len);
+                body = FrameCompression.inflate(opCode, compressed, len, MAX_PACKET_SIZE);
+            } finally {
+                BufferPool.release(compressed);
+            }
+            return toPacket(version, opCode, flags, correlationId, body);
+        }
+        if (version == PROTOCOL_V2) {
+            // Fields are slices of this array, so it is handed over to the packet rather than pooled.
+            byte[] body = new byte[len];
+            in.readFully(body);
+            return toPacket(version, opCode, flags, correlationId, body);
+        }
+
+        // v1: the bytes are only needed until they are decoded, so borrow a scratch buffer.
+        byte[] buffer = BufferPool.acquire(len);
+        try {
+            in.readFully(buffer, 0, len);
+            String payload = new String(buffer, 0, len, StandardCharsets.UTF_8);
+            TitanPacket packet = new TitanPacket(opCode, payload, correlationId);
+            packet.acceptsCompression = (flags & FLAG_ACCEPTS_COMPRESSION) != 0;
+            return packet;
+        } finally {
+            BufferPool.release(buffer);
+        }
+    }
+
+    // Validates the compression bits of the Flags byte.
+    private static boolean isDeflated(byte flags) throws IOException {
+        if ((flags & FLAG_LZ4) != 0) {
+            throw new IOException("LZ4-compressed frames are not supported by this build");
+        }
+        return (flags & FLAG_DEFLATE) != 0;
+    }
+
+    private static TitanPacket toPacket(byte version, byte opCode, byte flags, int correlationId, byte[] body) throws IOException {
+        TitanPacket packet = (version == PROTOCOL_V2)
+                ? new TitanPacket(opCode, body, correlationId)
+                : new TitanPacket(opCode, new String(body, StandardCharsets.UTF_8), correlationId);
+        packet.acceptsCompression = (flags & FLAG_ACCEPTS_COMPRESSION) != 0;
+        return packet;
+    }
+
+    /**
+     * Sends a v2 frame whose body is the given binary fields, each prefixed with its length.
+     * Only use this towards peers that negotiated {@link #PROTOCOL_V2}.
+     *
+     * @param out The {@link DataOutputStream} to write the message to.
+     * @param opCode The operation code for the message.
+     * @param correlationId The correlation ID, between {@code 0} and {@link #MAX_CORRELATION_ID}.
+     * @param fields The fields of the message, written in order.
+     * @throws IOException If an I/O error occurs or the frame would exceed the maximum packet size.
+     */
+    public static void sendFields(DataOutputStream out, byte opCode, int correlationId, byte[]... fields) throws IOException {
+        sendFields(out, opCode, correlationId, false, fields);
+    }
+
+    /**
+     * Sends a v2 frame, Deflate-compressing the body if {@code compress} is set and the body is large enough to benefit.
+     *
+     * @param out The {@link DataOutputStream} to write the message to.
+     * @param opCode The operation code for the message.
+     * @param correlationId The correlation ID, between {@code 0} and {@link #MAX_CORRELATION_ID}.
+     * @param compress Whether the body may be compressed.
+     * @param fields The fields of the message, written in order.
+     * @throws IOException If an I/O error occurs or the frame would exceed the maximum packet size.
+     */
+    public static void sendFields(DataOutputStream out, byte opCode, int correlationId, boolean compress, byte[]... fields) throws IOException {
+        long len = 0;
+        for (byte[] f : fields) len += 4 + f.length;
+        if (len > MAX_PACKET_SIZE) {
+            throw new IOException("Packet too large: " + len);
+        }
+
+        if (compress) {
+            // The body has to be contiguous to be compressed.
+            ByteBuffer body = ByteBuffer.allocate((int) len);
+            for (byte[] f : fields) body.putInt(f.length).put(f);
+            int wireLen = writeFrame(out, PROTOCOL_V2, opCode, correlationId, body.array(), true);
+            out.flush();
+            System.out.println("[TitanProto] Sent v2 Op:" + opCode + " Len:" + len + (wireLen != len ? " (deflated " + wireLen + ")" : ""));
+            return;
+        }
+
+        out.writeByte(PROTOCOL_V2);
+        out.writeByte(opCode);
+        out.writeByte((FrameCompression.ENABLED ? FLAG_ACCEPTS_COMPRESSION : 0) | ((correlationId >> 8) & 0x0F));
+        out.writeByte(correlationId & 0xFF);
+        out.writeInt((int) len);
+        for (byte[] f : fields) {
+            out.writeInt(f.length);
+            out.write(f);
+        }
+        out.flush();
+
+        System.out.println("[TitanProto] Sent v2 Op:" + opCode + " Len:" + len);
+    }
+
+    /**
+     * Encodes a complete frame (header and payload) into a buffer ready to be written to a channel.
+     *
+     * @param opCode The operation code for the message.
+     * @param payload The string payload of the message.
+     * @param correlationId The correlation ID, between {@code 0} and {@link #MAX_CORRELATION_ID}.
+     * @return A buffer positioned at the start of the frame.
+     */
+    public static ByteBuffer encode(byte opCode, String payload, int correlationId) {
+        return encode(opCode, payload, correlationId, false);
+    }
+
+    /**
+     * Encodes a complete frame, Deflate-compressing the payload if {@code compress} is set and it is large enough
+     * to benefit.
+     *
+     * @param opCode The operation code for the message.
+     * @param payload The string payload of the message.
+     * @param correlationId The correlation ID, between {@code 0} and {@link #MAX_CORRELATION_ID}.
+     * @param compress Whether the payload may be compressed.
+     * @return A buffer positioned at the start of the frame.
+     */
+    public static ByteBuffer encode(byte opCode, String payload, int correlationId, boolean compress) {
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        byte[] wire = compress ? FrameCompression.compress(opCode, payloadBytes) : null;
+        int flags = FrameCompression.ENABLED ? FLAG_ACCEPTS_COMPRESSION : 0;
+        if (wire != null) {
+            flags |= FLAG_DEFLATE;
+        } else {
+            wire = payloadBytes;
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + wire.length);
+        frame.put(CURRENT_VERSION);
+        frame.put(opCode);
+        frame.put((byte) (flags | ((correlationId >> 8) & 0x0F)));
+        frame.put((byte) (correlationId & 0xFF));
+        frame.putInt(wire.length);
+        frame.put(wire);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #read(DataInputStream)}. Decodes one frame from the readable
+     * bytes of {@code buf} (i.e. a buffer in read mode, after {@code flip()}).
+     * <p>
+     * If a whole frame is available it is consumed and returned. Otherwise the buffer position is left
+     * untouched and {@code null} is returned so the caller can read more bytes and try again.
+     * </p>
+     *
+     * @param buf The buffer holding the bytes received so far.
+     * @return The decoded packet, or {@code null} if the frame is not complete yet.
+     * @throws IOException If the header has an unknown version or announces a packet that is too large.
+     */
+    public static TitanPacket decode(ByteBuffer buf) throws IOException {
+        int frameLength = peekFrameLength(buf);
+        if (frameLength < 0 || buf.remaining() < frameLength) return null;
+
+        byte version = buf.get(); // checked by peekFrameLength
+        byte opCode = buf.get();
+        byte flags = buf.get();
+        byte spare = buf.get();
+        int len = buf.getInt();
+
+        byte[] payload = new byte[len];
+        buf.get(payload);
+        int correlationId = ((flags & 0x0F) << 8) | (spare & 0xFF);
+        if (isDeflated(flags)) {
+            payload = FrameCompression.inflate(opCode, payload, len, MAX_PACKET_SIZE);
+        }
+        return toPacket(version, opCode, flags, correlationId, payload);
+    }
+
+    /**
+     * Returns the total length (header included) of the frame starting at the buffer position, without
+     * consuming anything.
+     *
+     * @param buf A buffer in read mode.
+     * @return The frame length, or {@code -1} if the header has not been fully received yet.
+     * @throws IOException If the header has an unknown version or announces a packet that is too large.
+     */
+    public static int peekFrameLength(ByteBuffer buf) throws IOException {
+        if (buf.remaining() < HEADER_SIZE) return -1;
+        int start = buf.position();
+        byte version = buf.get(start);
+        if (version != CURRENT_VERSION && version != PROTOCOL_V2) {
+            throw new IOException("Version Mismatch! Server expects v" + CURRENT_VERSION);
+        }
+        int len = buf.getInt(start + 4);
+        if (len < 0 || len > MAX_PACKET_SIZE) {
+            throw new IOException("Packet too large: " + len);
+        }
+        return HEADER_SIZE + len;
     }
 
     /**
@@ -245,8 +633,26 @@ import java.nio.charset.StandardCharsets;
     public byte opCode;
         /**
  * The string payload of the received packet.
+ * Empty for v2 packets, which carry their data in {@link #field(int)} instead.
  */
     public String payload;
+        /**
+         * The correlation ID carried in the header, or {@code 0} if the sender did not tag the packet.
+         */
+        public int correlationId;
+        /**
+         * Protocol version of the frame this packet was read from.
+         */
+        public byte version = CURRENT_VERSION;
+        /**
+         * {@code true} if the sender set {@link #FLAG_ACCEPTS_COMPRESSION}, so a response to this packet may be compressed.
+         */
+        public boolean acceptsCompression;
+
+        // v2 only: the frame body and the offset/length of each field within it.
+        private byte[] body;
+        private int[] fieldOffsets;
+        private int[] fieldLengths;
 
         /**
  * Constructs a new {@code TitanPacket}.
@@ -254,7 +660,99 @@ import java.nio.charset.StandardCharsets;
  * @param op The operation code for the packet.
  * @param pl The payload string for the packet.
  */
-    public TitanPacket(byte op, String pl) { this.opCode = op; this.payload = pl;}
+    public TitanPacket(byte op, String pl) { this(op, pl, 0); }
+
+        /**
+         * Constructs a new {@code TitanPacket} tagged with a correlation ID.
+         *
+         * @param op The operation code for the packet.
+         * @param pl The payload string for the packet.
+         * @param correlationId The correlation ID from the header.
+         */
+        public TitanPacket(byte op, String pl, int correlationId) {
+            this.opCode = op;
+            this.payload = pl;
+            this.correlationId = correlationId;
+        }
+
+        /**
+         * Constructs a v2 packet from a frame body made of length-prefixed fields. The fields are not
+         * copied; {@link #field(int)} returns views into {@code body}.
+         *
+         * @param op The operation code for the packet.
+         * @param body The frame body.
+         * @param correlationId The correlation ID from the header.
+         * @throws IOException If a field length points past the end of the body.
+         */
+        public TitanPacket(byte op, byte[] body, int correlationId) throws IOException {
+            this(op, "", correlationId);
+            this.version = PROTOCOL_V2;
+            this.body = body;
+
+            int count = 0;
+            for (int pos = 0; pos < body.length; count++) {
+                pos += 4 + fieldLengthAt(body, pos);
+            }
+            fieldOffsets = new int[count];
+            fieldLengths = new int[count];
+            int pos = 0;
+            for (int i = 0; i < count; i++) {
+                fieldLengths[i] = fieldLengthAt(body, pos);
+                fieldOffsets[i] = pos + 4;
+                pos += 4 + fieldLengths[i];
+            }
+        }
+
+        /**
+         * @return The number of fields in a v2 packet, or {@code 0} for a v1 packet.
+         */
+        public int fieldCount() {
+            return fieldOffsets == null ? 0 : fieldOffsets.length;
+        }
+
+        /**
+         * Returns a read-only view of one field of a v2 packet, without copying.
+         *
+         * @param index The field index.
+         * @return The field bytes.
+         */
+        public ByteBuffer field(int index) {
+            return ByteBuffer.wrap(body, fieldOffsets[index], fieldLengths[index]).slice().asReadOnlyBuffer();
+        }
+
+        /**
+         * Decodes one field of a v2 packet as UTF-8 text.
+         *
+         * @param index The field index.
+         * @return The field as a string.
+         */
+        public String fieldString(int index) {
+            return new String(body, fieldOffsets[index], fieldLengths[index], StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Text view of the packet: the payload for v1, or the fields joined with {@code |} for v2. Lets code that
+         * only understands v1 payloads handle a v2 packet of a textual command.
+         *
+         * @return The packet as a v1-style payload string.
+         */
+        public String asText() {
+            if (version != PROTOCOL_V2) return payload;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < fieldCount(); i++) {
+                if (i > 0) sb.append('|');
+                sb.append(fieldString(i));
+            }
+            return sb.toString();
+        }
+
+        private static int fieldLengthAt(byte[] body, int pos) throws IOException {
+            if (pos + 4 > body.length) throw new IOException("Truncated v2 field header at " + pos);
+            int len = ((body[pos] & 0xFF) << 24) | ((body[pos + 1] & 0xFF) << 16)
+                    | ((body[pos + 2] & 0xFF) << 8) | (body[pos + 3] & 0xFF);
+            if (len < 0 || pos + 4 + len > body.length) throw new IOException("Invalid v2 field length: " + len);
+            return len;
+        }
     }
 
     /**
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * A priority queue for small integer priorities: one FIFO bucket per priority level, plus a bit mask of the buckets
+ * that are not empty.
+ * <p>
+ * {@link #offer} appends to a bucket and {@link #poll} takes the head of the highest non-empty bucket, which the mask
+ * finds with a single {@link Long#numberOfLeadingZeros}, so both are O(1). Items of equal priority come out in the
+ * order they went in. Priorities outside {@code 0..maxPriority} are clamped.
+ * </p>
+ * Items may also carry a rank, a secondary key within their priority: ranked items come out before unranked ones,
+ * highest rank first, and ties keep arrival order. Ranked items are kept in a heap per bucket, so they cost
+ * O(log N); unranked items stay O(1).
+ * <p>
+ * With aging enabled, an item that has sat in its bucket for {@code agingMs} moves up one level for every
+ * {@code agingMs} it has waited, to the tail of the higher bucket, so low priority work cannot starve behind a steady
+ * stream of higher priority work. Aging looks only at the oldest item of each bucket.
+ * </p>
+ * Not thread-safe; the owner is expected to hold a lock (see {@link ReadyQueues}).
+ *
+ * @param <E> The type of the queued items.
+ */
+public class BucketQueue<E> {
+    private static final Comparator<Entry<?>> BY_RANK = (a, b) -> a.rank != b.rank
+            ? Long.compare(b.rank, a.rank)
+            : Long.compare(a.sequence, b.sequence);
+
+    // Every item of a bucket in arrival order, and the ranked ones again in rank order. An item taken from one of the
+    // two stays in the other until it reaches the head, where it is recognised as gone (see isLive).
+    private final ArrayDeque<Entry<E>>[] buckets;
+    private final PriorityQueue<Entry<E>>[] ranked;
+    private final int[] counts;
+    private final long agingNanos;
+    // Bit i is set while buckets[i] holds live items
+    private long nonEmpty;
+    private final LongSupplier arrivals;
+    private int size;
+
+    /**
+     * A queued item with its current level and arrival order.
+     *
+     * @param <E> The type of the item.
+     */
+    public static final class Entry<E> {
+        private final E item;
+        private final long sequence;
+        private final long rank;
+        private int level;
+        private long enteredNanos;
+        private boolean removed;
+
+        private Entry(E item, long sequence, long rank, int level, long enteredNanos) {
+            this.item = item;
+            this.sequence = sequence;
+            this.rank = rank;
+            this.level = level;
+            this.enteredNanos = enteredNanos;
+        }
+
+        public E item() { return item; }
+
+        /** @return The priority the item is queued at, which aging may have raised above the one it was offered at. */
+        public int priority() { return level; }
+
+        /** @return The secondary key within the priority; 0 if the item is unranked. */
+        public long rank() { return rank; }
+
+        /** @return The arrival order of the item, across every bucket of the queue. */
+        public long sequence() { return sequence; }
+    }
+
+    /**
+     * @param maxPriority The highest priority level, at most 63.
+     * @param agingMs How long an item waits in a bucket before it moves up a level, or 0 to disable aging.
+     */
+    public BucketQueue(int maxPriority, long agingMs) {
+        this(maxPriority, agingMs, new LongSupplier() {
+            private long next;
+
+            @Override
+            public long getAsLong() { return next++; }
+        });
+    }
+
+    /**
+     * @param maxPriority The highest priority level, at most 63.
+     * @param agingMs How long an item waits in a bucket before it moves up a level, or 0 to disable aging.
+     * @param arrivals Numbers the items in arrival order; share one between queues whose heads are compared with each
+     *                 other, so that {@link Entry#sequence()} is comparable across them.
+     */
+    public BucketQueue(int maxPriority, long agingMs, LongSupplier arrivals) {
+        if (maxPriority < 0 || maxPriority > 63) {
+            throw new IllegalArgumentException("maxPriority must be between 0 and 63: " + maxPriority);
+        }
+        this.buckets = genericArray(new ArrayDeque<?>[maxPriority + 1]);
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new ArrayDeque<>();
+        this.ranked = genericArray(new PriorityQueue<?>[maxPriority + 1]);
+        this.counts = new int[maxPriority + 1];
+        this.agingNanos = agingMs * 1_000_000L;
+        this.arrivals = arrivals;
+    }
+
+    /**
+     * Appends an unranked item to the tail of its priority's bucket.
+     *
+     * @param item The item.
+     * @param priority Its priority; higher comes out first.
+     */
+    public void offer(E item, int priority) {
+        offer(item, priority, 0);
+    }
+
+    /**
+     * Adds an item to its priority's bucket.
+     *
+     * @param item The item.
+     * @param priority Its priority; higher comes out first.
+     * @param rank Its rank within the priority; higher comes out first, and 0 means unranked.
+     */
+    public void offer(E item, int priority, long rank) {
+        int level = Math.max(0, Math.min(priority, buckets.length - 1));
+        add(new Entry<>(item, arrivals.getAsLong(), Math.max(0, rank), level, agingNanos > 0 ? System.nanoTime() : 0),
+                false);
+    }
+
+    /**
+     * @return The entry {@link #poll()} would return next, or {@code null} if the queue is empty.
+     */
+    public Entry<E> peekEntry() {
+        if (nonEmpty == 0) return null;
+        age();
+        return head(top());
+    }
+
+    /**
+     * Removes the item of the highest priority, and within that the highest rank, that arrived first.
+     *
+     * @return The entry, or {@code null} if the queue is empty.
+     */
+    public Entry<E> pollEntry() {
+        if (nonEmpty == 0) return null;
+        age();
+        int level = top();
+        Entry<E> e = head(level);
+        PriorityQueue<Entry<E>> heap = ranked[level];
+        if (heap != null && heap.peek() == e) {
+            heap.poll();
+        } else {
+            buckets[level].pollFirst();
+        }
+        e.removed = true;
+        taken(level);
+        return e;
+    }
+
+    /**
+     * @return The item {@link #pollEntry()} would remove, or {@code null} if the queue is empty.
+     */
+    public E poll() {
+        Entry<E> e = pollEntry();
+        return e == null ? null : e.item;
+    }
+
+    /**
+     * Returns an entry taken with {@link #pollEntry()} to its bucket, keeping its level, rank and place in the arrival
+     * order, as if it had never been taken.
+     *
+     * @param e The entry.
+     */
+    public void putBack(Entry<E> e) {
+        // A fresh entry, because the taken one may still sit in the other structure of its bucket
+        add(new Entry<>(e.item, e.sequence, e.rank, e.level, e.enteredNanos), true);
+    }
+
+    /**
+     * Removes every item that matches a condition. O(N).
+     *
+     * @param filter The condition.
+     * @return The number of items removed.
+     */
+    public int removeIf(Predicate<? super E> filter) {
+        int removed = 0;
+        for (int level = 0; level < buckets.length; level++) {
+            int count = 0;
+            for (Iterator<Entry<E>> it = buckets[level].iterator(); it.hasNext(); ) {
+                Entry<E> e = it.next();
+                if (isLive(e, level) && filter.test(e.item)) {
+                    it.remove();
+                    e.removed = true;
+                    count++;
+                }
+            }
+            if (count > 0) taken(level, count);
+            removed += count;
+        }
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int top() {
+        return 63 - Long.numberOfLeadingZeros(nonEmpty);
+    }
+
+    private void add(Entry<E> e, boolean atHead) {
+        int level = e.level;
+        if (atHead) {
+            buckets[level].addFirst(e);
+        } else {
+            buckets[level].addLast(e);
+        }
+        if (e.rank > 0) {
+            if (ranked[level] == null) ranked[level] = new PriorityQueue<>(BY_RANK);
+            ranked[level].add(e);
+        }
+        counts[level]++;
+        size++;
+        nonEmpty |= 1L << level;
+    }
+
+    // Bookkeeping after live entries left a level; an empty level drops the stale entries left in its structures.
+    private void taken(int level) {
+        taken(level, 1);
+    }
+
+    private void taken(int level, int count) {
+        size -= count;
+        counts[level] -= count;
+        if (counts[level] == 0) {
+            nonEmpty &= ~(1L << level);
+            buckets[level].clear();
+            if (ranked[level] != null) ranked[level].clear();
+        }
+    }
+
+    // The best live entry of a non-empty level: the top of its heap if it has ranked entries, otherwise the oldest.
+    private Entry<E> head(int level) {
+        PriorityQueue<Entry<E>> heap = ranked[level];
+        if (heap != null) {
+            Entry<E> e;
+            while ((e = heap.peek()) != null && !isLive(e, level)) heap.poll();
+            if (e != null) return e;
+        }
+        return oldest(level);
+    }
+
+    private Entry<E> oldest(int level) {
+        ArrayDeque<Entry<E>> bucket = buckets[level];
+        Entry<E> e;
+        while ((e = bucket.peekFirst()) != null && !isLive(e, level)) bucket.pollFirst();
+        return e;
+    }
+
+    // Java cannot create arrays of a generic type; the arrays start empty and never leave this class
+    @SuppressWarnings("unchecked")
+    private static <T> T[] genericArray(Object[] array) {
+        return (T[]) array;
+    }
+
+    private static boolean isLive(Entry<?> e, int level) {
+        return !e.removed && e.level == level;
+    }
+
+    // Promotes the oldest entry of every bucket below the top that has waited at least agingNanos; repeats while the
+    // next oldest is also due. Each promotion is O(1) (O(log N) if ranked), and an entry is promoted at most
+    // maxPriority times.
+    private void age() {
+        if (agingNanos <= 0) return;
+        long now = System.nanoTime();
+        long pending = nonEmpty & ~(1L << (buckets.length - 1));
+        while (pending != 0) {
+            int level = Long.numberOfTrailingZeros(pending);
+            pending &= pending - 1;
+            Entry<E> e;
+            while (counts[level] > 0 && (e = oldest(level)) != null && now - e.enteredNanos >= agingNanos) {
+                buckets[level].pollFirst();
+                long steps = (now - e.enteredNanos) / agingNanos;
+                // Changing the level leaves any copy in this level's heap stale
+                e.level = (int) Math.min(buckets.length - 1, level + steps);
+                e.enteredNanos = now;
+                taken(level);
+                add(e, false);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Index of the workers in a {@link WorkerRegistry} by capability, kept up to date as loads change.
+ * <p>
+ * For every capability it holds the set of all workers that have it, and a {@link ConcurrentSkipListSet} of the
+ * workers that still have a free slot, ordered by load. The least loaded worker that can take a job is therefore the
+ * first element of that set, found in O(log N) without allocating.
+ * </p>
+ * A {@link Worker} calls {@link #update(Worker)} from its own synchronized load setters, so its position in the index
+ * always matches its load. Entries are immutable snapshots of the load; moving a worker means removing its old entry
+ * and adding a new one. Workers with the same load are ordered by when their load last changed, so dispatch rotates
+ * through equally loaded workers.
+ * <p>
+ * Whenever a worker gains a free slot (it registers, its load drops, or it stops being saturated), the index tells
+ * the capacity listener once for each of the worker's capabilities.
+ * </p>
+ */
+class CapabilityIndex {
+    private final Map<String, Set<Worker>> members = new ConcurrentHashMap<>();
+    private final Map<String, ConcurrentSkipListSet<Entry>> available = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    // Sorts before every real entry; lets leastLoaded() use ceiling(), which unlike first() cannot throw on an empty set.
+    private static final Entry LOWEST = new Entry(Integer.MIN_VALUE, Long.MIN_VALUE, null);
+    private volatile Consumer<String> capacityListener = capability -> {};
+
+    /**
+     * A worker's position in the load-ordered sets.
+     */
+    static final class Entry implements Comparable<Entry> {
+        final int load;
+        final long seq;
+        final Worker worker;
+
+        Entry(int load, long seq, Worker worker) {
+            this.load = load;
+            this.seq = seq;
+            this.worker = worker;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            if (load != o.load) return Integer.compare(load, o.load);
+            return Long.compare(seq, o.seq);
+        }
+    }
+
+    /**
+     * Adds a worker under each of its capabilities, or re-adds it after a capability was added to it.
+     *
+     * @param worker The worker.
+     */
+    void add(Worker worker) {
+        synchronized (worker) {
+            for (String capability : worker.capabilities()) {
+                members.computeIfAbsent(capability, k -> ConcurrentHashMap.newKeySet()).add(worker);
+            }
+            worker.attach(this);
+            Entry entry = worker.indexEntry;
+            if (entry != null) {
+                for (String capability : worker.capabilities()) availableFor(capability).add(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes a worker from every capability.
+     *
+     * @param worker The worker.
+     */
+    void remove(Worker worker) {
+        synchronized (worker) {
+            worker.detach();
+            Entry entry = worker.indexEntry;
+            worker.indexEntry = null;
+            for (String capability : worker.capabilities()) {
+                Set<Worker> set = members.get(capability);
+                if (set != null) set.remove(worker);
+                if (entry != null) availableFor(capability).remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Moves a worker to the position matching its current load. Called with the worker's monitor held.
+     *
+     * @param worker The worker whose load or capacity changed.
+     */
+    void update(Worker worker) {
+        Entry old = worker.indexEntry;
+        int load = worker.getCurrentLoad();
+        boolean hasRoom = load < worker.getMaxCap();
+        if (old != null && hasRoom && old.load == load) return;
+
+        Entry next = hasRoom ? new Entry(load, sequence.incrementAndGet(), worker) : null;
+        for (String capability : worker.capabilities()) {
+            ConcurrentSkipListSet<Entry> set = availableFor(capability);
+            if (old != null) set.remove(old);
+            if (next != null) set.add(next);
+        }
+        worker.indexEntry = next;
+        if (next != null && (old == null || next.load < old.load)) {
+            for (String capability : worker.capabilities()) capacityListener.accept(capability);
+        }
+    }
+
+    /**
+     * @param listener Called with a capability whenever a worker with it gains a free slot. It runs with the worker's
+     *                 monitor held, so it must not call back into the worker.
+     */
+    void setCapacityListener(Consumer<String> listener) {
+        this.capacityListener = listener;
+    }
+
+    /**
+     * @param capability The capability.
+     * @return The least loaded worker with the capability that is not saturated, or {@code null} if there is none.
+     */
+    Worker leastLoaded(String capability) {
+        ConcurrentSkipListSet<Entry> set = available.get(capability);
+        Entry first = (set == null) ? null : set.ceiling(LOWEST);
+        return first == null ? null : first.worker;
+    }
+
+    /**
+     * @param capability The capability.
+     * @return A live, unmodifiable view of all workers with the capability, saturated or not.
+     */
+    Set<Worker> workersWith(String capability) {
+        Set<Worker> set = members.get(capability);
+        return set == null ? Collections.emptySet() : Collections.unmodifiableSet(set);
+    }
+
+    private ConcurrentSkipListSet<Entry> availableFor(String capability) {
+        return available.computeIfAbsent(capability, k -> new ConcurrentSkipListSet<>());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Ranks the jobs of a DAG by their critical path: the longest chain of work from the start of a job to the end of the
+ * DAG, counting the job itself.
+ * <p>
+ * The ready queue runs jobs of equal priority in rank order, so the job that the most downstream work waits for starts
+ * first, and a long chain is not held up behind short leaves that were submitted before it. This is the upward rank of
+ * list scheduling (HEFT), with one slot type.
+ * </p>
+ * Each job weighs its expected duration: what the scheduler measured for it before, if anything, else the mean of the
+ * durations known in the DAG, else 1 ms, so that an unknown DAG is ranked by the number of jobs left on its longest
+ * path. Only edges between jobs of the DAG count; a parent outside it is already running or done.
+ */
+public final class CriticalPath {
+    private CriticalPath() {}
+
+    /**
+     * Computes and sets the {@linkplain Job#setRank rank} of every job of a DAG, in O(jobs + edges).
+     *
+     * @param dag The jobs of the DAG, which must not contain a cycle.
+     * @param durationMs Returns the expected duration of a job in milliseconds, or a negative value if unknown.
+     */
+    public static void rank(List<Job> dag, ToLongFunction<Job> durationMs) {
+        int n = dag.size();
+        if (n == 0) return;
+
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < n; i++) index.put(dag.get(i).getId(), i);
+
+        long[] weight = new long[n];
+        long known = 0;
+        int knownCount = 0;
+        for (int i = 0; i < n; i++) {
+            weight[i] = durationMs.applyAsLong(dag.get(i));
+            if (weight[i] >= 0) {
+                known += weight[i];
+                knownCount++;
+            }
+        }
+        long fallback = knownCount > 0 ? Math.max(1, known / knownCount) : 1;
+        for (int i = 0; i < n; i++) {
+            if (weight[i] <= 0) weight[i] = (weight[i] == 0) ? 1 : fallback;
+        }
+
+        // Parents of each job within the DAG, and how many children each job still waits to hear from
+        List<List<Integer>> parents = new ArrayList<>(n);
+        int[] pendingChildren = new int[n];
+        for (int i = 0; i < n; i++) {
+            List<Integer> mine = new ArrayList<>();
+            for (String parentId : new LinkedHashSet<>(dag.get(i).getDependenciesIds())) {
+                Integer p = index.get(parentId);
+                if (p != null && p != i) {
+                    mine.add(p);
+                    pendingChildren[p]++;
+                }
+            }
+            parents.add(mine);
+        }
+
+        // Walk up from the sinks: a job's rank is final once all its children have reported theirs
+        long[] downstream = new long[n];
+        ArrayDeque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            if (pendingChildren[i] == 0) ready.add(i);
+        }
+        while (!ready.isEmpty()) {
+            int i = ready.poll();
+            long rank = weight[i] + downstream[i];
+            dag.get(i).setRank(rank);
+            for (int p : parents.get(i)) {
+                downstream[p] = Math.max(downstream[p], rank);
+                if (--pendingChildren[p] == 0) ready.add(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse dependency index of the DAG waiting room: for every parent job ID, the jobs that wait for it.
+ * <p>
+ * A finished parent {@linkplain #release releases} its children: the edges are removed from the index and handed to
+ * the caller exactly once, which then counts each child's remaining dependencies down or cancels it. Finishing,
+ * failing or cancelling a job therefore only touches its direct children, and a whole DAG costs O(edges) instead of a
+ * scan of the waiting room per finished job.
+ * </p>
+ */
+class DagIndex {
+    private final Map<String, Set<Job>> children = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a waiting job under each of its distinct parents. Call this before the job becomes visible in the waiting
+     * room, so that a parent finishing in between is not missed.
+     *
+     * @param child The job.
+     */
+    void register(Job child) {
+        for (String parentId : new LinkedHashSet<>(child.getDependenciesIds())) {
+            children.computeIfAbsent(parentId, k -> ConcurrentHashMap.newKeySet()).add(child);
+        }
+    }
+
+    /**
+     * Removes and returns the jobs that wait for a parent. Each edge is returned only once, however often the parent
+     * is reported finished.
+     *
+     * @param parentId The parent that completed, failed or was cancelled.
+     * @return The children, or an empty set.
+     */
+    Set<Job> release(String parentId) {
+        Set<Job> set = children.remove(parentId);
+        return set == null ? Collections.emptySet() : set;
+    }
+
+    /**
+     * @param parentId The parent.
+     * @return A live view of the jobs that still wait for the parent.
+     */
+    Set<Job> childrenOf(String parentId) {
+        Set<Job> set = children.get(parentId);
+        return set == null ? Collections.emptySet() : Collections.unmodifiableSet(set);
+    }
+}
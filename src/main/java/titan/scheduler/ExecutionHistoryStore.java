@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import titan.TitanConfig;
+
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The scheduler's execution records, by job ID, with a bounded amount of finished ones kept in memory.
+ * <p>
+ * A record stays in memory while its job runs. Once the job has ended the scheduler {@linkplain #retire retires} the
+ * record, and retired records are evicted oldest first when there are more than {@code titan.history.max.records} of
+ * them, when their outputs take more than {@code titan.history.max.bytes}, or when they ended more than
+ * {@code titan.history.max.age.ms} ago. Evicted records are written to a {@link HistoryArchive} in the background, where
+ * {@link #get} still finds them, so a job's status survives its eviction while the heap stays flat however many jobs
+ * the scheduler runs.
+ * </p>
+ * A retried job gets a new record under the same ID; the old one is dropped when its turn for eviction comes.
+ */
+class ExecutionHistoryStore {
+    static final int MAX_RECORDS = Math.max(1, TitanConfig.getInt("titan.history.max.records", 10000));
+    static final long MAX_BYTES = Math.max(1, TitanConfig.getInt("titan.history.max.bytes", 64 * 1024 * 1024));
+    static final long MAX_AGE_MS = Math.max(1, TitanConfig.getInt("titan.history.max.age.ms", 3600000));
+    // Object headers, fields, the job ID and the map entry, roughly
+    private static final int RECORD_OVERHEAD_BYTES = 200;
+
+    private final Map<String, TaskExecution> records = new ConcurrentHashMap<>();
+    // Evicted records on their way to the archive, so that lookups do not miss them in between
+    private final Map<String, TaskExecution> spilling = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<TaskExecution> toSpill = new ConcurrentLinkedQueue<>();
+    // Set while a drain is queued, so evictions that happen meanwhile join its batch instead of queueing their own
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+    // Retired records, oldest first; guarded by this
+    private final ArrayDeque<TaskExecution> retired = new ArrayDeque<>();
+    private long retiredBytes;
+    private final HistoryArchive archive;
+    private final ExecutorService spiller = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "titan-history-spill");
+        t.setDaemon(true);
+        return t;
+    });
+
+    ExecutionHistoryStore() {
+        this(new HistoryArchive(Paths.get(TitanConfig.get("titan.history.dir", "titan_history")),
+                TitanConfig.getInt("titan.history.bucket.bytes", 4 * 1024 * 1024),
+                TitanConfig.getInt("titan.history.output.chars", 1024)));
+    }
+
+    ExecutionHistoryStore(HistoryArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Adds or replaces the record of a job.
+     *
+     * @param record The record.
+     */
+    void put(TaskExecution record) {
+        records.put(record.jobId, record);
+    }
+
+    /**
+     * Looks a record up in memory only; for the scheduler's own bookkeeping of jobs that are running or just ended.
+     *
+     * @param jobId The job ID.
+     * @return The record, or {@code null} if it is not in memory.
+     */
+    TaskExecution live(String jobId) {
+        return records.get(jobId);
+    }
+
+    /**
+     * Looks a record up in memory and then in the archive.
+     *
+     * @param jobId The job ID.
+     * @return The record, or {@code null} if the job has none. An archived record has no worker.
+     */
+    TaskExecution get(String jobId) {
+        TaskExecution record = records.get(jobId);
+        if (record == null) record = spilling.get(jobId);
+        if (record == null) record = archive.read(jobId);
+        return record;
+    }
+
+    /**
+     * Marks a record as ended, which makes it subject to eviction. Later calls for the same record do nothing.
+     *
+     * @param record The record, with its end time set.
+     */
+    void retire(TaskExecution record) {
+        synchronized (this) {
+            if (record.retired) return;
+            record.retired = true;
+            record.retainedBytes = RECORD_OVERHEAD_BYTES + 2 * (record.output == null ? 0 : record.output.length());
+            retired.add(record);
+            retiredBytes += record.retainedBytes;
+        }
+        trim();
+    }
+
+    /**
+     * Evicts the retired records that are over the count, size or age limit. Called on every retirement, and
+     * periodically so that records also age out while no jobs end.
+     */
+    void trim() {
+        boolean evicted = false;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            TaskExecution oldest;
+            while ((oldest = retired.peek()) != null) {
+                boolean over = retired.size() > MAX_RECORDS || retiredBytes > MAX_BYTES
+                        || now - oldest.endTime > MAX_AGE_MS;
+                if (!over) break;
+                retired.poll();
+                retiredBytes -= oldest.retainedBytes;
+                // Skip records a retry has already replaced
+                if (records.remove(oldest.jobId, oldest)) {
+                    spilling.put(oldest.jobId, oldest);
+                    toSpill.add(oldest);
+                    evicted = true;
+                }
+            }
+        }
+        if (!evicted) return;
+        if (spilling.size() > MAX_RECORDS) {
+            // The writer is a whole window behind: write on this thread rather than let the backlog grow the heap
+            drain();
+        } else if (drainQueued.compareAndSet(false, true)) {
+            spiller.execute(() -> {
+                drainQueued.set(false);
+                drain();
+            });
+        }
+    }
+
+    // Writes everything evicted so far in one batch, one append per bucket file. Drains run one at a time, so that two
+    // records of a retried job reach the archive in order.
+    private void drain() {
+        synchronized (toSpill) {
+            List<TaskExecution> batch = new ArrayList<>();
+            TaskExecution r;
+            while ((r = toSpill.poll()) != null) batch.add(r);
+            if (batch.isEmpty()) return;
+            archive.write(batch);
+            for (TaskExecution written : batch) spilling.remove(written.jobId, written);
+        }
+    }
+
+    /**
+     * @return The number of records in memory, running or retired.
+     */
+    int size() {
+        return records.size();
+    }
+
+    /**
+     * Writes out the records being evicted and stops the background writer.
+     */
+    void shutdown() {
+        spiller.shutdown();
+    }
+}
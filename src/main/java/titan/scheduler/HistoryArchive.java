@@ -0,0 +1,220 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk store for execution records that were evicted from memory.
+ * <p>
+ * Records are appended as one tab-separated line each ({@code jobId, status, start, end, output}) to one of
+ * {@value #BUCKETS} files chosen by the hash of the job ID, so a lookup reads a single bucket, and the last line for an
+ * ID wins. Outputs are cut to {@code outputChars}. When a bucket grows past {@code bucketBytes} its older half is
+ * dropped, so the archive never takes more than {@code BUCKETS * bucketBytes} of disk.
+ * </p>
+ * The records read back have no worker. A small cache keeps the last records read, since the dashboard asks for the
+ * same few jobs on every refresh.
+ */
+class HistoryArchive {
+    static final int BUCKETS = 64;
+    private static final int CACHE_SIZE = 256;
+
+    private final Path dir;
+    private final long bucketBytes;
+    private final int outputChars;
+    private final Object[] locks = new Object[BUCKETS];
+    // Guarded by itself
+    private final Map<String, TaskExecution> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TaskExecution> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /**
+     * @param dir The directory of the bucket files, created on the first write.
+     * @param bucketBytes The size at which a bucket file drops its older half.
+     * @param outputChars How much of a record's output is kept.
+     */
+    HistoryArchive(Path dir, long bucketBytes, int outputChars) {
+        this.dir = dir;
+        this.bucketBytes = Math.max(4096, bucketBytes);
+        this.outputChars = Math.max(0, outputChars);
+        for (int i = 0; i < BUCKETS; i++) locks[i] = new Object();
+    }
+
+    /**
+     * Appends records to their buckets.
+     *
+     * @param records The records, in the order they were evicted.
+     */
+    void write(List<TaskExecution> records) {
+        List<List<String>> lines = new ArrayList<>(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) lines.add(null);
+        for (TaskExecution r : records) {
+            int b = bucketOf(r.jobId);
+            if (lines.get(b) == null) lines.set(b, new ArrayList<>());
+            lines.get(b).add(encode(r));
+        }
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            System.err.println("[HISTORY] Cannot create " + dir + ": " + e.getMessage());
+            return;
+        }
+        for (int b = 0; b < BUCKETS; b++) {
+            if (lines.get(b) == null) continue;
+            synchronized (locks[b]) {
+                Path file = bucketFile(b);
+                try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (String line : lines.get(b)) {
+                        out.write(line);
+                        out.newLine();
+                    }
+                } catch (IOException e) {
+                    System.err.println("[HISTORY] Failed to archive records to " + file + ": " + e.getMessage());
+                    continue;
+                }
+                compactIfFull(file);
+            }
+        }
+        synchronized (cache) {
+            for (TaskExecution r : records) cache.remove(r.jobId);
+        }
+    }
+
+    /**
+     * @param jobId The job ID.
+     * @return The last archived record of the job, or {@code null} if there is none.
+     */
+    TaskExecution read(String jobId) {
+        synchronized (cache) {
+            TaskExecution cached = cache.get(jobId);
+            if (cached != null) return cached;
+        }
+        int b = bucketOf(jobId);
+        String prefix = escape(jobId) + "\t";
+        String last = null;
+        synchronized (locks[b]) {
+            Path file = bucketFile(b);
+            if (!Files.exists(file)) return null;
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith(prefix)) last = line;
+                }
+            } catch (IOException e) {
+                System.err.println("[HISTORY] Failed to read " + file + ": " + e.getMessage());
+                return null;
+            }
+        }
+        TaskExecution record = (last == null) ? null : decode(last);
+        if (record != null) {
+            synchronized (cache) {
+                cache.put(jobId, record);
+            }
+        }
+        return record;
+    }
+
+    // Keeps the newer half of a bucket that outgrew its limit, starting at a line boundary
+    private void compactIfFull(Path file) {
+        try {
+            long size = Files.size(file);
+            if (size <= bucketBytes) return;
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+                in.seek(size / 2);
+                in.readLine();
+                byte[] rest = new byte[(int) (size - in.getFilePointer())];
+                in.readFully(rest);
+                Files.write(tmp, rest);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[HISTORY] Failed to compact " + file + ": " + e.getMessage());
+        }
+    }
+
+    private Path bucketFile(int bucket) {
+        return dir.resolve(String.format("history-%02d.log", bucket));
+    }
+
+    private static int bucketOf(String jobId) {
+        return Math.floorMod(jobId.hashCode(), BUCKETS);
+    }
+
+    private String encode(TaskExecution r) {
+        String output = r.output == null ? "" : r.output;
+        if (output.length() > outputChars) output = output.substring(0, outputChars);
+        return escape(r.jobId) + "\t" + r.status + "\t" + r.startTime + "\t" + r.endTime + "\t" + escape(output);
+    }
+
+    private static TaskExecution decode(String line) {
+        String[] f = line.split("\t", 5);
+        if (f.length < 5) return null;
+        try {
+            TaskExecution r = new TaskExecution(unescape(f[0]), null);
+            r.status = Job.Status.valueOf(f[1]);
+            r.startTime = Long.parseLong(f[2]);
+            r.endTime = Long.parseLong(f[3]);
+            r.output = unescape(f[4]);
+            return r;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String rep = (c == '\\') ? "\\\\" : (c == '\t') ? "\\t" : (c == '\n') ? "\\n" : (c == '\r') ? "\\r" : null;
+            if (rep != null && sb == null) sb = new StringBuilder(s.length() + 16).append(s, 0, i);
+            if (sb != null) {
+                if (rep != null) sb.append(rep); else sb.append(c);
+            }
+        }
+        return sb == null ? s : sb.toString();
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                sb.append(n == 't' ? '\t' : n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -15,6 +15,7 @@
 package titan.scheduler;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Job implements Comparable<Job> {
     public enum Status{
@@ -34,11 +35,18 @@ public class Job implements Comparable<Job> {
     private final long scheduledTime;
 
     private List<String> dependenciesIds = null;
-    private Set<String> satisfiedDeps = null;
+    // Parents that have not completed yet; counted down once per parent by the scheduler's DagIndex
+    private AtomicInteger remainingDeps = null;
+
+    // Estimated milliseconds from this job's start to the end of its DAG (see CriticalPath); 0 outside a DAG
+    private volatile long rank = 0;
 
     private String preferredWorkerId;
     private boolean affinityRequired = false;
 
+    // Parsed from the payload on first use, normally at submission; reset when the payload, ID or affinity changes
+    private volatile JobSpec spec;
+
     public Job(String payload) {
         this(payload, PRIORITY_NORMAL, 0);
     }
@@ -62,26 +70,43 @@ public class Job implements Comparable<Job> {
 
         if(dependenciesIds != null && !dependenciesIds.isEmpty()){
             this.dependenciesIds = dependenciesIds;
-            this.satisfiedDeps = new HashSet<>();
+            this.remainingDeps = new AtomicInteger(new HashSet<>(dependenciesIds).size());
         }
     }
 
     public void setId(String id){
         this.id = id;
+        this.spec = null;
     }
 
     public void setPayload(String payload){
         this.payload = payload;
+        this.spec = null;
+    }
+
+    /**
+     * @return What the job asks a worker to do, parsed from its payload once and then reused.
+     */
+    public JobSpec getSpec() {
+        JobSpec s = spec;
+        if (s == null) {
+            s = JobSpec.parse(payload, id, dependenciesIds, affinityRequired);
+            spec = s;
+        }
+        return s;
     }
 
     public boolean isReady(){
-        return dependenciesIds == null || satisfiedDeps.size() >= dependenciesIds.size();
+        return remainingDeps == null || remainingDeps.get() <= 0;
     }
 
-    public void resolveDependencies(String parentId){
-        if(dependenciesIds!=null && dependenciesIds.contains(parentId)){
-            satisfiedDeps.add(parentId);
-        }
+    /**
+     * Records that one of the job's parents completed. Must be called at most once per parent.
+     *
+     * @return {@code true} if that was the last parent the job was waiting for.
+     */
+    boolean resolveDependency(){
+        return remainingDeps != null && remainingDeps.decrementAndGet() == 0;
     }
 
     public static Job fromDagString(String jobStr) {
@@ -163,6 +188,7 @@ public class Job implements Comparable<Job> {
             Job job = new Job(dagId, skill + "|" + payloadWithId, priority, delay, deps);
             job.setAffinityRequired(isAffinityRequired);
 //            job.setRequiredSkill(skill);
+            job.getSpec();
             return job;
 
         } catch (Exception e) {
@@ -215,6 +241,14 @@ public class Job implements Comparable<Job> {
 
     public int getPriority(){return priority;}
 
+    /**
+     * @return The job's critical-path rank: the estimated time from its start to the end of its DAG, which orders jobs
+     *         within a priority; 0 if the job is not part of a DAG.
+     */
+    public long getRank(){return rank;}
+
+    public void setRank(long rank){this.rank = rank;}
+
     public void incrementRetry() {
         this.retryCount++;
     }
@@ -245,7 +279,7 @@ public class Job implements Comparable<Job> {
 
     public String getPreferredWorkerId(){return this.preferredWorkerId;}
 
-    public void setAffinityRequired(boolean isAffinityRequired){this.affinityRequired=isAffinityRequired;}
+    public void setAffinityRequired(boolean isAffinityRequired){this.affinityRequired=isAffinityRequired; this.spec = null;}
     public Boolean isAffinityRequired(){return this.affinityRequired;}
 
 }
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a job asks a worker to do, parsed once from its {@code |}-delimited payload when the job is submitted.
+ * <p>
+ * The payload keeps the wire and Redis format; the dispatch loop reads this instead of splitting the payload on every
+ * attempt. Payloads that start with a command header have fixed fields:
+ * </p>
+ * <pre>
+ *   RUN_PAYLOAD           | file    | args | artifact | capability
+ *   DEPLOY_PAYLOAD        | file    | artifact | port | capability
+ *   RUN_ARCHIVE           | pointer | args | capability
+ *   START_ARCHIVE_SERVICE | pointer | args | port | capability
+ * </pre>
+ * Trailing fields may be missing, the header may be preceded by up to two tokens (e.g. a skill), and DAG jobs carry
+ * their own ID as one more trailing field, which is ignored. Any other payload is a {@link Kind#TASK}: it is sent to
+ * the worker as is, and its first token is the capability.
+ * <p>
+ * The artifact is the Base64 content of the file, {@code PERM_FILE:<path>} for a file on the scheduler's disk, or
+ * {@code INTERNAL_SCALE} for the scheduler's own {@code Worker.jar}.
+ * </p>
+ */
+public final class JobSpec {
+    public enum Kind {
+        /** {@code RUN_PAYLOAD}: stage a single file and run it once. */
+        RUN_SCRIPT,
+        /** {@code DEPLOY_PAYLOAD}: stage a single file and start it as a service. */
+        DEPLOY,
+        /** {@code RUN_ARCHIVE}: run an entry point of an uploaded ZIP once. */
+        RUN_ARCHIVE,
+        /** {@code START_ARCHIVE_SERVICE}: start an entry point of an uploaded ZIP as a service. */
+        SERVICE_ARCHIVE,
+        /** Anything else: handed to the worker's task handler for its first token. */
+        TASK
+    }
+
+    public static final String DEFAULT_CAPABILITY = "GENERAL";
+    static final int DEFAULT_SERVICE_PORT = 8085;
+
+    private final Kind kind;
+    private final String file;
+    private final String args;
+    private final String artifact;
+    private final int port;
+    private final String capability;
+    private final List<String> parents;
+    private final boolean affinity;
+    private final String command;
+
+    private JobSpec(Kind kind, String file, String args, String artifact, int port, String capability,
+                    List<String> parents, boolean affinity, String command) {
+        this.kind = kind;
+        this.file = file;
+        this.args = args;
+        this.artifact = artifact;
+        this.port = port;
+        this.capability = capability;
+        this.parents = parents;
+        this.affinity = affinity;
+        this.command = command;
+    }
+
+    public Kind kind() { return kind; }
+
+    /** @return The file name, or the archive pointer ({@code zip_name.zip/entry.py}) for archive jobs. */
+    public String file() { return file; }
+
+    /** @return The arguments; empty if none. */
+    public String args() { return args; }
+
+    /** @return The Base64 content or file reference of a single-file job, or {@code null} if the payload has none. */
+    public String artifact() { return artifact; }
+
+    /** @return The port the service listens on, or -1 if the job is not a service or leaves the port to the service. */
+    public int port() { return port; }
+
+    /** @return The worker capability the job needs. */
+    public String capability() { return capability; }
+
+    /** @return The IDs of the jobs this one waits for. */
+    public List<String> parents() { return parents; }
+
+    /** @return {@code true} if the job must run on the worker that ran its parent. */
+    public boolean affinity() { return affinity; }
+
+    /** @return For a {@link Kind#TASK}, the payload to send to the worker; otherwise {@code null}. */
+    public String command() { return command; }
+
+    /**
+     * @return {@code true} if the job deploys the scheduler's {@code Worker.jar}, which signals readiness by registering.
+     */
+    public boolean isWorkerJar() {
+        return kind == Kind.DEPLOY && file.contains("Worker.jar");
+    }
+
+    /**
+     * Parses a job payload.
+     *
+     * @param payload The payload, as stored on the {@link Job}.
+     * @param jobId The job's ID, which a DAG job repeats at the end of its payload.
+     * @param parents The IDs of the jobs this one waits for.
+     * @param affinity {@code true} if the job must run on the worker that ran its parent.
+     * @return The spec.
+     */
+    public static JobSpec parse(String payload, String jobId, List<String> parents, boolean affinity) {
+        List<String> deps = (parents == null) ? Collections.emptyList() : Collections.unmodifiableList(parents);
+        if (payload == null || payload.isEmpty()) {
+            return new JobSpec(Kind.TASK, null, "", null, -1, DEFAULT_CAPABILITY, deps, affinity, "");
+        }
+
+        String[] tokens = payload.split("\\|", -1);
+        int header = headerIndex(tokens);
+        if (header == -1) {
+            String first = tokens[0].trim();
+            String capability = (first.isEmpty() || first.equals(jobId)) ? DEFAULT_CAPABILITY : first;
+            return new JobSpec(Kind.TASK, null, "", null, -1, capability, deps, affinity, payload);
+        }
+
+        // Fields after the header, without the trailing DAG ID or affinity tag
+        int from = header + 1;
+        int to = tokens.length;
+        while (to > from && (tokens[to - 1].trim().equals(jobId) || tokens[to - 1].trim().equals("AFFINITY"))) to--;
+        int n = to - from;
+
+        Kind kind = kindOf(tokens[header].trim());
+        String file = (n > 0) ? tokens[from].trim() : "";
+        String args = "";
+        String artifact = null;
+        String portField = null;
+        String capability = null;
+        switch (kind) {
+            case RUN_SCRIPT:
+                if (n == 2) {
+                    artifact = tokens[from + 1].trim();
+                } else if (n == 3 && isCapability(tokens[from + 2].trim())) {
+                    // Older layout without args: file | artifact | capability
+                    artifact = tokens[from + 1].trim();
+                    capability = tokens[from + 2];
+                } else if (n >= 3) {
+                    args = tokens[from + 1];
+                    artifact = tokens[from + 2].trim();
+                    if (n >= 4) capability = tokens[from + 3];
+                }
+                break;
+            case DEPLOY:
+                if (n >= 2) artifact = tokens[from + 1].trim();
+                if (n >= 3) portField = tokens[from + 2];
+                if (n >= 4) capability = tokens[from + 3];
+                break;
+            case RUN_ARCHIVE:
+                if (n == 2 && isCapability(tokens[from + 1].trim())) {
+                    capability = tokens[from + 1];
+                } else {
+                    if (n >= 2) args = tokens[from + 1];
+                    if (n >= 3) capability = tokens[from + 2];
+                }
+                break;
+            case SERVICE_ARCHIVE:
+                if (n >= 2) args = tokens[from + 1];
+                if (n >= 3) portField = tokens[from + 2];
+                if (n >= 4) capability = tokens[from + 3];
+                break;
+            default:
+                break;
+        }
+
+        return new JobSpec(kind, file, args, artifact, portOf(kind, file, portField), capabilityOf(capability),
+                deps, affinity, null);
+    }
+
+    /**
+     * @param tokens A payload split on {@code |}.
+     * @return The index of the command header among the first three tokens, or -1 if there is none.
+     */
+    static int headerIndex(String[] tokens) {
+        for (int i = 0; i < Math.min(tokens.length, 3); i++) {
+            if (kindOf(tokens[i].trim()) != Kind.TASK) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param header A command header.
+     * @return The number of fields that follow the header in a complete payload, or 0 if it is not a header.
+     */
+    static int fieldCount(String header) {
+        switch (kindOf(header.trim())) {
+            case RUN_SCRIPT:
+            case DEPLOY:
+            case SERVICE_ARCHIVE:
+                return 4;
+            case RUN_ARCHIVE:
+                return 3;
+            default:
+                return 0;
+        }
+    }
+
+    private static Kind kindOf(String header) {
+        switch (header) {
+            case "RUN_PAYLOAD": return Kind.RUN_SCRIPT;
+            case "DEPLOY_PAYLOAD": return Kind.DEPLOY;
+            case "RUN_ARCHIVE": return Kind.RUN_ARCHIVE;
+            case "START_ARCHIVE_SERVICE": return Kind.SERVICE_ARCHIVE;
+            default: return Kind.TASK;
+        }
+    }
+
+    // A deploy without a usable port gets 8085 if it is a Worker.jar and none otherwise; an archive service always
+    // gets one, 8085 unless given.
+    private static int portOf(Kind kind, String file, String field) {
+        int port = -1;
+        if (field != null) {
+            try {
+                port = Integer.parseInt(field.trim());
+            } catch (NumberFormatException ignored) {}
+        }
+        if (kind == Kind.DEPLOY) {
+            if (port > 0) return port;
+            return file.contains("Worker.jar") ? DEFAULT_SERVICE_PORT : -1;
+        }
+        if (kind == Kind.SERVICE_ARCHIVE) {
+            return (port >= 0) ? port : DEFAULT_SERVICE_PORT;
+        }
+        return -1;
+    }
+
+    private static String capabilityOf(String field) {
+        if (field == null) return DEFAULT_CAPABILITY;
+        String capability = field.trim();
+        return capability.isEmpty() ? DEFAULT_CAPABILITY : capability;
+    }
+
+    // Capabilities are short names such as GPU or PDF_CONVERT; Base64 content and arguments rarely look like one.
+    private static boolean isCapability(String token) {
+        if (token.isEmpty() || token.length() > 32) return false;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (!(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') && c != '_' && c != '-') return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return kind + "[" + (kind == Kind.TASK ? command : file) + " on " + capability + "]";
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import titan.TitanConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The last lines of every job's log, kept in memory for the live log view.
+ * <p>
+ * Each job has a fixed-size ring of {@code titan.logs.buffer.lines} lines. An append overwrites the oldest line in
+ * place, and {@link #snapshot} copies the ring without taking a lock: it reads the lines below the write position and
+ * drops any the writer may have overwritten meanwhile. Appends to one job are expected from a single connection; they
+ * are serialized per job so that a second writer is still safe, but never wait on a reader.
+ * </p>
+ * All rings together stay under {@code titan.logs.memory.bytes}. When an append goes over the budget, rings are
+ * evicted until usage is back under 90% of it: rings of {@linkplain #finish finished} jobs first, least recently
+ * used first, and only then rings of jobs that are still logging. Lines longer than {@code titan.logs.line.max.chars}
+ * are cut. The full logs are on disk either way, so memory use depends on the budget, not on how many jobs have run.
+ */
+class LiveLogBuffers {
+    static final int LINES = Math.max(1, TitanConfig.getInt("titan.logs.buffer.lines", 100));
+    static final long BUDGET_BYTES = Math.max(64 * 1024, TitanConfig.getInt("titan.logs.memory.bytes", 32 * 1024 * 1024));
+    static final int MAX_LINE_CHARS = Math.max(80, TitanConfig.getInt("titan.logs.line.max.chars", 8192));
+
+    // Rough heap cost of a String beyond its characters, and of an empty ring with its map entry
+    private static final int LINE_OVERHEAD_BYTES = 56;
+    private static final int RING_OVERHEAD_BYTES = 160;
+
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final AtomicLong clock = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final int lines;
+    private final long budgetBytes;
+
+    private final class Ring {
+        // One spare slot, so that the line being overwritten is never one a reader is promised
+        final AtomicReferenceArray<String> slots = new AtomicReferenceArray<>(lines + 1);
+        // Number of lines ever appended; the next line goes to slots[written % slots.length()]
+        volatile long written;
+        volatile long lastUsed;
+        volatile boolean finished;
+        // Guarded by this
+        long bytes = RING_OVERHEAD_BYTES + 8L * (lines + 1);
+        boolean evicted;
+    }
+
+    LiveLogBuffers() {
+        this(LINES, BUDGET_BYTES);
+    }
+
+    LiveLogBuffers(int lines, long budgetBytes) {
+        this.lines = lines;
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Appends a line to a job's ring, evicting other rings if that takes the total over the budget.
+     *
+     * @param jobId The job.
+     * @param line The log line.
+     */
+    void append(String jobId, String line) {
+        if (line.length() > MAX_LINE_CHARS) line = line.substring(0, MAX_LINE_CHARS);
+        long delta;
+        while (true) {
+            Ring ring = rings.computeIfAbsent(jobId, k -> {
+                Ring r = new Ring();
+                usedBytes.addAndGet(r.bytes);
+                return r;
+            });
+            synchronized (ring) {
+                // Evicted after we looked it up: start a fresh one
+                if (ring.evicted) continue;
+                long n = ring.written;
+                int slot = (int) (n % ring.slots.length());
+                String old = ring.slots.get(slot);
+                ring.slots.set(slot, line);
+                ring.written = n + 1;
+                delta = cost(line) - (old == null ? 0 : cost(old));
+                ring.bytes += delta;
+                ring.lastUsed = clock.incrementAndGet();
+                ring.finished = false;
+            }
+            break;
+        }
+        if (usedBytes.addAndGet(delta) > budgetBytes) evict();
+    }
+
+    /**
+     * Returns a job's buffered lines, oldest first, without blocking its writer.
+     *
+     * @param jobId The job.
+     * @return A copy of the lines, or an empty list if the job has no ring in memory.
+     */
+    List<String> snapshot(String jobId) {
+        Ring ring = rings.get(jobId);
+        if (ring == null) return Collections.emptyList();
+        ring.lastUsed = clock.incrementAndGet();
+
+        int capacity = ring.slots.length();
+        List<String> result = new ArrayList<>();
+        // A writer that laps the copy leaves nothing valid; try again, it rarely happens twice
+        for (int attempt = 0; attempt < 3 && result.isEmpty(); attempt++) {
+            long end = ring.written;
+            long start = Math.max(0, end - lines);
+            String[] copy = new String[(int) (end - start)];
+            for (long i = start; i < end; i++) copy[(int) (i - start)] = ring.slots.get((int) (i % capacity));
+
+            // Lines the writer reached meanwhile are no longer the ones we read; at most `lines` stay valid
+            long valid = Math.max(start, ring.written - lines);
+            for (long i = valid; i < end; i++) result.add(copy[(int) (i - start)]);
+            if (end == 0) break;
+        }
+        return result;
+    }
+
+    /**
+     * Marks a job as ended, so its ring is among the first to go when memory runs short. A job that logs again, such
+     * as a retried job or a deployed service, is active again.
+     *
+     * @param jobId The job.
+     */
+    void finish(String jobId) {
+        Ring ring = rings.get(jobId);
+        if (ring != null) ring.finished = true;
+    }
+
+    /**
+     * @return The estimated heap used by all rings, in bytes.
+     */
+    long usedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * @return The number of jobs with a ring in memory.
+     */
+    int size() {
+        return rings.size();
+    }
+
+    // Evicts finished rings, then active ones, least recently used first, until usage is under 90% of the budget.
+    // One thread evicts at a time; appends that go over the budget meanwhile leave it to that thread.
+    private void evict() {
+        if (!evictionLock.tryLock()) return;
+        try {
+            long target = budgetBytes - budgetBytes / 10;
+            if (usedBytes.get() <= target) return;
+            List<Map.Entry<String, Ring>> candidates = new ArrayList<>(rings.entrySet());
+            candidates.sort((a, b) -> {
+                Ring x = a.getValue(), y = b.getValue();
+                if (x.finished != y.finished) return x.finished ? -1 : 1;
+                return Long.compare(x.lastUsed, y.lastUsed);
+            });
+            for (Map.Entry<String, Ring> e : candidates) {
+                if (usedBytes.get() <= target) break;
+                Ring ring = e.getValue();
+                synchronized (ring) {
+                    if (ring.evicted) continue;
+                    ring.evicted = true;
+                    usedBytes.addAndGet(-ring.bytes);
+                }
+                rings.remove(e.getKey(), ring);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static long cost(String line) {
+        return LINE_OVERHEAD_BYTES + 2L * line.length();
+    }
+}
@@ -0,0 +1,1198 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import titan.TitanConfig;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full-text index over job logs, for finding the jobs and lines that contain some words without reading the logs.
+ * <p>
+ * A line's terms are its runs of letters, digits, underscores and non-ASCII characters, lower-cased, from 2 up to
+ * {@value #MAX_TERM_BYTES} bytes long. The {@link LogWriter} passes every chunk of lines it appends to a job's log to
+ * {@link #add}, with the number of its first line. The index thread adds a posting per term and line to an in-memory
+ * segment. Once that reaches {@code titan.logs.index.memory.bytes}, or after {@code titan.logs.index.flush.ms}, it is
+ * written to {@code titan_log_index/} as an immutable segment:
+ * 1. the postings of each term, in blocks of {@value #BLOCK} followed by a skip table with the first posting of each
+ *    block,
+ * 2. the sorted term dictionary; every {@value #SPARSE_EVERY}th term stays in memory to find the others,
+ * 3. the job IDs, and the chunks: the job, first line and time of each.
+ * A merge thread combines runs of {@value #MERGE_FACTOR} segments of similar size, up to
+ * {@code titan.logs.index.segment.max.mb}. It deletes segments older than {@code titan.logs.retention.hours}, then
+ * the oldest ones until the index fits in {@code titan.logs.index.max.mb}. Heap use is thus the in-memory segment
+ * plus a small part of each dictionary, however many lines were indexed.
+ * </p>
+ * <p>
+ * {@link #search} looks the terms up in every segment, newest first. It walks the postings of the rarest term
+ * backwards and checks the other terms through their skip tables, so it only decodes the blocks it needs. A time range
+ * limits it to the chunks written in that range, which are found by binary search since chunks are in time order.
+ * </p>
+ * Times are when the writer appended the lines, at most {@code titan.logs.flush.ms} after they arrived. A search does
+ * not see lines still queued for the index, and after a crash the lines of the in-memory segment are missing.
+ */
+class LogIndex {
+    static final Path INDEX_DIR = Paths.get("titan_log_index");
+    static final boolean ENABLED = Boolean.parseBoolean(TitanConfig.get("titan.logs.index.enabled", "true"));
+    static final long MEMORY_BYTES = Math.max(1024 * 1024, TitanConfig.getInt("titan.logs.index.memory.bytes", 32 * 1024 * 1024));
+    static final long FLUSH_MS = Math.max(1000, TitanConfig.getInt("titan.logs.index.flush.ms", 60000));
+    static final int QUEUE_BYTES = Math.max(64 * 1024, TitanConfig.getInt("titan.logs.index.queue.bytes", 16 * 1024 * 1024));
+    static final long SEGMENT_MAX_BYTES = Math.min(1024, Math.max(1, TitanConfig.getInt("titan.logs.index.segment.max.mb", 512))) * 1024L * 1024;
+    static final long MAX_BYTES = Math.max(1, TitanConfig.getInt("titan.logs.index.max.mb", 2048)) * 1024L * 1024;
+    static final int MAX_TERM_BYTES = 64;
+    static final int BLOCK = 128;
+    static final int SPARSE_EVERY = 64;
+    static final int MERGE_FACTOR = 4;
+
+    private static final long MAINTAIN_MS = 60000;
+    // Segments under this size are all on the lowest merge level
+    private static final long LEVEL_BASE_BYTES = 256 * 1024;
+    // Trailer: dictionary, sparse index, jobs and chunks offsets, min and max time, then term, job and chunk counts
+    // and the magic number
+    private static final int TRAILER_BYTES = 6 * 8 + 4 * 4;
+    private static final int CHUNK_BYTES = 4 + 8 + 8;
+    private static final int MAGIC = 0x544C4958;
+    // Rough heap cost of a new term in the in-memory segment, beyond its characters
+    private static final int TERM_OVERHEAD_BYTES = 96;
+
+    /**
+     * A line that matched a search.
+     */
+    static final class Hit {
+        final String jobId;
+        final long line;
+        final long time;
+
+        Hit(String jobId, long line, long time) {
+            this.jobId = jobId;
+            this.line = line;
+            this.time = time;
+        }
+    }
+
+    private static final class Entry {
+        final String jobId;
+        final long firstLine;
+        final long time;
+        final byte[] bytes;
+
+        Entry(String jobId, long firstLine, long time, byte[] bytes) {
+            this.jobId = jobId;
+            this.firstLine = firstLine;
+            this.time = time;
+            this.bytes = bytes;
+        }
+    }
+
+    // A posting is chunk << 32 | line within the chunk, so postings sort by chunk, then line
+    private static long posting(int chunk, int line) {
+        return ((long) chunk << 32) | (line & 0xFFFFFFFFL);
+    }
+
+    private static int chunkOf(long posting) {
+        return (int) (posting >>> 32);
+    }
+
+    private static int lineOf(long posting) {
+        return (int) posting;
+    }
+
+    // Ascending postings of one term in one segment, in blocks of BLOCK
+    private interface PostingList {
+        int size();
+
+        long first(int block);
+
+        long[] block(int block);
+
+        default int blocks() {
+            return (size() + BLOCK - 1) / BLOCK;
+        }
+    }
+
+    // What a search needs from a segment, in memory or on disk
+    private interface Source {
+        int chunkCount();
+
+        int jobOf(int chunk);
+
+        long firstLine(int chunk);
+
+        long time(int chunk);
+
+        int jobCount();
+
+        String job(int index);
+
+        PostingList postings(String term);
+    }
+
+    // ---- In-memory segment ----
+
+    // Appended to by the index thread only. Arrays are replaced when they grow and never changed below the published
+    // size, so a search that reads the size first can use them without a lock.
+    private static final class Postings {
+        final byte[] key;
+        final int hash;
+        volatile long[] values = new long[4];
+        volatile int size;
+
+        Postings(byte[] key, int hash) {
+            this.key = key;
+            this.hash = hash;
+        }
+    }
+
+    private static final class MemorySegment implements Source {
+        // The postings by term bytes, in an open addressing table, so that indexing a known term allocates nothing.
+        // Slots are only ever filled, and each new term is published by writing termCount, so a search that reads
+        // termCount first can probe the table without a lock.
+        volatile Postings[] slots = new Postings[1024];
+        volatile int termCount;
+        final Map<String, Integer> jobIndex = new HashMap<>();
+        volatile String[] jobs = new String[16];
+        volatile int jobCount;
+        volatile int[] chunkJob = new int[256];
+        volatile long[] chunkFirstLine = new long[256];
+        volatile long[] chunkTime = new long[256];
+        volatile int chunkCount;
+        // Index thread only
+        long bytes;
+        long createdAt = System.currentTimeMillis();
+        long postings;
+
+        int addChunk(String jobId, long firstLine, long time) {
+            Integer job = jobIndex.get(jobId);
+            if (job == null) {
+                job = jobCount;
+                if (job == jobs.length) jobs = Arrays.copyOf(jobs, job * 2);
+                jobs[job] = jobId;
+                jobIndex.put(jobId, job);
+                jobCount = job + 1;
+                bytes += TERM_OVERHEAD_BYTES + 2L * jobId.length();
+            }
+            int chunk = chunkCount;
+            if (chunk == chunkJob.length) {
+                chunkJob = Arrays.copyOf(chunkJob, chunk * 2);
+                chunkFirstLine = Arrays.copyOf(chunkFirstLine, chunk * 2);
+                chunkTime = Arrays.copyOf(chunkTime, chunk * 2);
+                bytes += chunk * (long) CHUNK_BYTES;
+            }
+            chunkJob[chunk] = job;
+            chunkFirstLine[chunk] = firstLine;
+            // Chunks stay in time order even if the clock steps back
+            chunkTime[chunk] = chunk > 0 ? Math.max(time, chunkTime[chunk - 1]) : time;
+            chunkCount = chunk + 1;
+            return chunk;
+        }
+
+        void add(byte[] term, int len, long posting) {
+            int hash = hash(term, len);
+            Postings[] table = slots;
+            int mask = table.length - 1;
+            int slot = hash & mask;
+            Postings p;
+            while ((p = table[slot]) != null
+                    && (p.hash != hash || !Arrays.equals(p.key, 0, p.key.length, term, 0, len))) {
+                slot = (slot + 1) & mask;
+            }
+            if (p == null) {
+                p = new Postings(Arrays.copyOf(term, len), hash);
+                table[slot] = p;
+                int count = termCount + 1;
+                termCount = count;
+                bytes += TERM_OVERHEAD_BYTES + len + 8L * p.values.length;
+                if (count * 2 > table.length) growSlots(table);
+            }
+            long[] values = p.values;
+            int n = p.size;
+            // The same term twice on a line
+            if (n > 0 && values[n - 1] == posting) return;
+            if (n == values.length) {
+                values = Arrays.copyOf(values, n * 2);
+                p.values = values;
+                bytes += 8L * n;
+            }
+            values[n] = posting;
+            p.size = n + 1;
+            postings++;
+        }
+
+        private void growSlots(Postings[] table) {
+            Postings[] grown = new Postings[table.length * 2];
+            int mask = grown.length - 1;
+            for (Postings p : table) {
+                if (p == null) continue;
+                int slot = p.hash & mask;
+                while (grown[slot] != null) slot = (slot + 1) & mask;
+                grown[slot] = p;
+            }
+            bytes += 4L * table.length;
+            slots = grown;
+        }
+
+        Postings get(byte[] term) {
+            if (termCount == 0) return null;
+            Postings[] table = slots;
+            int hash = hash(term, term.length);
+            int mask = table.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                Postings p = table[slot];
+                if (p == null) return null;
+                if (p.hash == hash && Arrays.equals(p.key, term)) return p;
+            }
+        }
+
+        private static int hash(byte[] term, int len) {
+            int hash = 0;
+            for (int i = 0; i < len; i++) hash = 31 * hash + term[i];
+            // Numbers in logs hash to neighbouring values, which would cluster in the table: spread them
+            hash *= 0x9E3779B9;
+            return hash ^ hash >>> 16;
+        }
+
+        public int chunkCount() { return chunkCount; }
+
+        public int jobOf(int chunk) { return chunkJob[chunk]; }
+
+        public long firstLine(int chunk) { return chunkFirstLine[chunk]; }
+
+        public long time(int chunk) { return chunkTime[chunk]; }
+
+        public int jobCount() { return jobCount; }
+
+        public String job(int index) { return jobs[index]; }
+
+        public PostingList postings(String term) {
+            Postings p = get(term.getBytes(StandardCharsets.UTF_8));
+            if (p == null) return null;
+            int size = p.size;
+            long[] values = p.values;
+            return new PostingList() {
+                public int size() { return size; }
+
+                public long first(int block) { return values[block * BLOCK]; }
+
+                public long[] block(int block) {
+                    return Arrays.copyOfRange(values, block * BLOCK, Math.min(size, (block + 1) * BLOCK));
+                }
+            };
+        }
+    }
+
+    // ---- Segment on disk ----
+
+    private static final class DiskSegment implements Source {
+        final Path file;
+        final long firstSeq;
+        final long lastSeq;
+        final long bytes;
+        final MappedByteBuffer map;
+        final int dictOffset;
+        final int dictEnd;
+        final int chunksOffset;
+        final int chunkCount;
+        final long minTime;
+        final long maxTime;
+        final int termCount;
+        final String[] jobs;
+        final String[] sparseTerms;
+        final int[] sparseOffsets;
+
+        DiskSegment(Path file, long firstSeq, long lastSeq) throws IOException {
+            this.file = file;
+            this.firstSeq = firstSeq;
+            this.lastSeq = lastSeq;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                bytes = ch.size();
+                if (bytes < TRAILER_BYTES || bytes > Integer.MAX_VALUE) throw new IOException("bad size " + bytes);
+                map = ch.map(FileChannel.MapMode.READ_ONLY, 0, bytes);
+            }
+            int t = (int) bytes - TRAILER_BYTES;
+            if (map.getInt(t + 60) != MAGIC) throw new IOException("not an index segment");
+            dictOffset = (int) map.getLong(t);
+            int sparseOffset = (int) map.getLong(t + 8);
+            int jobsOffset = (int) map.getLong(t + 16);
+            chunksOffset = (int) map.getLong(t + 24);
+            minTime = map.getLong(t + 32);
+            maxTime = map.getLong(t + 40);
+            termCount = map.getInt(t + 48);
+            int jobCount = map.getInt(t + 52);
+            chunkCount = map.getInt(t + 56);
+            dictEnd = sparseOffset;
+
+            int sparse = map.getInt(sparseOffset);
+            sparseTerms = new String[sparse];
+            sparseOffsets = new int[sparse];
+            for (int i = 0; i < sparse; i++) {
+                sparseOffsets[i] = (int) map.getLong(sparseOffset + 4 + i * 8);
+                sparseTerms[i] = string(map, sparseOffsets[i]);
+            }
+            jobs = new String[jobCount];
+            int at = jobsOffset;
+            for (int i = 0; i < jobCount; i++) {
+                jobs[i] = string(map, at);
+                at += 2 + Short.toUnsignedInt(map.getShort(at));
+            }
+        }
+
+        public int chunkCount() { return chunkCount; }
+
+        public int jobOf(int chunk) { return map.getInt(chunksOffset + chunk * CHUNK_BYTES); }
+
+        public long firstLine(int chunk) { return map.getLong(chunksOffset + chunk * CHUNK_BYTES + 4); }
+
+        public long time(int chunk) { return map.getLong(chunksOffset + chunk * CHUNK_BYTES + 12); }
+
+        public int jobCount() { return jobs.length; }
+
+        public String job(int index) { return jobs[index]; }
+
+        public PostingList postings(String term) {
+            // The last sparse term at or before the term, then a scan of at most SPARSE_EVERY entries
+            int lo = 0, hi = sparseTerms.length - 1, from = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (sparseTerms[mid].compareTo(term) <= 0) {
+                    from = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (from < 0) return null;
+            int end = from + 1 < sparseOffsets.length ? sparseOffsets[from + 1] : dictEnd;
+            for (int at = sparseOffsets[from]; at < end; ) {
+                String candidate = string(map, at);
+                int cmp = candidate.compareTo(term);
+                int fields = at + 2 + Short.toUnsignedInt(map.getShort(at));
+                if (cmp == 0) return entryAt(fields);
+                if (cmp > 0) return null;
+                at = fields + 4 + 8 + 8;
+            }
+            return null;
+        }
+
+        // Dictionary entry fields: count, offset of the postings data, offset of the skip table
+        DiskPostings entryAt(int fields) {
+            return new DiskPostings(map, map.getInt(fields), (int) map.getLong(fields + 4), (int) map.getLong(fields + 12));
+        }
+    }
+
+    private static final class DiskPostings implements PostingList {
+        final ByteBuffer map;
+        final int size;
+        final int data;
+        final int table;
+
+        DiskPostings(ByteBuffer map, int size, int data, int table) {
+            this.map = map;
+            this.size = size;
+            this.data = data;
+            this.table = table;
+        }
+
+        public int size() { return size; }
+
+        public long first(int block) {
+            return posting(map.getInt(table + block * 12), map.getInt(table + block * 12 + 4));
+        }
+
+        public long[] block(int block) {
+            long[] values = new long[Math.min(BLOCK, size - block * BLOCK)];
+            int chunk = map.getInt(table + block * 12);
+            int line = map.getInt(table + block * 12 + 4);
+            int[] at = {data + map.getInt(table + block * 12 + 8)};
+            values[0] = posting(chunk, line);
+            for (int i = 1; i < values.length; i++) {
+                int delta = readVarint(map, at);
+                if ((delta & 1) == 0) {
+                    line += delta >>> 1;
+                } else {
+                    chunk += delta >>> 1;
+                    line = readVarint(map, at);
+                }
+                values[i] = posting(chunk, line);
+            }
+            return values;
+        }
+    }
+
+    private static final class State {
+        final MemorySegment memory;
+        // Oldest first
+        final List<DiskSegment> segments;
+
+        State(MemorySegment memory, List<DiskSegment> segments) {
+            this.memory = memory;
+            this.segments = Collections.unmodifiableList(segments);
+        }
+    }
+
+    private static final Entry STOP = new Entry(null, 0, 0, new byte[0]);
+
+    private final Path dir;
+    private final LinkedBlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    // One permit per byte queued and not yet indexed
+    private final Semaphore room = new Semaphore(QUEUE_BYTES);
+    private final Object mergeSignal = new Object();
+    private volatile State state;
+    private volatile boolean closed;
+    // Index thread only
+    private long nextSeq;
+    private Thread indexer;
+    private Thread merger;
+
+    LogIndex() {
+        this(INDEX_DIR);
+    }
+
+    LogIndex(Path dir) {
+        this.dir = dir;
+        this.state = new State(new MemorySegment(), load());
+        if (!ENABLED) return;
+        indexer = new Thread(this::run, "titan-log-index");
+        indexer.setDaemon(true);
+        indexer.start();
+        merger = new Thread(this::mergeLoop, "titan-log-index-merge");
+        merger.setDaemon(true);
+        merger.start();
+    }
+
+    /**
+     * Queues a chunk of a job's lines for indexing, blocking while {@code titan.logs.index.queue.bytes} are queued.
+     * Called by the {@link LogWriter} after appending them to the job's log.
+     *
+     * @param jobId The job.
+     * @param firstLine The line number of the first line in the job's log.
+     * @param bytes The lines, each ending with a newline.
+     */
+    void add(String jobId, long firstLine, byte[] bytes) {
+        if (!ENABLED || closed || bytes.length == 0) return;
+        room.acquireUninterruptibly(Math.min(bytes.length, QUEUE_BYTES));
+        queue.add(new Entry(jobId, firstLine, System.currentTimeMillis(), bytes));
+    }
+
+    /**
+     * Indexes what is queued, writes the in-memory segment to disk and stops the index threads.
+     */
+    void close() {
+        if (!ENABLED || closed) return;
+        closed = true;
+        queue.add(STOP);
+        try {
+            indexer.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        merger.interrupt();
+    }
+
+    /**
+     * Finds the lines that contain all the terms of a query, newest first.
+     *
+     * @param terms The terms, as returned by {@link #terms}.
+     * @param jobPrefix Only jobs whose ID starts with this; empty for all jobs.
+     * @param fromMs Only lines written at or after this time, in epoch milliseconds; 0 for no limit.
+     * @param toMs Only lines written at or before this time; 0 for no limit.
+     * @param limit The most hits to return.
+     * @return The hits, newest first.
+     */
+    List<Hit> search(List<String> terms, String jobPrefix, long fromMs, long toMs, int limit) {
+        List<Hit> hits = new ArrayList<>();
+        if (terms.isEmpty() || limit <= 0) return hits;
+        long to = toMs <= 0 ? Long.MAX_VALUE : toMs;
+        State s = state;
+        search(s.memory, terms, jobPrefix, fromMs, to, limit, hits);
+        for (int i = s.segments.size() - 1; i >= 0 && hits.size() < limit; i--) {
+            DiskSegment segment = s.segments.get(i);
+            if (segment.maxTime < fromMs || segment.minTime > to) continue;
+            search(segment, terms, jobPrefix, fromMs, to, limit, hits);
+        }
+        return hits;
+    }
+
+    /**
+     * Splits text into index terms, the same way lines are split when they are indexed.
+     *
+     * @param text A query.
+     * @return Its distinct terms, in order.
+     */
+    static List<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        tokenize(text.getBytes(StandardCharsets.UTF_8),
+                (term, len, line) -> terms.add(new String(term, 0, len, StandardCharsets.UTF_8)));
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * @return A one-line summary of the index for the system monitor.
+     */
+    String getStats() {
+        State s = state;
+        long bytes = 0;
+        for (DiskSegment segment : s.segments) bytes += segment.bytes;
+        return String.format("%d segments, %.1f MB on disk | %d chunks, %.1f MB in memory | %.1f MB queued%s",
+                s.segments.size(), bytes / 1048576.0, s.memory.chunkCount, s.memory.bytes / 1048576.0,
+                (QUEUE_BYTES - room.availablePermits()) / 1048576.0, ENABLED ? "" : " | disabled");
+    }
+
+    // ---- Search ----
+
+    private static void search(Source source, List<String> terms, String jobPrefix, long from, long to, int limit,
+                               List<Hit> hits) {
+        int chunks = source.chunkCount();
+        if (chunks == 0) return;
+        // Chunks written in the time range
+        int lo = firstChunkAfter(source, chunks, from - 1);
+        int hi = firstChunkAfter(source, chunks, to);
+        if (lo >= hi) return;
+
+        boolean[] jobOk = null;
+        if (!jobPrefix.isEmpty()) {
+            jobOk = new boolean[source.jobCount()];
+            boolean any = false;
+            for (int j = 0; j < jobOk.length; j++) any |= jobOk[j] = source.job(j).startsWith(jobPrefix);
+            if (!any) return;
+        }
+
+        PostingList[] lists = new PostingList[terms.size()];
+        int driver = 0;
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = source.postings(terms.get(i));
+            if (lists[i] == null || lists[i].size() == 0) return;
+            if (lists[i].size() < lists[driver].size()) driver = i;
+        }
+        Probe[] probes = new Probe[lists.length];
+        for (int i = 0; i < lists.length; i++) probes[i] = new Probe(lists[i]);
+
+        PostingList d = lists[driver];
+        for (int b = d.blocks() - 1; b >= 0; b--) {
+            if (chunkOf(d.first(b)) >= hi) continue;
+            long[] block = d.block(b);
+            for (int i = block.length - 1; i >= 0; i--) {
+                int chunk = chunkOf(block[i]);
+                if (chunk >= hi) continue;
+                if (chunk < lo) return;
+                if (jobOk != null && !jobOk[source.jobOf(chunk)]) continue;
+                boolean all = true;
+                for (int t = 0; t < probes.length && all; t++) {
+                    if (t != driver) all = probes[t].contains(block[i]);
+                }
+                if (!all) continue;
+                hits.add(new Hit(source.job(source.jobOf(chunk)), source.firstLine(chunk) + lineOf(block[i]),
+                        source.time(chunk)));
+                if (hits.size() >= limit) return;
+            }
+        }
+    }
+
+    // The first chunk written after the given time
+    private static int firstChunkAfter(Source source, int chunks, long time) {
+        int lo = 0, hi = chunks;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (source.time(mid) <= time) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Membership test on a posting list, keeping the last block it decoded
+    private static final class Probe {
+        final PostingList list;
+        int block = -1;
+        long[] values;
+
+        Probe(PostingList list) {
+            this.list = list;
+        }
+
+        boolean contains(long posting) {
+            int lo = 0, hi = list.blocks() - 1, b = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (list.first(mid) <= posting) {
+                    b = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (b < 0) return false;
+            if (b != block) {
+                values = list.block(b);
+                block = b;
+            }
+            return Arrays.binarySearch(values, posting) >= 0;
+        }
+    }
+
+    // ---- Index thread ----
+
+    private void run() {
+        while (true) {
+            Entry entry;
+            try {
+                MemorySegment memory = state.memory;
+                long wait = memory.chunkCount == 0 ? FLUSH_MS : memory.createdAt + FLUSH_MS - System.currentTimeMillis();
+                entry = queue.poll(Math.max(0, wait), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (entry == STOP) break;
+            MemorySegment memory = state.memory;
+            if (entry != null) {
+                index(memory, entry);
+                room.release(Math.min(entry.bytes.length, QUEUE_BYTES));
+            }
+            if (memory.bytes >= MEMORY_BYTES
+                    || (memory.chunkCount > 0 && System.currentTimeMillis() - memory.createdAt >= FLUSH_MS)) {
+                flush(memory);
+            }
+        }
+        if (state.memory.chunkCount > 0) flush(state.memory);
+    }
+
+    private static void index(MemorySegment memory, Entry entry) {
+        int chunk = memory.addChunk(entry.jobId, entry.firstLine, entry.time);
+        tokenize(entry.bytes, (term, len, line) -> memory.add(term, len, posting(chunk, line)));
+    }
+
+    private interface TermSink {
+        // The term is in a buffer that is reused for the next one
+        void term(byte[] term, int len, int line);
+    }
+
+    // Terms are runs of [A-Za-z0-9_] and non-ASCII bytes, lower-cased, cut at MAX_TERM_BYTES; lines end with '\n'
+    private static void tokenize(byte[] bytes, TermSink sink) {
+        byte[] term = new byte[MAX_TERM_BYTES];
+        int line = 0, len = 0, run = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            byte b = i < bytes.length ? bytes[i] : (byte) '\n';
+            boolean part = (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b == '_' || b < 0
+                    || (b >= 'A' && b <= 'Z');
+            if (part) {
+                if (len < MAX_TERM_BYTES) term[len++] = (b >= 'A' && b <= 'Z') ? (byte) (b + 32) : b;
+                run++;
+                continue;
+            }
+            if (run >= 2) sink.term(term, len, line);
+            len = 0;
+            run = 0;
+            if (b == '\n') line++;
+        }
+    }
+
+    private void flush(MemorySegment memory) {
+        long seq = nextSeq;
+        Path target = null;
+        try {
+            Files.createDirectories(dir);
+            List<Map.Entry<String, Postings>> terms = new ArrayList<>(memory.termCount);
+            for (Postings p : memory.slots) {
+                if (p != null) terms.add(Map.entry(new String(p.key, StandardCharsets.UTF_8), p));
+            }
+            terms.sort(Map.Entry.comparingByKey());
+            Path tmp = Files.createTempFile(dir, "flush-", ".idx.tmp");
+            try (SegmentWriter writer = new SegmentWriter(tmp)) {
+                for (Map.Entry<String, Postings> term : terms) {
+                    Postings p = term.getValue();
+                    writer.startTerm(term.getKey());
+                    for (int i = 0; i < p.size; i++) writer.add(p.values[i]);
+                    writer.endTerm();
+                }
+                int chunks = memory.chunkCount;
+                writer.finish(Arrays.asList(memory.jobs).subList(0, memory.jobCount), chunks,
+                        c -> memory.chunkJob[c], c -> memory.chunkFirstLine[c], c -> memory.chunkTime[c]);
+            }
+            // Another scheduler in this directory may have taken the name
+            while (true) {
+                target = dir.resolve(segmentName(seq, seq));
+                try {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                    break;
+                } catch (FileAlreadyExistsException e) {
+                    seq++;
+                }
+            }
+            nextSeq = seq + 1;
+            DiskSegment segment = new DiskSegment(target, seq, seq);
+            synchronized (this) {
+                List<DiskSegment> segments = new ArrayList<>(state.segments);
+                segments.add(segment);
+                state = new State(new MemorySegment(), segments);
+            }
+        } catch (IOException e) {
+            System.err.println("[ERROR] Could not write log index segment: " + e.getMessage()
+                    + "; dropping " + memory.chunkCount + " indexed chunks");
+            synchronized (this) {
+                state = new State(new MemorySegment(), new ArrayList<>(state.segments));
+            }
+        }
+        synchronized (mergeSignal) {
+            mergeSignal.notifyAll();
+        }
+    }
+
+    // ---- Merge thread ----
+
+    private void mergeLoop() {
+        while (true) {
+            try {
+                applyRetention();
+                List<DiskSegment> run;
+                while ((run = pickMerge()) != null) merge(run);
+                synchronized (mergeSignal) {
+                    mergeSignal.wait(MAINTAIN_MS);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                if (closed) return;
+                System.err.println("[WARN] Log index merge failed: " + e.getMessage());
+                try {
+                    Thread.sleep(MAINTAIN_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // The oldest run of MERGE_FACTOR neighbouring segments on the same size level that still fits a segment
+    private List<DiskSegment> pickMerge() {
+        List<DiskSegment> segments = state.segments;
+        for (int i = 0; i + MERGE_FACTOR <= segments.size(); i++) {
+            int level = level(segments.get(i).bytes);
+            long total = 0;
+            boolean same = true;
+            for (int j = i; j < i + MERGE_FACTOR && same; j++) {
+                same = level(segments.get(j).bytes) == level;
+                total += segments.get(j).bytes;
+            }
+            if (same && total <= SEGMENT_MAX_BYTES) return new ArrayList<>(segments.subList(i, i + MERGE_FACTOR));
+        }
+        return null;
+    }
+
+    private static int level(long bytes) {
+        int level = 0;
+        for (long b = bytes / LEVEL_BASE_BYTES; b >= MERGE_FACTOR; b /= MERGE_FACTOR) level++;
+        return level;
+    }
+
+    private void merge(List<DiskSegment> run) throws IOException {
+        // Jobs and chunks of the inputs, in order; chunk numbers of input i move up by the chunks before it
+        List<String> jobs = new ArrayList<>();
+        Map<String, Integer> jobIndex = new HashMap<>();
+        int[][] jobMap = new int[run.size()][];
+        int[] chunkBase = new int[run.size()];
+        int chunks = 0;
+        for (int i = 0; i < run.size(); i++) {
+            DiskSegment s = run.get(i);
+            jobMap[i] = new int[s.jobs.length];
+            for (int j = 0; j < s.jobs.length; j++) {
+                jobMap[i][j] = jobIndex.computeIfAbsent(s.jobs[j], k -> {
+                    jobs.add(k);
+                    return jobs.size() - 1;
+                });
+            }
+            chunkBase[i] = chunks;
+            chunks += s.chunkCount;
+        }
+        int[] owner = new int[chunks];
+        for (int i = 0; i < run.size(); i++) Arrays.fill(owner, chunkBase[i], chunkBase[i] + run.get(i).chunkCount, i);
+
+        DiskSegment first = run.get(0), last = run.get(run.size() - 1);
+        Path tmp = Files.createTempFile(dir, "merge-", ".idx.tmp");
+        try (SegmentWriter writer = new SegmentWriter(tmp)) {
+            PriorityQueue<DictCursor> cursors = new PriorityQueue<>((a, b) -> {
+                int cmp = a.term.compareTo(b.term);
+                return cmp != 0 ? cmp : Integer.compare(a.input, b.input);
+            });
+            for (int i = 0; i < run.size(); i++) {
+                DictCursor c = new DictCursor(run.get(i), i);
+                if (c.next()) cursors.add(c);
+            }
+            List<DictCursor> same = new ArrayList<>();
+            while (!cursors.isEmpty()) {
+                same.clear();
+                String term = cursors.peek().term;
+                while (!cursors.isEmpty() && cursors.peek().term.equals(term)) same.add(cursors.poll());
+                writer.startTerm(term);
+                for (DictCursor c : same) {
+                    PostingList list = c.postings();
+                    long shift = (long) chunkBase[c.input] << 32;
+                    for (int b = 0; b < list.blocks(); b++) {
+                        for (long p : list.block(b)) writer.add(p + shift);
+                    }
+                    if (c.next()) cursors.add(c);
+                }
+                writer.endTerm();
+            }
+            writer.finish(jobs, chunks,
+                    c -> jobMap[owner[c]][run.get(owner[c]).jobOf(c - chunkBase[owner[c]])],
+                    c -> run.get(owner[c]).firstLine(c - chunkBase[owner[c]]),
+                    c -> run.get(owner[c]).time(c - chunkBase[owner[c]]));
+        }
+        Path target = dir.resolve(segmentName(first.firstSeq, last.lastSeq));
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        DiskSegment merged = new DiskSegment(target, first.firstSeq, last.lastSeq);
+        synchronized (this) {
+            List<DiskSegment> segments = new ArrayList<>(state.segments);
+            int at = segments.indexOf(first);
+            segments.removeAll(run);
+            segments.add(at, merged);
+            state = new State(state.memory, segments);
+        }
+        // Searches still using the inputs keep their mappings
+        for (DiskSegment s : run) Files.deleteIfExists(s.file);
+    }
+
+    private void applyRetention() throws IOException {
+        long cutoff = System.currentTimeMillis() - LogStore.RETENTION_MS;
+        List<DiskSegment> expired = new ArrayList<>();
+        synchronized (this) {
+            List<DiskSegment> segments = new ArrayList<>(state.segments);
+            long total = 0;
+            for (DiskSegment s : segments) total += s.bytes;
+            while (!segments.isEmpty() && (segments.get(0).maxTime < cutoff || total > MAX_BYTES)) {
+                DiskSegment oldest = segments.remove(0);
+                total -= oldest.bytes;
+                expired.add(oldest);
+            }
+            if (expired.isEmpty()) return;
+            state = new State(state.memory, segments);
+        }
+        for (DiskSegment s : expired) Files.deleteIfExists(s.file);
+    }
+
+    // Reads a segment's dictionary in order
+    private static final class DictCursor {
+        final DiskSegment segment;
+        final int input;
+        int at;
+        String term;
+        int fields;
+
+        DictCursor(DiskSegment segment, int input) {
+            this.segment = segment;
+            this.input = input;
+            this.at = segment.dictOffset;
+        }
+
+        boolean next() {
+            if (at >= segment.dictEnd) return false;
+            term = string(segment.map, at);
+            fields = at + 2 + Short.toUnsignedInt(segment.map.getShort(at));
+            at = fields + 4 + 8 + 8;
+            return true;
+        }
+
+        PostingList postings() {
+            return segment.entryAt(fields);
+        }
+    }
+
+    // ---- Segment files ----
+
+    private interface ChunkField<T> {
+        T get(int chunk);
+    }
+
+    // Writes postings to the segment file and dictionary entries to a side file, which is appended once all terms are
+    // written. Postings are streamed, so merging never holds a whole posting list in memory.
+    private static final class SegmentWriter implements AutoCloseable {
+        final Path file;
+        final Path dictFile;
+        final CountingStream dataCount;
+        final DataOutputStream data;
+        final CountingStream dictCount;
+        final DataOutputStream dict;
+        int[] sparse = new int[64];
+        int sparseCount;
+        int terms;
+        // Current term
+        byte[] term;
+        long termData;
+        int count;
+        int[] table = new int[48];
+        int chunk, line;
+        boolean finished;
+
+        SegmentWriter(Path file) throws IOException {
+            this.file = file;
+            this.dictFile = file.resolveSibling(file.getFileName() + ".dict");
+            dataCount = new CountingStream(Files.newOutputStream(file));
+            data = new DataOutputStream(dataCount);
+            dictCount = new CountingStream(Files.newOutputStream(dictFile));
+            dict = new DataOutputStream(dictCount);
+        }
+
+        void startTerm(String t) {
+            term = t.getBytes(StandardCharsets.UTF_8);
+            termData = dataCount.count();
+            count = 0;
+        }
+
+        void add(long posting) throws IOException {
+            int c = chunkOf(posting), l = lineOf(posting);
+            if (count % BLOCK == 0) {
+                int b = count / BLOCK;
+                if (b * 3 + 3 > table.length) table = Arrays.copyOf(table, table.length * 2);
+                table[b * 3] = c;
+                table[b * 3 + 1] = l;
+                table[b * 3 + 2] = (int) (dataCount.count() - termData);
+            } else if (c == chunk) {
+                // Most postings of a common term are a few lines apart in the same chunk: one byte
+                dataCount.varint((l - line) << 1);
+            } else {
+                dataCount.varint((c - chunk) << 1 | 1);
+                dataCount.varint(l);
+            }
+            chunk = c;
+            line = l;
+            count++;
+        }
+
+        void endTerm() throws IOException {
+            if (count == 0) return;
+            long tableOffset = dataCount.count();
+            for (int i = 0; i < (count + BLOCK - 1) / BLOCK * 3; i++) data.writeInt(table[i]);
+            if (terms % SPARSE_EVERY == 0) {
+                if (sparseCount == sparse.length) sparse = Arrays.copyOf(sparse, sparseCount * 2);
+                sparse[sparseCount++] = (int) dictCount.count();
+            }
+            dict.writeShort(term.length);
+            dict.write(term);
+            dict.writeInt(count);
+            dict.writeLong(termData);
+            dict.writeLong(tableOffset);
+            terms++;
+        }
+
+        void finish(List<String> jobs, int chunks, ChunkField<Integer> job, ChunkField<Long> firstLine,
+                    ChunkField<Long> time) throws IOException {
+            dict.close();
+            long dictOffset = dataCount.count();
+            Files.copy(dictFile, data);
+            long sparseOffset = dataCount.count();
+            data.writeInt(sparseCount);
+            for (int i = 0; i < sparseCount; i++) data.writeLong(dictOffset + sparse[i]);
+            long jobsOffset = dataCount.count();
+            for (String j : jobs) {
+                byte[] b = j.getBytes(StandardCharsets.UTF_8);
+                data.writeShort(b.length);
+                data.write(b);
+            }
+            long chunksOffset = dataCount.count();
+            long minTime = chunks > 0 ? time.get(0) : 0, maxTime = chunks > 0 ? time.get(chunks - 1) : 0;
+            for (int c = 0; c < chunks; c++) {
+                data.writeInt(job.get(c));
+                data.writeLong(firstLine.get(c));
+                data.writeLong(time.get(c));
+            }
+            data.writeLong(dictOffset);
+            data.writeLong(sparseOffset);
+            data.writeLong(jobsOffset);
+            data.writeLong(chunksOffset);
+            data.writeLong(minTime);
+            data.writeLong(maxTime);
+            data.writeInt(terms);
+            data.writeInt(jobs.size());
+            data.writeInt(chunks);
+            data.writeInt(MAGIC);
+            if (dataCount.count() > Integer.MAX_VALUE) throw new IOException("segment over 2 GB");
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                dict.close();
+                data.close();
+            } finally {
+                Files.deleteIfExists(dictFile);
+                if (!finished) Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    // Buffers like a BufferedOutputStream, without its locking, and counts the bytes written. Postings are written a
+    // byte or two at a time.
+    private static final class CountingStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] buf = new byte[1 << 16];
+        private int pos;
+        private long drained;
+
+        CountingStream(OutputStream out) {
+            this.out = out;
+        }
+
+        long count() {
+            return drained + pos;
+        }
+
+        void varint(int value) throws IOException {
+            if (pos + 5 > buf.length) drain();
+            while ((value & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (pos == buf.length) drain();
+            buf[pos++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > buf.length - pos) {
+                drain();
+                if (len >= buf.length) {
+                    out.write(b, off, len);
+                    drained += len;
+                    return;
+                }
+            }
+            System.arraycopy(b, off, buf, pos, len);
+            pos += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                out.close();
+            }
+        }
+
+        private void drain() throws IOException {
+            out.write(buf, 0, pos);
+            drained += pos;
+            pos = 0;
+        }
+    }
+
+    // Opens the segments in the directory, dropping those a finished merge left behind and unfinished files
+    private List<DiskSegment> load() {
+        List<DiskSegment> segments = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return segments;
+        List<long[]> ranges = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                if (name.endsWith(".tmp") || name.endsWith(".dict")) {
+                    Files.deleteIfExists(f);
+                    continue;
+                }
+                long[] range = parseName(name);
+                if (range != null) ranges.add(range);
+            }
+        } catch (IOException e) {
+            System.err.println("[WARN] Could not scan " + dir + ": " + e.getMessage());
+            return segments;
+        }
+        // Oldest first; of two that start together, the wider one, which contains the other
+        ranges.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[1], a[1]));
+        long covered = -1;
+        for (long[] r : ranges) {
+            Path file = dir.resolve(segmentName(r[0], r[1]));
+            try {
+                if (r[1] <= covered) {
+                    Files.deleteIfExists(file);
+                    continue;
+                }
+                segments.add(new DiskSegment(file, r[0], r[1]));
+                covered = r[1];
+            } catch (IOException e) {
+                System.err.println("[WARN] Dropping unreadable log index segment " + file + ": " + e.getMessage());
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {}
+            }
+            nextSeq = Math.max(nextSeq, r[1] + 1);
+        }
+        return segments;
+    }
+
+    private static String segmentName(long firstSeq, long lastSeq) {
+        return String.format("%020d-%020d.idx", firstSeq, lastSeq);
+    }
+
+    private static long[] parseName(String name) {
+        if (!name.endsWith(".idx")) return null;
+        String[] parts = name.substring(0, name.length() - 4).split("-");
+        if (parts.length != 2) return null;
+        try {
+            return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String string(ByteBuffer map, int at) {
+        byte[] b = new byte[Short.toUnsignedInt(map.getShort(at))];
+        map.get(at + 2, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static int readVarint(ByteBuffer map, int[] at) {
+        int value = 0, shift = 0;
+        while (true) {
+            byte b = map.get(at[0]++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,928 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import titan.TitanConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Job logs on disk, as segments under {@code titan_server_logs/<jobId>/}.
+ * <p>
+ * A job's lines are appended to its active segment, {@code <firstLine>.log}, which is plain text. When it reaches
+ * {@code titan.logs.segment.bytes}, when the job ends, or after {@code titan.logs.seal.idle.ms} without new lines, the
+ * segment is sealed: rewritten as {@code <firstLine>.seg}, a run of separately deflated blocks of about
+ * {@value #BLOCK_BYTES} bytes of whole lines, followed by the first line and offset of every block. For the active
+ * segment a sparse index is kept in memory instead: the offset of every {@value #INDEX_EVERY}th line. Line numbers count
+ * from the first line the job ever logged and stay the same when older segments are deleted.
+ * </p>
+ * Reads map the segments into memory and only touch what they return: {@link #tail} scans the active segment backwards
+ * from its end and inflates sealed blocks newest first, {@link #read} finds its first line through the indexes, and
+ * {@link #follow} waits for the writer to append past a given line. Once
+ * a minute the writer seals idle segments and applies retention: segments older than {@code titan.logs.retention.hours}
+ * are deleted, then the oldest ones until all logs fit in {@code titan.logs.retention.mb}. Log files of earlier
+ * versions, {@code titan_server_logs/<jobId>.log}, are moved into place at startup. A job ID that is not a single
+ * plain path element, such as one containing a path separator or {@code ..}, has no log.
+ * <p>
+ * Appends, sealing and retention run on the {@link LogWriter} thread only. Reads may come from any thread.
+ * </p>
+ */
+class LogStore {
+    static final Path LOG_DIR = Paths.get("titan_server_logs");
+    static final long SEGMENT_BYTES = Math.max(64 * 1024, TitanConfig.getInt("titan.logs.segment.bytes", 8 * 1024 * 1024));
+    static final long SEAL_IDLE_MS = Math.max(1000, TitanConfig.getInt("titan.logs.seal.idle.ms", 300000));
+    static final long RETENTION_MS = Math.max(1, TitanConfig.getInt("titan.logs.retention.hours", 168)) * 3600_000L;
+    static final long RETENTION_BYTES = Math.max(1, TitanConfig.getInt("titan.logs.retention.mb", 10240)) * 1024L * 1024;
+    static final int COMPRESSION_LEVEL = Math.min(9, Math.max(1, TitanConfig.getInt("titan.logs.compression.level", 6)));
+    static final int OPEN_FILES = Math.max(1, TitanConfig.getInt("titan.logs.open.files", 64));
+    static final int BLOCK_BYTES = 64 * 1024;
+    static final int INDEX_EVERY = 1024;
+
+    private static final int CACHED_JOBS = 4096;
+    private static final int WINDOW_BYTES = 1024 * 1024;
+    // Segment trailer: line count, block count, magic; every block entry: first line, offset, length, raw length
+    private static final int TRAILER_BYTES = 16;
+    private static final int BLOCK_ENTRY_BYTES = 24;
+    private static final int MAGIC = 0x544C4F47;
+
+    /**
+     * Lines read from a job's log, and the line number to read from next.
+     */
+    static final class Slice {
+        final List<String> lines;
+        final long firstLine;
+        final long nextLine;
+
+        Slice(List<String> lines, long firstLine, long nextLine) {
+            this.lines = lines;
+            this.firstLine = firstLine;
+            this.nextLine = nextLine;
+        }
+    }
+
+    private static final class Segment {
+        final Path file;
+        final long firstLine;
+        final long lines;
+        final long[] blockFirstLine;
+        final long[] blockOffset;
+        final int[] blockLength;
+        final int[] blockRawLength;
+
+        Segment(Path file, long firstLine, long lines, int blocks) {
+            this.file = file;
+            this.firstLine = firstLine;
+            this.lines = lines;
+            this.blockFirstLine = new long[blocks];
+            this.blockOffset = new long[blocks];
+            this.blockLength = new int[blocks];
+            this.blockRawLength = new int[blocks];
+        }
+    }
+
+    private static final class JobLog {
+        final Path dir;
+        // Guarded by this
+        final List<Segment> sealed = new ArrayList<>();
+        Path active;
+        long activeFirstLine;
+        long activeLines;
+        long activeBytes;
+        // marks[k] is the offset of line activeFirstLine + k * INDEX_EVERY in the active segment
+        long[] marks = {0};
+        int markCount = 1;
+        // Guarded by the cache; a pinned log is being written and is never dropped from the cache
+        boolean pinned;
+        // Writer thread only
+        FileChannel channel;
+        long lastWrite;
+
+        JobLog(Path dir) {
+            this.dir = dir;
+        }
+
+        void addMark(long offset) {
+            if (markCount == marks.length) marks = Arrays.copyOf(marks, markCount * 2);
+            marks[markCount++] = offset;
+        }
+
+        void resetActive(long firstLine) {
+            active = null;
+            activeFirstLine = firstLine;
+            activeLines = 0;
+            activeBytes = 0;
+            markCount = 1;
+        }
+    }
+
+    // What a read works from; the files it names may be sealed or deleted meanwhile
+    private static final class View {
+        final List<Segment> sealed;
+        final Path active;
+        final long activeFirstLine;
+        final long activeLines;
+        final long activeBytes;
+        final long[] marks;
+
+        View(JobLog log, boolean withMarks) {
+            sealed = new ArrayList<>(log.sealed);
+            active = log.active;
+            activeFirstLine = log.activeFirstLine;
+            activeLines = log.activeLines;
+            activeBytes = log.activeBytes;
+            marks = withMarks ? Arrays.copyOf(log.marks, log.markCount) : null;
+        }
+
+        long firstLine() {
+            return sealed.isEmpty() ? activeFirstLine : sealed.get(0).firstLine;
+        }
+
+        long endLine() {
+            return activeFirstLine + activeLines;
+        }
+    }
+
+    // Readers waiting for a job's next lines
+    private static final class Waiters {
+        // Guarded by this
+        int count;
+        long appends;
+    }
+
+    private final Path dir;
+    private final Map<String, Waiters> waiting = new ConcurrentHashMap<>();
+    // Guarded by itself; least recently used first
+    private final LinkedHashMap<String, JobLog> jobs = new LinkedHashMap<>(64, 0.75f, true);
+    // Writer thread only; least recently written first
+    private final Map<String, JobLog> open = new LinkedHashMap<>(16, 0.75f, true);
+
+    LogStore() {
+        this(LOG_DIR);
+    }
+
+    LogStore(Path dir) {
+        this.dir = dir;
+        migrateLegacyLogs();
+    }
+
+    // Moves log files of earlier versions, <jobId>.log, into a directory of their own as the job's first segment
+    private void migrateLegacyLogs() {
+        if (!Files.isDirectory(dir)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.log")) {
+            for (Path legacy : files) {
+                String name = legacy.getFileName().toString();
+                Path jobDir = dir.resolve(name.substring(0, name.length() - 4));
+                if (!Files.isRegularFile(legacy) || Files.exists(jobDir)) continue;
+                try {
+                    Files.createDirectories(jobDir);
+                    Files.move(legacy, jobDir.resolve(segmentName(0) + ".log"), StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    System.err.println("[WARN] Could not move old log " + legacy + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[WARN] Could not scan " + dir + " for old logs: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that a job ID names a directory directly under the store, so that a request cannot read or write
+     * anywhere else.
+     *
+     * @param jobId The job ID as received.
+     * @return {@code true} if the ID is a single path element other than {@code .} and {@code ..}.
+     */
+    static boolean isValidJobId(String jobId) {
+        if (jobId == null || jobId.isEmpty() || jobId.equals(".") || jobId.equals("..")
+                || jobId.indexOf('/') >= 0 || jobId.indexOf('\\') >= 0) {
+            return false;
+        }
+        try {
+            Path p = Paths.get(jobId);
+            return p.getRoot() == null && p.getNameCount() == 1;
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    // ---- Writer thread ----
+
+    /**
+     * Appends lines to a job's active segment, sealing it if that takes it to the segment size.
+     *
+     * @param jobId The job.
+     * @param bytes The lines, each ending with a newline.
+     * @return The line number of the first line appended, or -1 if the lines could not be written.
+     */
+    long append(String jobId, byte[] bytes) {
+        if (bytes.length == 0) return -1;
+        JobLog log = null;
+        try {
+            log = forWriting(jobId);
+            long first = log.activeFirstLine + log.activeLines;
+            long at = log.activeBytes;
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) at += log.channel.write(buf, at);
+
+            long lines = log.activeLines;
+            long base = log.activeBytes;
+            synchronized (log) {
+                for (int i = 0; i < bytes.length; i++) {
+                    if (bytes[i] != '\n') continue;
+                    if (++lines % INDEX_EVERY == 0) log.addMark(base + i + 1);
+                }
+                log.activeLines = lines;
+                log.activeBytes = at;
+            }
+            log.lastWrite = System.currentTimeMillis();
+            Waiters waiters = waiting.get(jobId);
+            if (waiters != null) {
+                synchronized (waiters) {
+                    waiters.appends++;
+                    waiters.notifyAll();
+                }
+            }
+            if (log.activeBytes >= SEGMENT_BYTES) seal(jobId, log);
+            return first;
+        } catch (IOException e) {
+            System.err.println("[ERROR] Could not write log of " + jobId + ": " + e.getMessage());
+            if (log != null) release(jobId, log);
+            return -1;
+        }
+    }
+
+    /**
+     * Seals a job's active segment, if it has one.
+     *
+     * @param jobId The job.
+     */
+    void seal(String jobId) {
+        try {
+            JobLog log = cached(jobId, true, false);
+            if (log != null) seal(jobId, log);
+        } catch (IOException e) {
+            System.err.println("[WARN] Could not seal log of " + jobId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Seals segments that went idle and deletes those past the retention limits.
+     */
+    void maintain() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, JobLog> e : new ArrayList<>(open.entrySet())) {
+            if (now - e.getValue().lastWrite >= SEAL_IDLE_MS) seal(e.getKey(), e.getValue());
+        }
+        if (!Files.isDirectory(dir)) return;
+
+        // Segments left active by a restart
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (Files.isDirectory(entry)) {
+                    if (open.containsKey(name)) continue;
+                    try (DirectoryStream<Path> files = Files.newDirectoryStream(entry, "*.log")) {
+                        for (Path f : files) {
+                            if (now - Files.getLastModifiedTime(f).toMillis() >= SEAL_IDLE_MS) {
+                                seal(name);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[WARN] Could not scan " + dir + ": " + e.getMessage());
+        }
+        applyRetention(now);
+    }
+
+    /**
+     * Closes the open segments. They stay active and are sealed once idle after the next start.
+     */
+    void close() {
+        for (Map.Entry<String, JobLog> e : new ArrayList<>(open.entrySet())) release(e.getKey(), e.getValue());
+    }
+
+    private JobLog forWriting(String jobId) throws IOException {
+        JobLog log = open.get(jobId);
+        if (log != null) return log;
+        if (open.size() >= OPEN_FILES) {
+            Map.Entry<String, JobLog> eldest = open.entrySet().iterator().next();
+            release(eldest.getKey(), eldest.getValue());
+        }
+        log = cached(jobId, true, true);
+        try {
+            synchronized (log) {
+                if (log.active == null) log.active = log.dir.resolve(segmentName(log.activeFirstLine) + ".log");
+            }
+            Files.createDirectories(log.dir);
+            // Not APPEND: writes go to activeBytes, over whatever a crash left after the last full line
+            log.channel = FileChannel.open(log.active, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            release(jobId, log);
+            throw e;
+        }
+        open.put(jobId, log);
+        return log;
+    }
+
+    // Closes a job's segment, if open, and lets the cache drop its log again
+    private void release(String jobId, JobLog log) {
+        if (log.channel != null) {
+            try {
+                log.channel.close();
+            } catch (IOException ignored) {}
+            log.channel = null;
+        }
+        open.remove(jobId, log);
+        synchronized (jobs) {
+            log.pinned = false;
+        }
+    }
+
+    private void seal(String jobId, JobLog log) {
+        Path active;
+        long first, lines, bytes;
+        synchronized (log) {
+            active = log.active;
+            first = log.activeFirstLine;
+            lines = log.activeLines;
+            bytes = log.activeBytes;
+        }
+        release(jobId, log);
+        if (active == null) return;
+        try {
+            if (lines == 0) {
+                Files.deleteIfExists(active);
+                synchronized (log) {
+                    log.resetActive(first);
+                }
+                return;
+            }
+            Path target = log.dir.resolve(segmentName(first) + ".seg");
+            Path tmp = log.dir.resolve(segmentName(first) + ".seg.tmp");
+            Segment segment;
+            try (FileChannel in = FileChannel.open(active, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                segment = writeSegment(in, bytes, first, target, out);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            synchronized (log) {
+                log.sealed.add(segment);
+                log.resetActive(first + segment.lines);
+            }
+            Files.deleteIfExists(active);
+        } catch (IOException e) {
+            System.err.println("[WARN] Could not seal log segment " + active + ": " + e.getMessage());
+        }
+    }
+
+    // Deflates the first `bytes` bytes of an active segment block by block, then writes the block index and trailer
+    private static Segment writeSegment(FileChannel in, long bytes, long firstLine, Path target, FileChannel out)
+            throws IOException {
+        List<long[]> blocks = new ArrayList<>();
+        Deflater deflater = new Deflater(COMPRESSION_LEVEL, true);
+        byte[] buf = new byte[BLOCK_BYTES];
+        long pos = 0, offset = 0, line = firstLine;
+        try {
+            while (pos < bytes) {
+                long end = blockEnd(in, pos, bytes);
+                MappedByteBuffer raw = in.map(FileChannel.MapMode.READ_ONLY, pos, end - pos);
+                long lines = countLines(raw);
+                deflater.reset();
+                deflater.setInput(raw);
+                deflater.finish();
+                long length = 0;
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buf);
+                    ByteBuffer chunk = ByteBuffer.wrap(buf, 0, n);
+                    while (chunk.hasRemaining()) out.write(chunk);
+                    length += n;
+                }
+                blocks.add(new long[]{line, offset, length, end - pos});
+                offset += length;
+                line += lines;
+                pos = end;
+            }
+        } finally {
+            deflater.end();
+        }
+        Segment segment = new Segment(target, firstLine, line - firstLine, blocks.size());
+        ByteBuffer index = ByteBuffer.allocate(blocks.size() * BLOCK_ENTRY_BYTES + TRAILER_BYTES);
+        for (int b = 0; b < blocks.size(); b++) {
+            long[] block = blocks.get(b);
+            segment.blockFirstLine[b] = block[0];
+            segment.blockOffset[b] = block[1];
+            segment.blockLength[b] = (int) block[2];
+            segment.blockRawLength[b] = (int) block[3];
+            index.putLong(block[0]).putLong(block[1]).putInt((int) block[2]).putInt((int) block[3]);
+        }
+        index.putLong(segment.lines).putInt(blocks.size()).putInt(MAGIC).flip();
+        while (index.hasRemaining()) out.write(index);
+        return segment;
+    }
+
+    // A block ends after the last newline within BLOCK_BYTES of its start, or after the first one if a line is longer
+    private static long blockEnd(FileChannel in, long pos, long bytes) throws IOException {
+        long limit = Math.min(bytes, pos + BLOCK_BYTES);
+        if (limit == bytes) return bytes;
+        MappedByteBuffer m = in.map(FileChannel.MapMode.READ_ONLY, pos, limit - pos);
+        for (int i = m.limit() - 1; i >= 0; i--) {
+            if (m.get(i) == '\n') return pos + i + 1;
+        }
+        for (long from = limit; from < bytes; from += WINDOW_BYTES) {
+            m = in.map(FileChannel.MapMode.READ_ONLY, from, Math.min(WINDOW_BYTES, bytes - from));
+            for (int i = 0; i < m.limit(); i++) {
+                if (m.get(i) == '\n') return from + i + 1;
+            }
+        }
+        return bytes;
+    }
+
+    private void applyRetention(long now) {
+        List<Path> files = new ArrayList<>();
+        Map<Path, Long> modified = new LinkedHashMap<>();
+        Map<Path, Long> sizes = new LinkedHashMap<>();
+        long total = 0;
+        try (DirectoryStream<Path> jobDirs = Files.newDirectoryStream(dir, Files::isDirectory)) {
+            for (Path jobDir : jobDirs) {
+                try (DirectoryStream<Path> segments = Files.newDirectoryStream(jobDir)) {
+                    for (Path f : segments) {
+                        String name = f.getFileName().toString();
+                        if (name.endsWith(".tmp")) {
+                            // Left by a seal that a restart cut short
+                            Files.deleteIfExists(f);
+                            continue;
+                        }
+                        if (!name.endsWith(".seg") && !name.endsWith(".log")) continue;
+                        // The segment a job is writing to is never deleted
+                        JobLog writing = open.get(jobDir.getFileName().toString());
+                        if (writing != null && f.equals(writing.active)) continue;
+                        files.add(f);
+                        modified.put(f, Files.getLastModifiedTime(f).toMillis());
+                        sizes.put(f, Files.size(f));
+                        total += sizes.get(f);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[WARN] Could not scan " + dir + " for retention: " + e.getMessage());
+            return;
+        }
+        files.sort(Comparator.comparing(modified::get));
+        int deleted = 0;
+        for (Path f : files) {
+            boolean expired = now - modified.get(f) > RETENTION_MS;
+            if (!expired && total <= RETENTION_BYTES) break;
+            if (delete(f)) {
+                total -= sizes.get(f);
+                deleted++;
+            }
+        }
+        if (deleted > 0) System.out.println("[INFO] Log retention deleted " + deleted + " segments");
+    }
+
+    private boolean delete(Path file) {
+        Path jobDir = file.getParent();
+        String jobId = jobDir.getFileName().toString();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("[WARN] Could not delete " + file + ": " + e.getMessage());
+            return false;
+        }
+        JobLog log;
+        synchronized (jobs) {
+            log = jobs.get(jobId);
+        }
+        if (log != null) {
+            synchronized (log) {
+                log.sealed.removeIf(s -> s.file.equals(file));
+                if (file.equals(log.active)) log.resetActive(log.activeFirstLine + log.activeLines);
+            }
+        }
+        try (DirectoryStream<Path> rest = Files.newDirectoryStream(jobDir)) {
+            if (!rest.iterator().hasNext()) Files.deleteIfExists(jobDir);
+        } catch (IOException ignored) {}
+        return true;
+    }
+
+    // ---- Any thread ----
+
+    /**
+     * Reads the last lines of a job's log.
+     *
+     * @param jobId The job.
+     * @param maxLines How many lines to return at most.
+     * @return The lines, oldest first; empty if the job has no log.
+     */
+    List<String> tail(String jobId, int maxLines) {
+        JobLog log = null;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                log = cached(jobId, false, false);
+                if (log == null || maxLines <= 0) return Collections.emptyList();
+                View view;
+                synchronized (log) {
+                    view = new View(log, false);
+                }
+                ArrayDeque<String> lines = new ArrayDeque<>();
+                if (view.activeBytes > 0) tailOfActive(view, maxLines, lines);
+                for (int s = view.sealed.size() - 1; s >= 0 && lines.size() < maxLines; s--) {
+                    tailOfSegment(view.sealed.get(s), maxLines, lines);
+                }
+                return new ArrayList<>(lines);
+            } catch (NoSuchFileException e) {
+                // Sealed or deleted under us; the next view no longer names it
+                if (attempt == 2) return Collections.emptyList();
+                invalidate(jobId, log);
+            } catch (IOException e) {
+                System.err.println("[WARN] Could not read log of " + jobId + ": " + e.getMessage());
+                return Collections.emptyList();
+            }
+        }
+    }
+
+    /**
+     * Reads a job's log from a given line on. A line that has been deleted by retention reads from the oldest line
+     * still kept.
+     *
+     * @param jobId The job.
+     * @param fromLine The number of the first line to read, counting from 0; a negative number counts back from the
+     *                 end, so -100 reads the last 100 lines.
+     * @param maxLines How many lines to return at most.
+     * @return The lines, and the number of the line after them.
+     */
+    Slice read(String jobId, long fromLine, int maxLines) {
+        JobLog log = null;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                log = cached(jobId, false, false);
+                if (log == null) return new Slice(Collections.emptyList(), Math.max(0, fromLine), Math.max(0, fromLine));
+                View view;
+                synchronized (log) {
+                    view = new View(log, true);
+                }
+                long from = (fromLine < 0) ? view.endLine() + fromLine : fromLine;
+                long start = Math.min(Math.max(from, view.firstLine()), view.endLine());
+                List<String> lines = new ArrayList<>();
+                long next = readSealed(view, start, maxLines, lines);
+                if (lines.size() < maxLines) {
+                    // The sealed segments are done with; lines before the active ones are gone
+                    next = Math.max(next, view.activeFirstLine);
+                    if (next < view.endLine()) next += readActive(view, next, maxLines, lines);
+                }
+                return new Slice(lines, start, next);
+            } catch (NoSuchFileException e) {
+                if (attempt == 2) return new Slice(Collections.emptyList(), fromLine, fromLine);
+                invalidate(jobId, log);
+            } catch (IOException e) {
+                System.err.println("[WARN] Could not read log of " + jobId + ": " + e.getMessage());
+                return new Slice(Collections.emptyList(), fromLine, fromLine);
+            }
+        }
+    }
+
+    /**
+     * Like {@link #read}, but if there are no lines from {@code fromLine} on yet, waits for the writer to append some.
+     *
+     * @param jobId The job.
+     * @param fromLine The number of the first line to read; negative counts back from the end.
+     * @param maxLines How many lines to return at most.
+     * @param waitMs How long to wait for new lines at most.
+     * @return The lines, possibly none if the wait ran out, and the number of the line after them.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    Slice follow(String jobId, long fromLine, int maxLines, long waitMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + waitMs;
+        Waiters waiters = waiting.compute(jobId, (k, w) -> {
+            if (w == null) w = new Waiters();
+            synchronized (w) {
+                w.count++;
+            }
+            return w;
+        });
+        try {
+            while (true) {
+                long seen;
+                synchronized (waiters) {
+                    seen = waiters.appends;
+                }
+                Slice slice = read(jobId, fromLine, maxLines);
+                long left = deadline - System.currentTimeMillis();
+                if (!slice.lines.isEmpty() || left <= 0) return slice;
+                // Keep the resolved position, so that a negative offset does not move with the lines that arrive
+                fromLine = slice.nextLine;
+                synchronized (waiters) {
+                    if (waiters.appends == seen) waiters.wait(left);
+                }
+            }
+        } finally {
+            waiting.computeIfPresent(jobId, (k, w) -> {
+                synchronized (w) {
+                    return --w.count == 0 ? null : w;
+                }
+            });
+        }
+    }
+
+    // The log of a job from the cache, or loaded from disk; null if the job has none and `create` is not set
+    private JobLog cached(String jobId, boolean pin, boolean create) throws IOException {
+        if (!isValidJobId(jobId)) {
+            if (create) throw new IOException("Invalid job ID");
+            return null;
+        }
+        synchronized (jobs) {
+            JobLog log = jobs.get(jobId);
+            if (log != null) {
+                if (pin) log.pinned = true;
+                return log;
+            }
+        }
+        JobLog loaded = load(jobId);
+        if (loaded == null && !create) return null;
+        if (loaded == null) loaded = new JobLog(dir.resolve(jobId));
+        synchronized (jobs) {
+            JobLog log = jobs.putIfAbsent(jobId, loaded);
+            if (log == null) log = loaded;
+            if (pin) log.pinned = true;
+            if (jobs.size() > CACHED_JOBS) {
+                Iterator<JobLog> it = jobs.values().iterator();
+                while (jobs.size() > CACHED_JOBS && it.hasNext()) {
+                    JobLog eldest = it.next();
+                    if (!eldest.pinned && eldest != log) it.remove();
+                }
+            }
+            return log;
+        }
+    }
+
+    // Drops a log from the cache that names a file which is gone, so the next read loads it afresh
+    private void invalidate(String jobId, JobLog log) {
+        if (log == null) return;
+        synchronized (jobs) {
+            if (!log.pinned) jobs.remove(jobId, log);
+        }
+    }
+
+    private JobLog load(String jobId) throws IOException {
+        Path jobDir = dir.resolve(jobId);
+        if (!Files.isDirectory(jobDir)) return null;
+
+        JobLog log = new JobLog(jobDir);
+        List<Path> active = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(jobDir)) {
+            for (Path f : files) {
+                String name = f.getFileName().toString();
+                if (name.endsWith(".seg")) {
+                    try {
+                        log.sealed.add(openSegment(f));
+                    } catch (IOException e) {
+                        System.err.println("[WARN] Skipping unreadable log segment " + f + ": " + e.getMessage());
+                    }
+                } else if (name.endsWith(".log")) {
+                    active.add(f);
+                }
+            }
+        }
+        log.sealed.sort(Comparator.comparingLong(s -> s.firstLine));
+        Segment last = log.sealed.isEmpty() ? null : log.sealed.get(log.sealed.size() - 1);
+        long next = (last == null) ? 0 : last.firstLine + last.lines;
+        log.activeFirstLine = next;
+        for (Path f : active) {
+            long first = firstLineOf(f);
+            // Sealed just before a restart: the segment is complete, the plain copy was about to go
+            if (first < next) continue;
+            log.active = f;
+            log.activeFirstLine = first;
+            scanActive(log);
+        }
+        return log;
+    }
+
+    // Counts the complete lines of a job's active segment and rebuilds its sparse index
+    private static void scanActive(JobLog log) throws IOException {
+        try (FileChannel ch = FileChannel.open(log.active, StandardOpenOption.READ)) {
+            long size = ch.size();
+            long lines = 0, lastEnd = 0;
+            for (long from = 0; from < size; from += WINDOW_BYTES) {
+                MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_ONLY, from, Math.min(WINDOW_BYTES, size - from));
+                for (int i = 0; i < m.limit(); i++) {
+                    if (m.get(i) != '\n') continue;
+                    lastEnd = from + i + 1;
+                    if (++lines % INDEX_EVERY == 0) log.addMark(lastEnd);
+                }
+            }
+            log.activeLines = lines;
+            log.activeBytes = lastEnd;
+        }
+    }
+
+    private static Segment openSegment(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size < TRAILER_BYTES) throw new IOException("too short for a segment");
+            MappedByteBuffer trailer = ch.map(FileChannel.MapMode.READ_ONLY, size - TRAILER_BYTES, TRAILER_BYTES);
+            long lines = trailer.getLong();
+            int blocks = trailer.getInt();
+            if (trailer.getInt() != MAGIC || blocks < 0 || (long) blocks * BLOCK_ENTRY_BYTES > size - TRAILER_BYTES) {
+                throw new IOException("bad segment trailer");
+            }
+            Segment segment = new Segment(file, firstLineOf(file), lines, blocks);
+            long at = size - TRAILER_BYTES - (long) blocks * BLOCK_ENTRY_BYTES;
+            MappedByteBuffer index = ch.map(FileChannel.MapMode.READ_ONLY, at, (long) blocks * BLOCK_ENTRY_BYTES);
+            for (int b = 0; b < blocks; b++) {
+                segment.blockFirstLine[b] = index.getLong();
+                segment.blockOffset[b] = index.getLong();
+                segment.blockLength[b] = index.getInt();
+                segment.blockRawLength[b] = index.getInt();
+            }
+            return segment;
+        }
+    }
+
+    // Adds the last lines of the active segment to the front of `lines`, scanning back from its end a window at a time
+    private static void tailOfActive(View view, int maxLines, ArrayDeque<String> lines) throws IOException {
+        try (FileChannel ch = FileChannel.open(view.active, StandardOpenOption.READ)) {
+            long end = view.activeBytes; // just past the newline of the last line not yet taken
+            int window = WINDOW_BYTES;
+            while (end > 0 && lines.size() < maxLines) {
+                long from = Math.max(0, end - window);
+                MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_ONLY, from, end - from);
+                int lineEnd = m.limit() - 1;
+                int i = lineEnd - 1;
+                for (; i >= 0 && lines.size() < maxLines; i--) {
+                    if (m.get(i) != '\n') continue;
+                    lines.addFirst(decode(m, i + 1, lineEnd));
+                    lineEnd = i;
+                }
+                if (lines.size() < maxLines && from == 0) {
+                    lines.addFirst(decode(m, 0, lineEnd));
+                    return;
+                }
+                if (from + lineEnd + 1 == end) {
+                    // A line longer than the window
+                    window *= 2;
+                } else {
+                    end = from + lineEnd + 1;
+                    window = WINDOW_BYTES;
+                }
+            }
+        }
+    }
+
+    private static void tailOfSegment(Segment segment, int maxLines, ArrayDeque<String> lines) throws IOException {
+        try (FileChannel ch = FileChannel.open(segment.file, StandardOpenOption.READ)) {
+            for (int b = segment.blockOffset.length - 1; b >= 0 && lines.size() < maxLines; b--) {
+                List<String> block = inflate(ch, segment, b);
+                for (int i = block.size() - 1; i >= 0 && lines.size() < maxLines; i--) lines.addFirst(block.get(i));
+            }
+        }
+    }
+
+    // Reads sealed lines from `line` on; returns the number of the line after the last one read
+    private static long readSealed(View view, long line, int maxLines, List<String> lines) throws IOException {
+        int s = 0;
+        while (s + 1 < view.sealed.size() && view.sealed.get(s + 1).firstLine <= line) s++;
+        for (; s < view.sealed.size() && lines.size() < maxLines; s++) {
+            Segment segment = view.sealed.get(s);
+            if (line >= segment.firstLine + segment.lines) continue;
+            line = Math.max(line, segment.firstLine);
+            int b = Arrays.binarySearch(segment.blockFirstLine, line);
+            if (b < 0) b = -b - 2;
+            try (FileChannel ch = FileChannel.open(segment.file, StandardOpenOption.READ)) {
+                for (; b < segment.blockOffset.length && lines.size() < maxLines; b++) {
+                    List<String> block = inflate(ch, segment, b);
+                    for (int i = (int) (line - segment.blockFirstLine[b]); i < block.size() && lines.size() < maxLines; i++) {
+                        lines.add(block.get(i));
+                        line++;
+                    }
+                }
+            }
+        }
+        return line;
+    }
+
+    // Reads active lines from `line` on, starting at the nearest index mark; returns how many it read
+    private static int readActive(View view, long line, int maxLines, List<String> lines) throws IOException {
+        long rel = line - view.activeFirstLine;
+        int mark = (int) (rel / INDEX_EVERY);
+        long skip = rel - (long) mark * INDEX_EVERY;
+        long pos = view.marks[mark];
+        int before = lines.size();
+        try (FileChannel ch = FileChannel.open(view.active, StandardOpenOption.READ)) {
+            int window = WINDOW_BYTES;
+            while (pos < view.activeBytes && lines.size() < maxLines) {
+                long to = Math.min(view.activeBytes, pos + window);
+                MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_ONLY, pos, to - pos);
+                int lineStart = 0;
+                for (int i = 0; i < m.limit() && lines.size() < maxLines; i++) {
+                    if (m.get(i) != '\n') continue;
+                    if (skip > 0) skip--; else lines.add(decode(m, lineStart, i));
+                    lineStart = i + 1;
+                }
+                if (lineStart == 0) {
+                    // A line longer than the window
+                    window *= 2;
+                } else {
+                    pos += lineStart;
+                    window = WINDOW_BYTES;
+                }
+            }
+        }
+        return lines.size() - before;
+    }
+
+    private static List<String> inflate(FileChannel ch, Segment s, int block) throws IOException {
+        byte[] raw = new byte[s.blockRawLength[block]];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(ch.map(FileChannel.MapMode.READ_ONLY, s.blockOffset[block], s.blockLength[block]));
+            int n = 0;
+            while (n < raw.length) {
+                int k = inflater.inflate(raw, n, raw.length - n);
+                if (k == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+                n += k;
+            }
+            if (n != raw.length) throw new IOException("truncated block " + block + " in " + s.file);
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt block " + block + " in " + s.file + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < raw.length; i++) {
+            if (raw[i] != '\n') continue;
+            lines.add(new String(raw, start, i - start, StandardCharsets.UTF_8));
+            start = i + 1;
+        }
+        return lines;
+    }
+
+    private static long countLines(MappedByteBuffer bytes) {
+        long lines = 0;
+        for (int i = 0; i < bytes.limit(); i++) {
+            if (bytes.get(i) == '\n') lines++;
+        }
+        return lines;
+    }
+
+    private static String decode(MappedByteBuffer m, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        m.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String segmentName(long firstLine) {
+        return String.format("%020d", firstLine);
+    }
+
+    private static long firstLineOf(Path segment) throws IOException {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.indexOf('.')));
+        } catch (RuntimeException e) {
+            throw new IOException("not a log segment: " + segment);
+        }
+    }
+}
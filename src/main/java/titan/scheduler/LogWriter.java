@@ -0,0 +1,241 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import titan.TitanConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes job log lines to the {@link LogStore} on a thread of its own.
+ * <p>
+ * Request handlers only queue the lines. The writer thread groups whatever is queued by job and appends each job's
+ * lines with a single call once {@code titan.logs.flush.bytes} are pending or the oldest pending line has waited
+ * {@code titan.logs.flush.ms}, then hands them to the {@link LogIndex} with their line numbers. Between writes it seals
+ * the segments of jobs that have {@linkplain #finish ended}, and once a minute it lets the store seal idle segments and
+ * apply retention.
+ * </p>
+ * At most {@code titan.logs.queue.lines} lines wait for the writer. When it falls that far behind, {@link #append}
+ * blocks the calling handler until there is room again, which slows down the workers sending the logs instead of
+ * growing the heap. A chunk or write that fails is logged and dropped, and its lines give their room back, so one bad
+ * write never leaves the handlers blocked. Should the writer thread die anyway, it closes the writer and wakes them.
+ */
+class LogWriter {
+    private static final int QUEUE_LINES = Math.max(1000, TitanConfig.getInt("titan.logs.queue.lines", 100000));
+    private static final int FLUSH_BYTES = Math.max(1024, TitanConfig.getInt("titan.logs.flush.bytes", 64 * 1024));
+    private static final long FLUSH_MS = Math.max(1, TitanConfig.getInt("titan.logs.flush.ms", 50));
+    private static final long MAINTAIN_MS = 60000;
+    private static final byte[] NEWLINE = {'\n'};
+
+    private static final class Chunk {
+        final String jobId;
+        final List<String> lines;
+        // Set on the chunk of a job that ended, whose segment is sealed after its lines are written
+        final boolean seal;
+        // Set on the chunk that asks the writer to write everything and stop
+        final boolean last;
+
+        Chunk(String jobId, List<String> lines, boolean seal, boolean last) {
+            this.jobId = jobId;
+            this.lines = lines;
+            this.seal = seal;
+            this.last = last;
+        }
+    }
+
+    private final LogStore store;
+    private final LogIndex index;
+    private final LinkedBlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+    // One permit per line that is queued or buffered and not yet written
+    private final Semaphore room = new Semaphore(QUEUE_LINES);
+    // Written only by the writer thread
+    private final Map<String, ByteArrayOutputStream> pending = new LinkedHashMap<>();
+    private final Set<String> toSeal = new LinkedHashSet<>();
+    private int pendingBytes;
+    private int pendingPermits;
+    private long oldestPendingAt;
+    private long nextMaintenance = System.currentTimeMillis() + MAINTAIN_MS;
+    private final Thread thread;
+    private volatile boolean closed;
+    // Set once the writer thread has exited, normally or not
+    private volatile boolean stopped;
+
+    LogWriter(LogStore store, LogIndex index) {
+        this.store = store;
+        this.index = index;
+        this.thread = new Thread(this::run, "titan-log-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a job's log lines for writing, blocking while the writer is {@code titan.logs.queue.lines} lines behind.
+     *
+     * @param jobId The job.
+     * @param lines The lines, without line terminators.
+     */
+    void append(String jobId, List<String> lines) {
+        if (lines.isEmpty() || closed) return;
+        int permits = Math.min(lines.size(), QUEUE_LINES);
+        room.acquireUninterruptibly(permits);
+        if (stopped) {
+            // Woken by a writer that stopped; nothing will write these lines or give their room back
+            room.release(permits);
+            return;
+        }
+        queue.add(new Chunk(jobId, lines, false, false));
+    }
+
+    /**
+     * Seals a job's active segment once the lines queued before this call are written.
+     *
+     * @param jobId The job that ended.
+     */
+    void finish(String jobId) {
+        if (closed) return;
+        queue.add(new Chunk(jobId, List.of(), true, false));
+    }
+
+    /**
+     * Writes out everything queued, closes the files and stops the writer thread and the index.
+     */
+    void shutdown() {
+        if (closed) return;
+        closed = true;
+        queue.add(new Chunk(null, List.of(), false, true));
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            writeLoop();
+        } finally {
+            // If the loop died, wake every handler waiting for room, however many, and drop their lines. At most
+            // QUEUE_LINES permits are ever available, so this cannot overflow the semaphore.
+            closed = true;
+            stopped = true;
+            room.release(Integer.MAX_VALUE - QUEUE_LINES);
+        }
+    }
+
+    private void writeLoop() {
+        List<Chunk> drained = new ArrayList<>();
+        while (true) {
+            Chunk first;
+            try {
+                long now = System.currentTimeMillis();
+                long wait = nextMaintenance - now;
+                if (hasPending()) wait = Math.min(wait, oldestPendingAt + FLUSH_MS - now);
+                first = queue.poll(Math.max(0, wait), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            boolean stop = false;
+            if (first != null) {
+                drained.add(first);
+                queue.drainTo(drained);
+                for (Chunk chunk : drained) {
+                    if (chunk.last) {
+                        stop = true;
+                    } else if (chunk.seal) {
+                        if (!hasPending()) oldestPendingAt = System.currentTimeMillis();
+                        toSeal.add(chunk.jobId);
+                    } else {
+                        try {
+                            buffer(chunk);
+                        } catch (RuntimeException e) {
+                            System.err.println("[ERROR] Could not buffer log of " + chunk.jobId + ": " + e);
+                            room.release(Math.min(chunk.lines.size(), QUEUE_LINES));
+                        }
+                        if (pendingBytes >= FLUSH_BYTES) writePending();
+                    }
+                }
+                drained.clear();
+            }
+            if (stop || (hasPending() && System.currentTimeMillis() - oldestPendingAt >= FLUSH_MS)) {
+                writePending();
+            }
+            if (stop) break;
+            if (System.currentTimeMillis() >= nextMaintenance) {
+                try {
+                    store.maintain();
+                } catch (RuntimeException e) {
+                    System.err.println("[ERROR] Log maintenance failed: " + e);
+                }
+                nextMaintenance = System.currentTimeMillis() + MAINTAIN_MS;
+            }
+        }
+        try {
+            store.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    private boolean hasPending() {
+        return !pending.isEmpty() || !toSeal.isEmpty();
+    }
+
+    private void buffer(Chunk chunk) {
+        if (!hasPending()) oldestPendingAt = System.currentTimeMillis();
+        ByteArrayOutputStream out = pending.computeIfAbsent(chunk.jobId, k -> new ByteArrayOutputStream(256));
+        int before = out.size();
+        for (String line : chunk.lines) {
+            out.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+            out.writeBytes(NEWLINE);
+        }
+        pendingBytes += out.size() - before;
+        pendingPermits += Math.min(chunk.lines.size(), QUEUE_LINES);
+    }
+
+    // The buffer is emptied and its permits released even when a job's write fails; only that job's lines are lost
+    private void writePending() {
+        for (Map.Entry<String, ByteArrayOutputStream> e : pending.entrySet()) {
+            try {
+                byte[] bytes = e.getValue().toByteArray();
+                long firstLine = store.append(e.getKey(), bytes);
+                if (firstLine >= 0) index.add(e.getKey(), firstLine, bytes);
+            } catch (RuntimeException ex) {
+                System.err.println("[ERROR] Could not write log of " + e.getKey() + ": " + ex);
+            }
+        }
+        pending.clear();
+        pendingBytes = 0;
+        room.release(pendingPermits);
+        pendingPermits = 0;
+        for (String jobId : toSeal) {
+            try {
+                store.seal(jobId);
+            } catch (RuntimeException e) {
+                System.err.println("[ERROR] Could not seal log of " + jobId + ": " + e);
+            }
+        }
+        toSeal.clear();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import titan.TitanConfig;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks deployments that have been started on a worker but are not serving yet.
+ * <p>
+ * Readiness is an event rather than something the dispatch thread sleeps on. A deployed {@code Worker.jar} is ready
+ * when it registers with the scheduler from the host it was deployed to ({@link #workerRegistered(String, int)}). Any other service is ready when its worker
+ * reports that the service port accepts connections ({@link #serviceReady(String)}). Workers that predate that report
+ * are covered by a slow probe of the port from the scheduler every {@code titan.deploy.probe.ms}.
+ * </p>
+ * A deployment that is not ready within {@code titan.deploy.ready.timeout.ms} of its service being started
+ * ({@link #started(String)}) fails, and so does one whose service exits first ({@link #serviceExited(String)}).
+ */
+class ReadinessTracker {
+    static final long READY_TIMEOUT_MS = Math.max(1000, TitanConfig.getInt("titan.deploy.ready.timeout.ms", 20000));
+    private static final long PROBE_INTERVAL_MS = Math.max(100, TitanConfig.getInt("titan.deploy.probe.ms", 1000));
+    private static final int PROBE_CONNECT_TIMEOUT_MS = 200;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "titan-readiness");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static class Pending {
+        final String host;
+        final int port;
+        final boolean workerJar;
+        final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+        Pending(String host, int port, boolean workerJar) {
+            this.host = host;
+            this.port = port;
+            this.workerJar = workerJar;
+        }
+    }
+
+    /**
+     * Starts waiting for a deployment. Call this before the start command is sent, so that a readiness signal
+     * arriving before the worker has answered is not missed. The deadline and the port probe only begin once the
+     * service has been started ({@link #started(String)}), so staging the artifact does not count against it.
+     *
+     * @param jobId The deploy job, which is also the service ID on the worker.
+     * @param host The worker host the service runs on.
+     * @param port The port the service will listen on.
+     * @param workerJar {@code true} if the deployment is a {@code Worker.jar}, which signals readiness by registering.
+     * @return A future completed when the deployment is ready, or completed exceptionally when it fails or times out.
+     */
+    CompletableFuture<Void> expect(String jobId, String host, int port, boolean workerJar) {
+        Pending p = new Pending(host, port, workerJar);
+        Pending previous = pending.put(jobId, p);
+        if (previous != null) previous.ready.cancel(false);
+        p.ready.whenComplete((v, e) -> pending.remove(jobId, p));
+        return p.ready;
+    }
+
+    /**
+     * Starts the readiness deadline of a deployment whose start command succeeded, and the port probe for services
+     * other than a {@code Worker.jar}.
+     *
+     * @param jobId The deploy job.
+     */
+    void started(String jobId) {
+        Pending p = pending.get(jobId);
+        if (p == null) return; // already ready, or failed
+
+        ScheduledFuture<?> deadline = timer.schedule(() -> fail(p, "Deployment Failed: port " + p.port
+                + " never became ready after " + READY_TIMEOUT_MS + "ms"), READY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> probe = p.workerJar ? null : timer.scheduleWithFixedDelay(() -> {
+            if (isListening(p.host, p.port)) complete(jobId, p, "port probe");
+        }, PROBE_INTERVAL_MS, PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        p.ready.whenComplete((v, e) -> {
+            deadline.cancel(false);
+            if (probe != null) probe.cancel(false);
+        });
+    }
+
+    /**
+     * Stops waiting for a deployment whose start command failed.
+     *
+     * @param jobId The deploy job.
+     */
+    void cancel(String jobId) {
+        Pending p = pending.remove(jobId);
+        if (p != null) p.ready.cancel(false);
+    }
+
+    /**
+     * Marks the {@code Worker.jar} deployments on a host and port as ready.
+     *
+     * @param host The host of the worker that just registered.
+     * @param port The port of the worker that just registered.
+     */
+    void workerRegistered(String host, int port) {
+        pending.forEach((jobId, p) -> {
+            if (p.workerJar && p.port == port && p.host.equals(host)) complete(jobId, p, "registration");
+        });
+    }
+
+    /**
+     * Marks a service deployment as ready.
+     *
+     * @param jobId The service ID reported by the worker.
+     * @return {@code true} if a deployment was waiting for it.
+     */
+    boolean serviceReady(String jobId) {
+        Pending p = pending.get(jobId);
+        return p != null && complete(jobId, p, "worker report");
+    }
+
+    /**
+     * Fails a service deployment whose process exited before it became ready.
+     *
+     * @param jobId The service ID reported by the worker.
+     */
+    void serviceExited(String jobId) {
+        Pending p = pending.get(jobId);
+        if (p != null) fail(p, "Deployment Failed: service " + jobId + " exited before port " + p.port + " became ready");
+    }
+
+    /**
+     * @return The number of deployments waiting to become ready.
+     */
+    int pendingCount() {
+        return pending.size();
+    }
+
+    void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private boolean complete(String jobId, Pending p, String signal) {
+        if (!p.ready.complete(null)) return false;
+        System.out.println("[OK] Deployment " + jobId + " ready on port " + p.port + " (" + signal + ")");
+        return true;
+    }
+
+    private void fail(Pending p, String reason) {
+        p.ready.completeExceptionally(new RuntimeException(reason));
+    }
+
+    private static boolean isListening(String host, int port) {
+        try (Socket s = new Socket()) {
+            s.connect(new InetSocketAddress(host, port), PROBE_CONNECT_TIMEOUT_MS);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
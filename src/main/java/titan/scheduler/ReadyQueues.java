@@ -0,0 +1,243 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.scheduler;
+
+import titan.TitanConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The scheduler's queue of jobs that are ready to run, split into one priority queue per required capability.
+ * <p>
+ * {@link #take()} returns the highest-priority job among the capabilities that are not parked. When the dispatch
+ * loop finds no free worker for a job, it {@linkplain #park parks} the job's capability: the job goes back to the head
+ * of its queue and that queue is skipped until {@link #wake(String)} reports that a worker with the capability freed a
+ * slot or registered. Jobs for other capabilities keep flowing in the meantime, and nothing sleeps on a timer.
+ * </p>
+ * To avoid losing a wake-up that happens while the dispatch loop is still looking for a worker, each queue counts its
+ * wake-ups. The loop reads the count with {@link #wakeups(String)} before it looks, and {@link #park} only parks if no
+ * wake-up happened since.
+ * <p>
+ * Each capability's queue is a {@link BucketQueue}: jobs of equal priority run in submission order, also across
+ * capabilities, and a job that has waited {@code titan.queue.aging.ms} moves up one priority level so it cannot starve.
+ * Within a priority, DAG jobs go by their {@linkplain Job#getRank() critical-path rank} first.
+ * </p>
+ */
+class ReadyQueues {
+    // Auto-scale jobs run at 10; anything submitted higher shares their bucket
+    static final int MAX_PRIORITY = 10;
+    static final long AGING_MS = Math.max(0, TitanConfig.getInt("titan.queue.aging.ms", 30000));
+
+    private final Function<Job, String> capabilityOf;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    // Guarded by lock
+    private final Map<String, Lane> lanes = new HashMap<>();
+    private int size;
+    private long arrivals;
+    // The last job handed out by take(), so that park() can put it back where it was
+    private BucketQueue.Entry<Job> lastTaken;
+
+    private class Lane {
+        final BucketQueue<Job> jobs = new BucketQueue<>(MAX_PRIORITY, AGING_MS, () -> arrivals++);
+        boolean parked;
+        long wakeups;
+    }
+
+    /**
+     * @param capabilityOf Returns the capability a job needs, which selects its queue.
+     */
+    ReadyQueues(Function<Job, String> capabilityOf) {
+        this.capabilityOf = capabilityOf;
+    }
+
+    /**
+     * Queues a job that is ready to run.
+     *
+     * @param job The job.
+     */
+    void add(Job job) {
+        String capability = capabilityOf.apply(job);
+        lock.lock();
+        try {
+            Lane lane = lanes.computeIfAbsent(capability, k -> new Lane());
+            lane.jobs.offer(job, job.getPriority(), job.getRank());
+            size++;
+            if (!lane.parked) notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the highest-priority job whose capability is not parked, waiting until there is one. Among
+     * jobs of the same priority, the DAG job with the longest critical path wins, and then the one submitted first.
+     *
+     * @return The job.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    Job take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                Lane best = null;
+                BucketQueue.Entry<Job> bestHead = null;
+                for (Lane lane : lanes.values()) {
+                    if (lane.parked) continue;
+                    BucketQueue.Entry<Job> head = lane.jobs.peekEntry();
+                    if (head == null) continue;
+                    if (bestHead == null || isBefore(head, bestHead)) {
+                        best = lane;
+                        bestHead = head;
+                    }
+                }
+                if (best != null) {
+                    size--;
+                    lastTaken = best.jobs.pollEntry();
+                    return lastTaken.item();
+                }
+                notEmpty.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Same order as within one BucketQueue: priority, then rank, then submission order
+    private static boolean isBefore(BucketQueue.Entry<Job> a, BucketQueue.Entry<Job> b) {
+        if (a.priority() != b.priority()) return a.priority() > b.priority();
+        if (a.rank() != b.rank()) return a.rank() > b.rank();
+        return a.sequence() < b.sequence();
+    }
+
+    /**
+     * @param capability The capability.
+     * @return The number of wake-ups of the capability's queue so far, to pass to {@link #park}.
+     */
+    long wakeups(String capability) {
+        lock.lock();
+        try {
+            Lane lane = lanes.get(capability);
+            return lane == null ? 0 : lane.wakeups;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts back a job that found no free worker and parks its capability until {@link #wake(String)}.
+     *
+     * @param job The job, which goes back to where it was in its queue if it is the one {@link #take()} last returned.
+     * @param capability The capability the job needs.
+     * @param seenWakeups The result of {@link #wakeups(String)} from before the search for a worker. If the queue was
+     *                    woken since, it is not parked and the job is retried at once.
+     */
+    void park(Job job, String capability, long seenWakeups) {
+        lock.lock();
+        try {
+            Lane lane = lanes.computeIfAbsent(capability, k -> new Lane());
+            if (lastTaken != null && lastTaken.item() == job) {
+                lane.jobs.putBack(lastTaken);
+            } else {
+                lane.jobs.offer(job, job.getPriority(), job.getRank());
+            }
+            lastTaken = null;
+            size++;
+            if (lane.wakeups == seenWakeups) {
+                lane.parked = true;
+            } else {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reports that a worker with the capability has a free slot, unparking the capability's queue.
+     *
+     * @param capability The capability.
+     */
+    void wake(String capability) {
+        lock.lock();
+        try {
+            Lane lane = lanes.get(capability);
+            if (lane == null) return;
+            lane.wakeups++;
+            if (lane.parked) {
+                lane.parked = false;
+                if (!lane.jobs.isEmpty()) notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every queued job that matches a condition.
+     *
+     * @param filter The condition.
+     * @return {@code true} if any job was removed.
+     */
+    boolean removeIf(Predicate<Job> filter) {
+        lock.lock();
+        try {
+            boolean removed = false;
+            for (Lane lane : lanes.values()) {
+                int count = lane.jobs.removeIf(filter);
+                if (count > 0) {
+                    size -= count;
+                    removed = true;
+                }
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of queued jobs, parked or not.
+     */
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of queued jobs whose capability is parked waiting for a free worker.
+     */
+    int parkedSize() {
+        lock.lock();
+        try {
+            int parked = 0;
+            for (Lane lane : lanes.values()) {
+                if (lane.parked) parked += lane.jobs.size();
+            }
+            return parked;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -17,17 +17,20 @@
 package titan.scheduler;
 
 import titan.filesys.AssetManager;
+import titan.network.ChunkedSender;
+import titan.network.FrameCompression;
 import titan.network.TitanProtocol;
 import titan.network.RpcClient;
+import titan.network.RpcWorkerServer;
 import titan.network.SchedulerServer;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.net.Socket;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.DelayQueue;
 import titan.TitanConfig;
+import titan.TitanExecutors;
 import titan.storage.TitanJRedisAdapter;
 
 /**
@@ -39,13 +42,23 @@ import titan.storage.TitanJRedisAdapter;
     private final WorkerRegistry workerRegistry;
     private final RpcClient schedulerClient;
 //    private final Queue<Job> taskQueue;
-    private final BlockingQueue<Job> taskQueue;
+    // Ready jobs, one priority queue per required capability
+    private final ReadyQueues taskQueue;
     private final BlockingQueue<ScheduledJob> waitingRoom;
     private final Queue<Job> deadLetterQueue;
+    // Their records stay in the execution history; the queue only keeps the most recent dead jobs
+    private static final int MAX_DEAD_LETTERS = Math.max(1, TitanConfig.getInt("titan.dlq.max.jobs", 1000));
+    private static final int LOG_FETCH_MAX_LINES = Math.max(1, TitanConfig.getInt("titan.logs.fetch.max.lines", 1000));
+    private static final int LOG_SEARCH_MAX_RESULTS = Math.max(1, TitanConfig.getInt("titan.logs.search.max.results", 1000));
     private final SchedulerServer schedulerServer;
 
     private final ScheduledExecutorService heartBeatExecutor;
     private final ExecutorService dispatchExecutor;
+    // Runs the worker RPCs of each dispatch off the dispatch loop, in order per worker
+    private final DispatchPipeline dispatchPipeline = new DispatchPipeline();
+    // Deployments started on a worker and waiting for their readiness signal, by deploy job ID
+    private final ReadinessTracker readiness = new ReadinessTracker();
+    private final Map<String, CompletableFuture<String>> pendingDeploys = new ConcurrentHashMap<>();
     private final ExecutorService serverExecutor;
     private volatile boolean isRunning = true;
     private int port;
@@ -57,8 +70,8 @@ import titan.storage.TitanJRedisAdapter;
     // JRedis config
     private final TitanJRedisAdapter redis;
 
-    // This is purely for validation purpose
-    private final Map<String, TaskExecution> executionHistory = new ConcurrentHashMap<>();
+    // Execution records by job ID; finished ones beyond the titan.history.* limits are spilled to disk
+    private final ExecutionHistoryStore executionHistory = new ExecutionHistoryStore();
     private final Map<String, Worker> liveServiceMap = new ConcurrentHashMap<>();
 
     // For history maintenance of (tasks all types).
@@ -68,6 +81,17 @@ import titan.storage.TitanJRedisAdapter;
     // Map to hold Active Job Objects for Async Retries
     private final Map<String, Job> runningJobs = new ConcurrentHashMap<>();
     private final Map<String, Job> dagWaitingRoom;
+    // Parent -> waiting children, so finishing a job only touches its own children
+    private final DagIndex dagIndex = new DagIndex();
+    // Smoothed run time of DAG jobs by job ID, which a resubmitted DAG is ranked by (see CriticalPath).
+    // Guarded by itself; the least recently used job is forgotten once MAX_DAG_DURATIONS are known.
+    private static final int MAX_DAG_DURATIONS = 10_000;
+    private final Map<String, Long> dagDurations = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_DAG_DURATIONS;
+        }
+    };
 
     // Job IDs that were explicitly cancelled by the user.  When a stale FAILED
     // callback arrives from the worker (after the process was killed), we discard
@@ -82,8 +106,13 @@ import titan.storage.TitanJRedisAdapter;
     private final Set<Integer> portBlacklist = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
     // This is related to log streaming
-    private final Map<String, List<String>> liveLogBuffer = new ConcurrentHashMap<>();
-    private static final int MAX_LOG_LINES = 100;
+    private final LiveLogBuffers liveLogs = new LiveLogBuffers();
+    private final LogStore logStore = new LogStore();
+    private final LogIndex logIndex = new LogIndex();
+    private final LogWriter logWriter = new LogWriter(logStore, logIndex);
+
+    // Workers that push load reports are declared dead after this long without one
+    private static final long WORKER_TIMEOUT_MS = TitanConfig.getInt("titan.worker.timeout.ms", 30000);
 
     /**
  * Constructs a new Scheduler instance, initializing its core components.
@@ -98,14 +127,16 @@ import titan.storage.TitanJRedisAdapter;
         workerRegistry = new WorkerRegistry();
         schedulerClient = new RpcClient(workerRegistry);
 //        this.taskQueue = new ConcurrentLinkedDeque<>();
-        this.taskQueue = new PriorityBlockingQueue<>();
+        this.taskQueue = new ReadyQueues(job -> job.getSpec().capability());
+        // Jobs parked for lack of capacity are woken when a matching worker frees a slot or registers
+        workerRegistry.setCapacityListener(taskQueue::wake);
         this.deadLetterQueue = new ConcurrentLinkedDeque<>();
         this.waitingRoom = new DelayQueue<>();
         this.dagWaitingRoom = new ConcurrentHashMap<>();
 
         this.port = port;
         this.heartBeatExecutor = Executors.newSingleThreadScheduledExecutor();
-        this.dispatchExecutor = Executors.newSingleThreadExecutor();
+        this.dispatchExecutor = TitanExecutors.newSingleThreadExecutor("titan-dispatch");
         this.serverExecutor = Executors.newSingleThreadExecutor();
 
         String rHost = TitanConfig.get("titan.redis.host", "localhost");
@@ -163,9 +194,10 @@ import titan.storage.TitanJRedisAdapter;
             }
         });
 
+        int heartBeatSeconds = Math.max(1, TitanConfig.getInt("titan.worker.heartbeat.interval", 10));
         heartBeatExecutor.scheduleAtFixedRate(
                 this::checkHeartBeat,
-                5, 10, TimeUnit.SECONDS
+                5, heartBeatSeconds, TimeUnit.SECONDS
         );
 
         dispatchExecutor.submit(() -> {
@@ -287,7 +319,7 @@ import titan.storage.TitanJRedisAdapter;
                     System.out.println("[SCALER] SCALE-DOWN: Worker " + idleTarget.port() + " is excess capacity. Removing.");
                     this.shutdownWorkerNode(idleTarget.host(), idleTarget.port());
                     // 2. Remove from local registry immediately
-                    workerRegistry.getWorkerMap().remove(idleTarget.host() + ":" + idleTarget.port());
+                    workerRegistry.markWorkerDead(idleTarget.host(), idleTarget.port());
                 }
             }
         } catch (Exception e) {
@@ -344,42 +376,105 @@ import titan.storage.TitanJRedisAdapter;
  * This method also updates Redis with the status of live workers.
  */
     public void checkHeartBeat(){
-        System.out.println("Sending Heartbeat");
+        long now = System.currentTimeMillis();
+        // Lets finished records age out of memory while no jobs end
+        executionHistory.trim();
+        int polled = 0;
         for(Worker worker: workerRegistry.getWorkers()){
+            if (worker.pushesLoad()) {
+                // Pushed load reports double as heartbeats: just age out workers that went silent.
+                if (now - worker.lastSeen() > WORKER_TIMEOUT_MS) {
+                    System.err.println("[HEARTBEAT] Worker " + worker.host() + ":" + worker.port() + " silent for "
+                            + (now - worker.lastSeen()) + "ms. Marking dead.");
+                    markWorkerDead(worker);
+                }
+                continue;
+            }
+
+            // Legacy workers are still polled, but without waiting on each other.
+            if (!worker.beginPoll()) continue; // previous poll still outstanding
+            polled++;
+            schedulerClient.sendRequestAsync(worker.host(), worker.port(), TitanProtocol.OP_HEARTBEAT, "")
+                    .whenComplete((result, error) -> {
+                        worker.endPoll();
+                        if (worker.pushesLoad()) return; // started pushing while the poll was in flight
+                        if (error != null || result == null) {
+                            markWorkerDead(worker);
+                        } else if (result.startsWith("PONG")) {
+                            String[] parts = result.split("\\|");
+                            applyLoad(worker, parts.length > 1 ? parts[1] : null, parts.length > 2 ? parts[2] : null);
+                        }
+                    });
+        }
+        if (polled > 0) System.out.println("Sending Heartbeat to " + polled + " polled workers");
+    }
+
+    private void markWorkerDead(Worker worker) {
+        workerRegistry.markWorkerDead(worker.host(), worker.port());
+        schedulerClient.closeConnections(worker.host(), worker.port());
+    }
+
+    /**
+ * Applies a load report pushed by a worker over its control channel ({@link TitanProtocol#OP_LOAD_REPORT}).
+ * It has the same effect as a successful heartbeat.
+ *
+ * @param host The address the report came from.
+ * @param payload The report, formatted as {@code port|activeJobs|maxCapacity}.
+ * @return "ACK_LOAD", or an error message if the payload is malformed or the worker is not registered.
+ */
+    public String handleLoadReport(String host, String payload) {
+        String[] parts = payload.split("\\|");
+        try {
+            Worker worker = workerRegistry.getWorkerMap().get(workerRegistry.getWorkerKey(host, Integer.parseInt(parts[0].trim())));
+            if (worker == null) return "ERROR: Unknown worker " + host + ":" + parts[0];
+            worker.markLoadReported();
+            applyLoad(worker, parts.length > 1 ? parts[1] : null, parts.length > 2 ? parts[2] : null);
+            return "ACK_LOAD";
+        } catch (NumberFormatException e) {
+            return "ERROR: Invalid load report " + payload;
+        }
+    }
 
-            String result = schedulerClient.sendRequest(
-                    worker.host(),
-                    worker.port(),
-                    TitanProtocol.OP_HEARTBEAT,
-                    ""
-            );
+    /**
+ * Handles a worker's report that a service it started is accepting connections ({@link TitanProtocol#OP_SERVICE_READY}).
+ * Completes the deploy job of that service if it is still waiting for readiness.
+ *
+ * @param payload The report, formatted as {@code serviceId|port}.
+ * @return "ACK_READY", or "ACK_READY_IGNORED" if no deployment was waiting for the service.
+ */
+    public String handleServiceReady(String payload) {
+        String serviceId = payload.split("\\|")[0];
+        return readiness.serviceReady(serviceId) ? "ACK_READY" : "ACK_READY_IGNORED";
+    }
 
-            if(result  == null){
-                workerRegistry.markWorkerDead(worker.host(), worker.port());
-            } else if(result.startsWith("PONG")){
-                String workerKey = worker.host() + ":" + worker.port();
+    /**
+ * Handles a service that stopped on its worker ({@link TitanProtocol#OP_UNREGISTER_SERVICE}). The service is removed
+ * from the live service map; if its deployment was still waiting for readiness, the deployment fails now instead of
+ * at its deadline.
+ *
+ * @param serviceId The ID of the service that stopped.
+ */
+    public void handleServiceStopped(String serviceId) {
+        liveServiceMap.remove(serviceId);
+        readiness.serviceExited(serviceId);
+    }
 
-                safeRedisSadd("system:live_workers", workerKey);
+    // Shared by heartbeat polling and pushed load reports.
+    private void applyLoad(Worker worker, String load, String maxCapacity) {
+        String workerKey = worker.host() + ":" + worker.port();
 
-                worker.updateLastSeen();
-                String[] parts = result.split("\\|");
-                if (parts.length > 1) {
-                    int load = Integer.parseInt(parts[1]);
-                    worker.setCurrentLoad(load);
+        safeRedisSadd("system:live_workers", workerKey);
 
-                    safeRedisSet("worker:" + workerKey + ":load", String.valueOf(worker.getCurrentLoad()));
+        worker.updateLastSeen();
+        if (load != null) {
+            worker.applyReportedLoad(Integer.parseInt(load.trim()));
 
-                    if(load > 0){
-                        System.out.println("Worker " + worker.port() + "Has load" + worker.getCurrentLoad());
-                    }
-                }
-                if (parts.length > 2) {
-                    int maxCapacity = Integer.parseInt(parts[2]);
-                    worker.setMaxCap(maxCapacity);
-                }
-                workerRegistry.updateLastSeen(worker.host(), worker.port());
-            }
+            safeRedisSet("worker:" + workerKey + ":load", String.valueOf(worker.getCurrentLoad()));
         }
+        if (maxCapacity != null) {
+            worker.setMaxCap(Integer.parseInt(maxCapacity.trim()));
+        }
+        workerRegistry.updateLastSeen(worker.host(), worker.port());
     }
 
     /**
@@ -402,7 +497,23 @@ import titan.storage.TitanJRedisAdapter;
  * @param isPermanent {@code true} if the worker is a permanent part of the cluster and should not be scaled down, {@code false} otherwise.
  */
     public synchronized void registerWorker(String host, int port, String capability, boolean isPermanent) {
-        this.workerRegistry.addWorker(host, port, capability, isPermanent);
+        registerWorker(host, port, capability, isPermanent, 1);
+    }
+
+    /**
+ * Registers a worker together with the {@link TitanProtocol} version negotiated during the handshake.
+ * Workers on v2 receive staged files and archives as raw bytes instead of Base64 text.
+ *
+ * @param host The hostname or IP address of the worker.
+ * @param port The port number of the worker.
+ * @param capability The capability of the worker.
+ * @param isPermanent Whether the worker is permanent.
+ * @param protocolVersion The negotiated protocol version.
+ */
+    public synchronized void registerWorker(String host, int port, String capability, boolean isPermanent, int protocolVersion) {
+        this.workerRegistry.addWorker(host, port, capability, isPermanent, protocolVersion);
+        // A deployed Worker.jar is ready once it registers
+        readiness.workerRegistered(host, port);
         this.scalingInProgress = false;
         this.portBlacklist.remove(port);
 
@@ -457,19 +568,76 @@ import titan.storage.TitanJRedisAdapter;
         safeRedisSadd("system:active_jobs", job.getId());
 
         System.out.println("[INFO] [DAG] Job " + job.getId() + " is waiting.");
+        admit(job, true);
+    }
+
+    /**
+ * Submits many jobs at once, as received in an {@code OP_SUBMIT_BATCH} frame. Each payload uses the same format as
+ * {@link #submitJob(String)}. The whole batch is written to Redis in one pipelined round trip before any of its
+ * jobs is queued, instead of five synchronous writes per job.
+ *
+ * @param jobPayloads The raw job payloads.
+ * @return The number of jobs accepted. Blank payloads are skipped.
+ */
+    public int submitJobs(List<String> jobPayloads) {
+        List<Job> jobs = new ArrayList<>(jobPayloads.size());
+        for (String jobPayload : jobPayloads) {
+            if (jobPayload == null || jobPayload.isBlank()) continue;
+            jobs.add(parseJob(jobPayload));
+        }
+        if (jobs.isEmpty()) return 0;
+
+        // Persist to Redis to act as WAL, as in submitJob(Job), but as one MSET and one SADD
+        String[] mset = new String[1 + jobs.size() * 8];
+        String[] sadd = new String[2 + jobs.size()];
+        mset[0] = "MSET";
+        sadd[0] = "SADD";
+        sadd[1] = "system:active_jobs";
+        int i = 1;
+        int j = 2;
+        for (Job job : jobs) {
+            mset[i++] = "job:" + job.getId() + ":payload";
+            mset[i++] = job.getPayload();
+            mset[i++] = "job:" + job.getId() + ":status";
+            mset[i++] = "PENDING";
+            mset[i++] = "job:" + job.getId() + ":priority";
+            mset[i++] = String.valueOf(job.getPriority());
+            mset[i++] = "job:" + job.getId() + ":delay";
+            mset[i++] = String.valueOf(job.getScheduledTime());
+            sadd[j++] = job.getId();
+        }
+        for (Object reply : redis.pipeline(List.of(mset, sadd))) {
+            if (reply instanceof String && ((String) reply).startsWith("RedisJava Error")) {
+                System.err.println("[WARN] Redis batch write failed: " + reply);
+            }
+        }
+
+        for (Job job : jobs) {
+            admit(job, false);
+        }
+        System.out.println("[INFO] Accepted batch of " + jobs.size() + " jobs");
+        return jobs.size();
+    }
+
+    // Places a persisted job in the DAG waiting room, the delay queue or the task queue.
+    private void admit(Job job, boolean verbose) {
+        // Parse the payload now, so dispatch never has to
+        job.getSpec();
         if (!job.isReady()) {
-            System.out.println("[INFO] Job " + job.getId() + " blocked by dependencies. Entering DAG Waiting Room.");
+            if (verbose) System.out.println("[INFO] Job " + job.getId() + " blocked by dependencies. Entering DAG Waiting Room.");
+            dagIndex.register(job);
             dagWaitingRoom.put(job.getId(), job);
-            return;
+            // If the last parent completed in between, unlockChildren() found the room empty and left the job to us
+            if (!job.isReady() || !dagWaitingRoom.remove(job.getId(), job)) return;
         }
 
         long delay = job.getScheduledTime() - System.currentTimeMillis();
         if(delay <=0){
             // Run the job now (Add to the queue, dispatcher will do the polling and execution)
-            System.out.println(" ** Queueing Job: " + job.getId());
+            if (verbose) System.out.println(" ** Queueing Job: " + job.getId());
             taskQueue.add(job);
         } else{
-            System.out.println("[INFO] Job Delayed: " + job.getId() + " for " + delay + "ms");
+            if (verbose) System.out.println("[INFO] Job Delayed: " + job.getId() + " for " + delay + "ms");
             waitingRoom.add(new ScheduledJob(job));
         }
     }
@@ -485,139 +653,46 @@ import titan.storage.TitanJRedisAdapter;
  */
     public void submitJob(String jobPayload) {
         System.out.println("** Scheduler received job: " + jobPayload);
+        submitJob(parseJob(jobPayload));
+    }
 
-        String temp = jobPayload.trim();
+    // Parses an OP_SUBMIT_JOB payload: [ID|]Payload[|Priority[|Delay]]
+    private Job parseJob(String jobPayload) {
+        String[] tokens = jobPayload.trim().split("\\|", -1);
         long delay = 0;
         int priority = 1;
 
-        // Parse DELAY from the Right ---
-        // We look for the last pipe. If the text after it is a number, we take it and remove it.
-        int lastPipe = temp.lastIndexOf('|');
-        if (lastPipe != -1) {
-            String suffix = temp.substring(lastPipe + 1);
-            try {
-                delay = Long.parseLong(suffix);
-                temp = temp.substring(0, lastPipe); // Chop off the delay
-            } catch (NumberFormatException e) {
-                // It wasn't a number (e.g. it was part of base64 data). We leave the string alone.
-            }
+        // Delay, then priority, from the right. After a command header only the tokens past its fixed fields can be
+        // metadata, so Base64 or arguments that look like a number are never taken for one.
+        int header = JobSpec.headerIndex(tokens);
+        int payloadEnd = (header == -1) ? 1 : header + 1 + JobSpec.fieldCount(tokens[header]);
+        int end = tokens.length;
+        if (end - 1 >= payloadEnd && isInteger(tokens[end - 1], 18)) {
+            delay = Long.parseLong(tokens[--end].trim());
         }
-
-        // Extract PRIORITY from the Right
-        // Repeat the process for the next item on the right.
-        lastPipe = temp.lastIndexOf('|');
-        if (lastPipe != -1) {
-            String suffix = temp.substring(lastPipe + 1);
-            try {
-                priority = Integer.parseInt(suffix);
-                temp = temp.substring(0, lastPipe);
-            } catch (NumberFormatException e) {
-                // ignore, no action
-            }
+        if (end - 1 >= payloadEnd && isInteger(tokens[end - 1], 9)) {
+            priority = Integer.parseInt(tokens[--end].trim());
         }
 
-        // 'temp' contains the ID and the Payload (Data, Req, etc.)
-        // Example: "JOB-101 | RUN_PAYLOAD | script.py | data | GPU"
-        // Identify and Separate ID (From the Left) ---
-        int firstPipe = temp.indexOf('|');
-        String potentialId = null;
-        String actualPayload = temp;
-
-        if (firstPipe != -1) {
-            String prefix = temp.substring(0, firstPipe);
-
-            // If it DOES NOT start with a command keyword, it must be a custom Job ID.
-            if (!prefix.startsWith("RUN_PAYLOAD") &&
-                    !prefix.startsWith("DEPLOY_PAYLOAD") &&
-                    !prefix.startsWith("START_ARCHIVE") &&
-                    !prefix.startsWith("RUN_ARCHIVE")) {
-
-                potentialId = prefix; // "JOB-101"
-                actualPayload = temp.substring(firstPipe + 1).trim(); // "RUN_PAYLOAD | script.py | data | GPU"
-            }
-        }
+        // If the first token is not a command keyword, it is a custom Job ID ("JOB-101|RUN_PAYLOAD|...")
+        int first = (header >= 1 || (header == -1 && end > 1)) ? 1 : 0;
+        String potentialId = (first == 1) ? tokens[0] : null;
+        String actualPayload = String.join("|", java.util.Arrays.asList(tokens).subList(first, end)).trim();
 
         Job job = new Job(actualPayload, priority, delay);
         if (potentialId != null) {
             job.setId(potentialId);
         }
-
-        submitJob(job);
+        return job;
     }
 
-    /**
- * Extracts the skill requirement (capability) from a job's payload.
- * This method parses the payload string to identify specific keywords or patterns
- * that indicate a worker capability needed for the job (e.g., "GPU", "GENERAL").
- * It handles various payload formats and metadata to accurately determine the skill.
- *
- * @param job The {@link Job} for which to extract the skill requirement.
- * @return A string representing the required skill (e.g., "GPU", "GENERAL"), defaulting to "GENERAL" if none is found.
- */
-    private String extractSkillRequirement(Job job) {
-        String payload = job.getPayload();
-        if (payload == null || payload.isEmpty()) return "GENERAL";
-
-        if (payload.contains("INTERNAL_SCALE")) {
-            return "GENERAL";
-        }
-
-        String[] parts = payload.split("\\|");
-        // 1. Trim everything
-        for (int i = 0; i < parts.length; i++) parts[i] = parts[i].trim();
-
-        // 2. FIND ANCHOR (Command Header)
-        int headerIndex = -1;
-        for (int i = 0; i < Math.min(parts.length, 3); i++) {
-            String p = parts[i];
-            if (p.equals("RUN_PAYLOAD") || p.equals("DEPLOY_PAYLOAD") ||
-                    p.equals("RUN_ARCHIVE") || p.equals("START_ARCHIVE_SERVICE")) {
-                headerIndex = i;
-                break;
-            }
-        }
-
-        if (headerIndex == -1) {
-            // Safety: If payload starts with ID, don't return ID as skill
-            if (parts.length > 0 && parts[0].equals(job.getId())) return "GENERAL";
-            return (parts.length > 0) ? parts[0] : "GENERAL";
-        }
-
-        // 3. SCAN BACKWARDS (Peel off Metadata)
-        int endIndex = parts.length - 1;
-
-        while (endIndex > headerIndex) {
-            String p = parts[endIndex];
-            boolean isMetadata = false;
-
-            // --- THE FIX: IGNORE JOB ID AT THE END ---
-            if (p.equals(job.getId())) isMetadata = true;
-
-                // Check standard metadata
-            else if (p.startsWith("[") && p.endsWith("]")) isMetadata = true; // Parents
-            else if (p.equals("AFFINITY")) isMetadata = true;            // Affinity Tag
-            else {
-                try {
-                    Long.parseLong(p); // Priority or Delay
-                    isMetadata = true;
-                } catch (NumberFormatException ignored) {}
-            }
-
-            if (isMetadata) {
-                endIndex--; // Skip this token
-            } else {
-                // We found a non-metadata string.
-                if (endIndex != headerIndex) {
-                    // Sanity Check
-                    if (p.length() < 20 && !p.isEmpty() && !p.endsWith("=")) {
-                        return p;
-                    }
-                }
-                break;
-            }
+    private static boolean isInteger(String token, int maxDigits) {
+        String t = token.trim();
+        if (t.isEmpty() || t.length() > maxDigits) return false;
+        for (int i = (t.charAt(0) == '-' && t.length() > 1) ? 1 : 0; i < t.length(); i++) {
+            if (!Character.isDigit(t.charAt(i))) return false;
         }
-
-        return "GENERAL";
+        return true;
     }
 
     /**
@@ -786,9 +861,12 @@ import titan.storage.TitanJRedisAdapter;
 
     /**
  * The main dispatch loop of the scheduler. This loop continuously polls the task queue for new jobs.
- * When a job is available, it determines the required skill, selects the best available worker,
- * dispatches the job to that worker, and handles the job's execution and potential failures.
- * If no suitable worker is found or all workers are saturated, the job is re-queued.
+ * When a job is available, it determines the required skill, selects the best available worker and reserves a slot
+ * on it. Selection and reservation happen only on this thread, so two jobs never race for the same slot.
+ * The RPC work of the dispatch is then handed to the {@link DispatchPipeline}, so the loop moves on to the next job
+ * without waiting for the worker (see {@link #dispatchToWorker}).
+ * If no suitable worker is found or all workers are saturated, the job is parked in its capability's ready queue
+ * until a matching worker frees a slot or registers; jobs needing other capabilities are not held up behind it.
  *
  * @throws InterruptedException If the dispatch loop thread is interrupted.
  */
@@ -796,100 +874,150 @@ import titan.storage.TitanJRedisAdapter;
         System.out.println("Running Dispatch Loop");
         while (isRunning) {
                 Job job = taskQueue.take();
+                long dequeuedAt = System.nanoTime();
                 System.out.println("DEBUG: Processing Job ID: " + job.getId());
                 job.setStatus(Job.Status.RUNNING);
 //                history.put(job.getId(), job.getStatus());
                 System.out.println(" Job Processing: " + job);
 
-                String reqTaskSkill = extractSkillRequirement(job);
+                String reqTaskSkill = job.getSpec().capability();
+                // Read before looking for a worker, so a slot freed while we look is not missed
+                long wakeups = taskQueue.wakeups(reqTaskSkill);
 
                 System.out.println("[DISPATCH] Job " + job.getId() + " requires: [" + reqTaskSkill + "]");
 
-                List<Worker> availableWorkers = workerRegistry.getWorkersByCapability(reqTaskSkill);
-
-                if (availableWorkers.isEmpty()) {
+                if (workerRegistry.workersWithCapability(reqTaskSkill).isEmpty()) {
                     if (!reqTaskSkill.equals("GENERAL")) {
                         System.out.println("[WAIT] No active workers found with capability: " + reqTaskSkill);
                     } else {
                         System.out.println("[WAIT] No GENERAL workers available.");
                     }
 
-                    // Re-queue the job to try again later (Backpressure)
+                    // Park the job until a worker with the capability registers (Backpressure)
                     job.setStatus(Job.Status.PENDING);
-                    taskQueue.add(job);
-                    Thread.sleep(2000);
+                    taskQueue.park(job, reqTaskSkill, wakeups);
                     continue;
                 }
 
-                Worker selectedWorker = selectBestWorker(job, availableWorkers);
+                Worker selectedWorker = selectBestWorker(job, reqTaskSkill);
 
                 if (selectedWorker == null) {
-                    System.out.println("All workers SATURATED or unavailable. Re-queueing job.");
+                    System.out.println("All " + reqTaskSkill + " workers SATURATED or unavailable. Parking job until one frees a slot.");
                     job.setStatus(Job.Status.PENDING);
-                    taskQueue.put(job); // Use put for blocking
-                    Thread.sleep(1000);
+                    taskQueue.park(job, reqTaskSkill, wakeups);
                     continue;
                 }
-                selectedWorker.incrementCurrentLoad();
+                selectedWorker.reserveSlot();
                 TaskExecution record = new TaskExecution(job.getId(), selectedWorker);
-                executionHistory.put(job.getId(), record);
+                executionHistory.put(record);
                 runningJobs.put(job.getId(), job);
 
-                safeRedisSet("job:" + job.getId() + ":status", "RUNNING");
-                safeRedisSet("job:" + job.getId() + ":worker", String.valueOf(selectedWorker.port()));
-
 //                Worker selectedWorker = availableWorkers.get(ThreadLocalRandom.current().nextInt(availableWorkers.size()));
                 System.out.println("[INFO] Dispatching " + job.getId() + " to Worker " + selectedWorker.port());
-                try{
-                        String response = executeJobRequest(job, selectedWorker);
-                        System.out.println("[OK] Job Finished: " + response);
-
-                        if("JOB_ACCEPTED".equals(response)){
-                            System.out.println("[ASYNC] Job " + job.getId() + " accepted by worker. Waiting for callback.");
-                        }else {
-                            System.out.println("[SYNC] Task finished immediately: " + response);
-                            completeJob(job, response, record);
-
-                            // NOTE: For Sync jobs (Deploy), we complete and decrement immediately here
-                            // because they don't trigger the handleJobCallback.
-                            selectedWorker.decrementCurrentLoad();
-                        }
-
-                } catch (Exception e){
-                    System.err.println("[FAIL] Job " + job.getId() + " Error: " + e.getMessage());
-                    record.fail(e.getMessage());
+                dispatchPipeline.submit(selectedWorker, () -> dispatchToWorker(job, selectedWorker, record, dequeuedAt));
+            }
+        }
 
-                    runningJobs.remove(job.getId());
+    /**
+ * Sends a reserved job to its worker and settles the outcome. Runs on the {@link DispatchPipeline}, after any
+ * earlier dispatches to the same worker. Asynchronous jobs are left for the worker's callback; synchronous ones
+ * (deploys) are completed here. On failure the reserved slot is released and the job is retried or failed.
+ *
+ * @param job The job to send.
+ * @param selectedWorker The worker the dispatch loop reserved a slot on.
+ * @param record The execution record created at reservation.
+ * @param dequeuedAt {@link System#nanoTime()} when the job left the task queue, for the latency histogram.
+ */
+    private void dispatchToWorker(Job job, Worker selectedWorker, TaskExecution record, long dequeuedAt) {
+        safeRedisSet("job:" + job.getId() + ":status", "RUNNING");
+        safeRedisSet("job:" + job.getId() + ":worker", String.valueOf(selectedWorker.port()));
 
-                    if (selectedWorker != null) {
-                        selectedWorker.currentJobId = null;
-                        selectedWorker.decrementCurrentLoad();
-                        String wKey = String.valueOf(selectedWorker.port());
-                        java.util.Deque<Job> errHist = workerRecentHistory.computeIfAbsent(wKey, k -> new java.util.concurrent.ConcurrentLinkedDeque<>());
-                        errHist.removeIf(j -> j.getId().equals(job.getId()));
-                        errHist.add(job);
-                        if (errHist.size() > 10) errHist.removeFirst();
+        try{
+            String response;
+            try {
+                response = executeJobRequest(job, selectedWorker);
+            } finally {
+                selectedWorker.reservationAnswered();
+            }
+            dispatchPipeline.recordLatency(dequeuedAt);
+
+            CompletableFuture<String> deployed = pendingDeploys.remove(job.getId());
+            if (deployed != null) {
+                // The service was started; the job completes when it is ready, without holding up this worker's lane.
+                System.out.println("[DEPLOY] Job " + job.getId() + " started (" + response + "). Waiting for readiness.");
+                deployed.whenComplete((result, err) -> dispatchPipeline.submit(selectedWorker, () -> {
+                    if (err == null) {
+                        finishDispatch(job, selectedWorker, record, result);
+                    } else {
+                        failDispatch(job, selectedWorker, record, err instanceof CompletionException && err.getCause() != null ? err.getCause() : err);
                     }
+                }));
+                return;
+            }
+            finishDispatch(job, selectedWorker, record, response);
+        } catch (Exception e){
+            dispatchPipeline.recordLatency(dequeuedAt);
+            failDispatch(job, selectedWorker, record, e);
+        }
+    }
 
-                    if (e.getMessage().contains("SATURATED")) {
-                        System.out.println("[WARN] Worker " + selectedWorker.port() + " is Saturated (Optimistic check failed). Penalizing.");
-                        selectedWorker.setCurrentLoad(99);
-                    }
+    private void finishDispatch(Job job, Worker selectedWorker, TaskExecution record, String response) {
+        System.out.println("[OK] Job Finished: " + response);
 
+        if("JOB_ACCEPTED".equals(response)){
+            System.out.println("[ASYNC] Job " + job.getId() + " accepted by worker. Waiting for callback.");
+        }else {
+            System.out.println("[SYNC] Task finished immediately: " + response);
+            completeJob(job, response, record);
 
-                    // We fail the job here and not give it retry if its a deployment issue
-                    if (e.getMessage().contains("ALREADY in use") || e.getMessage().contains("Deployment Rejected")) {
-                        System.err.println("[FAIL-FAST] Non-recoverable error. Cancelling retries.");
-                        job.setStatus(Job.Status.FAILED);
-                        // We do NOT call handleJobFailure(job) here, so it won't retry/become DEAD.
-                    } else{
-                        handleJobFailure(job);
-//                    history.put(job.getId(), job.getStatus());
-                    }
-                }
+            // NOTE: For Sync jobs (Deploy), we complete and decrement immediately here
+            // because they don't trigger the handleJobCallback.
+            selectedWorker.decrementCurrentLoad();
+        }
+    }
+
+    private void failDispatch(Job job, Worker selectedWorker, TaskExecution record, Throwable e) {
+        System.err.println("[FAIL] Job " + job.getId() + " Error: " + e.getMessage());
+        record.fail(e.getMessage());
+        retire(record);
+
+        runningJobs.remove(job.getId());
+
+        if (selectedWorker != null) {
+            selectedWorker.currentJobId = null;
+            selectedWorker.decrementCurrentLoad();
+            String wKey = String.valueOf(selectedWorker.port());
+            java.util.Deque<Job> errHist = workerRecentHistory.computeIfAbsent(wKey, k -> new java.util.concurrent.ConcurrentLinkedDeque<>());
+            errHist.removeIf(j -> j.getId().equals(job.getId()));
+            errHist.add(job);
+            if (errHist.size() > 10) errHist.removeFirst();
+        }
+
+        String error = String.valueOf(e.getMessage());
+        if (error.contains("SATURATED")) {
+            System.out.println("[WARN] Worker " + selectedWorker.port() + " is Saturated (Optimistic check failed). Penalizing.");
+            selectedWorker.setCurrentLoad(99);
+            // The worker never ran the job, so it goes back to the queue without using up a retry.
+            if (!cancelledJobs.contains(job.getId())) {
+                job.setStatus(Job.Status.PENDING);
+                safeRedisSet("job:" + job.getId() + ":status", "PENDING");
+                taskQueue.add(job);
             }
+            return;
         }
 
+
+        // We fail the job here and not give it retry if its a deployment issue
+        if (error.contains("ALREADY in use") || error.contains("Deployment Rejected")) {
+            System.err.println("[FAIL-FAST] Non-recoverable error. Cancelling retries.");
+            job.setStatus(Job.Status.FAILED);
+            // We do NOT call handleJobFailure(job) here, so it won't retry/become DEAD.
+        } else{
+            handleJobFailure(job);
+//                    history.put(job.getId(), job.getStatus());
+        }
+    }
+
     /**
  * Handles the failure of a job. Increments the job's retry count.
  * If the retry count exceeds a threshold (3 retries), the job is marked as DEAD, moved to the dead-letter queue,
@@ -910,7 +1038,7 @@ import titan.storage.TitanJRedisAdapter;
             return;
         }
 
-        TaskExecution record = executionHistory.get(job.getId());
+        TaskExecution record = executionHistory.live(job.getId());
         job.incrementRetry();
         if(job.getRetryCount() > 3) {
             job.setStatus(Job.Status.DEAD);
@@ -922,7 +1050,7 @@ import titan.storage.TitanJRedisAdapter;
             if (record != null) record.status = Job.Status.DEAD;
 //            history.put(job.getId(), Job.Status.DEAD);
             System.err.println("Job Moved to DLQ (Max Retries): " + job);
-            this.deadLetterQueue.offer(job);
+            addDeadLetter(job);
             cancelChildren(job.getId());
             // Surface DEAD in workerRecentHistory so the dashboard stats reflect the
             // failure.  Without this, the history only grows on completeJob(), leaving
@@ -943,7 +1071,7 @@ import titan.storage.TitanJRedisAdapter;
             safeRedisSet("job:" + job.getId() + ":status", "PENDING");
             // We leave the record as FAILED for now so history shows it failed
             //history.put(job.getId(), Job.Status.PENDING);
-            taskQueue.offer(job);
+            taskQueue.add(job);
         }
     }
 
@@ -973,7 +1101,10 @@ import titan.storage.TitanJRedisAdapter;
             ghostRecord.status = Job.Status.CANCELLED;
             ghostRecord.endTime = System.currentTimeMillis();
             ghostRecord.output  = "Cancelled by user";
-            executionHistory.put(jobId, ghostRecord);
+            executionHistory.put(ghostRecord);
+            retire(ghostRecord);
+            // Never dispatched, so no callback will come to clear the mark
+            cancelledJobs.remove(jobId);
             safeRedisSet("job:" + jobId + ":status", "CANCELLED");
             safeRedisSrem("system:active_jobs", jobId);
             cancelChildren(jobId);
@@ -983,11 +1114,12 @@ import titan.storage.TitanJRedisAdapter;
 
         // --- 3. Kill on worker if actively running ---
         Job runningJob = runningJobs.remove(jobId);
-        TaskExecution record = executionHistory.get(jobId);
+        TaskExecution record = executionHistory.live(jobId);
 
         if (record != null) {
             record.status  = Job.Status.CANCELLED;
             record.endTime = System.currentTimeMillis();
+            retire(record);
             if (record.assignedWorker != null) {
                 record.assignedWorker.currentJobId = null;
                 record.assignedWorker.decrementCurrentLoad();
@@ -1044,7 +1176,7 @@ import titan.storage.TitanJRedisAdapter;
             return;
         }
 
-        TaskExecution record = executionHistory.get(jobId);
+        TaskExecution record = executionHistory.live(jobId);
         Job job = runningJobs.remove(jobId);
 
         if(record != null){
@@ -1066,6 +1198,7 @@ import titan.storage.TitanJRedisAdapter;
             } else {
                 System.err.println("[ASYNC] [FAILED] Callback: Job " + jobId + " Failed.");
                 record.fail(result);
+                retire(record);
 
                 if (job != null) {
                     handleJobFailure(job);
@@ -1091,8 +1224,12 @@ import titan.storage.TitanJRedisAdapter;
  */
     private void completeJob(Job job, String result, TaskExecution record){
         record.complete(result);
+        retire(record);
+        recordDuration(job, record);
 
         if (job != null) {
+            // Deploys complete here rather than through a callback, so nothing else clears them
+            runningJobs.remove(job.getId());
             job.setStatus(Job.Status.COMPLETED);
             safeRedisSet("job:" + job.getId() + ":status", "COMPLETED");
             safeRedisSet("job:" + job.getId() + ":result", result);
@@ -1117,18 +1254,54 @@ import titan.storage.TitanJRedisAdapter;
         unlockChildren(job.getId());
     }
 
+    // The job's execution ended: its record and its live log may leave memory from now on
+    private void retire(TaskExecution record) {
+        executionHistory.retire(record);
+        liveLogs.finish(record.jobId);
+        logWriter.finish(record.jobId);
+    }
+
+    private void addDeadLetter(Job job) {
+        deadLetterQueue.offer(job);
+        while (deadLetterQueue.size() > MAX_DEAD_LETTERS) deadLetterQueue.poll();
+    }
+
+    // Recent runs weigh more, so a script that got slower is ranked by its new duration after a few runs
+    private void recordDuration(Job job, TaskExecution record) {
+        if (job == null || !job.getId().startsWith("DAG-") || record.startTime <= 0) return;
+        long duration = Math.max(0, record.endTime - record.startTime);
+        synchronized (dagDurations) {
+            dagDurations.merge(job.getId(), duration, (old, latest) -> (3 * old + latest) / 4);
+        }
+    }
+
     /**
- * Selects the most suitable worker for a given job from a list of available workers.
+ * Returns how long a DAG job took on its earlier runs, smoothed over runs, for ranking a DAG by its critical path.
+ *
+ * @param job The job.
+ * @return The expected duration in milliseconds, or -1 if the job has not completed before.
+ */
+    public long estimateDurationMs(Job job) {
+        Long duration;
+        synchronized (dagDurations) {
+            duration = dagDurations.get(job.getId());
+        }
+        return duration == null ? -1 : duration;
+    }
+
+    /**
+ * Selects the most suitable worker for a given job among the workers with the required capability.
  * Prioritizes workers with job affinity (sticky scheduling) if specified by the job.
- * Otherwise, it selects the least loaded worker that is not saturated.
+ * Otherwise, it selects the least loaded worker that is not saturated, which the {@link WorkerRegistry} keeps
+ * at the head of a load-ordered index, so no worker list is built or scanned.
  *
  * @param job The {@link Job} to be dispatched.
- * @param availableWorkers A list of {@link Worker} instances capable of executing the job.
+ * @param requiredSkill The capability the job needs.
  * @return The selected {@link Worker}, or {@code null} if no suitable worker is found.
  */
-    private Worker selectBestWorker(Job job, List<Worker> availableWorkers){
+    private Worker selectBestWorker(Job job, String requiredSkill){
         if(job.getPreferredWorkerId() != null){
-            for(Worker w: availableWorkers){
+            for(Worker w: workerRegistry.workersWithCapability(requiredSkill)){
                 if(String.valueOf(w.port()).equals(job.getPreferredWorkerId()) && !w.isSaturated()){
                     System.out.println("[AFFINITY] Sticky Scheduling: Routing Job " + job.getId() + " to Worker " + w.port());
                     return w;
@@ -1137,19 +1310,7 @@ import titan.storage.TitanJRedisAdapter;
         }
 
         // Get the least loaded worker
-        Worker bestWorker = null;
-        int minLoad = Integer.MAX_VALUE;
-        for(Worker worker: availableWorkers){
-            if(worker.isSaturated())
-                continue;
-
-            if(worker.getCurrentLoad() < minLoad){
-                minLoad = worker.getCurrentLoad();
-                bestWorker = worker;
-            }
-        }
-
-        return bestWorker;
+        return workerRegistry.leastLoadedWorker(requiredSkill);
     }
 
     /**
@@ -1166,20 +1327,18 @@ import titan.storage.TitanJRedisAdapter;
 
         if(!workerAlive) return;
 
-        for (Job waitingJob : dagWaitingRoom.values()) {
-            if (waitingJob.getDependenciesIds() != null && waitingJob.getDependenciesIds().contains(parentId)) {
-                if(waitingJob.isAffinityRequired()){
-                    if (waitingJob.getPreferredWorkerId() == null) {
-                        waitingJob.setPreferredWorkerId(workerPortId);
-                        System.out.println("[AFFINITY] Child " + waitingJob.getId() + " locked to Parent's Node: " + workerPortId);
-                    }
+        for (Job waitingJob : dagIndex.childrenOf(parentId)) {
+            if(waitingJob.isAffinityRequired()){
+                if (waitingJob.getPreferredWorkerId() == null) {
+                    waitingJob.setPreferredWorkerId(workerPortId);
+                    System.out.println("[AFFINITY] Child " + waitingJob.getId() + " locked to Parent's Node: " + workerPortId);
                 }
             }
         }
     }
 
     /**
- * Executes a job request on a specified worker based on the job's payload type.
+ * Executes a job request on a specified worker based on the kind of its {@link JobSpec}.
  * This method acts as a dispatcher for different types of job execution (standard, deploy, run one-off, archive).
  * It sets the worker's current job ID before execution.
  *
@@ -1189,40 +1348,20 @@ import titan.storage.TitanJRedisAdapter;
  * @throws Exception If an error occurs during job execution or communication with the worker.
  */
     private String executeJobRequest(Job job, Worker worker) throws Exception {
-        String rawPayload = job.getPayload();
-        String actualPayload = rawPayload;
+        JobSpec spec = job.getSpec();
         worker.currentJobId = job.getId();
 
-        boolean isSystemCommand = rawPayload.startsWith("DEPLOY_PAYLOAD") ||
-                rawPayload.startsWith("RUN_PAYLOAD");
-
-        if (rawPayload.contains("|")) {
-            String[] parts = rawPayload.split("\\|", 2);
-            String potentialCommand = parts[1];
-            // Add detection for ARCHIVE commands
-            if (potentialCommand.startsWith("RUN_ARCHIVE") ||
-                    potentialCommand.startsWith("START_ARCHIVE_SERVICE")) {
-                actualPayload = potentialCommand;
-            } else if (potentialCommand.startsWith("DEPLOY_PAYLOAD") ||
-                    potentialCommand.startsWith("RUN_PAYLOAD")) {
-                actualPayload = potentialCommand;
-            }
-        }
-
-//        System.out.println("[DEBUG] Dispatching Clean Payload: " + actualPayload);
-
-        if (actualPayload.startsWith("DEPLOY_PAYLOAD")) {
-            return executeDeploySequence(job, worker, actualPayload);
-        } else if (actualPayload.startsWith("RUN_PAYLOAD")) {
-            return executeRunOneOff(job, worker, actualPayload);
-        } else if (actualPayload.startsWith("RUN_ARCHIVE")) {
-            return executeRunArchive(job, worker, actualPayload);
-        }
-        else if (actualPayload.startsWith("START_ARCHIVE_SERVICE")) {
-            return executeServiceArchive(job, worker, actualPayload);
-        }
-        else {
-            return executeStandardTask(job, worker, actualPayload);
+        switch (spec.kind()) {
+            case DEPLOY:
+                return executeDeploySequence(job, worker, spec);
+            case RUN_SCRIPT:
+                return executeRunOneOff(job, worker, spec);
+            case RUN_ARCHIVE:
+                return executeRunArchive(job, worker, spec);
+            case SERVICE_ARCHIVE:
+                return executeServiceArchive(job, worker, spec);
+            default:
+                return executeStandardTask(job, worker, spec.command());
         }
     }
 
@@ -1244,54 +1383,39 @@ import titan.storage.TitanJRedisAdapter;
 
     /**
  * Executes a deployment sequence on a worker. This involves staging a file (e.g., a JAR or script)
- * and then starting it as a service on a specified port. It includes checks for port availability
- * and waits for the deployed service to become reachable.
+ * and then starting it as a service on a specified port. It includes checks for port availability.
  * Special handling is included for internal auto-scaling deployments.
+ * <p>
+ * When a port is given, the method does not wait for the service: it registers the deployment with the
+ * {@link ReadinessTracker} and leaves a future in {@code pendingDeploys} that completes with the success message once
+ * the service is ready (a {@code Worker.jar} registers, any other service is reported listening), or fails once
+ * {@code titan.deploy.ready.timeout.ms} have passed since the service was started.
+ * </p>
  *
  * @param job The {@link Job} representing the deployment.
  * @param worker The {@link Worker} on which to deploy.
- * @param payload The deployment payload, including filename, base64 content, and optional target port.
- * @return A success message including the PID if available.
- * @throws Exception If staging fails, starting the service fails, or the deployed service does not become reachable.
+ * @param spec The deployment: filename, base64 content or file reference, and optional target port.
+ * @return A success message including the PID if available, or {@code STARTED PID:<pid>} while the service is not
+ *         ready yet.
+ * @throws Exception If staging fails or starting the service fails.
  */
-    private String executeDeploySequence(Job job, Worker worker, String payload) throws Exception {
+    private String executeDeploySequence(Job job, Worker worker, JobSpec spec) throws Exception {
         try {
-//            String[] parts = payload.split("\\|", 4);
-            String[] parts = payload.split("\\|");
-
-            // Format: DEPLOY_PAYLOAD | filename | base64 | port | [DAG-ID]
-            // DAG-ID is only if its a DAG job
-            String filename = parts[1];
-            String base64Script = parts[2];
-
-            System.out.println("SCHEDULER LOGS::ARGS PASSED TO DEPLOY EXEC " + parts.length);
+            String filename = spec.file();
+            String base64Script = spec.artifact();
+            if (base64Script == null) throw new RuntimeException("Invalid Deploy Payload");
+            File localFile = localFileOf(base64Script);
 
             if("INTERNAL_SCALE".equals(base64Script)){
-                File localJar = new File("perm_files/Worker.jar");
-                if (!localJar.exists()) {
+                localFile = new File("perm_files/Worker.jar");
+                if (!localFile.exists()) {
                     throw new RuntimeException("Scaler Error: perm_files/Worker.jar not found on Master.");
                 }
-                byte[] fileContent = java.nio.file.Files.readAllBytes(localJar.toPath());
-                base64Script = Base64.getEncoder().encodeToString(fileContent);
             }
 
-            String portString = (parts.length > 3) ? parts[3] : null;
-            int targetPort = -1;
-            if (portString != null && !portString.isEmpty()) {
-                // If User explicitly provided a port, need to verify this
-                try {
-                    targetPort = Integer.parseInt(portString);
-                } catch (NumberFormatException e) {
-                    // It wasn't a number (it was likely the DAG-ID).
-                    // This means no port was provided. Default to 8085.
-                    targetPort = 8085;
-                    portString = "8085";
-                }
-            } else if (filename.contains("Worker.jar")) {
-                // It's a Worker, but no port provided -> Default to 8085
-                targetPort = 8085;
-                portString = "8085";
-            }
+            // A Worker.jar without a port already defaults to 8085 in the spec
+            int targetPort = spec.port();
+            String portString = (targetPort != -1) ? String.valueOf(targetPort) : null;
 
             if (targetPort != -1) {
                 System.out.println("[DEPLOY] Checking if port " + targetPort + " is free...");
@@ -1300,9 +1424,16 @@ import titan.storage.TitanJRedisAdapter;
                 }
             }
 
+            // Expect readiness before starting, so an early signal is not missed
+            boolean isWorkerJar = spec.isWorkerJar();
+            CompletableFuture<Void> ready = (targetPort != -1)
+                    ? readiness.expect(job.getId(), worker.host(), targetPort, isWorkerJar)
+                    : null;
+
             // Step 1: Stage
-            String stagePayload = filename + "|" + base64Script;
-            String stageResp = sendExecuteCommand(worker, TitanProtocol.OP_STAGE, stagePayload);
+            String stageResp = (localFile != null)
+                    ? stageFile(worker, filename, localFile)
+                    : stageFile(worker, filename, null, base64Script);
             if (!stageResp.contains("FILE_SAVED")) {
                 throw new RuntimeException("Staging failed. Expected FILE_SAVED, got: " + stageResp);
             }
@@ -1319,28 +1450,19 @@ import titan.storage.TitanJRedisAdapter;
 
             String pid = startResp.contains("PID:") ? startResp.split("PID:")[1].trim() : "UNKNOWN";
 
-            if (targetPort != -1) {
-                boolean alive = false;
-
-                // Try 10 times, once every 2 seconds
-                for (int i = 1; i <= 10; i++) {
-                    Thread.sleep(2000);
-                    if (isWorkerAlive(worker.host(), targetPort)) {
-                        alive = true;
-                        System.out.println("[OK] Worker port " + targetPort + " detected on attempt " + i);
-                        break;
-                    }
-                    System.out.println("[DEPLOY] Port " + targetPort + " not ready... (Attempt " + i + "/10)");
-                }
-
-                if (!alive) {
-                    // LOCK RESET:  before throwing exception
-                    if (job.getId().startsWith("WRK-")) {
-                        this.scalingInProgress = false;
+            if (ready != null) {
+                readiness.started(job.getId());
+                pendingDeploys.put(job.getId(), ready.handle((v, err) -> {
+                    if (err != null) {
+                        onDeployFailed(job);
+                        throw new CompletionException(err);
                     }
-                    throw new RuntimeException("Deployment Failed: Process started (PID " + pid + ") but port " + targetPort
-                            + " never became reachable after 20s.");
-                }
+                    // A Worker.jar that registered has already been promoted to a peer; it is not a service.
+                    if (!isWorkerJar) liveServiceMap.put(job.getId(), worker);
+                    worker.currentJobId = null;
+                    return "DEPLOYED_SUCCESS PID:" + pid;
+                }));
+                return "STARTED PID:" + pid;
             }
 
             liveServiceMap.put(job.getId(), worker);
@@ -1348,19 +1470,24 @@ import titan.storage.TitanJRedisAdapter;
             worker.currentJobId = null;
             return "DEPLOYED_SUCCESS PID:" + pid;
         } catch (Exception e) {
-            if (job.getId().startsWith("WRK-")) {
-                // Unlock the scaler so it can try a different port in the next cycle
-                this.scalingInProgress = false;
-                try {
-                    int failedPort = Integer.parseInt(job.getId().split("-")[1]);
-                    portBlacklist.add(failedPort);
-                    System.err.println("[SCALER] Blacklisting failed port: " + failedPort);
-                } catch (Exception ignore) {}
-            }
+            readiness.cancel(job.getId());
+            onDeployFailed(job);
             throw e;
         }
     }
 
+    private void onDeployFailed(Job job) {
+        if (job.getId().startsWith("WRK-")) {
+            // Unlock the scaler so it can try a different port in the next cycle
+            this.scalingInProgress = false;
+            try {
+                int failedPort = Integer.parseInt(job.getId().split("-")[1]);
+                portBlacklist.add(failedPort);
+                System.err.println("[SCALER] Blacklisting failed port: " + failedPort);
+            } catch (Exception ignore) {}
+        }
+    }
+
     /**
  * Checks if a worker is alive and reachable on a given host and port by attempting to open a socket connection.
  *
@@ -1383,41 +1510,23 @@ import titan.storage.TitanJRedisAdapter;
  *
  * @param job The {@link Job} representing the one-off execution.
  * @param worker The {@link Worker} on which to run the script.
- * @param payload The payload containing filename, optional arguments, and base64 script content.
+ * @param spec The script: filename, optional arguments, and base64 script content or file reference.
  * @return The response from the worker, typically indicating job acceptance.
  * @throws Exception If staging fails or the run command fails.
  */
-    private String executeRunOneOff(Job job, Worker worker, String payload) throws Exception {
-        String[] parts = payload.split("\\|");
+    private String executeRunOneOff(Job job, Worker worker, JobSpec spec) throws Exception {
+        if (spec.artifact() == null) throw new RuntimeException("Invalid Run Payload");
 
-        if(parts.length < 3) throw new RuntimeException("Invalid Run Payload");
-
-        String filename = parts[1];
-        String args = "";
-        String base64Script = "";
-
-//        if (parts[2].length() > 200) {
-//            base64Script = parts[2];
-//            args = "";
-//        }
-        if (parts.length >= 4) {
-            // Case 1 --> We have 4+ parts.
-            // Structure must be: HEADER | FILENAME | ARGS | CODE | [REQ]
-            args = parts[2];
-            base64Script = parts[3];
-        }
-        else {
-            // Case 2: We have exactly 3 parts.
-            // Structure must be: HEADER | FILENAME | CODE
-            // (Arguments are implied to be empty)
-            // Fallback for short scripts without args
-            args = "";
-            base64Script = parts[2];
-        }
+        String filename = spec.file();
+        String args = spec.args();
+        String base64Script = spec.artifact();
 
         // STEP 1: STAGE (Same as Deploy)
 //        String stageResp = sendExecuteCommand(worker, TitanProtocol.OP_DEPLOY, "STAGE_FILE|" + filename + "|" + base64Script);
-        String stageResp = sendExecuteCommand(worker, TitanProtocol.OP_STAGE, filename + "|" + base64Script);
+        File localFile = localFileOf(base64Script);
+        String stageResp = (localFile != null)
+                ? stageFile(worker, filename, localFile)
+                : stageFile(worker, filename, null, base64Script);
         if (!stageResp.contains("FILE_SAVED")) {
             throw new RuntimeException("Staging failed: " + stageResp);
         }
@@ -1436,15 +1545,25 @@ import titan.storage.TitanJRedisAdapter;
  *
  * @param job The {@link Job} to execute from an archive.
  * @param worker The {@link Worker} on which to run the archive job.
- * @param payload The payload containing the archive pointer (e.g., "zip_name.zip/entry.py").
+ * @param spec The archive job, whose file is the archive pointer (e.g., "zip_name.zip/entry.py").
  * @return The response from the worker.
  * @throws Exception If resolving the archive pointer fails or the execution command fails.
  */
-    private String executeRunArchive(Job job, Worker worker, String payload) throws Exception {
-        String [] parts = payload.split("\\|");
+    private String executeRunArchive(Job job, Worker worker, JobSpec spec) throws Exception {
+        String pointer = spec.file();
+
+        String staged = streamArchive(worker, pointer);
+        if (staged != null) {
+            System.out.println("[ARCHIVE] Dispatching Archive Job " + job.getId() + " (Zip: " + staged + ", streamed)");
+            return sendExecuteCommand(worker, TitanProtocol.OP_RUN_ARCHIVE, job.getId() + "|" + staged);
+        }
 
-        String pointer = parts[1];
-//        String args = (parts.length > 2) ? parts[2] : "";
+        if (worker.getProtocolVersion() >= TitanProtocol.PROTOCOL_V2) {
+            AssetManager.ArchiveInfo fileInfo = AssetManager.resolvePointerBytes(pointer);
+            System.out.println("[ARCHIVE] Dispatching Archive Job " + job.getId() + " (Zip: " + fileInfo.zipName + ", binary)");
+            return sendExecuteFields(worker, TitanProtocol.OP_RUN_ARCHIVE,
+                    utf8(job.getId()), utf8(fileInfo.entryPoint), fileInfo.content);
+        }
 
         AssetManager.ArchiveInfo fileInfo = AssetManager.resolvePointer(pointer);
 
@@ -1463,26 +1582,34 @@ import titan.storage.TitanJRedisAdapter;
  *
  * @param job The {@link Job} representing the archived service.
  * @param worker The {@link Worker} on which to start the service.
- * @param payload The payload containing the archive pointer, optional arguments, and target port.
+ * @param spec The archived service: archive pointer, optional arguments, and target port.
  * @return The response from the worker, typically indicating deployment success.
  * @throws Exception If resolving the archive pointer fails or the service start command fails.
  */
-    private String executeServiceArchive(Job job, Worker worker, String payload) throws Exception {
-        // Payload Format: START_ARCHIVE_SERVICE | zip_name.zip/entry.py | args | port
-        String[] parts = payload.split("\\|");
-
-        String pointer = parts[1];
-        String args = (parts.length > 2) ? parts[2] : "";
-        String port = (parts.length > 3) ? parts[3] : "8085";
-
-        AssetManager.ArchiveInfo fileInfo = AssetManager.resolvePointer(pointer);
-
-        // Worker Protocol for Service Archive: SERVICE_ID | ENTRY_FILE | PORT | BASE64_ZIP
-        String workerPayload = job.getId() + "|" + fileInfo.entryPoint + "|" + port + "|" + fileInfo.base64Content;
+    private String executeServiceArchive(Job job, Worker worker, JobSpec spec) throws Exception {
+        String pointer = spec.file();
+        String port = String.valueOf(spec.port());
 
         System.out.println("🚀 [ARCHIVE] Starting Service " + job.getId() + " on Port " + port);
 
-        String response = sendExecuteCommand(worker, TitanProtocol.OP_START_SERVICE_ARCHIVE, workerPayload);
+        String response;
+        String staged = streamArchive(worker, pointer);
+        if (staged != null) {
+            // staged is "entry|STAGED:zip"; the service payload puts the port between the two
+            String[] stagedParts = staged.split("\\|", 2);
+            response = sendExecuteCommand(worker, TitanProtocol.OP_START_SERVICE_ARCHIVE,
+                    job.getId() + "|" + stagedParts[0] + "|" + port + "|" + stagedParts[1]);
+        } else if (worker.getProtocolVersion() >= TitanProtocol.PROTOCOL_V2) {
+            AssetManager.ArchiveInfo fileInfo = AssetManager.resolvePointerBytes(pointer);
+            response = sendExecuteFields(worker, TitanProtocol.OP_START_SERVICE_ARCHIVE,
+                    utf8(job.getId()), utf8(fileInfo.entryPoint), utf8(port), fileInfo.content);
+        } else {
+            AssetManager.ArchiveInfo fileInfo = AssetManager.resolvePointer(pointer);
+
+            // Worker Protocol for Service Archive: SERVICE_ID | ENTRY_FILE | PORT | BASE64_ZIP
+            String workerPayload = job.getId() + "|" + fileInfo.entryPoint + "|" + port + "|" + fileInfo.base64Content;
+            response = sendExecuteCommand(worker, TitanProtocol.OP_START_SERVICE_ARCHIVE, workerPayload);
+        }
 
         if (response.contains("DEPLOYED_SUCCESS")) {
             liveServiceMap.put(job.getId(), worker);
@@ -1503,6 +1630,24 @@ import titan.storage.TitanJRedisAdapter;
  */
     private String sendExecuteCommand(Worker worker, byte opCode, String payload) throws Exception {
         String response = schedulerClient.sendRequest(worker.host(), worker.port(), opCode, payload);
+        return checkWorkerResponse(worker, response);
+    }
+
+    /**
+ * Binary counterpart of {@link #sendExecuteCommand(Worker, byte, String)} for workers on {@link TitanProtocol#PROTOCOL_V2}.
+ *
+ * @param worker The {@link Worker} to send the command to.
+ * @param opCode The operation code for the command.
+ * @param fields The length-prefixed fields of the v2 frame.
+ * @return The response string from the worker.
+ * @throws Exception If the response indicates an error or communication fails.
+ */
+    private String sendExecuteFields(Worker worker, byte opCode, byte[]... fields) throws Exception {
+        String response = schedulerClient.sendFields(worker.host(), worker.port(), opCode, fields);
+        return checkWorkerResponse(worker, response);
+    }
+
+    private String checkWorkerResponse(Worker worker, String response) {
         if (response == null || response.startsWith("ERROR") || response.startsWith("JOB_FAILED")) {
             System.err.println("[FAIL] Job Failed on Worker " + worker.port() + ": " + response);
             throw new RuntimeException("Worker Error: " + response);
@@ -1510,6 +1655,80 @@ import titan.storage.TitanJRedisAdapter;
         return response;
     }
 
+    /**
+ * Stages a file on a worker. Workers on {@link TitanProtocol#PROTOCOL_V2} receive the raw bytes; older workers get the
+ * v1 "filename|base64" payload. Either {@code rawContent} or {@code base64Content} must be given.
+ *
+ * @param worker The {@link Worker} to stage the file on.
+ * @param filename The name of the file on the worker.
+ * @param rawContent The file content, or {@code null} if only the Base64 form is at hand.
+ * @param base64Content The Base64 encoded file content, or {@code null} if {@code rawContent} is given.
+ * @return The response string from the worker.
+ * @throws Exception If staging fails.
+ */
+    private String stageFile(Worker worker, String filename, byte[] rawContent, String base64Content) throws Exception {
+        if (worker.getProtocolVersion() >= TitanProtocol.PROTOCOL_V2) {
+            byte[] content = (rawContent != null) ? rawContent : Base64.getDecoder().decode(base64Content);
+            return sendExecuteFields(worker, TitanProtocol.OP_STAGE, utf8(filename), content);
+        }
+        String base64 = (base64Content != null) ? base64Content : Base64.getEncoder().encodeToString(rawContent);
+        return sendExecuteCommand(worker, TitanProtocol.OP_STAGE, filename + "|" + base64);
+    }
+
+    /**
+ * Stages a file that is on the scheduler's disk. Files larger than {@link ChunkedSender#INLINE_MAX_BYTES} are
+ * streamed in chunks to workers on {@link TitanProtocol#PROTOCOL_V2}, so they are never held in memory here;
+ * everything else goes through {@link #stageFile(Worker, String, byte[], String)}.
+ *
+ * @param worker The {@link Worker} to stage the file on.
+ * @param filename The name of the file on the worker.
+ * @param file The local file.
+ * @return The response string from the worker, containing "FILE_SAVED" on success.
+ * @throws Exception If staging fails.
+ */
+    private String stageFile(Worker worker, String filename, File file) throws Exception {
+        if (worker.getProtocolVersion() >= TitanProtocol.PROTOCOL_V2 && file.length() > ChunkedSender.INLINE_MAX_BYTES) {
+            String response = ChunkedSender.sendFile(worker.host(), worker.port(), file, "workspace", filename);
+            if (response.startsWith("TRANSFER_COMPLETE")) {
+                return "FILE_SAVED: " + response.substring(response.indexOf('|') + 1);
+            }
+            System.err.println("[TRANSFER] Streaming " + filename + " failed (" + response + "), staging inline");
+        }
+        return stageFile(worker, filename, java.nio.file.Files.readAllBytes(file.toPath()), null);
+    }
+
+    /**
+ * Streams an archive to a worker ahead of the run command when it is too large to send inline.
+ *
+ * @param worker The {@link Worker} that will run the archive.
+ * @param pointer The archive pointer (e.g., "zip_name.zip/entry.py").
+ * @return {@code entry|STAGED:zipName} to put in the v1 archive payload, or {@code null} if the archive should be
+ *         sent inline (small archive, legacy worker, or the transfer failed).
+ * @throws IOException If the pointer cannot be resolved.
+ */
+    private String streamArchive(Worker worker, String pointer) throws IOException {
+        if (worker.getProtocolVersion() < TitanProtocol.PROTOCOL_V2) return null;
+        AssetManager.ArchiveInfo located = AssetManager.locate(pointer);
+        if (located.file.length() <= ChunkedSender.INLINE_MAX_BYTES) return null;
+
+        String response = ChunkedSender.sendFile(worker.host(), worker.port(), located.file, "workspace", located.zipName);
+        if (!response.startsWith("TRANSFER_COMPLETE")) {
+            System.err.println("[TRANSFER] Streaming " + located.zipName + " failed (" + response + "), sending inline");
+            return null;
+        }
+        return located.entryPoint + "|" + RpcWorkerServer.STAGED_PREFIX + located.zipName;
+    }
+
+    // Payloads built by SchedulerServer carry "PERM_FILE:<path>" instead of Base64 for files too large to inline.
+    private static File localFileOf(String base64Slot) {
+        if (base64Slot == null || !base64Slot.startsWith(SchedulerServer.PERM_FILE_PREFIX)) return null;
+        return new File(base64Slot.substring(SchedulerServer.PERM_FILE_PREFIX.length()));
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+
     /**
  * Stops a remote service identified by its service ID.
  * It looks up the worker hosting the service and sends a STOP command to that worker.
@@ -1591,42 +1810,44 @@ import titan.storage.TitanJRedisAdapter;
         } catch (Exception e) {
             System.err.println("[WARN] Worker might have died before receiving ACK: " + e.getMessage());
         }
-        workerRegistry.getWorkerMap().remove(targetWorker.host() + ":" + targetWorker.port());
+        workerRegistry.markWorkerDead(targetWorker.host(), targetWorker.port());
+        schedulerClient.closeConnections(targetWorker.host(), targetWorker.port());
         return "SUCCESS: Worker " + targetPort + " and " + servicesToStop.size() + " services shut down.";
     }
 
     /**
  * Unlocks child jobs that were dependent on a newly completed parent job.
- * It iterates through jobs in the DAG waiting room, resolves the dependency for the given parent ID,
+ * It takes the parent's children from the {@link DagIndex}, counts down each child's remaining dependencies,
  * and if all dependencies for a child job are met, it moves that child job to the active task queue.
  *
  * @param parentId The ID of the parent job that has just completed.
  */
     private void unlockChildren(String parentId){
-        for(Job waitingJob: dagWaitingRoom.values()){
-            if(waitingJob.getDependenciesIds()!=null && waitingJob.getDependenciesIds().contains(parentId)){
-                waitingJob.resolveDependencies(parentId);
-
-                if(waitingJob.isReady()){
-                    System.out.println("[INFO] DAG: All dependencies met for " + waitingJob.getId() + ". Moving to Active Queue.");
-                    dagWaitingRoom.remove(waitingJob.getId());
-                    submitJob(waitingJob);
-                }
+        for(Job waitingJob: dagIndex.release(parentId)){
+            // A child that is not in the room yet is queued by admit() itself
+            if(waitingJob.resolveDependency() && dagWaitingRoom.remove(waitingJob.getId(), waitingJob)){
+                System.out.println("[INFO] DAG: All dependencies met for " + waitingJob.getId() + ". Moving to Active Queue.");
+                submitJob(waitingJob);
             }
         }
     }
 
     /**
- * Recursively cancels child jobs whose parent job has failed.
+ * Cancels the jobs that depend on a failed parent job, breadth-first through the {@link DagIndex}.
  * When a parent job fails, all its direct and indirect dependent jobs are marked as DEAD
  * and moved to the dead-letter queue.
  *
  * @param failedParentId The ID of the parent job that failed.
  */
     public void cancelChildren(String failedParentId){
-        for(Job job: dagWaitingRoom.values()){
-            if(job.getDependenciesIds().contains(failedParentId)){
-                System.err.println("[ERROR] Cancelling Job " + job.getId() + " because parent " + failedParentId + " failed.");
+        java.util.Deque<String> failedParents = new java.util.ArrayDeque<>();
+        failedParents.add(failedParentId);
+        while (!failedParents.isEmpty()) {
+            String parentId = failedParents.poll();
+            for (Job job : dagIndex.release(parentId)) {
+                // Not waiting any more: cancelled by the user, or cancelled through another failed parent
+                if (!dagWaitingRoom.remove(job.getId(), job)) continue;
+                System.err.println("[ERROR] Cancelling Job " + job.getId() + " because parent " + parentId + " failed.");
 
                 job.setStatus(Job.Status.DEAD);
                 // Create a Ghost execution record so getJobStatus() returns DEAD
@@ -1634,68 +1855,49 @@ import titan.storage.TitanJRedisAdapter;
                 TaskExecution record = new TaskExecution(job.getId(), null);
                 record.status = Job.Status.DEAD;
                 record.endTime = System.currentTimeMillis(); // Died immediately
-                record.output = "Cancelled: Parent " + failedParentId + " failed";
+                record.output = "Cancelled: Parent " + parentId + " failed";
 
-                executionHistory.put(job.getId(), record);
+                executionHistory.put(record);
+                retire(record);
 
-                dagWaitingRoom.remove(job.getId());
-                this.deadLetterQueue.offer(job);
+                addDeadLetter(job);
                 // Remove any stale completed entry from workerRecentHistory so the
                 // dashboard defaults to WAITING (blue) for blocked downstream jobs
                 // rather than showing a stale COMPLETED from a previous run.
                 for (java.util.Deque<Job> hist : workerRecentHistory.values()) {
                     hist.removeIf(j -> j.getId().equals(job.getId()));
                 }
-                cancelChildren(job.getId());
+                failedParents.add(job.getId());
             }
         }
     }
 
     // Methods for sending the logs to stream to the UI
     /**
- * Streams a log line for a specific job. The log line is added to an in-memory buffer
- * for real-time retrieval and also appended to a persistent log file on disk.
- * The in-memory buffer maintains a maximum number of lines to prevent excessive memory usage.
+ * Streams a log line for a specific job. The log line is added to the job's ring of recent lines
+ * for real-time retrieval and queued for the {@link LogWriter}, which appends it to the job's log
+ * segments on disk in the background.
+ * The rings of all jobs share a fixed memory budget (see {@link LiveLogBuffers}).
  *
  * @param jobId The ID of the job to which the log line belongs.
  * @param line The log line to stream.
  */
     public void logStream(String jobId, String line) {
-        liveLogBuffer.computeIfAbsent(jobId, k -> Collections.synchronizedList(new LinkedList<>()));
-        List<String> logs = liveLogBuffer.get(jobId);
-
-        synchronized (logs) {
-            logs.add(line);
-            // Aggressively remove old logs from RAM
-            while (logs.size() > MAX_LOG_LINES) {
-                logs.remove(0);
-            }
-        }
-
-        appendLogToDisk(jobId, line);
+        liveLogs.append(jobId, line);
+        logWriter.append(jobId, List.of(line));
     }
 
     /**
- * Appends a log line to a job-specific log file on disk.
- * Log files are stored in the 'titan_server_logs' directory.
+ * Streams a batch of log lines for a specific job, as sent by {@code OP_LOG_BATCH}. The lines go to the
+ * job's ring of recent lines one by one, and to the {@link LogWriter} as a single entry, which writes them
+ * to the job's log segments in 'titan_server_logs' with one call.
  *
- * @param jobId The ID of the job.
- * @param line The log line to append.
+ * @param jobId The ID of the job to which the log lines belong.
+ * @param lines The log lines, oldest first.
  */
-    private void appendLogToDisk(String jobId, String line) {
-        File directory = new File("titan_server_logs");
-        if (!directory.exists()) {
-            boolean created = directory.mkdirs(); // Force create the directory
-            if (created) System.out.println("[INFO] Created log directory: titan_server_logs");
-        }
-
-        File logFile = new File(directory, jobId + ".log");
-
-        try (FileWriter fw = new FileWriter("titan_server_logs/" + jobId + ".log", true)) {
-            fw.write(line + "\n");
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public void logBatch(String jobId, List<String> lines) {
+        for (String line : lines) liveLogs.append(jobId, line);
+        logWriter.append(jobId, lines);
     }
 
     // Helper method for the UI to retrieve the logs
@@ -1711,25 +1913,71 @@ import titan.storage.TitanJRedisAdapter;
 //    }
 
         /**
- * Retrieves a snapshot of the recent log lines for a given job from the in-memory buffer.
- * This method returns a copy of the log list to prevent {@link ConcurrentModificationException}s.
+ * Retrieves a snapshot of the recent log lines for a given job from its in-memory ring, without blocking
+ * the connection that is appending to it. If the ring was evicted to stay within the memory budget, the
+ * last lines are read from the job's log segments on disk instead (see {@link LogStore}).
  *
  * @param jobId The ID of the job whose logs are to be retrieved.
  * @return A {@link List} of strings, each representing a log line for the specified job.
  */
     public List<String> getLogs(String jobId) {
-        List<String> logs = liveLogBuffer.get(jobId);
+        List<String> logs = liveLogs.snapshot(jobId);
+        if (!logs.isEmpty()) return logs;
+        return logStore.tail(jobId, LiveLogBuffers.LINES);
+    }
 
-        if (logs == null) {
-            return new ArrayList<>();
+    /**
+ * Reads a job's log from a line offset on, for clients that poll for new lines instead of fetching
+ * the whole log every time ({@code OP_GET_LOGS_SINCE}). Lines are numbered from 0 in the order the
+ * job logged them. Only lines the {@link LogWriter} has written are visible, which happens at most
+ * {@code titan.logs.flush.ms} after they arrive.
+ *
+ * @param jobId The ID of the job whose logs are to be read.
+ * @param fromLine The first line to return; a negative number counts back from the end, so -100 starts
+ *                 with the last 100 lines.
+ * @param waitMs If there are no lines from {@code fromLine} on yet, how long to wait for some; 0 returns at once.
+ * @return {@code <firstLine>|<nextLine>|<lines>}: the number of the first line returned, which is later than
+ *         {@code fromLine} if older lines were deleted, the offset to ask for next, then the
+ *         {@code nextLine - firstLine} lines, at most {@code titan.logs.fetch.max.lines}, separated by newlines.
+ */
+    public String getLogsSince(String jobId, long fromLine, long waitMs) {
+        LogStore.Slice slice;
+        if (waitMs > 0) {
+            try {
+                slice = logStore.follow(jobId, fromLine, LOG_FETCH_MAX_LINES, waitMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                slice = logStore.read(jobId, fromLine, LOG_FETCH_MAX_LINES);
+            }
+        } else {
+            slice = logStore.read(jobId, fromLine, LOG_FETCH_MAX_LINES);
         }
+        return slice.firstLine + "|" + slice.nextLine + "|" + String.join("\n", slice.lines);
+    }
 
-        // Return a COPY or Snapshot
-        // This prevents ConcurrentModificationException when the UI loops over the logs
-        // while the worker is simultaneously adding new ones.
-        synchronized (logs) {
-            return new ArrayList<>(logs);
+    /**
+ * Finds the log lines that contain all the words of a query, through the {@link LogIndex} rather than by
+ * reading the logs ({@code OP_SEARCH_LOGS}). Words are matched whole and case-insensitively; punctuation
+ * separates them, so {@code "exit code 137"} and {@code "exit-code=137"} find the same lines.
+ *
+ * @param query The words to look for.
+ * @param jobPrefix Only search jobs whose ID starts with this, such as {@code "DAG-"}; empty for all jobs.
+ * @param fromMs Only lines logged at or after this time, in epoch milliseconds; 0 for no limit.
+ * @param toMs Only lines logged at or before this time, in epoch milliseconds; 0 for no limit.
+ * @param limit The most matches to return, up to {@code titan.logs.search.max.results}; 0 for 100.
+ * @return One {@code jobId|line|timeMs} per matching line, newest first, separated by newlines. {@code line}
+ *         is the offset to pass to {@link #getLogsSince} to read it. Empty if nothing matched.
+ */
+    public String searchLogs(String query, String jobPrefix, long fromMs, long toMs, int limit) {
+        List<String> terms = LogIndex.terms(query);
+        if (terms.isEmpty()) return "ERROR: No Search Terms";
+        int max = limit <= 0 ? 100 : Math.min(limit, LOG_SEARCH_MAX_RESULTS);
+        StringBuilder sb = new StringBuilder();
+        for (LogIndex.Hit hit : logIndex.search(terms, jobPrefix, fromMs, toMs, max)) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(hit.jobId).append('|').append(hit.line).append('|').append(hit.time);
         }
+        return sb.toString();
     }
 
     /**
@@ -1745,10 +1993,19 @@ import titan.storage.TitanJRedisAdapter;
 //        System.out.println("Active Workers: " + activeCount);
         sb.append("\n--- TITAN SYSTEM MONITOR ---\n");
         sb.append(String.format("Active Workers:    %d\n", workerRegistry.getWorkerMap().size()));
-        sb.append(String.format("Execution Queue:   %d jobs\n", taskQueue.size()));
+        sb.append(String.format("Execution Queue:   %d jobs (%d parked waiting for a free worker)\n", taskQueue.size(), taskQueue.parkedSize()));
         sb.append(String.format("Delayed (Time):    %d jobs\n", waitingRoom.size()));
         sb.append(String.format("Blocked (DAG):     %d jobs\n", dagWaitingRoom.size()));
         sb.append(String.format("Dead Letter (DLQ): %d jobs\n", deadLetterQueue.size()));
+        if (schedulerServer != null) {
+            sb.append(String.format("Server:            %s\n", schedulerServer.getServerStats()));
+        }
+        sb.append(String.format("Dispatch Latency:  %s | %d deploys awaiting readiness\n", dispatchPipeline.getLatencyStats(), readiness.pendingCount()));
+        sb.append(String.format("Log Index:         %s\n", logIndex.getStats()));
+        sb.append("Compression (per OpCode):\n");
+        for (String line : FrameCompression.getStats().split("\n")) {
+            sb.append("  ").append(line).append("\n");
+        }
         sb.append("-------------------------------\n");
 
         // Optional: List active workers and their current load
@@ -1797,6 +2054,8 @@ import titan.storage.TitanJRedisAdapter;
 
         json.append("\"active_workers\": ").append(safeWorkerList.size()).append(",");
         json.append("\"queue_size\": ").append(taskQueue.size()).append(",");
+        json.append("\"parked_jobs\": ").append(taskQueue.parkedSize()).append(",");
+        json.append("\"dispatch_latency_ms\": {").append(dispatchPipeline.getHistogramJSON()).append("},");
         json.append("\"workers\": [");
 
         // Get the collection from your registry
@@ -1820,7 +2079,7 @@ import titan.storage.TitanJRedisAdapter;
             boolean hasRunningJob = false;
 
             if (w.currentJobId != null) {
-                TaskExecution activeExec = executionHistory.get(w.currentJobId);
+                TaskExecution activeExec = executionHistory.live(w.currentJobId);
                 if (activeExec != null) {
                     long duration = System.currentTimeMillis() - activeExec.startTime;
                     json.append(String.format("{\"id\": \"%s\", \"status\": \"RUNNING\", \"time\": \"%dms\"}",
@@ -1891,10 +2150,8 @@ import titan.storage.TitanJRedisAdapter;
  * @return The {@link Job.Status} of the job, or {@link Job.Status#PENDING} if the job is not found in execution history.
  */
     public Job.Status getJobStatus(String id) {
-        if (executionHistory.containsKey(id)) {
-            return executionHistory.get(id).status;
-        }
-        return Job.Status.PENDING;
+        TaskExecution record = executionHistory.get(id);
+        return record != null ? record.status : Job.Status.PENDING;
     }
 
     /**
@@ -1910,6 +2167,11 @@ import titan.storage.TitanJRedisAdapter;
             serverExecutor.shutdownNow();
             heartBeatExecutor.shutdownNow();
             dispatchExecutor.shutdownNow();
+            dispatchPipeline.shutdown();
+            readiness.shutdown();
+            executionHistory.shutdown();
+            logWriter.shutdown();
+            schedulerClient.shutdown();
         }
     }
 }
@@ -49,6 +49,14 @@ package titan.scheduler;
  * For example, "RESULT: 5050" for a successful completion or an error log for a failure.
  */
     String output; // To store "RESULT: 5050" or error logs
+    /**
+ * Set once the execution has ended and the {@link ExecutionHistoryStore} counts it towards its retention limits.
+ */
+    boolean retired;
+    /**
+ * The estimated heap footprint of this record when it was retired, in bytes.
+ */
+    int retainedBytes;
 
     /**
  * Constructs a new {@code TaskExecution} instance, initializing it for a running task.
@@ -42,7 +42,7 @@ import java.util.List;
  * The timestamp (in milliseconds) when this worker was last seen or updated.
  * Used for liveness checks and identifying stale workers.
  */
-    private long lastSeen;
+    private volatile long lastSeen;
     /**
  * The current number of jobs or tasks actively being processed by this worker.
  */
@@ -74,6 +74,34 @@ import java.util.List;
  * dynamically provisioned worker. Permanent workers might have different lifecycle management.
  */
     private boolean isPermanent;
+    /**
+ * The {@link titan.network.TitanProtocol} version negotiated with this worker at registration.
+ * Workers that do not announce a version speak v1 (string payloads only).
+ */
+    private volatile int protocolVersion = 1;
+
+    /**
+ * Time of the last load report the worker pushed, or {@code 0} if it has never pushed one and must be polled.
+ */
+    private volatile long lastLoadReport = 0;
+
+    /**
+ * Slots the scheduler reserved on this worker for dispatches the worker has not answered yet. The worker does not
+ * know about these jobs, so its load reports leave them out. Guarded by this worker's monitor.
+ */
+    private int unacknowledged;
+
+    /**
+ * Set while a heartbeat poll to this worker is outstanding, so a hung worker is not polled again on every tick.
+ */
+    private final java.util.concurrent.atomic.AtomicBoolean pollInFlight = new java.util.concurrent.atomic.AtomicBoolean();
+
+    /**
+ * The capability index of the registry this worker belongs to, told about every load change; {@code null} once the
+ * worker has been removed. Guarded by this worker's monitor, like {@link #indexEntry}.
+ */
+    private CapabilityIndex index;
+    CapabilityIndex.Entry indexEntry;
 
 
     /**
@@ -104,6 +132,55 @@ import java.util.List;
         this.lastSeen = System.currentTimeMillis();
     }
 
+    /**
+ * Records a pushed load report. From then on the scheduler relies on the worker's reports instead of polling it.
+ */
+    public void markLoadReported() {
+        this.lastLoadReport = System.currentTimeMillis();
+    }
+
+    /**
+ * Returns whether this worker pushes its load to the scheduler.
+ *
+ * @return {@code true} once a load report has been received from the worker.
+ */
+    public boolean pushesLoad() {
+        return lastLoadReport > 0;
+    }
+
+    /**
+ * Claims the right to send a heartbeat poll to this worker.
+ *
+ * @return {@code true} if no other poll is outstanding; the caller must then call {@link #endPoll()} when it completes.
+ */
+    public boolean beginPoll() {
+        return pollInFlight.compareAndSet(false, true);
+    }
+
+    /**
+ * Marks the outstanding heartbeat poll as completed.
+ */
+    public void endPoll() {
+        pollInFlight.set(false);
+    }
+
+    /**
+ * Marks the worker as permanent. Permanence is sticky: a worker is never made ephemeral again.
+ */
+    public synchronized void markPermanent() {
+        this.isPermanent = true;
+    }
+
+    // Called by CapabilityIndex with this worker's monitor held.
+    void attach(CapabilityIndex index) {
+        this.index = index;
+        index.update(this);
+    }
+
+    void detach() {
+        this.index = null;
+    }
+
     /**
  * Checks if this worker is designated as a permanent worker.
  *
@@ -113,6 +190,24 @@ import java.util.List;
         return isPermanent;
     }
 
+    /**
+ * Returns the protocol version negotiated with this worker.
+ *
+ * @return {@code 1} for legacy workers, {@code 2} if the worker accepts binary v2 frames.
+ */
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    /**
+ * Records the protocol version negotiated with this worker at registration.
+ *
+ * @param protocolVersion The negotiated version.
+ */
+    public void setProtocolVersion(int protocolVersion) {
+        this.protocolVersion = protocolVersion;
+    }
+
     /**
  * Sets the current load of the worker.
  * If the load becomes 0, it records the {@link #idleStartTime}.
@@ -131,6 +226,7 @@ import java.util.List;
             // Reset this once it gets a work immediately.
             this.idleStartTime = -1;
         }
+        if (index != null) index.update(this);
     }
 
     /**
@@ -141,6 +237,7 @@ import java.util.List;
  */
     public synchronized void setMaxCap(int maxCap){
         this.maxCap = maxCap;
+        if (index != null) index.update(this);
     }
 
     /**
@@ -181,6 +278,34 @@ import java.util.List;
  */
     synchronized public void incrementCurrentLoad(){
         this.currentLoad++;
+        if (index != null) index.update(this);
+    }
+
+    /**
+ * Reserves a slot for a job that is about to be dispatched to this worker. The slot counts towards the load until
+ * the worker answers the dispatch ({@link #reservationAnswered()}) and its own reports include the job.
+ */
+    public synchronized void reserveSlot() {
+        unacknowledged++;
+        incrementCurrentLoad();
+    }
+
+    /**
+ * Records that the worker answered a dispatch reserved with {@link #reserveSlot()}, whether it took the job or not.
+ * The slot itself is released by the caller as before.
+ */
+    public synchronized void reservationAnswered() {
+        if (unacknowledged > 0) unacknowledged--;
+    }
+
+    /**
+ * Applies a load the worker reported, adding the slots reserved for dispatches it has not answered yet, so that a
+ * report sent before those jobs arrived does not free their slots.
+ *
+ * @param reported The number of active jobs the worker reported.
+ */
+    public synchronized void applyReportedLoad(int reported) {
+        setCurrentLoad(reported + unacknowledged);
     }
 
     /**
@@ -196,6 +321,7 @@ import java.util.List;
         if (this.currentLoad == 0) {
             this.idleStartTime = System.currentTimeMillis();
         }
+        if (index != null) index.update(this);
     }
 
     /**
@@ -18,13 +18,15 @@ package titan.scheduler;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /**
  * A central registry for managing {@link Worker} instances within the Titan scheduler system.
  * This class provides mechanisms to add, retrieve, update, and remove workers,
  * facilitating the discovery and management of available processing capabilities.
- * It uses a {@link ConcurrentHashMap} to ensure thread-safe operations.
+ * It uses a {@link ConcurrentHashMap} to ensure thread-safe operations, and a {@link CapabilityIndex} that keeps the
+ * workers of each capability ordered by load, so the dispatch loop finds the least loaded one without scanning.
  */
     public class WorkerRegistry {
     /**
@@ -33,6 +35,8 @@ import java.util.stream.Collectors;
  */
     private final Map<String, Worker> workerMap;
 
+    private final CapabilityIndex capabilityIndex = new CapabilityIndex();
+
     /**
  * Constructs a new {@code WorkerRegistry} and initializes the internal worker map.
  */
@@ -41,13 +45,13 @@ import java.util.stream.Collectors;
     }
 
     /**
- * Returns the underlying map of workers. This map is a live view of the registry's state.
- * Modifications to the returned map will directly affect the registry.
+ * Returns the underlying map of workers. This map is a live, read-only view of the registry's state;
+ * workers are removed with {@link #markWorkerDead(String, int)} so that the capability index stays in step.
  *
  * @return A {@link Map} where keys are worker identifiers (host:port) and values are {@link Worker} objects.
  */
     public Map<String, Worker> getWorkerMap(){
-        return this.workerMap;
+        return Collections.unmodifiableMap(this.workerMap);
     }
 
     /**
@@ -75,24 +79,42 @@ import java.util.stream.Collectors;
  *                    {@code false} otherwise. Once a worker is marked permanent, it remains permanent.
  */
     public void addWorker(String host, int port, String capability, boolean isPermanent){
+        addWorker(host, port, capability, isPermanent, 1);
+    }
+
+    /**
+ * Adds or updates a worker, recording the protocol version negotiated at registration.
+ *
+ * @param host The hostname or IP address of the worker.
+ * @param port The port number the worker is listening on.
+ * @param capability A specific skill or capability that the worker possesses.
+ * @param isPermanent {@code true} if the worker should be considered permanent.
+ * @param protocolVersion The {@link titan.network.TitanProtocol} version negotiated with the worker.
+ * @see #addWorker(String, int, String, boolean)
+ */
+    public void addWorker(String host, int port, String capability, boolean isPermanent, int protocolVersion){
         String key = generateKey(host, port);
         workerMap.compute(key, (k, existingWorker) -> {
-           long now = System.currentTimeMillis();
-           List<String> newCapabilities = new ArrayList<>();
-           if(existingWorker != null){
-               newCapabilities.addAll(existingWorker.capabilities());
-           }
-
-           if(!newCapabilities.contains(capability)){
-               newCapabilities.add(capability);
-           }
-
-            boolean finalPermanentStatus = isPermanent;
-            if (existingWorker != null && existingWorker.isPermanent()) {
-                finalPermanentStatus = true; // Once permanent, stays permanent (safer)
+            if (existingWorker == null) {
+                List<String> capabilities = new CopyOnWriteArrayList<>();
+                capabilities.add(capability);
+                Worker created = new Worker(host, port, capabilities, isPermanent);
+                created.setProtocolVersion(protocolVersion);
+                capabilityIndex.add(created);
+                return created;
             }
 
-           return new Worker(host, port, newCapabilities, finalPermanentStatus);
+            // Re-registration (e.g. the periodic one) updates the worker in place, so its load and the
+            // dispatches holding a reference to it stay valid.
+            if (!existingWorker.capabilities().contains(capability)) {
+                existingWorker.capabilities().add(capability);
+            }
+            if (isPermanent) {
+                existingWorker.markPermanent(); // Once permanent, stays permanent (safer)
+            }
+            existingWorker.setProtocolVersion(protocolVersion);
+            capabilityIndex.add(existingWorker);
+            return existingWorker;
         });
     }
 
@@ -155,9 +177,38 @@ import java.util.stream.Collectors;
  *         Returns an empty list if no workers with the capability are found.
  */
     public List<Worker> getWorkersByCapability(String requiredSkill){
-        return getWorkers().stream()
-                .filter(k -> k.capabilities().contains(requiredSkill))
-                .collect(Collectors.toList());
+        return new ArrayList<>(capabilityIndex.workersWith(requiredSkill));
+    }
+
+    /**
+ * Returns a live, read-only view of the workers that possess a capability, without copying them.
+ *
+ * @param requiredSkill The capability string to filter workers by.
+ * @return The workers with the capability, saturated or not.
+ */
+    public Set<Worker> workersWithCapability(String requiredSkill){
+        return capabilityIndex.workersWith(requiredSkill);
+    }
+
+    /**
+ * Finds the least loaded worker with a capability that still has a free slot. Ties go to the worker whose load
+ * changed least recently. Runs in O(log N) and allocates nothing.
+ *
+ * @param requiredSkill The capability the job needs.
+ * @return The worker, or {@code null} if every worker with the capability is saturated or there is none.
+ */
+    public Worker leastLoadedWorker(String requiredSkill){
+        return capabilityIndex.leastLoaded(requiredSkill);
+    }
+
+    /**
+ * Registers a callback for when a worker with a capability gains a free slot: it registers, finishes a job,
+ * or reports a lower load. The scheduler uses it to wake jobs parked for lack of capacity.
+ *
+ * @param listener Receives the capability. It is called while the worker is locked and must return quickly.
+ */
+    public void setCapacityListener(Consumer<String> listener){
+        capabilityIndex.setCapacityListener(listener);
     }
 
     /**
@@ -167,6 +218,9 @@ import java.util.stream.Collectors;
  * @param port The port number of the worker to remove.
  */
     private void removeWorker(String host, int port){
-        workerMap.remove(generateKey(host, port));
+        workerMap.computeIfPresent(generateKey(host, port), (k, worker) -> {
+            capabilityIndex.remove(worker);
+            return null;
+        });
     }
 }
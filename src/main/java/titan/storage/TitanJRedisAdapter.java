@@ -13,6 +13,7 @@
  */
 package titan.storage;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.Socket;
@@ -36,6 +37,18 @@ import java.util.*;
     private OutputStream out;
     private BufferedInputStream in;
     private boolean isConnected;
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    /**
+     * An error reply from Redis. Unlike other {@link IOException}s, the connection is still usable afterwards.
+     */
+    private static class RedisErrorReply extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        RedisErrorReply(String message) {
+            super(message);
+        }
+    }
 
     /**
      * Constructs a new {@code TitanJRedisAdapter} instance.
@@ -183,6 +196,43 @@ import java.util.*;
         return Collections.emptySet();
     }
 
+    /**
+     * Sends several commands in a single write and then reads all of their replies, so a batch of N writes costs one
+     * round trip instead of N. Replies are returned in command order; a command that Redis rejected yields its error
+     * message in place of a reply without affecting the others.
+     *
+     * @param commands The commands, each given as its name followed by its arguments.
+     * @return The replies, or an empty list if Redis is not connected or the connection failed mid-batch.
+     */
+    public List<Object> pipeline(List<String[]> commands) {
+        tryReconnect();
+        if (!isConnected || commands.isEmpty()) return Collections.emptyList();
+        synchronized (this) {
+            try {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                for (String[] command : commands) {
+                    encodeCommand(buffer, command);
+                }
+                buffer.writeTo(out);
+                out.flush();
+
+                List<Object> replies = new ArrayList<>(commands.size());
+                for (int i = 0; i < commands.size(); i++) {
+                    try {
+                        replies.add(readResponse());
+                    } catch (RedisErrorReply e) {
+                        replies.add(e.getMessage());
+                    }
+                }
+                return replies;
+            } catch (IOException e) {
+                System.err.println("[INFO][FAILED] Redis pipeline of " + commands.size() + " commands failed: " + e.getMessage());
+                this.isConnected = false;
+                return Collections.emptyList();
+            }
+        }
+    }
+
     public long srem(String key, String member) {
         tryReconnect();
         if (!isConnected) return 0;
@@ -206,14 +256,27 @@ import java.util.*;
      * @throws IOException If an I/O error occurs while writing to the output stream.
      */
     private void sendCommand(String... args) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        sb.append("*").append(args.length).append("\r\n");
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        encodeCommand(buffer, args);
+        buffer.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Appends one command in RESP array form to a buffer. Bulk string lengths are byte counts, so non-ASCII
+     * arguments are framed correctly.
+     *
+     * @param buffer The buffer to append to.
+     * @param args The command and its arguments.
+     */
+    private static void encodeCommand(ByteArrayOutputStream buffer, String... args) {
+        buffer.writeBytes(("*" + args.length + "\r\n").getBytes(StandardCharsets.UTF_8));
         for (String arg : args) {
-            sb.append("$").append(arg.length()).append("\r\n");
-            sb.append(arg).append("\r\n");
+            byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+            buffer.writeBytes(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.UTF_8));
+            buffer.writeBytes(bytes);
+            buffer.writeBytes(CRLF);
         }
-        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
-        out.flush();
     }
 
     /**
@@ -234,7 +297,7 @@ import java.util.*;
             case '+': // Simple String (e.g., +OK)
                 return readLine();
             case '-': // Error
-                throw new IOException("RedisJava Error: " + readLine());
+                throw new RedisErrorReply("RedisJava Error: " + readLine());
             case ':': // Integer
                 return Long.parseLong(readLine());
             case '$': // Bulk String
@@ -16,9 +16,12 @@ package titan.tasks;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Base64;
 
 /**
@@ -73,4 +76,23 @@ import java.util.Base64;
 
         return "FILE_SAVED: " + destination.toAbsolutePath();
     }
+
+    /**
+ * Saves raw file bytes received in a binary (protocol v2) staging request, without the Base64 round-trip.
+ *
+ * @param fileName The name of the file to create within the {@value #WORKSPACE_DIR} directory.
+ * @param data The file content.
+ * @return "FILE_SAVED: /absolute/path/to/file", the same response as {@link #execute(String)}.
+ * @throws IOException If the file cannot be written.
+ */
+    public static String saveBytes(String fileName, ByteBuffer data) throws IOException {
+        new File(WORKSPACE_DIR).mkdirs();
+        Path destination = Paths.get(WORKSPACE_DIR, fileName);
+        try (FileChannel channel = FileChannel.open(destination,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer src = data.duplicate();
+            while (src.hasRemaining()) channel.write(src);
+        }
+        return "FILE_SAVED: " + destination.toAbsolutePath();
+    }
 }
@@ -21,7 +21,7 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import titan.network.LogBatcher;
+import titan.network.LogShipper;
 
 /**
  * {@code ScriptExecutorHandler} is an implementation of {@link TaskHandler} responsible for executing scripts
@@ -111,7 +111,7 @@ import titan.network.LogBatcher;
      * Executes a script based on the provided payload.
      * The payload is parsed to extract the job ID, script filename, and any arguments.
      * The script is then executed in an appropriate workspace directory (isolated, shared, or archive mode).
-     * Standard output and error streams of the script are captured and streamed to the master via a {@link LogBatcher}.
+     * Standard output and error streams of the script are captured and streamed to the master via the worker's {@link LogShipper}.
      * The method waits for the script to complete or times out after 60 seconds.
      *
      * <p>Payload Format (New): {@code JOB_ID | FILENAME | ARGS}
@@ -175,11 +175,7 @@ import titan.network.LogBatcher;
             return "ERROR: Script file not found: " + filename;
         }
 
-        LogBatcher batcher = new LogBatcher(
-                jobId,
-                parentServer.getSchedulerHost(),
-                parentServer.getSchedulerPort()
-        );
+        LogShipper logs = parentServer.logShipper();
 
         try {
 
@@ -243,7 +239,7 @@ import titan.network.LogBatcher;
                        String line;
                        while ((line = bufferedReader.readLine()) != null) {
 //                           parentServer.streamLogToMaster(finalJobId, line);
-                           batcher.addLog(line);
+                           logs.ship(finalJobId, line);
 
                            fileWriter.write(line);
                            fileWriter.newLine();
@@ -284,7 +280,7 @@ import titan.network.LogBatcher;
             return "ERROR: Execution failed - " + e.getMessage();
         } finally {
             activeProcesses.remove(jobId);
-            batcher.close();
+            logs.finish(jobId);
         }
     }
 }
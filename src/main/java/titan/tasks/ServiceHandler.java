@@ -14,7 +14,7 @@
 
 package titan.tasks;
 
-import titan.network.LogBatcher;
+import titan.network.LogShipper;
 import titan.network.RpcWorkerServer;
 import titan.tasks.TaskHandler;
 
@@ -135,13 +135,17 @@ import java.util.concurrent.ConcurrentHashMap;
                 // We use the absolute path to the JAR we just staged in titan_workspace
                 String jarPath = scriptFile.getAbsolutePath();
 
+                // The new worker registers with our scheduler; that registration is what marks the deployment ready.
+                String schedHost = parentServer.getSchedulerHost();
+                String schedPort = String.valueOf(parentServer.getSchedulerPort());
                 ProcessBuilder pb;
                 if (System.getProperty("os.name").toLowerCase().contains("win")) {
-                    // Windows Detached: cmd /c start /b java -jar Worker.jar <port>
-                    pb = new ProcessBuilder("cmd", "/c", "start", "/b", javaBin, "-jar", "\"" + jarPath + "\"", port);
+                    // Windows Detached: cmd /c start /b java -jar Worker.jar <port> <schedHost> <schedPort>
+                    pb = new ProcessBuilder("cmd", "/c", "start", "/b", javaBin, "-jar", "\"" + jarPath + "\"", port, schedHost, schedPort);
                 } else {
-                    // Linux Detached: nohup java -jar Worker.jar <port> &
-                    pb = new ProcessBuilder("nohup", javaBin, "-jar", jarPath, port, "&");
+                    // Linux Detached: nohup java -jar Worker.jar <port> <schedHost> <schedPort>
+                    // (no "&": ProcessBuilder does not go through a shell, so it would reach the worker as an argument)
+                    pb = new ProcessBuilder("nohup", javaBin, "-jar", jarPath, port, schedHost, schedPort);
                 }
 
                 pb.redirectOutput(ProcessBuilder.Redirect.appendTo(new File(WORKSPACE_DIR + "/worker_" + port + ".log")));
@@ -165,11 +169,19 @@ import java.util.concurrent.ConcurrentHashMap;
                 return "LAUNCH_ERROR: " + e.getMessage();
             }
         } else{
+            String result;
             if (fileName.endsWith(".py")) {
-                return launchDetachedProcess(serviceId, scriptFile.getParentFile(), "python", scriptFile.getAbsolutePath());
+                result = launchDetachedProcess(serviceId, scriptFile.getParentFile(), "python", scriptFile.getAbsolutePath());
             } else {
-                return launchDetachedProcess(serviceId, scriptFile.getParentFile(), scriptFile.getAbsolutePath());
+                result = launchDetachedProcess(serviceId, scriptFile.getParentFile(), scriptFile.getAbsolutePath());
             }
+            // Let the scheduler know when the service is listening, so its deploy job can complete
+            Process launched = runningServices.get(serviceId);
+            int servicePort = parsePort(port);
+            if (launched != null && servicePort > 0 && result.startsWith("DEPLOYED_SUCCESS")) {
+                parentServer.awaitServiceReady(serviceId, servicePort, launched.toHandle());
+            }
+            return result;
         }
 
     }
@@ -217,11 +229,7 @@ import java.util.concurrent.ConcurrentHashMap;
             Process process = pb.start();
 
             new Thread(() -> {
-                LogBatcher batcher = new LogBatcher(
-                        serviceId,
-                        parentServer.getSchedulerHost(),
-                        parentServer.getSchedulerPort()
-                );
+                LogShipper logs = parentServer.logShipper();
 
                 File logFile = new File(WORKSPACE_DIR, serviceId + ".log");
                 try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
@@ -233,7 +241,7 @@ import java.util.concurrent.ConcurrentHashMap;
                         fw.write(line + System.lineSeparator());
                         fw.flush();
 
-                        batcher.addLog(line);
+                        logs.ship(serviceId, line);
 
                         // Stream to Master (Real-time)
 //                        parentServer.streamLogToMaster(serviceId, line);
@@ -241,7 +249,7 @@ import java.util.concurrent.ConcurrentHashMap;
                 } catch (IOException e) {
                     System.out.println("[STREAM END] " + serviceId + " finished.");
                 }finally {
-                    batcher.close();
+                    logs.finish(serviceId);
                 }
             }).start();
 
@@ -267,6 +275,15 @@ import java.util.concurrent.ConcurrentHashMap;
         }
     }
 
+    // The port argument is "0" when the deployment did not name a port.
+    private static int parsePort(String port) {
+        try {
+            return Integer.parseInt(port.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     /**
  * Attempts to stop a running service identified by its {@code serviceId}.
  * <p>
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.manual;
+
+import titan.network.FrameCompression;
+import titan.network.TitanProtocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Base64;
+import java.util.Random;
+
+/**
+ * Measures frame compression on payloads shaped like our largest traffic: an {@code OP_LOG_BATCH} of 200 lines,
+ * a {@code getSystemStatsJSON} snapshot and a {@code RUN_PAYLOAD} carrying a Base64 Python script.
+ * <p>
+ * Each payload is round-tripped through {@link TitanProtocol#send} with compression on and read back, then the
+ * per-opcode statistics from {@link FrameCompression#getStats()} are printed (bytes before/after and CPU time).
+ * </p>
+ * Run with: {@code java -cp target/classes:target/test-classes titan.manual.CompressionBenchmark [iterations]}
+ */
+public class CompressionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        Random random = new Random(42);
+
+        StringBuilder logs = new StringBuilder("DAG-7-step-3|");
+        for (int i = 0; i < 200; i++) {
+            if (i > 0) logs.append('\n');
+            logs.append("2026-03-14 10:22:").append(String.format("%02d", i % 60)).append(" [INFO] epoch=").append(i / 20)
+                    .append(" batch=").append(i).append(" loss=").append(String.format("%.5f", random.nextDouble()))
+                    .append(" lr=0.0003 throughput=").append(900 + random.nextInt(200)).append(" samples/s");
+        }
+
+        StringBuilder json = new StringBuilder("{\"workers\":[");
+        for (int i = 0; i < 40; i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"port\":").append(8080 + i).append(",\"capabilities\":\"GENERAL\",\"load\":").append(random.nextInt(4))
+                    .append(",\"maxCap\":4,\"isPermanent\":false,\"protocolVersion\":2,\"currentJob\":\"TSK-").append(random.nextInt(100000)).append("\"}");
+        }
+        json.append("],\"activeJobs\":12,\"queueSize\":3}");
+
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < 150; i++) {
+            script.append("def step_").append(i).append("(data):\n    result = [x * ").append(i).append(" for x in data if x % 2 == 0]\n    print(f'step ")
+                    .append(i).append(" -> {len(result)} items')\n    return result\n\n");
+        }
+        String runPayload = "RUN_PAYLOAD|pipeline.py|" + Base64.getEncoder().encodeToString(script.toString().getBytes()) + "|GENERAL";
+
+        System.out.println("=== [INFO] FRAME COMPRESSION BENCHMARK ===");
+        System.out.printf("Payloads: log batch %d B | stats JSON %d B | RUN_PAYLOAD %d B | %d iterations%n",
+                logs.length(), json.length(), runPayload.length(), iterations);
+
+        roundTrip(TitanProtocol.OP_LOG_BATCH, logs.toString(), iterations);
+        roundTrip(TitanProtocol.OP_DATA, json.toString(), iterations);
+        roundTrip(TitanProtocol.OP_SUBMIT_JOB, runPayload, iterations);
+
+        System.out.println(FrameCompression.getStats());
+        System.exit(0);
+    }
+
+    private static void roundTrip(byte opCode, String payload, int iterations) throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            ByteArrayOutputStream wire = new ByteArrayOutputStream();
+            TitanProtocol.send(new DataOutputStream(wire), opCode, payload, 0, true);
+            TitanProtocol.TitanPacket packet = TitanProtocol.read(new DataInputStream(new ByteArrayInputStream(wire.toByteArray())));
+            if (!payload.equals(packet.payload)) {
+                throw new IllegalStateException("[FAIL] Payload mismatch for op " + opCode);
+            }
+        }
+    }
+}
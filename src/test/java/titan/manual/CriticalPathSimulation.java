@@ -0,0 +1,199 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.manual;
+
+import titan.scheduler.BucketQueue;
+import titan.scheduler.CriticalPath;
+import titan.scheduler.Job;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Measures what critical-path ranking does to the makespan of DAGs, without workers or sockets.
+ * <p>
+ * Each workload is a list of DAG strings in the {@code OP_SUBMIT_DAG} format, parsed with {@link Job#fromDagString}
+ * like the scheduler does, with a run time per job. The simulation runs them on a fixed number of worker slots: a
+ * {@link BucketQueue} holds the ready jobs, a free slot takes its head, and a finished job releases its children. It
+ * runs each workload three times:
+ * 1. fifo: no ranks, so jobs of equal priority run in the order they became ready (the scheduler before ranking).
+ * 2. hops: ranked with no duration history, i.e. by the number of jobs on the longest path below each job.
+ * 3. history: ranked with the true run times, as on a resubmitted DAG.
+ * </p>
+ * The workloads follow {@code TitanDAGEndToEnd}: chains, diamonds and the ML_TRAIN fan-out, submitted together, plus a
+ * long pipeline submitted after many short independent jobs, and random layered DAGs.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes titan.manual.CriticalPathSimulation [slots]}
+ * </p>
+ */
+public class CriticalPathSimulation {
+    private static final Random RANDOM = new Random(7);
+
+    /** A set of DAGs submitted together, with the run time of every job in milliseconds. */
+    private static class Workload {
+        final String name;
+        final List<String> dags = new ArrayList<>();
+        final Map<String, Long> durations = new HashMap<>();
+
+        Workload(String name) { this.name = name; }
+
+        // Adds a job definition; ids are given without the DAG- prefix that fromDagString adds
+        void job(StringBuilder dag, String id, String parents, long durationMs) {
+            if (dag.length() > 0) dag.append(" ; ");
+            dag.append(id).append("|TEST|calc.py|1|0|[").append(parents).append("]");
+            durations.put("DAG-" + id, durationMs);
+        }
+    }
+
+    private enum Mode { FIFO, HOPS, HISTORY }
+
+    public static void main(String[] args) {
+        int slots = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+
+        System.out.println("=== [INFO] CRITICAL PATH MAKESPAN SIMULATION ===");
+        System.out.println("Worker slots: " + slots);
+        System.out.printf("%-22s %10s %10s %10s %10s%n", "workload", "fifo ms", "hops ms", "history ms", "gain");
+
+        List<Workload> workloads = List.of(endToEndSuite(), pipelineBehindLeaves(), randomLayered(20), randomLayered(200));
+        for (Workload w : workloads) {
+            long fifo = simulate(w, slots, Mode.FIFO);
+            long hops = simulate(w, slots, Mode.HOPS);
+            long history = simulate(w, slots, Mode.HISTORY);
+            System.out.printf("%-22s %10d %10d %10d %9.1f%%%n", w.name, fifo, hops, history,
+                    100.0 * (fifo - history) / fifo);
+        }
+    }
+
+    // The DAG shapes of TitanDAGEndToEnd, with ML_TRAIN as the slow job and its evaluation chain behind it
+    private static Workload endToEndSuite() {
+        Workload w = new Workload("end-to-end shapes");
+        for (int copy = 0; copy < 4; copy++) {
+            String c = "_" + copy;
+            StringBuilder leaves = new StringBuilder();
+            for (int i = 0; i < 6; i++) w.job(leaves, "LEAF" + i + c, "", 400);
+            w.dags.add(leaves.toString());
+
+            StringBuilder chain = new StringBuilder();
+            w.job(chain, "S1_A" + c, "", 300);
+            w.job(chain, "S1_B" + c, "S1_A" + c, 300);
+            w.dags.add(chain.toString());
+
+            StringBuilder diamond = new StringBuilder();
+            w.job(diamond, "D_ROOT" + c, "", 200);
+            w.job(diamond, "D_LEFT" + c, "D_ROOT" + c, 500);
+            w.job(diamond, "D_RIGHT" + c, "D_ROOT" + c, 200);
+            w.job(diamond, "D_FINAL" + c, "D_LEFT" + c + ",D_RIGHT" + c, 200);
+            w.dags.add(diamond.toString());
+
+            StringBuilder ml = new StringBuilder();
+            w.job(ml, "ML_PREP" + c, "", 300);
+            w.job(ml, "ML_TRAIN" + c, "ML_PREP" + c, 2000);
+            w.job(ml, "ML_EVAL_A" + c, "ML_TRAIN" + c, 300);
+            w.job(ml, "ML_EVAL_B" + c, "ML_TRAIN" + c, 300);
+            w.dags.add(ml.toString());
+        }
+        return w;
+    }
+
+    // Forty short independent jobs submitted first, then a twelve step pipeline
+    private static Workload pipelineBehindLeaves() {
+        Workload w = new Workload("pipeline behind leaves");
+        StringBuilder dag = new StringBuilder();
+        for (int i = 0; i < 40; i++) w.job(dag, "BATCH" + i, "", 250);
+        for (int i = 0; i < 12; i++) w.job(dag, "STEP" + i, i == 0 ? "" : "STEP" + (i - 1), 250);
+        w.dags.add(dag.toString());
+        return w;
+    }
+
+    // Layers of jobs, each depending on one to three jobs of the layer above, with 50 to 1000 ms run times
+    private static Workload randomLayered(int jobs) {
+        Workload w = new Workload("random layered x" + jobs);
+        StringBuilder dag = new StringBuilder();
+        List<String> previous = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int width = Math.max(3, jobs / 8);
+        for (int i = 0; i < jobs; i++) {
+            String id = "R" + i;
+            StringBuilder parents = new StringBuilder();
+            if (!previous.isEmpty()) {
+                int count = 1 + RANDOM.nextInt(Math.min(3, previous.size()));
+                for (int p = 0; p < count; p++) {
+                    if (p > 0) parents.append(",");
+                    parents.append(previous.get(RANDOM.nextInt(previous.size())));
+                }
+            }
+            w.job(dag, id, parents.toString(), 50 + RANDOM.nextInt(951));
+            current.add(id);
+            if (current.size() == 1 + RANDOM.nextInt(width)) {
+                previous = current;
+                current = new ArrayList<>();
+            }
+        }
+        w.dags.add(dag.toString());
+        return w;
+    }
+
+    private static long simulate(Workload w, int slots, Mode mode) {
+        List<Job> all = new ArrayList<>();
+        for (String dag : w.dags) {
+            List<Job> jobs = new ArrayList<>();
+            for (String def : dag.split(";")) jobs.add(Job.fromDagString(def.trim()));
+            if (mode == Mode.HOPS) CriticalPath.rank(jobs, job -> -1);
+            if (mode == Mode.HISTORY) CriticalPath.rank(jobs, job -> w.durations.get(job.getId()));
+            all.addAll(jobs);
+        }
+
+        Map<String, List<Job>> children = new HashMap<>();
+        Map<Job, Integer> remaining = new HashMap<>();
+        BucketQueue<Job> ready = new BucketQueue<>(10, 0);
+        for (Job job : all) {
+            int parents = 0;
+            for (String parentId : job.getDependenciesIds()) {
+                children.computeIfAbsent(parentId, k -> new ArrayList<>()).add(job);
+                parents++;
+            }
+            remaining.put(job, parents);
+            if (parents == 0) ready.offer(job, job.getPriority(), job.getRank());
+        }
+
+        // Running jobs by finish time
+        PriorityQueue<long[]> running = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        Map<Long, Job> byTicket = new HashMap<>();
+        long now = 0;
+        long ticket = 0;
+        int finished = 0;
+        while (finished < all.size()) {
+            while (running.size() < slots && !ready.isEmpty()) {
+                Job job = ready.poll();
+                running.add(new long[]{now + w.durations.get(job.getId()), ticket});
+                byTicket.put(ticket++, job);
+            }
+            long[] next = running.poll();
+            now = next[0];
+            Job done = byTicket.remove(next[1]);
+            finished++;
+            for (Job child : children.getOrDefault(done.getId(), List.of())) {
+                if (remaining.merge(child, -1, Integer::sum) == 0) {
+                    ready.offer(child, child.getPriority(), child.getRank());
+                }
+            }
+        }
+        return now;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.manual;
+
+import titan.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Measures what finding log lines by their words costs once many jobs have logged millions of lines:
+ * 1. scan: what a client had to do without {@code OP_SEARCH_LOGS}: read every job's log with
+ *    {@link Scheduler#getLogsSince} and look for the words in each line.
+ * 2. index: {@link Scheduler#searchLogs}, on a fresh scheduler that loaded the index segments from disk.
+ * <p>
+ * J jobs log N lines in all through {@link Scheduler#logBatch}. Most lines are ordinary training output; one in
+ * 50,000 is a CUDA out-of-memory error, and one in 200 a warning. The scheduler is then stopped and a new one
+ * started on the same directories. The benchmark times a rare query, a common one, one limited to a job prefix and
+ * one limited to the second half of the ingest, and checks that the rare query finds exactly the lines the scan does.
+ * </p>
+ * Writes to {@code titan_server_logs/} and {@code titan_log_index/} in the working directory, so run it from a scratch
+ * directory. It deletes the job logs it created afterwards, and the index directory if there was none before.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes titan.manual.LogIndexBenchmark [jobs] [lines]}
+ * </p>
+ */
+public class LogIndexBenchmark {
+    private static final String PREFIX = "IDXBENCH-";
+    private static final Path LOG_DIR = Paths.get("titan_server_logs");
+    private static final Path INDEX_DIR = Paths.get("titan_log_index");
+    private static final String RARE = "CUDA error: out of memory";
+
+    public static void main(String[] args) throws Exception {
+        int jobs = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long total = args.length > 1 ? Long.parseLong(args[1]) : 2_000_000;
+
+        System.out.println("=== [INFO] LOG INDEX BENCHMARK ===");
+        System.out.println("Jobs: " + jobs + " | Lines: " + total);
+        boolean hadIndex = Files.exists(INDEX_DIR);
+        if (hadIndex) System.out.println("[WARN] " + INDEX_DIR + " already exists; its entries count towards the results");
+
+        Scheduler writer = new Scheduler(19098);
+        long[] next = new long[jobs];
+        long raw = 0, rare = 0, middle = 0;
+        long t0 = System.nanoTime();
+        for (long n = 0; n < total; ) {
+            int job = (int) (n / 500 % jobs);
+            List<String> batch = new ArrayList<>(500);
+            for (int i = 0; i < 500 && n < total; i++, n++) {
+                String line = line(job, next[job]++, n);
+                if (line.contains(RARE)) rare++;
+                batch.add(line);
+                raw += line.length() + 1;
+            }
+            writer.logBatch(PREFIX + job, batch);
+            if (middle == 0 && n >= total / 2) middle = System.currentTimeMillis();
+        }
+        writer.stop();
+        System.out.printf("Ingested %d lines (%.1f MB) in %.0f ms, %d of them \"%s\"%n", total, raw / 1048576.0,
+                (System.nanoTime() - t0) / 1e6, rare, RARE);
+        System.out.printf("Disk: logs %.1f MB | index %.1f MB%n", sizeOf(LOG_DIR, PREFIX) / 1048576.0,
+                sizeOf(INDEX_DIR, "") / 1048576.0);
+
+        Scheduler reader = new Scheduler(19099);
+        long s = System.nanoTime();
+        List<String> found = scan(reader, jobs, RARE);
+        System.out.printf("scan      %9.2f ms | \"%s\": %d lines%n", (System.nanoTime() - s) / 1e6, RARE, found.size());
+
+        s = System.nanoTime();
+        String hits = reader.searchLogs(RARE, "", 0, 0, 1000);
+        long first = System.nanoTime() - s;
+        List<String> indexed = new ArrayList<>();
+        for (String hit : lines(hits)) indexed.add(hit.substring(0, hit.lastIndexOf('|')));
+        if (found.size() != rare || !new HashSet<>(indexed).equals(new HashSet<>(found))) {
+            throw new IllegalStateException("index found " + indexed.size() + " lines, scan " + found.size()
+                    + ", expected " + rare);
+        }
+        System.out.printf("index     %9.2f ms first query | \"%s\": %d lines%n", first / 1e6, RARE, indexed.size());
+
+        query(reader, "rare", RARE, "", 0, 1000);
+        query(reader, "common", "loss", "", 0, 100);
+        query(reader, "prefix", "cuda memory", PREFIX + "1", 0, 1000);
+        query(reader, "range", "warn slow", "", middle, 1000);
+        System.out.println("Index: " + stat(reader.getSystemStats()));
+        reader.stop();
+
+        for (int j = 0; j < jobs; j++) delete(LOG_DIR.resolve(PREFIX + j));
+        if (!hadIndex) delete(INDEX_DIR);
+        System.exit(0);
+    }
+
+    private static void query(Scheduler scheduler, String label, String query, String jobPrefix, long fromMs, int limit) {
+        long best = Long.MAX_VALUE;
+        String hits = "";
+        for (int i = 0; i < 20; i++) {
+            long s = System.nanoTime();
+            hits = scheduler.searchLogs(query, jobPrefix, fromMs, 0, limit);
+            best = Math.min(best, System.nanoTime() - s);
+        }
+        System.out.printf("%-9s %9.3f ms | \"%s\"%s%s: %d lines%n", label, best / 1e6, query,
+                jobPrefix.isEmpty() ? "" : " in " + jobPrefix + "*", fromMs > 0 ? " since the middle" : "",
+                lines(hits).size());
+    }
+
+    // Every job's log from line 0 on, one page of titan.logs.fetch.max.lines at a time
+    private static List<String> scan(Scheduler scheduler, int jobs, String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<String> found = new ArrayList<>();
+        for (int j = 0; j < jobs; j++) {
+            String jobId = PREFIX + j;
+            long from = 0;
+            while (true) {
+                String page = scheduler.getLogsSince(jobId, from, 0);
+                String[] head = page.split("\\|", 3);
+                long firstLine = Long.parseLong(head[0]);
+                long nextLine = Long.parseLong(head[1]);
+                if (nextLine <= from) break;
+                List<String> lines = lines(head[2]);
+                for (int i = 0; i < lines.size(); i++) {
+                    if (lines.get(i).toLowerCase(Locale.ROOT).contains(needle)) found.add(jobId + "|" + (firstLine + i));
+                }
+                from = nextLine;
+            }
+        }
+        return found;
+    }
+
+    private static String line(int job, long lineNo, long n) {
+        if (n % 50_000 == 49_999) {
+            return "2026-10-18 12:00:00 ERROR RuntimeError: " + RARE + ". Tried to allocate 2.00 GiB (job " + job + ")";
+        }
+        if (n % 200 == 199) {
+            return "2026-10-18 12:00:00 WARN slow step: data loader took " + (n % 900) + " ms";
+        }
+        return "2026-10-18 12:00:" + String.format("%02d", lineNo % 60) + " INFO epoch=" + lineNo / 10000 + " step="
+                + lineNo + " loss=0." + (n * 7919 % 100000) + " lr=0.0003 worker=w" + job % 8;
+    }
+
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        if (!text.isEmpty()) for (String l : text.split("\n", -1)) lines.add(l);
+        return lines;
+    }
+
+    private static String stat(String stats) {
+        for (String l : stats.split("\n")) if (l.contains("Log Index")) return l.substring(l.indexOf(':') + 1).trim();
+        return "n/a";
+    }
+
+    private static long sizeOf(Path dir, String prefix) throws IOException {
+        if (!Files.exists(dir)) return 0;
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(p -> dir.relativize(p).toString().startsWith(prefix))
+                    .mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        if (!Files.exists(dir)) return;
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.manual;
+
+import titan.scheduler.Scheduler;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures what log ingestion costs the request handler thread:
+ * 1. per-line: what {@code appendLogToDisk} used to do for every line: check the directory, open a
+ *    {@link FileWriter}, write the line and close it.
+ * 2. writer: {@link Scheduler#logBatch}, which fills the job's live ring and queues the batch for the log writer
+ *    thread.
+ * <p>
+ * H handler threads each ingest {@code OP_LOG_BATCH}-sized batches for their own set of jobs. The benchmark prints
+ * the handler-side cost per line and, for the writer, how long it took until every line was on disk.
+ * </p>
+ * Writes to {@code titan_server_logs/} and {@code titan_server_logs_baseline/} in the working directory, and deletes
+ * the files it created afterwards.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes titan.manual.LogIngestBenchmark [handlers] [jobsPerHandler] [batchesPerJob] [linesPerBatch]}
+ * </p>
+ */
+public class LogIngestBenchmark {
+    private static final String LINE = "2026-10-18 12:00:00 INFO epoch=3 step=1200 loss=0.0421 lr=0.0003 throughput=812.4/s";
+
+    private interface Sink {
+        void ingest(String jobId, List<String> lines);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int handlers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int jobsPerHandler = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int batchesPerJob = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+        int linesPerBatch = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        long totalLines = (long) handlers * jobsPerHandler * batchesPerJob * linesPerBatch;
+
+        System.out.println("=== [INFO] LOG INGEST BENCHMARK ===");
+        System.out.println("Handlers: " + handlers + " | Jobs: " + handlers * jobsPerHandler + " | Lines: " + totalLines
+                + " in batches of " + linesPerBatch);
+
+        List<String> batch = new ArrayList<>();
+        for (int i = 0; i < linesPerBatch; i++) batch.add(LINE + " #" + i);
+
+        File baselineDir = new File("titan_server_logs_baseline");
+        long t = run(handlers, jobsPerHandler, batchesPerJob, batch, "BASE", (jobId, lines) -> {
+            for (String line : lines) appendPerLine(baselineDir, jobId, line);
+        });
+        report("per-line", t, totalLines, -1);
+
+        Scheduler scheduler = new Scheduler(19095);
+        t = run(handlers, jobsPerHandler, batchesPerJob, batch, "WRITER", scheduler::logBatch);
+        long t0 = System.nanoTime();
+        scheduler.stop(); // writes out what is still queued
+        long drained = System.nanoTime() - t0;
+        report("writer", t, totalLines, drained);
+
+        long expected = totalLines * (LINE.length() + 3);
+        System.out.println("Bytes on disk: per-line " + sizeOf(baselineDir, "BASE") + " | writer "
+                + sizeOf(new File("titan_server_logs"), "WRITER") + " (at least " + expected + ")");
+        cleanUp(baselineDir, "BASE");
+        cleanUp(new File("titan_server_logs"), "WRITER");
+        System.exit(0);
+    }
+
+    private static long run(int handlers, int jobsPerHandler, int batchesPerJob, List<String> batch, String prefix,
+                            Sink sink) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(handlers);
+        for (int h = 0; h < handlers; h++) {
+            int handler = h;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int b = 0; b < batchesPerJob; b++) {
+                        for (int j = 0; j < jobsPerHandler; j++) sink.ingest(prefix + "-" + handler + "-" + j, batch);
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        return System.nanoTime() - t0;
+    }
+
+    private static void appendPerLine(File dir, String jobId, String line) {
+        if (!dir.exists()) dir.mkdirs();
+        try (FileWriter fw = new FileWriter(new File(dir, jobId + ".log"), true)) {
+            fw.write(line + "\n");
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void report(String mode, long nanos, long lines, long drainNanos) {
+        String drain = drainNanos < 0 ? "" : String.format(" | queue drained %.0f ms after the last batch", drainNanos / 1e6);
+        System.out.printf("%-8s %8.0f ms | %7.2f us/line | %6.0f k lines/s%s%n", mode, nanos / 1e6,
+                nanos / 1e3 / lines, lines / (nanos / 1e9) / 1000, drain);
+    }
+
+    // Log files, or the segment directories of the log store
+    private static long sizeOf(File dir, String prefix) {
+        long bytes = 0;
+        File[] files = dir.listFiles((d, name) -> prefix.isEmpty() || name.startsWith(prefix + "-"));
+        if (files != null) {
+            for (File f : files) bytes += f.isDirectory() ? sizeOf(f, "") : f.length();
+        }
+        return bytes;
+    }
+
+    private static void cleanUp(File dir, String prefix) {
+        File[] files = dir.listFiles((d, name) -> prefix.isEmpty() || name.startsWith(prefix + "-"));
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory()) cleanUp(f, "");
+                f.delete();
+            }
+        }
+        if (!prefix.isEmpty()) dir.delete(); // only if empty
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.manual;
+
+import titan.network.ControlChannel;
+import titan.network.LogShipper;
+import titan.network.TitanProtocol;
+import titan.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Measures what shipping the logs of many concurrent jobs costs a worker:
+ * 1. per-job: what workers used to do, a {@code LogBatcher} per job, each with its own timer thread, sending a batch
+ *    every 200 lines or every 2 seconds.
+ * 2. shipper: one {@link LogShipper} for all jobs.
+ * <p>
+ * J jobs each write L lines, one every few milliseconds, to an in-process scheduler. The benchmark prints the peak
+ * number of live threads, how many {@code OP_LOG_BATCH} messages and control channel frames carried the lines, and
+ * how long lines took from being written to reaching the scheduler.
+ * </p>
+ * Run with: {@code java -cp target/classes:target/test-classes titan.manual.LogShipperBenchmark [jobs] [linesPerJob] [lineIntervalMs]}
+ */
+public class LogShipperBenchmark {
+    private static final String LINE = "2026-10-18 12:00:00 INFO epoch=3 step=1200 loss=0.0421 lr=0.0003 throughput=812.4/s";
+
+    private interface Shipper {
+        void ship(String jobId, String line);
+
+        void finish(String jobId);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int jobs = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int linesPerJob = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int intervalMs = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        System.out.println("=== [INFO] LOG SHIPPER BENCHMARK ===");
+        System.out.println("Jobs: " + jobs + " | Lines per job: " + linesPerJob + " | One line every " + intervalMs + " ms");
+
+        run("per-job", 19310, jobs, linesPerJob, intervalMs, channel -> new PerJobBatchers(channel));
+        run("shipper", 19311, jobs, linesPerJob, intervalMs, channel -> {
+            LogShipper shipper = new LogShipper(channel);
+            return new Shipper() {
+                public void ship(String jobId, String line) { shipper.ship(jobId, line); }
+
+                public void finish(String jobId) { shipper.finish(jobId); }
+            };
+        });
+        System.exit(0);
+    }
+
+    private static void run(String mode, int port, int jobs, int linesPerJob, int intervalMs,
+                            Function<ControlChannel, Shipper> factory) throws Exception {
+        AtomicLong received = new AtomicLong();
+        AtomicLong messages = new AtomicLong();
+        AtomicLong latencySum = new AtomicLong();
+        AtomicLong latencyMax = new AtomicLong();
+        Scheduler scheduler = new Scheduler(port) {
+            @Override
+            public void logBatch(String jobId, List<String> lines) {
+                long now = System.nanoTime();
+                for (String line : lines) {
+                    long latency = now - Long.parseLong(line.substring(line.lastIndexOf('=') + 1));
+                    latencySum.addAndGet(latency);
+                    latencyMax.accumulateAndGet(latency, Math::max);
+                }
+                received.addAndGet(lines.size());
+                messages.incrementAndGet();
+            }
+        };
+        scheduler.start();
+        Thread.sleep(500);
+        ControlChannel channel = ControlChannel.to("localhost", port);
+        Shipper shipper = factory.apply(channel);
+
+        int baseThreads = Thread.activeCount();
+        AtomicLong peakThreads = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(jobs);
+        long t0 = System.nanoTime();
+        for (int j = 0; j < jobs; j++) {
+            String jobId = mode.toUpperCase() + "-" + j;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < linesPerJob; i++) {
+                        shipper.ship(jobId, LINE + " #" + i + " t=" + System.nanoTime());
+                        if (intervalMs > 0) Thread.sleep(intervalMs);
+                    }
+                    peakThreads.accumulateAndGet(Thread.activeCount(), Math::max);
+                    shipper.finish(jobId);
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        long written = System.nanoTime();
+        long expected = (long) jobs * linesPerJob;
+        while (received.get() < expected && System.nanoTime() - written < TimeUnit.SECONDS.toNanos(30)) {
+            Thread.sleep(1);
+        }
+        long delivered = System.nanoTime();
+
+        // Threads beyond the J writers and what was running before the jobs started
+        System.out.printf("%-8s %6.0f ms | %d/%d lines | %4d extra threads | %6d OP_LOG_BATCH | line latency avg %.0f ms, max %.0f ms%n",
+                mode, (delivered - t0) / 1e6, received.get(), expected, peakThreads.get() - baseThreads - jobs,
+                messages.get(), latencySum.get() / 1e6 / Math.max(1, received.get()), latencyMax.get() / 1e6);
+        System.out.println("         channel: " + channel.getStats());
+        scheduler.stop();
+    }
+
+    // The old LogBatcher: one timer thread per job
+    private static final class PerJobBatchers implements Shipper {
+        private final ControlChannel channel;
+        private final Map<String, Batcher> batchers = new ConcurrentHashMap<>();
+
+        PerJobBatchers(ControlChannel channel) {
+            this.channel = channel;
+        }
+
+        public void ship(String jobId, String line) {
+            batchers.computeIfAbsent(jobId, Batcher::new).addLog(line);
+        }
+
+        public void finish(String jobId) {
+            Batcher b = batchers.remove(jobId);
+            if (b != null) b.close();
+        }
+
+        private final class Batcher {
+            private final String jobId;
+            private final List<String> buffer = new ArrayList<>();
+            private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+
+            Batcher(String jobId) {
+                this.jobId = jobId;
+                timer.scheduleAtFixedRate(this::flush, 2000, 2000, TimeUnit.MILLISECONDS);
+            }
+
+            synchronized void addLog(String line) {
+                buffer.add(line);
+                if (buffer.size() >= 200) flush();
+            }
+
+            synchronized void flush() {
+                if (buffer.isEmpty()) return;
+                channel.send(TitanProtocol.OP_LOG_BATCH, jobId + "|" + String.join("\n", buffer));
+                buffer.clear();
+            }
+
+            void close() {
+                flush();
+                timer.shutdownNow();
+            }
+        }
+    }
+}
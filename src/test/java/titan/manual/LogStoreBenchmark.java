@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.manual;
+
+import titan.scheduler.Scheduler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Measures what reading the end of a large job log costs once its live ring has left memory, and how much disk the log
+ * takes:
+ * 1. file: what {@code OP_GET_LOGS} used to do once the lines had left memory: {@code Files.readAllBytes} on
+ *    {@code titan_server_logs/<jobId>.log}.
+ * 2. segments: {@link Scheduler#getLogs} on a fresh scheduler, which reads the last lines from the job's segments.
+ * <p>
+ * One job logs the given number of megabytes through {@link Scheduler#logBatch}, and the same lines are written to a
+ * flat file for comparison. The scheduler is then stopped and a new one started on the same directory, so the first
+ * read also pays for loading the job's segment index.
+ * </p>
+ * Writes to {@code titan_server_logs/} in the working directory, and deletes what it created afterwards.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes titan.manual.LogStoreBenchmark [megabytes] [reads]}
+ * </p>
+ */
+public class LogStoreBenchmark {
+    private static final String JOB = "LOGSTORE-BENCH";
+    private static final Path LOG_DIR = Paths.get("titan_server_logs");
+
+    public static void main(String[] args) throws Exception {
+        int megabytes = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int reads = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        System.out.println("=== [INFO] LOG STORE BENCHMARK ===");
+        System.out.println("Log size: " + megabytes + " MB | Reads: " + reads);
+
+        // The same lines go to the scheduler and, as earlier versions kept them, to one flat file
+        Files.createDirectories(LOG_DIR);
+        Path flat = LOG_DIR.resolve(JOB + "-flat.log");
+        Scheduler writer = new Scheduler(19096);
+        long raw = 0, lines = 0;
+        long target = megabytes * 1024L * 1024;
+        long t0 = System.nanoTime();
+        try (BufferedWriter out = Files.newBufferedWriter(flat, StandardCharsets.UTF_8)) {
+            while (raw < target) {
+                List<String> batch = new ArrayList<>(500);
+                for (int i = 0; i < 500; i++, lines++) {
+                    String line = line(lines);
+                    batch.add(line);
+                    out.write(line);
+                    out.newLine();
+                    raw += line.length() + 1;
+                }
+                writer.logBatch(JOB, batch);
+            }
+        }
+        writer.stop();
+        System.out.printf("Ingested %d lines in %.0f ms%n", lines, (System.nanoTime() - t0) / 1e6);
+
+        long disk = sizeOf(LOG_DIR.resolve(JOB));
+        System.out.printf("Disk: flat file %.1f MB | segments %.1f MB | %.1fx smaller%n", Files.size(flat) / 1048576.0,
+                disk / 1048576.0, Files.size(flat) / (double) disk);
+
+        long file = Long.MAX_VALUE;
+        for (int i = 0; i < Math.min(reads, 3); i++) {
+            long s = System.nanoTime();
+            String all = new String(Files.readAllBytes(flat), StandardCharsets.UTF_8);
+            file = Math.min(file, System.nanoTime() - s);
+            if (all.isEmpty()) throw new IllegalStateException("empty log");
+        }
+        System.out.printf("file      %9.2f ms per read (whole file)%n", file / 1e6);
+
+        Scheduler reader = new Scheduler(19097);
+        long s = System.nanoTime();
+        List<String> tail = reader.getLogs(JOB);
+        long first = System.nanoTime() - s;
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < reads; i++) {
+            s = System.nanoTime();
+            tail = reader.getLogs(JOB);
+            best = Math.min(best, System.nanoTime() - s);
+        }
+        if (tail.isEmpty() || !tail.get(tail.size() - 1).equals(line(lines - 1))) {
+            throw new IllegalStateException("wrong last line: " + (tail.isEmpty() ? "none" : tail.get(tail.size() - 1)));
+        }
+        System.out.printf("segments  %9.2f ms first read | %.3f ms after | %d lines%n", first / 1e6, best / 1e6,
+                tail.size());
+        reader.stop();
+
+        Files.deleteIfExists(flat);
+        delete(LOG_DIR.resolve(JOB));
+        System.exit(0);
+    }
+
+    private static String line(long i) {
+        return "2026-10-18 12:00:" + String.format("%02d", i % 60) + " INFO epoch=" + i / 100000 + " step=" + i
+                + " loss=0." + (i * 7919 % 100000) + " lr=0.0003 worker=w" + i % 8;
+    }
+
+    private static long sizeOf(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) Files.deleteIfExists(p);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.manual;
+
+import titan.scheduler.BucketQueue;
+import titan.scheduler.Job;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compares the scheduler's ready queue before and after {@link BucketQueue}:
+ * 1. pbq: a {@link PriorityBlockingQueue} of jobs ordered by {@code Job.compareTo} (priority only).
+ * 2. bucket: a {@link BucketQueue} behind a lock and condition, the way {@code ReadyQueues} holds it.
+ * <p>
+ * For each, P producer threads offer jobs with a mix of LOW/NORMAL/HIGH and auto-scale priorities while C consumer
+ * threads take them. The benchmark prints the throughput, and with a single consumer also counts FIFO violations:
+ * jobs of one producer and one priority that came out in a different order than they went in.
+ * </p>
+ * A last phase checks starvation: one LOW job waits while a single thread keeps offering and taking HIGH jobs. The
+ * bucket queue ages it to the top after a few milliseconds; the priority queue never returns it.
+ * <p>
+ * Run with: {@code java -cp target/classes:target/test-classes titan.manual.QueueContentionBenchmark [producers] [consumers] [jobsPerProducer]}
+ * </p>
+ */
+public class QueueContentionBenchmark {
+    private static final int[] PRIORITIES = {Job.PRIORITY_LOW, Job.PRIORITY_NORMAL, Job.PRIORITY_NORMAL, Job.PRIORITY_HIGH, 10};
+
+    /** The operations both contenders are measured on. */
+    private interface ReadyQueue {
+        void offer(Job job);
+        Job take() throws InterruptedException;
+    }
+
+    private static class PbqQueue implements ReadyQueue {
+        private final PriorityBlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+
+        public void offer(Job job) { queue.offer(job); }
+
+        public Job take() throws InterruptedException { return queue.take(); }
+    }
+
+    private static class LockedBucketQueue implements ReadyQueue {
+        private final BucketQueue<Job> queue;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+
+        LockedBucketQueue(long agingMs) {
+            this.queue = new BucketQueue<>(10, agingMs);
+        }
+
+        public void offer(Job job) {
+            lock.lock();
+            try {
+                queue.offer(job, job.getPriority());
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public Job take() throws InterruptedException {
+            lock.lockInterruptibly();
+            try {
+                Job job;
+                while ((job = queue.poll()) == null) notEmpty.await();
+                return job;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int consumers = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int jobsPerProducer = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+        System.out.println("=== [INFO] READY QUEUE CONTENTION BENCHMARK ===");
+        System.out.println("Producers: " + producers + " | Consumers: " + consumers + " | Jobs per producer: " + jobsPerProducer);
+
+        List<List<Job>> jobs = createJobs(producers, jobsPerProducer);
+
+        // Warm up both before measuring
+        run("pbq", new PbqQueue(), jobs, consumers, false);
+        run("bucket", new LockedBucketQueue(30000), jobs, consumers, false);
+
+        run("pbq", new PbqQueue(), jobs, consumers, true);
+        run("bucket", new LockedBucketQueue(30000), jobs, consumers, true);
+        run("pbq", new PbqQueue(), jobs, 1, true);
+        run("bucket", new LockedBucketQueue(30000), jobs, 1, true);
+
+        starvation("pbq", new PbqQueue());
+        starvation("bucket", new LockedBucketQueue(5));
+        System.exit(0);
+    }
+
+    private static List<List<Job>> createJobs(int producers, int jobsPerProducer) {
+        Random random = new Random(11);
+        List<List<Job>> jobs = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            List<Job> mine = new ArrayList<>(jobsPerProducer);
+            for (int i = 0; i < jobsPerProducer; i++) {
+                // ID encodes producer and position, so consumers can check ordering without a lookup
+                mine.add(new Job(p + ":" + i, "GENERAL|x", PRIORITIES[random.nextInt(PRIORITIES.length)], 0, null));
+            }
+            jobs.add(mine);
+        }
+        return jobs;
+    }
+
+    private static void run(String mode, ReadyQueue queue, List<List<Job>> jobs, int consumers, boolean print)
+            throws InterruptedException {
+        int producers = jobs.size();
+        int total = producers * jobs.get(0).size();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(producers + consumers);
+        long[] violations = new long[consumers];
+
+        for (List<Job> mine : jobs) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (Job job : mine) queue.offer(job);
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        for (int c = 0; c < consumers; c++) {
+            int share = total / consumers + (c < total % consumers ? 1 : 0);
+            int index = c;
+            new Thread(() -> {
+                // Last position seen per producer and priority
+                int[][] last = new int[producers][11];
+                for (int[] row : last) java.util.Arrays.fill(row, -1);
+                try {
+                    start.await();
+                    for (int i = 0; i < share; i++) {
+                        Job job = queue.take();
+                        String id = job.getId();
+                        int colon = id.indexOf(':');
+                        int producer = Integer.parseInt(id.substring(0, colon));
+                        int position = Integer.parseInt(id.substring(colon + 1));
+                        if (position < last[producer][job.getPriority()]) violations[index]++;
+                        last[producer][job.getPriority()] = position;
+                    }
+                } catch (InterruptedException ignored) {
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        long t0 = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - t0;
+
+        if (print) {
+            String order = "";
+            if (consumers == 1) order = String.format(" | %d FIFO violations within a priority", violations[0]);
+            System.out.printf("%-6s %dP/%dC: %8.0f k jobs/s%s%n", mode, producers, consumers,
+                    total / (elapsed / 1e9) / 1000, order);
+        }
+    }
+
+    private static void starvation(String mode, ReadyQueue queue) throws InterruptedException {
+        Job low = new Job("LOW", "GENERAL|x", Job.PRIORITY_LOW, 0, null);
+        queue.offer(low);
+        queue.offer(new Job("HIGH-0", "GENERAL|x", Job.PRIORITY_HIGH, 0, null));
+
+        long t0 = System.nanoTime();
+        long deadline = t0 + 1_000_000_000L;
+        int high = 1;
+        while (System.nanoTime() < deadline) {
+            queue.offer(new Job("HIGH-" + high++, "GENERAL|x", Job.PRIORITY_HIGH, 0, null));
+            if (queue.take() == low) {
+                System.out.printf("%-6s LOW job taken after %.1f ms behind %d HIGH jobs%n",
+                        mode, (System.nanoTime() - t0) / 1e6, high);
+                return;
+            }
+        }
+        System.out.printf("%-6s LOW job still waiting after 1000 ms behind %d HIGH jobs%n", mode, high);
+    }
+}
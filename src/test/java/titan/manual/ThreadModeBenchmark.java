@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.manual;
+
+import titan.TitanExecutors;
+import titan.network.TitanProtocol;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the platform-thread and virtual-thread connection executors from {@link TitanExecutors}.
+ * <p>
+ * For each available mode it measures:
+ * 1. Memory per idle connection: N sockets, each with a handler blocked in {@code TitanProtocol.read}.
+ * 2. Throughput: C concurrent clients doing request/response round-trips against a handler that blocks ~1 ms per
+ *    request, like a handler waiting on Redis or a callback.
+ * </p>
+ * Run with: {@code java -cp target/classes:target/test-classes titan.manual.ThreadModeBenchmark [idleConns] [clients] [requestsPerClient]}
+ * The virtual mode is skipped on runtimes older than JDK 21.
+ */
+public class ThreadModeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int idleConnections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int requestsPerClient = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        System.out.println("=== [INFO] THREAD MODE BENCHMARK (JDK " + Runtime.version().feature() + ") ===");
+        System.out.println("Idle connections: " + idleConnections + " | Clients: " + clients + " x " + requestsPerClient + " requests");
+
+        run("platform", false, 9390, idleConnections, clients, requestsPerClient);
+        if (TitanExecutors.virtualThreadsAvailable()) {
+            run("virtual", true, 9391, idleConnections, clients, requestsPerClient);
+        } else {
+            System.out.println("[SKIP] virtual: this JVM has no virtual threads (needs JDK 21+).");
+        }
+        System.exit(0);
+    }
+
+    private static void run(String mode, boolean virtual, int port, int idleConnections, int clients, int requestsPerClient) throws Exception {
+        ExecutorService handlers = TitanExecutors.newConnectionExecutor("bench-" + mode, virtual);
+        ServerSocket server = new ServerSocket(port, 4096);
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket s = server.accept();
+                    handlers.submit(() -> serve(s));
+                } catch (Exception e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        // 1. Memory per idle connection
+        long heapBefore = usedHeapAfterGc();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        List<Socket> idle = new ArrayList<>();
+        for (int i = 0; i < idleConnections; i++) {
+            idle.add(new Socket("localhost", port));
+        }
+        Thread.sleep(1000); // let every handler reach its blocking read
+        long heapAfter = usedHeapAfterGc();
+        int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+        for (Socket s : idle) s.close();
+
+        // 2. Throughput
+        ExecutorService clientPool = Executors.newFixedThreadPool(clients);
+        CountDownLatch done = new CountDownLatch(clients);
+        AtomicLong completed = new AtomicLong();
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            clientPool.submit(() -> {
+                try (Socket s = new Socket("localhost", port)) {
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                    for (int i = 0; i < requestsPerClient; i++) {
+                        TitanProtocol.send(out, TitanProtocol.OP_HEARTBEAT, "");
+                        TitanProtocol.read(in);
+                        completed.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    System.err.println("[FAIL] client: " + e.getMessage());
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        clientPool.shutdownNow();
+        server.close();
+        handlers.shutdownNow();
+
+        System.out.println("--- " + mode + " ---");
+        System.out.printf("Threads:     +%d for %d idle connections%n", threadsAfter - threadsBefore, idleConnections);
+        System.out.printf("Heap:        %.1f KB per idle connection%n", (heapAfter - heapBefore) / 1024.0 / idleConnections);
+        if (!virtual) {
+            System.out.println("             (plus one native thread stack per connection, reserved outside the heap)");
+        }
+        System.out.printf("Throughput:  %.0f req/s (%d requests in %.2fs)%n", completed.get() / seconds, completed.get(), seconds);
+    }
+
+    // Handler: loop over packets on one socket, blocking ~1 ms per request.
+    private static void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                TitanProtocol.TitanPacket packet = TitanProtocol.read(in);
+                Thread.sleep(1);
+                TitanProtocol.reply(out, packet, TitanProtocol.OP_ACK, "PONG");
+            }
+        } catch (Exception ignored) {
+            // client closed the connection
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        System.gc();
+        Thread.sleep(200);
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
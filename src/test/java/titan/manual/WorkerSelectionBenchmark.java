@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 Ram Narayanan
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
+ */
+
+package titan.manual;
+
+import titan.scheduler.Worker;
+import titan.scheduler.WorkerRegistry;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Compares two ways of picking the least loaded, non-saturated worker for a capability, as the dispatch loop does:
+ * 1. Scan: filter every worker by capability into a new list, then scan that list for the lowest load
+ *    (how {@code selectBestWorker} worked before the capability index).
+ * 2. Index: {@link WorkerRegistry#leastLoadedWorker(String)}, the head of a per-capability load-ordered set.
+ * <p>
+ * Both run the same simulated dispatch traffic on a registry of W workers spread over C capabilities: pick a worker,
+ * reserve a slot on it, and free a slot on a random busy worker so the cluster stays partly loaded. The benchmark
+ * prints the time and bytes allocated per pick, and checks that both strategies agree on the lowest load.
+ * </p>
+ * Run with: {@code java -cp target/classes:target/test-classes titan.manual.WorkerSelectionBenchmark [workers] [capabilities] [picks]}
+ */
+public class WorkerSelectionBenchmark {
+    private static final java.lang.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        int workers = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int capabilities = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int picks = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+
+        System.out.println("=== [INFO] WORKER SELECTION BENCHMARK ===");
+        System.out.println("Workers: " + workers + " | Capabilities: " + capabilities + " | Picks: " + picks);
+
+        // Warm up both paths before measuring
+        run("scan", workers, capabilities, picks / 10, false);
+        run("index", workers, capabilities, picks / 10, false);
+        run("scan", workers, capabilities, picks, true);
+        run("index", workers, capabilities, picks, true);
+        System.exit(0);
+    }
+
+    private static void run(String mode, int workers, int capabilities, int picks, boolean print) {
+        WorkerRegistry registry = new WorkerRegistry();
+        for (int i = 0; i < workers; i++) {
+            registry.addWorker("10.0." + (i / 250) + "." + (i % 250), 8080 + i, "CAP-" + (i % capabilities), false);
+        }
+        List<Worker> all = new ArrayList<>(registry.getWorkers());
+        List<Worker> busy = new ArrayList<>();
+        Random random = new Random(7);
+        boolean indexed = mode.equals("index");
+
+        long selectNanos = 0;
+        long selectBytes = 0;
+        long misses = 0;
+        long mismatches = 0;
+        for (int i = 0; i < picks; i++) {
+            String capability = "CAP-" + random.nextInt(capabilities);
+
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            Worker picked = indexed ? registry.leastLoadedWorker(capability) : scan(registry, capability);
+            selectNanos += System.nanoTime() - start;
+            selectBytes += allocatedBytes() - bytesBefore;
+
+            if (picked == null) {
+                misses++;
+            } else {
+                if (print && i % 1000 == 0) {
+                    Worker expected = scan(registry, capability);
+                    if (expected == null || expected.getCurrentLoad() != picked.getCurrentLoad()) mismatches++;
+                }
+                picked.incrementCurrentLoad();
+                busy.add(picked);
+            }
+            // Most jobs finish soon after they start, so only a fraction of the slots is taken at any time
+            if (busy.size() > all.size() * 2 || (!busy.isEmpty() && random.nextInt(10) < 9)) {
+                busy.remove(random.nextInt(busy.size())).decrementCurrentLoad();
+            }
+        }
+
+        if (print) {
+            System.out.printf("%-6s %8.0f ns/pick | %8.0f bytes/pick | %d saturated misses | %d mismatches vs scan%n",
+                    mode, (double) selectNanos / picks, (double) selectBytes / picks, misses, mismatches);
+        }
+    }
+
+    private static Worker scan(WorkerRegistry registry, String capability) {
+        List<Worker> available = registry.getWorkers().stream()
+                .filter(w -> w.capabilities().contains(capability))
+                .collect(Collectors.toList());
+        Worker best = null;
+        int minLoad = Integer.MAX_VALUE;
+        for (Worker w : available) {
+            if (w.isSaturated()) continue;
+            if (w.getCurrentLoad() < minLoad) {
+                minLoad = w.getCurrentLoad();
+                best = w;
+            }
+        }
+        return best;
+    }
+
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+}
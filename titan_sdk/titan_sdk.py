@@ -10,6 +10,7 @@
 #  distributed under the License is distributed on an "AS IS" BASIS,
 #  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND.
 
+import contextlib
 import socket
 import struct
 import base64
@@ -24,6 +25,8 @@ VERSION = 1
 OP_SUBMIT_DAG = 4
 OP_LOG_BATCH = 0x17
 OP_GET_LOGS = 0x16
+OP_GET_LOGS_SINCE = 0x21
+OP_SEARCH_LOGS = 0x22
 OP_UPLOAD_ASSET  = 0x53
 OP_DEPLOY_SCRIPT = 0x57
 OP_KV_SET = 0x60
@@ -312,16 +315,18 @@ class TitanClient:
         pending  = {j.id for j in jobs}
         deadline = _time.time() + timeout
 
-        while pending and _time.time() < deadline:
-            done = set()
-            for job_id in pending:
-                status = (self.get_job_status(job_id) or "").strip().upper()
-                if status in TERMINAL:
-                    print(f"[SDK] {job_id} → {status}", flush=True)
-                    done.add(job_id)
-            pending -= done
-            if pending:
-                _time.sleep(poll_interval)
+        # One connection for all status polls instead of one per job per round
+        with self.keep_alive():
+            while pending and _time.time() < deadline:
+                done = set()
+                for job_id in pending:
+                    status = (self.get_job_status(job_id) or "").strip().upper()
+                    if status in TERMINAL:
+                        print(f"[SDK] {job_id} → {status}", flush=True)
+                        done.add(job_id)
+                pending -= done
+                if pending:
+                    _time.sleep(poll_interval)
 
         if pending:
             print(f"[SDK] _wait_for_dag: timeout — still pending: {pending}", flush=True)
@@ -332,6 +337,56 @@ class TitanClient:
     def fetch_logs(self, job_id):
         return self._send_request(OP_GET_LOGS, job_id)
 
+    def fetch_logs_since(self, job_id, offset=0, wait_ms=0):
+        """Fetch only the log lines a job wrote from line `offset` on.
+
+        Returns (lines, next_offset); pass next_offset to the next call to get only the
+        lines written since. A negative offset counts back from the end, so -100 starts
+        with the last 100 lines. With wait_ms, the Master holds the request until new
+        lines arrive or wait_ms has passed. Returns (None, offset) if the request failed.
+        """
+        resp = self._send_request(OP_GET_LOGS_SINCE, f"{job_id}|{int(offset)}|{int(wait_ms)}",
+                                  timeout=10 + wait_ms / 1000.0)
+        parts = (resp or "").split("|", 2)
+        try:
+            first, nxt = int(parts[0]), int(parts[1])
+        except (ValueError, IndexError):
+            return None, offset
+        lines = parts[2].split("\n") if nxt > first and len(parts) > 2 else []
+        return lines, nxt
+
+    def follow_logs(self, job_id, offset=0, wait_ms=5000):
+        """Yield a job's log lines from `offset` on as they are written. Runs until the caller stops."""
+        import time as _time
+        while True:
+            lines, offset = self.fetch_logs_since(job_id, offset, wait_ms)
+            if lines is None:
+                _time.sleep(1)
+                continue
+            yield from lines
+
+    def search_logs(self, query, job_prefix="", since_ms=0, until_ms=0, limit=100):
+        """Find the log lines that contain all the words of `query`, newest first.
+
+        Words match whole and regardless of case. job_prefix limits the search to jobs whose
+        ID starts with it, such as "DAG-"; since_ms and until_ms to lines logged in that range
+        (epoch milliseconds, 0 for no limit). Returns a list of (job_id, line, time_ms); pass
+        line as the offset to fetch_logs_since to read the line and what follows it.
+        Returns None if the request failed.
+        """
+        payload = f"{query.replace('|', ' ')}|{job_prefix}|{int(since_ms)}|{int(until_ms)}|{int(limit)}"
+        resp = self._send_request(OP_SEARCH_LOGS, payload)
+        if resp is None or resp.startswith(("ERROR", "CONNECTION_ERROR")):
+            return None
+        hits = []
+        try:
+            for row in resp.split("\n") if resp else []:
+                job_id, line, time_ms = row.rsplit("|", 2)
+                hits.append((job_id, int(line), int(time_ms)))
+        except ValueError:
+            return None
+        return hits
+
     def store_put(self, key, value):
         """Saves a string value to the distributed store (Redis)"""
         payload = f"{key}|{value}"
@@ -499,57 +554,130 @@ class TitanClient:
                 try: os.remove(zip_filename) 
                 except: pass
 
-    def _send_request(self, op_code, payload):
+    @contextlib.contextmanager
+    def keep_alive(self):
+        """Send every request made inside the block over one persistent connection.
+
+        The Master keeps a session open until it is idle for titan.server.session.idle.ms
+        or reaches titan.server.session.max.requests. A session the Master has closed is
+        detected before the next request, which then goes out on a new connection.
+        """
+        self._keep_alive = True
+        try:
+            yield self
+        finally:
+            self._keep_alive = False
+            self._close_session()
+
+    def _close_session(self):
+        s = getattr(self, "_session_sock", None)
+        self._session_sock = None
+        if s:
+            try: s.close()
+            except OSError: pass
+
+    def _send_request(self, op_code, payload, timeout=10):
+        if getattr(self, "_keep_alive", False):
+            return self._send_on_session(op_code, payload, timeout)
         s = None
         try:
             s = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
             s.connect((TITAN_HOST, TITAN_PORT))
-            
-            payload_bytes = payload.encode('utf-8')
-            header = struct.pack('>BBBBI', VERSION, op_code, 0, 0, len(payload_bytes))
-            s.sendall(header + payload_bytes)
+            response = self._exchange(s, op_code, payload, timeout)
+            return "ERROR: No Response" if response is None else response
 
-            s.settimeout(10)
-            
-            # 1. Read First 8 Bytes
-            initial_data = self._recv_exact(s, 8)
-            if not initial_data: return "ERROR: No Response"
+        except Exception as e:
+            return f"CONNECTION_ERROR: {e}"
+        finally:
+            if s: s.close()
 
+    def _send_on_session(self, op_code, payload, timeout=10):
+        s = getattr(self, "_session_sock", None)
+        if s is not None and not self._session_alive(s):
+            self._close_session()
+            s = None
+        reused = s is not None
+        try:
+            if s is None:
+                s = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+                s.connect((TITAN_HOST, TITAN_PORT))
+                self._session_sock = s
+            response = self._exchange(s, op_code, payload, timeout)
+            if response is None and reused and not self._session_alive(s):
+                # The Master closed the session without reading the request: send it on a new one
+                self._close_session()
+                return self._send_on_session(op_code, payload, timeout)
+            if response is None:
+                self._close_session()
+                return "ERROR: No Response"
+            return response
+        except OSError as e:
+            self._close_session()
+            if reused:
+                return self._send_on_session(op_code, payload, timeout)
+            return f"CONNECTION_ERROR: {e}"
+        except Exception as e:
+            self._close_session()
+            return f"CONNECTION_ERROR: {e}"
+
+    def _session_alive(self, s):
+        """True unless the Master has closed the session (idle timeout or request limit)."""
+        try:
+            s.setblocking(False)
+            return s.recv(1, socket.MSG_PEEK) != b""
+        except BlockingIOError:
+            return True   # open, nothing pending
+        except OSError:
+            return False
+        finally:
+            try: s.setblocking(True)
+            except OSError: pass
+
+    def _exchange(self, s, op_code, payload, timeout=10):
+        """Send one request on a connected socket and read its response.
+
+        Returns None if the connection closed before a response header arrived.
+        """
+        payload_bytes = payload.encode('utf-8')
+        header = struct.pack('>BBBBI', VERSION, op_code, 0, 0, len(payload_bytes))
+        s.sendall(header + payload_bytes)
+
+        s.settimeout(timeout)
+
+        # 1. Read First 8 Bytes
+        initial_data = self._recv_exact(s, 8)
+        if not initial_data: return None
+
+        is_valid_protocol = False
+        resp_len = 0
+
+        # 2. Smart Parse
+        try:
+            ver, op, flags, reserved, length = struct.unpack('>BBBBI', initial_data)
+            if ver == 1: 
+                is_valid_protocol = True
+                resp_len = length
+        except:
             is_valid_protocol = False
-            resp_len = 0
 
-            # 2. Smart Parse
+        if is_valid_protocol:
+            if resp_len > 0:
+                response_bytes = self._recv_exact(s, resp_len)
+                return response_bytes.decode('utf-8')
+            return ""
+        else:
+            # Fallback
+            remaining_data = b""
             try:
-                ver, op, flags, reserved, length = struct.unpack('>BBBBI', initial_data)
-                if ver == 1: 
-                    is_valid_protocol = True
-                    resp_len = length
-            except:
-                is_valid_protocol = False
-
-            if is_valid_protocol:
-                if resp_len > 0:
-                    response_bytes = self._recv_exact(s, resp_len)
-                    return response_bytes.decode('utf-8')
-                return ""
-            else:
-                # Fallback
-                remaining_data = b""
-                try:
-                    while True:
-                        chunk = s.recv(4096)
-                        if not chunk: break
-                        remaining_data += chunk
-                except socket.timeout:
-                    pass
-                
-                full_response = initial_data + remaining_data
-                return full_response.decode('utf-8', errors='ignore')
+                while True:
+                    chunk = s.recv(4096)
+                    if not chunk: break
+                    remaining_data += chunk
+            except socket.timeout:
+                pass
 
-        except Exception as e:
-            return f"CONNECTION_ERROR: {e}"
-        finally:
-            if s: s.close()
+            full_response = initial_data + remaining_data
+            return full_response.decode('utf-8', errors='ignore')
 
     # def _recv_exact(self, sock, n):
     #     data = b''